@@ -4,24 +4,38 @@ import com.arcube.transferaggregator.exception.InvalidTokenException;
 import com.arcube.transferaggregator.utils.HmacSigner;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
-/** Codec for encoding and decoding booking IDs */
+/** Codec for encoding and decoding booking IDs. Verified payloads are cached by token for the cancel/change flows */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class BookingIdCodec {
 
     private final HmacSigner hmacSigner;
     private final ObjectMapper objectMapper;
+    private final VerifiedTokenCache<BookingPayload> verifiedTokens;
+
+    @Autowired
+    public BookingIdCodec(HmacSigner hmacSigner, ObjectMapper objectMapper, VerifiedTokenCache<BookingPayload> verifiedTokens) {
+        this.hmacSigner = hmacSigner;
+        this.objectMapper = objectMapper;
+        this.verifiedTokens = verifiedTokens;
+    }
+
+    /** Uncached codec */
+    public BookingIdCodec(HmacSigner hmacSigner, ObjectMapper objectMapper) {
+        this(hmacSigner, objectMapper, VerifiedTokenCache.disabled());
+    }
 
     public String encode(BookingPayload payload) {
         try {
+            String keyId = hmacSigner.activeKeyId();
             var payloadMap = Map.of(
+                "kid", keyId,
                 "sup", payload.supplierCode(),
                 "rid", payload.reservationId(),
                 "cnf", payload.confirmationNumber() != null ? payload.confirmationNumber() : ""
@@ -29,7 +43,7 @@ public class BookingIdCodec {
 
             String payloadJson = objectMapper.writeValueAsString(payloadMap);
             String payloadBase64 = hmacSigner.encode(payloadJson);
-            String signature = hmacSigner.sign(payloadBase64);
+            String signature = hmacSigner.sign(keyId, payloadBase64);
 
             return payloadBase64 + "." + signature;
         } catch (JsonProcessingException e) {
@@ -38,6 +52,11 @@ public class BookingIdCodec {
     }
 
     public BookingPayload decode(String token) {
+        if (token == null) throw new InvalidTokenException("Invalid booking token format");
+        return verifiedTokens.get(token, this::verify);
+    }
+
+    private BookingPayload verify(String token) {
         try {
             String[] parts = token.split("\\.");
             if (parts.length != 2) throw new InvalidTokenException("Invalid booking token format");
@@ -45,14 +64,15 @@ public class BookingIdCodec {
             String payloadBase64 = parts[0];
             String signature = parts[1];
 
-            if (!hmacSigner.sign(payloadBase64).equals(signature)) {
-                throw new InvalidTokenException("Booking token signature verification failed");
-            }
-
+            // kid only selects the key; nothing else is trusted until the signature checks out
             String payloadJson = hmacSigner.decode(payloadBase64);
             @SuppressWarnings("unchecked")
             Map<String, Object> payloadMap = objectMapper.readValue(payloadJson, Map.class);
 
+            if (!hmacSigner.verify((String) payloadMap.get("kid"), payloadBase64, signature)) {
+                throw new InvalidTokenException("Booking token signature verification failed");
+            }
+
             String cnf = (String) payloadMap.get("cnf");
             if (cnf != null && cnf.isEmpty()) cnf = null;
 
@@ -3,80 +3,115 @@ package com.arcube.transferaggregator.adapters.idcodec;
 import com.arcube.transferaggregator.exception.InvalidTokenException;
 import com.arcube.transferaggregator.exception.OfferExpiredException;
 import com.arcube.transferaggregator.utils.HmacSigner;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Map;
 
 /** Codec for encoding and decoding offerIds.
-* Format: base64url(payload).base64url(signature) */
+* Format: base64url(payload).base64url(signature), where payload is the compact binary
+* layout in {@link OfferTokenFormat} and names the signing key id. Legacy tokens with a JSON payload (signature over the
+* base64 text) are still accepted on decode. Verified payloads are cached by token, so
+* repeat decodes during pricing and booking skip the HMAC; expiry is still checked every time. */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OfferIdCodec {
 
     private final HmacSigner hmacSigner;
     private final ObjectMapper objectMapper;
+    private final VerifiedTokenCache<OfferPayload> verifiedTokens;
+    private final Clock clock;
 
-    public String encode(OfferPayload payload) {
-        try {
-            var payloadMap = Map.of(
-                "sup", payload.supplierCode(),
-                "sid", payload.searchId(),
-                "rid", payload.resultId(),
-                "exp", payload.expiresAt().getEpochSecond(),
-                "iat", payload.issuedAt().getEpochSecond()
-            );
-
-            String payloadJson = objectMapper.writeValueAsString(payloadMap);
-            String payloadBase64 = hmacSigner.encode(payloadJson);
-            String signature = hmacSigner.sign(payloadBase64);
-
-            return payloadBase64 + "." + signature;
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to encode offer payload", e);
-        }
+    @Autowired
+    public OfferIdCodec(HmacSigner hmacSigner, ObjectMapper objectMapper, VerifiedTokenCache<OfferPayload> verifiedTokens) {
+        this(hmacSigner, objectMapper, verifiedTokens, Clock.systemUTC());
     }
 
-    public OfferPayload decode(String token) {
-        try {
-            String[] parts = token.split("\\.");
-            if (parts.length != 2) throw new InvalidTokenException("Invalid token format");
+    OfferIdCodec(HmacSigner hmacSigner, ObjectMapper objectMapper, VerifiedTokenCache<OfferPayload> verifiedTokens,
+                 Clock clock) {
+        this.hmacSigner = hmacSigner;
+        this.objectMapper = objectMapper;
+        this.verifiedTokens = verifiedTokens;
+        this.clock = clock;
+    }
 
-            String payloadBase64 = parts[0];
-            String signature = parts[1];
+    /** Uncached codec */
+    public OfferIdCodec(HmacSigner hmacSigner, ObjectMapper objectMapper) {
+        this(hmacSigner, objectMapper, VerifiedTokenCache.disabled());
+    }
 
-            if (!hmacSigner.sign(payloadBase64).equals(signature)) {
-                throw new InvalidTokenException("Token signature verification failed");
-            }
+    public String encode(OfferPayload payload) {
+        // One buffer holds the payload followed by its raw signature
+        String keyId = hmacSigner.activeKeyId();
+        int payloadLength = OfferTokenFormat.payloadLength(payload, keyId);
+        byte[] buf = new byte[payloadLength + HmacSigner.SIGNATURE_LENGTH];
+        OfferTokenFormat.writePayload(payload, keyId, buf);
+        hmacSigner.sign(keyId, buf, 0, payloadLength, buf, payloadLength);
+        return OfferTokenFormat.toToken(buf, payloadLength);
+    }
 
-            String payloadJson = hmacSigner.decode(payloadBase64);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> payloadMap = objectMapper.readValue(payloadJson, Map.class);
+    public OfferPayload decode(String token) {
+        if (token == null) throw new InvalidTokenException("Invalid token format");
 
-            Instant expiresAt = Instant.ofEpochSecond(((Number) payloadMap.get("exp")).longValue());
-            Instant issuedAt = Instant.ofEpochSecond(((Number) payloadMap.get("iat")).longValue());
+        OfferPayload payload = verifiedTokens.get(token, this::verify);
+        if (payload.isExpiredAt(clock.instant())) {
+            throw new OfferExpiredException("Offer expired at " + payload.expiresAt());
+        }
+        return payload;
+    }
 
-            var payload = new OfferPayload(
-                (String) payloadMap.get("sup"),
-                (String) payloadMap.get("sid"),
-                (String) payloadMap.get("rid"),
-                expiresAt, issuedAt
-            );
+    private OfferPayload verify(String token) {
+        try {
+            int dot = token.indexOf('.');
+            if (dot <= 0 || dot != token.lastIndexOf('.')) throw new InvalidTokenException("Invalid token format");
 
-            if (payload.isExpired()) {
-                throw new OfferExpiredException("Offer expired at " + expiresAt);
-            }
+            String payloadBase64 = token.substring(0, dot);
+            String signature = token.substring(dot + 1);
+            byte[] payloadBytes = HmacSigner.URL_DECODER.decode(payloadBase64);
 
-            return payload;
-        } catch (InvalidTokenException | OfferExpiredException e) {
+            return payloadBytes.length > 0 && payloadBytes[0] == '{'
+                ? decodeLegacy(payloadBase64, signature, payloadBytes)
+                : decodeBinary(payloadBytes, signature);
+        } catch (InvalidTokenException e) {
             throw e;
         } catch (Exception e) {
             throw new InvalidTokenException("Failed to decode offer token", e);
         }
     }
+
+    private OfferPayload decodeBinary(byte[] payloadBytes, String signature) {
+        String keyId = OfferTokenFormat.readKeyId(payloadBytes);
+        byte[] signatureBytes = HmacSigner.URL_DECODER.decode(signature);
+        if (!hmacSigner.verify(keyId, payloadBytes, 0, payloadBytes.length, signatureBytes)) {
+            throw new InvalidTokenException("Token signature verification failed");
+        }
+
+        return OfferTokenFormat.readPayload(payloadBytes);
+    }
+
+    /** JSON payload issued before the binary format */
+    private OfferPayload decodeLegacy(String payloadBase64, String signature, byte[] payloadBytes) throws Exception {
+        if (!hmacSigner.verify(null, payloadBase64, signature)) {
+            throw new InvalidTokenException("Token signature verification failed");
+        }
+
+        String payloadJson = new String(payloadBytes, StandardCharsets.UTF_8);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> payloadMap = objectMapper.readValue(payloadJson, Map.class);
+
+        Instant expiresAt = Instant.ofEpochSecond(((Number) payloadMap.get("exp")).longValue());
+        Instant issuedAt = Instant.ofEpochSecond(((Number) payloadMap.get("iat")).longValue());
+
+        return new OfferPayload(
+            (String) payloadMap.get("sup"),
+            (String) payloadMap.get("sid"),
+            (String) payloadMap.get("rid"),
+            expiresAt, issuedAt
+        );
+    }
 }
@@ -16,6 +16,10 @@ public record OfferPayload(
     }
     
     public boolean isExpired() {
-        return expiresAt != null && Instant.now().isAfter(expiresAt);
+        return isExpiredAt(Instant.now());
+    }
+
+    public boolean isExpiredAt(Instant now) {
+        return expiresAt != null && now.isAfter(expiresAt);
     }
 }
@@ -0,0 +1,206 @@
+package com.arcube.transferaggregator.adapters.idcodec;
+
+import com.arcube.transferaggregator.exception.InvalidTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary layout of an offer token payload.
+ * Version 2: [version:1][kid][exp:varint][iat:varint][sup][sid][rid], where epoch seconds are
+ * unsigned varints and kid and each id are a varint byte length followed by UTF-8 bytes.
+ * Version 1 is the same without kid and is still read. Also carries a small base64url
+ * writer so a token is built without intermediate strings.
+ */
+final class OfferTokenFormat {
+
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+
+    private static final int MAX_VARINT_BYTES = 10;
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+        .getBytes(StandardCharsets.US_ASCII);
+
+    private OfferTokenFormat() {}
+
+    /** Exact payload size, so the buffer is allocated once */
+    static int payloadLength(OfferPayload payload, String keyId) {
+        return 1
+            + stringLength(keyId)
+            + varintLength(epochSeconds(payload.expiresAt()))
+            + varintLength(epochSeconds(payload.issuedAt()))
+            + stringLength(payload.supplierCode())
+            + stringLength(payload.searchId())
+            + stringLength(payload.resultId());
+    }
+
+    /** Writes the payload at the start of buf and returns its length */
+    static int writePayload(OfferPayload payload, String keyId, byte[] buf) {
+        int pos = 0;
+        buf[pos++] = VERSION_2;
+        pos = writeString(keyId, buf, pos);
+        pos = writeVarint(epochSeconds(payload.expiresAt()), buf, pos);
+        pos = writeVarint(epochSeconds(payload.issuedAt()), buf, pos);
+        pos = writeString(payload.supplierCode(), buf, pos);
+        pos = writeString(payload.searchId(), buf, pos);
+        return writeString(payload.resultId(), buf, pos);
+    }
+
+    /** Key id the payload was signed with; null for version 1 payloads, which predate key ids */
+    static String readKeyId(byte[] buf) {
+        Reader reader = new Reader(buf);
+        return readVersion(reader) == VERSION_2 ? reader.readString() : null;
+    }
+
+    static OfferPayload readPayload(byte[] buf) {
+        Reader reader = new Reader(buf);
+        if (readVersion(reader) == VERSION_2) {
+            reader.readString();
+        }
+
+        Instant expiresAt = Instant.ofEpochSecond(reader.readVarint());
+        Instant issuedAt = Instant.ofEpochSecond(reader.readVarint());
+        String supplierCode = reader.readString();
+        String searchId = reader.readString();
+        String resultId = reader.readString();
+        if (reader.pos != buf.length) {
+            throw new InvalidTokenException("Invalid token format");
+        }
+
+        return new OfferPayload(supplierCode, searchId, resultId, expiresAt, issuedAt);
+    }
+
+    /** base64url(buf[0, payloadLength)) + "." + base64url(buf[payloadLength, buf.length)) */
+    static String toToken(byte[] buf, int payloadLength) {
+        int signatureLength = buf.length - payloadLength;
+        byte[] out = new byte[base64Length(payloadLength) + 1 + base64Length(signatureLength)];
+        int pos = writeBase64(buf, 0, payloadLength, out, 0);
+        out[pos++] = '.';
+        writeBase64(buf, payloadLength, signatureLength, out, pos);
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+
+    private static byte readVersion(Reader reader) {
+        byte version = reader.readByte();
+        if (version != VERSION_1 && version != VERSION_2) {
+            throw new InvalidTokenException("Unsupported token version");
+        }
+        return version;
+    }
+
+    private static long epochSeconds(Instant instant) {
+        long seconds = instant.getEpochSecond();
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Token timestamps must not precede the epoch");
+        }
+        return seconds;
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarint(long value, byte[] buf, int pos) {
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int stringLength(String value) {
+        int bytes = isAscii(value) ? value.length() : value.getBytes(StandardCharsets.UTF_8).length;
+        return varintLength(bytes) + bytes;
+    }
+
+    private static int writeString(String value, byte[] buf, int pos) {
+        if (isAscii(value)) {
+            int length = value.length();
+            pos = writeVarint(length, buf, pos);
+            for (int i = 0; i < length; i++) {
+                buf[pos++] = (byte) value.charAt(i);
+            }
+            return pos;
+        }
+
+        // Rare: non-ASCII ids pay for one extra copy
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        pos = writeVarint(utf8.length, buf, pos);
+        System.arraycopy(utf8, 0, buf, pos, utf8.length);
+        return pos + utf8.length;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private static int base64Length(int bytes) {
+        int remainder = bytes % 3;
+        return (bytes / 3) * 4 + (remainder == 0 ? 0 : remainder + 1);
+    }
+
+    // Unpadded base64url, same output as Base64.getUrlEncoder().withoutPadding()
+    private static int writeBase64(byte[] src, int offset, int length, byte[] out, int pos) {
+        int end = offset + length;
+        int i = offset;
+        while (end - i >= 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            out[pos++] = BASE64URL[bits >>> 18];
+            out[pos++] = BASE64URL[(bits >>> 12) & 0x3F];
+            out[pos++] = BASE64URL[(bits >>> 6) & 0x3F];
+            out[pos++] = BASE64URL[bits & 0x3F];
+            i += 3;
+        }
+
+        int remainder = end - i;
+        if (remainder > 0) {
+            int bits = (src[i] & 0xFF) << 16 | (remainder == 2 ? (src[i + 1] & 0xFF) << 8 : 0);
+            out[pos++] = BASE64URL[bits >>> 18];
+            out[pos++] = BASE64URL[(bits >>> 12) & 0x3F];
+            if (remainder == 2) {
+                out[pos++] = BASE64URL[(bits >>> 6) & 0x3F];
+            }
+        }
+        return pos;
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        byte readByte() {
+            if (pos >= buf.length) throw new InvalidTokenException("Invalid token format");
+            return buf[pos++];
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0, i = 0; i < MAX_VARINT_BYTES; shift += 7, i++) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new InvalidTokenException("Invalid token format");
+        }
+
+        String readString() {
+            long length = readVarint();
+            if (length > buf.length - pos) throw new InvalidTokenException("Invalid token format");
+            String value = new String(buf, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return value;
+        }
+    }
+}
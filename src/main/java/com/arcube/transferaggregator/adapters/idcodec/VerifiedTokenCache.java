@@ -0,0 +1,106 @@
+package com.arcube.transferaggregator.adapters.idcodec;
+
+import com.arcube.transferaggregator.config.TokenProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of token payloads that already passed signature verification.
+ * Keyed by the full token string, signature included, so a hit means these exact bytes were
+ * verified before; failed decodes are never cached. Entries live at most the configured ttl,
+ * and offer payloads no longer than their own expiry. Callers still check expiry on every hit.
+ */
+public final class VerifiedTokenCache<T> {
+
+    private final Cache<String, T> cache;  // null when disabled
+
+    private VerifiedTokenCache(Cache<String, T> cache) {
+        this.cache = cache;
+    }
+
+    /** No caching: every lookup runs the verifier */
+    public static <T> VerifiedTokenCache<T> disabled() {
+        return new VerifiedTokenCache<>(null);
+    }
+
+    /**
+     * @param name      token type, used as the cache metric tag (e.g. "offer", "booking")
+     * @param expiresAt when a payload stops being valid, or null if it never does
+     */
+    public static <T> VerifiedTokenCache<T> create(String name, TokenProperties.CacheProperties properties,
+                                                   MeterRegistry meterRegistry, Function<T, Instant> expiresAt) {
+        return create(name, properties, meterRegistry, expiresAt, Clock.systemUTC(), Ticker.systemTicker());
+    }
+
+    /** As above, reading payload expiry off clock and timing entries with ticker */
+    static <T> VerifiedTokenCache<T> create(String name, TokenProperties.CacheProperties properties,
+                                            MeterRegistry meterRegistry, Function<T, Instant> expiresAt,
+                                            Clock clock, Ticker ticker) {
+        if (!properties.isEnabled() || properties.getMaximumSize() == 0) {
+            return disabled();
+        }
+
+        long ttlNanos = properties.getTtl().toNanos();
+        Cache<String, T> cache = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .ticker(ticker)
+            .expireAfter(new Expiry<String, T>() {
+                @Override
+                public long expireAfterCreate(String token, T payload, long currentTime) {
+                    Instant expiry = expiresAt.apply(payload);
+                    if (expiry == null) {
+                        return ttlNanos;
+                    }
+                    long untilExpiry = Duration.between(clock.instant(), expiry).toNanos();
+                    return Math.max(0, Math.min(ttlNanos, untilExpiry));
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, T payload, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, T payload, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+        // cache.gets{result=hit|miss}, evictions and size, plus a ready-made ratio for dashboards
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens", "token", name);
+        Gauge.builder("transfer.tokens.cache.hit.ratio", cache, c -> c.stats().hitRate())
+            .description("Share of token decodes served without re-verifying the signature")
+            .tag("token", name)
+            .register(meterRegistry);
+
+        return new VerifiedTokenCache<>(cache);
+    }
+
+    /** Cached payload for the token, or the verifier's result, which is cached only if it returns */
+    public T get(String token, Function<String, T> verifier) {
+        if (cache == null) {
+            return verifier.apply(token);
+        }
+        return cache.get(token, verifier);
+    }
+
+    long size() {
+        if (cache == null) {
+            return 0;
+        }
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+}
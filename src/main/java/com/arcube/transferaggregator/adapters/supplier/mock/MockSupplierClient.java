@@ -1,7 +1,5 @@
 package com.arcube.transferaggregator.adapters.supplier.mock;
 
-import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
-import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
 import com.arcube.transferaggregator.config.AggregatorProperties;
 import com.arcube.transferaggregator.config.SupplierProperties;
 import com.arcube.transferaggregator.domain.*;
@@ -28,7 +26,6 @@ public class MockSupplierClient implements TransferSupplier, ReservationChangeSu
     
     private final AggregatorProperties properties;
     private final SupplierProperties supplierProperties;
-    private final OfferIdCodec offerIdCodec;
     
     @Override
     public String getSupplierCode() { return SUPPLIER_CODE; }
@@ -131,8 +128,7 @@ public class MockSupplierClient implements TransferSupplier, ReservationChangeSu
     // ========== Helper Methods ==========
     
     private Offer createOffer(String searchId, String resultId, String vehicleType, double price, Instant expiresAt) {
-        OfferPayload payload = OfferPayload.of(SUPPLIER_CODE, searchId, resultId, expiresAt);
-        String offerId = offerIdCodec.encode(payload);
+        OfferRef ref = OfferRef.ingested(SUPPLIER_CODE, searchId, resultId, expiresAt);
         
         // Simulate varying distances (Mozio provides distance_meters)
         int distanceMeters = switch (vehicleType) {
@@ -153,7 +149,7 @@ public class MockSupplierClient implements TransferSupplier, ReservationChangeSu
         );
         
         return Offer.builder()
-            .offerId(offerId)
+            .ref(ref)
             .supplierCode(SUPPLIER_CODE)
             .vehicle(Vehicle.builder()
                 .type(vehicleType)
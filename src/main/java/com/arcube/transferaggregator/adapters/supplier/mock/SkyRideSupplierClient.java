@@ -1,7 +1,5 @@
 package com.arcube.transferaggregator.adapters.supplier.mock;
 
-import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
-import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
 import com.arcube.transferaggregator.config.SupplierProperties;
 import com.arcube.transferaggregator.domain.*;
 import com.arcube.transferaggregator.ports.*;
@@ -31,7 +29,6 @@ public class SkyRideSupplierClient implements TransferSupplier {
     private static final String SUPPLIER_NAME = "SkyRide Premium Transfers";
     
     private final SupplierProperties supplierProperties;
-    private final OfferIdCodec offerIdCodec;
     
     @Override
     public String getSupplierCode() { return SUPPLIER_CODE; }
@@ -106,11 +103,10 @@ public class SkyRideSupplierClient implements TransferSupplier {
     
     private Offer createOffer(String searchId, String resultId, String vehicleType, 
                                double price, Instant expiresAt, Map<String, Object> extras) {
-        OfferPayload payload = OfferPayload.of(SUPPLIER_CODE, searchId, resultId, expiresAt);
-        String offerId = offerIdCodec.encode(payload);
+        OfferRef ref = OfferRef.ingested(SUPPLIER_CODE, searchId, resultId, expiresAt);
         
         return Offer.builder()
-            .offerId(offerId)
+            .ref(ref)
             .supplierCode(SUPPLIER_CODE)
             .vehicle(Vehicle.builder()
                 .type(vehicleType)
@@ -1,7 +1,5 @@
 package com.arcube.transferaggregator.adapters.supplier.mock;
 
-import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
-import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
 import com.arcube.transferaggregator.config.AggregatorProperties;
 import com.arcube.transferaggregator.config.SupplierProperties;
 import com.arcube.transferaggregator.domain.*;
@@ -38,7 +36,6 @@ public class SlowMockSupplierClient implements TransferSupplier {
     
     private final AggregatorProperties properties;
     private final SupplierProperties supplierProperties;
-    private final OfferIdCodec offerIdCodec;
     
     // Track poll count per searchId (expires after 5 minutes)
     private final Cache<String, SearchState> searchStates = Caffeine.newBuilder()
@@ -187,11 +184,10 @@ public class SlowMockSupplierClient implements TransferSupplier {
     // Creates a Mozio-style offer with provider details in extras
     private Offer createMozioStyleOffer(String searchId, String resultId, String vehicleType, 
                                          double price, Instant expiresAt, Map<String, Object> extras) {
-        OfferPayload payload = OfferPayload.of(SUPPLIER_CODE, searchId, resultId, expiresAt);
-        String offerId = offerIdCodec.encode(payload);
+        OfferRef ref = OfferRef.ingested(SUPPLIER_CODE, searchId, resultId, expiresAt);
         
         return Offer.builder()
-            .offerId(offerId)
+            .ref(ref)
             .supplierCode(SUPPLIER_CODE)
             .vehicle(Vehicle.builder()
                 .type(vehicleType)
@@ -231,11 +227,10 @@ public class SlowMockSupplierClient implements TransferSupplier {
     // Creates a SkyRide-style offer with eco/premium extras
     private Offer createSkyRideStyleOffer(String searchId, String resultId, String vehicleType, 
                                            double price, Instant expiresAt, Map<String, Object> extras) {
-        OfferPayload payload = OfferPayload.of(SUPPLIER_CODE, searchId, resultId, expiresAt);
-        String offerId = offerIdCodec.encode(payload);
+        OfferRef ref = OfferRef.ingested(SUPPLIER_CODE, searchId, resultId, expiresAt);
         
         return Offer.builder()
-            .offerId(offerId)
+            .ref(ref)
             .supplierCode(SUPPLIER_CODE)
             .vehicle(Vehicle.builder()
                 .type(vehicleType)
@@ -1,10 +1,7 @@
 package com.arcube.transferaggregator.adapters.supplier.mozio;
 
-import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
-import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioSearchResponse.*;
 import com.arcube.transferaggregator.domain.*;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -13,16 +10,13 @@ import java.util.*;
 
 // Maps Mozio DTOs to domain objects
 @Component
-@RequiredArgsConstructor
 public class MozioMapper {
     
-    private final OfferIdCodec offerIdCodec;
     private static final String SUPPLIER_CODE = "MOZIO";
     
     // Converts Mozio search result to our Offer domain object
     public Offer mapToOffer(MozioResult result, String searchId, Instant expiresAt) {
-        OfferPayload payload = OfferPayload.of(SUPPLIER_CODE, searchId, result.getResultId(), expiresAt);
-        String offerId = offerIdCodec.encode(payload);
+        OfferRef ref = OfferRef.ingested(SUPPLIER_CODE, searchId, result.getResultId(), expiresAt);
         
         var steps = result.getSteps();
         var mainStep = findMainStep(steps);
@@ -36,7 +30,7 @@ public class MozioMapper {
         var effectiveVehicle = vehicle != null ? vehicle : detailsVehicle;
         
         return Offer.builder()
-            .offerId(offerId)
+            .ref(ref)
             .supplierCode(SUPPLIER_CODE)
             .vehicle(mapVehicle(effectiveVehicle))
             .provider(mapProvider(provider))
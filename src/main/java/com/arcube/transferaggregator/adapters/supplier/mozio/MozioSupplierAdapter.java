@@ -3,6 +3,7 @@ package com.arcube.transferaggregator.adapters.supplier.mozio;
 import com.arcube.transferaggregator.adapters.supplier.mozio.client.MozioBookingClient;
 import com.arcube.transferaggregator.adapters.supplier.mozio.client.MozioSearchClient;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioBookingRequest;
+import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioBookingResponse;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.ReservationStatus;
 import com.arcube.transferaggregator.config.SupplierProperties;
 import com.arcube.transferaggregator.domain.*;
@@ -21,7 +22,7 @@ import java.util.stream.Collectors;
 @Component
 @RequiredArgsConstructor
 @ConditionalOnProperty(name = "transfer.aggregator.mode", havingValue = "real")
-public class MozioSupplierAdapter implements TransferSupplier {
+public class MozioSupplierAdapter implements TransferSupplier, BookingStatusSupplier {
     
     private static final String SUPPLIER_CODE = "MOZIO";
     private static final String SUPPLIER_NAME = "Mozio";
@@ -72,31 +73,7 @@ public class MozioSupplierAdapter implements TransferSupplier {
             .build();
             
         try {
-            var response = bookingClient.book(request);
-            
-            // Booking failed at provider level
-            if (response.getStatus() == ReservationStatus.FAILED) {
-                return SupplierBookingResult.failed(SUPPLIER_CODE, "BOOKING_FAILED", "Provider could not confirm booking");
-            }
-            
-            var res = response.getReservations().stream().findFirst().orElseThrow();
-            
-            // Still processing, need to poll later
-            if (response.getStatus() == ReservationStatus.PENDING || res.getStatus() == ReservationStatus.PENDING) {
-                return SupplierBookingResult.pending(SUPPLIER_CODE, res.getId());
-            }
-            
-            // Get price and currency from response, fallback to USD if not available
-            String currency = res.getCurrency() != null ? res.getCurrency() : "USD";
-            double amount = res.getTotalPrice() != null && res.getTotalPrice().getValue() != null 
-                ? res.getTotalPrice().getValue().getValue() 
-                : 0.0;
-            
-            return SupplierBookingResult.confirmed(
-                SUPPLIER_CODE, res.getId(), res.getConfirmationNumber(), 
-                Money.of(amount, currency),
-                res.getPickupInstructions());
-                
+            return toBookingResult(bookingClient.book(request), null);
         } catch (MozioApiException e) {
             // Search expired - user needs to search again
             if (e.isSearchExpired()) {
@@ -118,6 +95,46 @@ public class MozioSupplierAdapter implements TransferSupplier {
         }
     }
     
+    // Polls a pending Mozio booking; errors are reported as still pending so the caller checks again
+    @Override
+    public SupplierBookingResult getBookingStatus(String searchId, String reservationId, Duration timeout) {
+        try {
+            return toBookingResult(bookingClient.poll(searchId, timeout), reservationId);
+        } catch (Exception e) {
+            log.warn("Booking status poll failed for {}: {}", reservationId, e.getMessage());
+            return SupplierBookingResult.pending(SUPPLIER_CODE, reservationId);
+        }
+    }
+    
+    // Maps a booking or poll response; reservationId picks the reservation, null for the first
+    private SupplierBookingResult toBookingResult(MozioBookingResponse response, String reservationId) {
+        // Booking failed at provider level
+        if (response.getStatus() == ReservationStatus.FAILED) {
+            return SupplierBookingResult.failed(SUPPLIER_CODE, "BOOKING_FAILED", "Provider could not confirm booking");
+        }
+        
+        var res = response.getReservations().stream()
+            .filter(r -> reservationId == null || reservationId.equals(r.getId()))
+            .findFirst()
+            .orElseThrow();
+        
+        // Still processing, need to poll later
+        if (response.getStatus() == ReservationStatus.PENDING || res.getStatus() == ReservationStatus.PENDING) {
+            return SupplierBookingResult.pending(SUPPLIER_CODE, res.getId());
+        }
+        
+        // Get price and currency from response, fallback to USD if not available
+        String currency = res.getCurrency() != null ? res.getCurrency() : "USD";
+        double amount = res.getTotalPrice() != null && res.getTotalPrice().getValue() != null 
+            ? res.getTotalPrice().getValue().getValue() 
+            : 0.0;
+        
+        return SupplierBookingResult.confirmed(
+            SUPPLIER_CODE, res.getId(), res.getConfirmationNumber(), 
+            Money.of(amount, currency),
+            res.getPickupInstructions());
+    }
+    
     // Cancels a Mozio reservation, handles already-cancelled gracefully
     @Override
     public SupplierCancelResult cancel(CancelCommand command) {
@@ -4,11 +4,12 @@ import com.arcube.transferaggregator.adapters.supplier.mozio.MozioConfig;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioBookingRequest;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioBookingResponse;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioCancelRequest;
+import com.arcube.transferaggregator.resilience.Deadline;
 import com.arcube.transferaggregator.resilience.RetryHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.util.retry.Retry;
 
 import java.time.Duration;
 
@@ -16,10 +17,13 @@ import java.time.Duration;
 @Component
 public class MozioBookingClient {
     
+    private static final String SUPPLIER_CODE = "MOZIO";
+    
     private final WebClient webClient;
     private final RetryHandler retryHandler;
     
-    public MozioBookingClient(WebClient.Builder webClientBuilder, MozioConfig config, RetryHandler retryHandler) {
+    public MozioBookingClient(@Qualifier("mozioWebClientBuilder") WebClient.Builder webClientBuilder, MozioConfig config,
+                              RetryHandler retryHandler) {
         this.webClient = webClientBuilder
             .baseUrl(config.getBaseUrl())
             .defaultHeader("API-KEY", config.getApiKey())
@@ -29,25 +33,35 @@ public class MozioBookingClient {
     
     public MozioBookingResponse book(MozioBookingRequest request) {
         // Initial booking request
-        return retryHandler.executeWithRetry(() -> 
+        return retryHandler.withRetry(SUPPLIER_CODE,
             webClient.post()
                 .uri("/v2/reservations/")
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MozioBookingResponse.class)
-                .block(Duration.ofSeconds(15))
-        );
+                .timeout(Deadline.capToCurrent(Duration.ofSeconds(15)))
+        ).block();
+    }
+    
+    public MozioBookingResponse poll(String searchId, Duration timeout) {
+        // Read-only, safe to retry
+        return retryHandler.withRetry(SUPPLIER_CODE,
+            webClient.get()
+                .uri("/v2/reservations/{searchId}/poll/", searchId)
+                .retrieve()
+                .bodyToMono(MozioBookingResponse.class)
+                .timeout(Deadline.capToCurrent(timeout))
+        ).block();
     }
     
     public void cancel(String reservationId) {
         // Cancellation is idempotent, safe to retry
-        retryHandler.executeWithRetry(() -> {
+        retryHandler.withRetry(SUPPLIER_CODE,
             webClient.delete()
                 .uri("/v2/reservations/{id}/", reservationId)
                 .retrieve()
                 .toBodilessEntity()
-                .block(Duration.ofSeconds(10));
-            return null;
-        });
+                .timeout(Deadline.capToCurrent(Duration.ofSeconds(10)))
+        ).block();
     }
 }
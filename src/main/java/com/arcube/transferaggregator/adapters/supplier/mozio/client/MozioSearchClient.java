@@ -5,8 +5,10 @@ import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioSearchRequ
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioSearchResponse;
 import com.arcube.transferaggregator.adapters.supplier.mozio.dto.MozioSearchResponse.MozioResult;
 import com.arcube.transferaggregator.resilience.RateLimiter;
+import com.arcube.transferaggregator.resilience.Deadline;
 import com.arcube.transferaggregator.resilience.RetryHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -19,14 +21,16 @@ import java.util.*;
 @Component
 public class MozioSearchClient {
     
+    private static final String SUPPLIER_CODE = "MOZIO";
+    
     private final WebClient webClient;
     private final MozioConfig config;
     private final RateLimiter rateLimiter;
     private final RetryHandler retryHandler;
     
     // Sets up WebClient with Mozio base URL and API key
-    public MozioSearchClient(WebClient.Builder webClientBuilder, MozioConfig config, 
-                             RateLimiter rateLimiter, RetryHandler retryHandler) {
+    public MozioSearchClient(@Qualifier("mozioWebClientBuilder") WebClient.Builder webClientBuilder,
+                             MozioConfig config, RateLimiter rateLimiter, RetryHandler retryHandler) {
         String baseUrl = config.getBaseUrl();
         if (baseUrl == null || baseUrl.isBlank()) {
             throw new IllegalStateException("Mozio baseUrl is not configured");
@@ -80,14 +84,16 @@ public class MozioSearchClient {
     
     // Sends initial POST request to start the search
     private MozioSearchResponse sendInitialSearch(MozioSearchRequest request) {
-        return retryHandler.executeWithRetry(() -> 
+        // Timeout per attempt, so a slow attempt is retried like any other transient failure;
+        // never beyond the request's deadline
+        return retryHandler.withRetry(SUPPLIER_CODE,
             webClient.post()
                 .uri("/v2/search/")
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MozioSearchResponse.class)
-                .block(Duration.ofSeconds(config.getInitialRequestTimeoutSeconds()))
-        );
+                .timeout(Deadline.capToCurrent(Duration.ofSeconds(config.getInitialRequestTimeoutSeconds())))
+        ).block();
     }
     
     // Polls Mozio API until moreComing=false or deadline reached
@@ -103,13 +109,13 @@ public class MozioSearchClient {
             try {
                 rateLimiter.acquirePollPermit(searchId);
                 
-                MozioSearchResponse pollResponse = retryHandler.executeWithRetry(() -> 
+                MozioSearchResponse pollResponse = retryHandler.withRetry(SUPPLIER_CODE,
                     webClient.get()
                         .uri("/v2/search/{id}/poll/", searchId)
                         .retrieve()
                         .bodyToMono(MozioSearchResponse.class)
-                        .block(Duration.ofSeconds(config.getPollResponseTimeoutSeconds()))
-                );
+                        .timeout(Deadline.capToCurrent(Duration.ofSeconds(config.getPollResponseTimeoutSeconds())))
+                ).block();
                 
                 if (pollResponse != null) {
                     if (pollResponse.getResults() != null) {
@@ -121,7 +127,8 @@ public class MozioSearchClient {
                 }
                 
                 if (!complete) {
-                    Thread.sleep(config.getPollIntervalMs());
+                    Thread.sleep(Math.min(config.getPollIntervalMs(),
+                        Math.max(0, Duration.between(Instant.now(), deadline).toMillis())));
                 }
                 
             } catch (Exception e) {
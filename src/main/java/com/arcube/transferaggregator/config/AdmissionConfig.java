@@ -0,0 +1,26 @@
+package com.arcube.transferaggregator.config;
+
+import com.arcube.transferaggregator.resilience.AdmissionController;
+import com.arcube.transferaggregator.resilience.AdmissionFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/** Registers priority admission control in front of the API controllers */
+@Configuration
+public class AdmissionConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionController admissionController,
+                                                                   ObjectMapper objectMapper) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+            new FilterRegistrationBean<>(new AdmissionFilter(admissionController, objectMapper));
+        registration.addUrlPatterns("/api/*");
+        registration.setEnabled(admissionController.isEnabled());
+        // After request logging and tenant resolution, so shed requests are still logged with their id
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 10);
+        return registration;
+    }
+}
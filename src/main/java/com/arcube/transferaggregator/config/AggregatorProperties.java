@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +22,21 @@ public class AggregatorProperties {
   
     private ResilienceProperties resilience = new ResilienceProperties();
 
+    // Best-offer collapse of near-identical cross-supplier offers
+    private CollapseProperties collapse = new CollapseProperties();
+
+    // Retry queue for failed supplier cancellations
+    private CancellationProperties cancellation = new CancellationProperties();
+
+    // Booking results by idempotency key, and markers for bookings in flight
+    private IdempotencyProperties idempotency = new IdempotencyProperties();
+
+    // Background polling of bookings a supplier returned as PENDING
+    private BookingStatusProperties bookingStatus = new BookingStatusProperties();
+
+    // Append-only record of bookings, cancellations and changes, for booking reads
+    private BookingLedgerProperties bookingLedger = new BookingLedgerProperties();
+
     // Multi-tenant configuration
     private String defaultTenant = "default";
 
@@ -44,7 +60,168 @@ public class AggregatorProperties {
     public static class ResilienceProperties {
         private int maxConcurrentCalls = 50;
         private int searchRateLimitPerMinute = 80;
+        private int tenantSearchRateLimitPerMinute = 0;  // 0 = no per-tenant limit
         private int pollRateLimitPerMinute = 25;
+        private ClusterRateLimitProperties clusterRateLimit = new ClusterRateLimitProperties();
+        private RetryProperties retry = new RetryProperties();
+        private SupplierHealthProperties supplierHealth = new SupplierHealthProperties();
+        private AdmissionProperties admission = new AdmissionProperties();
+    }
+
+    /** Priority admission control for API requests (book > cancel > change > search > poll > pricing) */
+    @Data
+    public static class AdmissionProperties {
+        private boolean enabled = true;
+        private int maxConcurrent = 200;                        // In-flight API requests across all classes
+        private double shedStep = 0.1;                          // Each lower class may only use this much less of max-concurrent
+        private Duration maxQueueWait = Duration.ofMillis(500); // Longest a request waits for a slot before 429
+        private Duration retryAfter = Duration.ofSeconds(1);    // Retry-After for bookings; lower classes get multiples
+    }
+
+    /** What the search fan-out does with a supplier the health scoreboard marks degraded */
+    public enum DegradedSupplierPolicy {
+        NONE,              // Call it like any other
+        DEPRIORITISE,      // Call it after the other suppliers have answered, with the time they left
+        SHORTEN_TIMEOUT,   // Call it with a fraction of the remaining time
+        SKIP               // Leave it out with skip-probability
+    }
+
+    /** Live per-supplier search health (EWMA latency, error rate, empty-result rate) */
+    @Data
+    public static class SupplierHealthProperties {
+        private double ewmaAlpha = 0.2;                      // Weight of the newest sample
+        private int minSamples = 10;                         // Never degraded before this many samples
+        private Duration maxLatency = Duration.ofSeconds(5);
+        private double maxErrorRate = 0.5;
+        private double maxEmptyRate = 0.9;
+        private DegradedSupplierPolicy defaultPolicy = DegradedSupplierPolicy.NONE;  // Unless the tenant sets one
+        private double degradedTimeoutRatio = 0.5;           // SHORTEN_TIMEOUT: share of the remaining time
+        private double skipProbability = 0.5;                // SKIP: in [0, 1), so some calls keep probing for recovery
+    }
+
+    @Data
+    public static class RetryProperties {
+        private int maxRetries = 2;
+        private Duration baseDelay = Duration.ofMillis(100);   // Full jitter: random(0, min(max, base * 2^attempt))
+        private Duration maxDelay = Duration.ofSeconds(2);
+        private double budgetRatio = 0.2;                      // Retries per supplier <= this share of calls
+        private int budgetBurst = 10;                          // Retries allowed before any calls have been seen
+    }
+
+    /** Rate limits shared by all instances through Redis */
+    @Data
+    public static class ClusterRateLimitProperties {
+        private boolean enabled = false;
+        private int leaseSize = 5;                            // Max tokens taken per Redis round trip
+        private Duration leaseTtl = Duration.ofSeconds(1);    // Unused leased tokens are dropped after this
+        private int expectedInstances = 1;                    // Redis down: each instance allows limit / this
+        private Duration redisBackoff = Duration.ofSeconds(5);  // Stay on the local fallback this long after a Redis error
+    }
+
+    @Data
+    public static class CancellationProperties {
+        private String queue = "memory";         // memory (per instance) or redis (shared stream)
+        private CancellationWorkerProperties worker = new CancellationWorkerProperties();
+        private BulkCancellationProperties bulk = new BulkCancellationProperties();
+        private RedisQueueProperties redis = new RedisQueueProperties();
+        private DlqProperties dlq = new DlqProperties();
+        private CancellationLedgerProperties ledger = new CancellationLedgerProperties();
+    }
+
+    @Data
+    public static class CancellationWorkerProperties {
+        private int maxInFlight = 64;                 // Tasks taken off the queue at once, across all suppliers
+        private int maxConcurrentPerSupplier = 4;     // Cancel calls in parallel per supplier
+        private Map<String, Integer> supplierConcurrency = new HashMap<>();  // Per supplier code overrides
+        private Duration busySupplierDelay = Duration.ofSeconds(1);  // Put back this long when the supplier's partition is full
+        private Duration retryBaseDelay = Duration.ofSeconds(10);  // Retry n waits ~base * 2^(n-1), half of it jittered
+        private Duration retryMaxDelay = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class BulkCancellationProperties {
+        private int maxConcurrentPerSupplier = 8;     // Shared by all running bulk jobs
+        private int maxJobs = 1000;
+        private Duration jobRetention = Duration.ofHours(1);  // Jobs can be read this long after they start
+    }
+
+    @Data
+    public static class RedisQueueProperties {
+        private String streamKey = "cancellation:queue";
+        private String pendingKey = "cancellation:pending";      // Hash of queued tasks by bookingId, for status lookups
+        private String retryKey = "cancellation:retry";          // Sorted set of retries not due yet, by nextAttemptAt
+        private String consumerGroup = "cancellation-workers";
+        private String consumerName;                              // Unique per instance; default host-pid
+        private int readBatchSize = 10;
+        private Duration reclaimIdle = Duration.ofMinutes(1);     // Unacknowledged entries idle this long are taken over
+        private Duration reclaimInterval = Duration.ofSeconds(30);
+        private Duration heartbeatInterval = Duration.ofSeconds(20);  // Held entries re-claimed this often; below reclaim-idle
+    }
+
+    @Data
+    public static class DlqProperties {
+        private String store = "memory";                 // memory (per instance) or redis (survives restarts)
+        private String redisKey = "cancellation:dlq";    // Hash of dead letters by bookingId
+        private int replayRatePerSecond = 20;            // Default pace of a replay
+        private int maxReplayRatePerSecond = 200;        // Upper bound a replay request may ask for
+        private Duration replayRetention = Duration.ofHours(24);  // Replay progress can be read this long
+    }
+
+    /** Final cancellation outcomes, kept for status reads after the task leaves the queue */
+    @Data
+    public static class CancellationLedgerProperties {
+        private int maxEntries = 100_000;                        // In-memory ledger only
+        private Duration ttl = Duration.ofHours(24);
+        private String redisKeyPrefix = "cancellation:outcome:";  // Redis ledger (cancellation.queue=redis)
+        private Duration maxWait = Duration.ofSeconds(30);        // Longest cancel-status long-poll
+        private Duration recheckInterval = Duration.ofSeconds(2); // Picks up changes made by other instances
+    }
+
+    /** Booking idempotency: duplicates of a booking in flight wait for its result instead of re-booking */
+    @Data
+    public static class IdempotencyProperties {
+        private String store = "memory";                          // memory (per instance) or redis (shared)
+        private Duration ttl = Duration.ofMinutes(5);             // Results are returned for repeats this long
+        private int maxEntries = 10_000;                          // In-memory store only
+        private String redisKeyPrefix = "idempotency:booking:";
+        private Duration inFlightTtl = Duration.ofSeconds(60);    // Marker outlives a crashed instance this long; keep above global-timeout
+        private Duration maxWait = Duration.ofSeconds(15);        // Longest a duplicate waits before 409
+        private Duration pollInterval = Duration.ofMillis(200);   // How often a duplicate re-checks a booking in flight elsewhere
+    }
+
+    /** Pending bookings are polled at initial-interval, growing by backoff-multiplier up to max-interval */
+    @Data
+    public static class BookingStatusProperties {
+        private String store = "memory";                             // memory (per instance) or redis (shared)
+        private Duration ttl = Duration.ofHours(24);                 // Statuses can be read this long after the last change
+        private int maxEntries = 100_000;                            // In-memory store only
+        private String redisKeyPrefix = "booking:status:";
+        private int maxTracked = 10_000;                             // Pending bookings polled at once per instance; more aren't tracked
+        private Duration initialInterval = Duration.ofSeconds(2);
+        private Duration maxInterval = Duration.ofSeconds(30);
+        private double backoffMultiplier = 1.5;
+        private Duration pollTimeout = Duration.ofSeconds(5);
+        private Duration maxTrackingTime = Duration.ofMinutes(30);   // Still pending after this: stop polling
+        private Duration streamRecheckInterval = Duration.ofSeconds(2);  // Status streams re-read the store, for changes made elsewhere
+        private Duration maxStreamDuration = Duration.ofMinutes(10);
+    }
+
+    /** Ledger entries are queued by the request and written in batches every flush-interval */
+    @Data
+    public static class BookingLedgerProperties {
+        private String store = "memory";                            // memory (per instance) or redis (shared)
+        private Duration retention = Duration.ofDays(90);           // Bookings are readable this long after their last entry
+        private int maxBookings = 100_000;                          // In-memory store only
+        private String redisKeyPrefix = "booking:ledger:";
+        private int queueCapacity = 10_000;                         // Entries waiting to be written; beyond this they are dropped
+        private int batchSize = 500;
+        private Duration flushInterval = Duration.ofMillis(200);
+        private int maxPageSize = 100;                              // Largest limit a tenant listing may ask for
+    }
+
+    @Data
+    public static class CollapseProperties {
+        private boolean enabled = false;         // Default when the request doesn't say
     }
 
     @Data
@@ -55,5 +232,6 @@ public class AggregatorProperties {
         private boolean enabled = true;
         private Integer maxResultsPerSupplier;   // Optional limit per supplier
         private Map<String, String> metadata;    // Custom tenant metadata
+        private DegradedSupplierPolicy degradedSupplierPolicy;  // Null = supplier-health default-policy
     }
 }
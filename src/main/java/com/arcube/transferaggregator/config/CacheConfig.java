@@ -1,21 +1,34 @@
 package com.arcube.transferaggregator.config;
 
+import com.arcube.transferaggregator.adapters.idcodec.BookingPayload;
+import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
+import com.arcube.transferaggregator.adapters.idcodec.VerifiedTokenCache;
 import com.arcube.transferaggregator.dto.BookResponse;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
-
 @Configuration
 public class CacheConfig {
     
+    /** Booking results for the in-memory idempotency store */
     @Bean
-    public Cache<String, BookResponse> idempotencyCache() {
+    public Cache<String, BookResponse> idempotencyCache(AggregatorProperties properties) {
         return Caffeine.newBuilder()
-            .expireAfterWrite(5, TimeUnit.MINUTES)
-            .maximumSize(10_000)
+            .expireAfterWrite(properties.getIdempotency().getTtl())
+            .maximumSize(properties.getIdempotency().getMaxEntries())
             .build();
     }
+    
+    @Bean
+    public VerifiedTokenCache<OfferPayload> verifiedOfferTokens(TokenProperties tokenProperties, MeterRegistry meterRegistry) {
+        return VerifiedTokenCache.create("offer", tokenProperties.getCache(), meterRegistry, OfferPayload::expiresAt);
+    }
+    
+    @Bean
+    public VerifiedTokenCache<BookingPayload> verifiedBookingTokens(TokenProperties tokenProperties, MeterRegistry meterRegistry) {
+        return VerifiedTokenCache.create("booking", tokenProperties.getCache(), meterRegistry, payload -> null);
+    }
 }
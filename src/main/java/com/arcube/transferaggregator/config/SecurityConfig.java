@@ -23,7 +23,8 @@ public class SecurityConfig {
             "Authorization", 
             "Content-Type", 
             "X-Request-Id", 
-            "Idempotency-Key"
+            "Idempotency-Key",
+            "X-Request-Deadline"
         ));
         config.setExposedHeaders(List.of(
             "X-Request-Id",
@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /** Configuration properties for enabling/disabling suppliers at runtime */
 @Data
 @Configuration
@@ -35,10 +37,32 @@ public class SupplierProperties {
         private int searchValidityMinutes = 20;
         private int initialRequestTimeoutSeconds = 10;
         private int pollResponseTimeoutSeconds = 5;
+        private ConnectionPoolConfig pool = new ConnectionPoolConfig();
     }
 
     @Data
     public static class SkyRideSupplierConfig {
         private boolean enabled = true;
     }
+
+    /**
+     * HTTP connection pool of a supplier that is called over the network. Connections are kept
+     * warm and reused most-recently-used first, so the idle ones are closed by max-idle-time
+     * before the supplier's load balancer drops them, and every one is replaced after
+     * max-life-time so DNS changes are picked up.
+     */
+    @Data
+    public static class ConnectionPoolConfig {
+        private int maxConnections = 50;                              // Per remote address
+        private int pendingAcquireMaxCount = 200;                     // Requests waiting for a connection
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);        // Below the usual 60s LB idle timeout
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);  // Zero evicts only on acquire
+        private boolean keepAlive = true;                             // HTTP keep-alive and TCP SO_KEEPALIVE
+        private boolean http2 = false;                                // Negotiated over TLS (ALPN), HTTP/1.1 fallback
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(10);
+        private boolean metrics = true;                               // reactor.netty.* pool and client meters
+    }
 }
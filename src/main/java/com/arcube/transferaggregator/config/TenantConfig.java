@@ -5,6 +5,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+import com.arcube.transferaggregator.config.AggregatorProperties.DegradedSupplierPolicy;
 import com.arcube.transferaggregator.config.AggregatorProperties.TenantProperties;
 
 /**
@@ -54,6 +55,14 @@ public class TenantConfig {
         return tenant.getEnabledSuppliers().contains(supplierCode);
     }
 
+    /**
+     * How search treats degraded suppliers for a tenant, falling back to the global default.
+     */
+    public DegradedSupplierPolicy getDegradedSupplierPolicy(String tenantId) {
+        DegradedSupplierPolicy policy = getTenant(tenantId).getDegradedSupplierPolicy();
+        return policy != null ? policy : properties.getResilience().getSupplierHealth().getDefaultPolicy();
+    }
+
     private TenantProperties getDefaultTenantConfig() {
         TenantProperties defaultConfig = new TenantProperties();
         defaultConfig.setName("Default Tenant");
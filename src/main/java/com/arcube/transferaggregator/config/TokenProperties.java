@@ -6,6 +6,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
 /** Security configuration properties for token signing */
 @Slf4j
 @Data
@@ -13,9 +18,23 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "security.token")
 public class TokenProperties {
     
+    private static final Pattern KEY_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    
     /** HMAC-SHA256 secret key for signing tokens. Must be at least 32 bytes (256 bits) */
     private String secret;
     
+    /** Key id of the active secret, embedded in every token it signs */
+    private String keyId = "k1";
+    
+    /**
+     * Retired secrets by key id, still accepted for verification.
+     * To rotate: move the current secret here under its key id, then set a new secret and key id.
+     */
+    private Map<String, String> previousSecrets = new LinkedHashMap<>();
+    
+    /** Cache of already-verified offer and booking tokens */
+    private CacheProperties cache = new CacheProperties();
+    
     @PostConstruct
     public void validate() {
         if (secret == null || secret.isBlank()) {
@@ -24,6 +43,28 @@ public class TokenProperties {
         } else if (secret.length() < 32) {
             throw new IllegalStateException("TOKEN_SECRET must be at least 32 characters for HMAC-SHA256 security");
         }
+        
+        if (keyId == null || !KEY_ID_PATTERN.matcher(keyId).matches()) {
+            throw new IllegalStateException("security.token.key-id must be 1-32 characters of [A-Za-z0-9_-]");
+        }
+        if (previousSecrets.containsKey(keyId)) {
+            throw new IllegalStateException("security.token.key-id '" + keyId + "' is also listed in previous-secrets");
+        }
+        previousSecrets.forEach((id, previous) -> {
+            if (!KEY_ID_PATTERN.matcher(id).matches() || previous == null || previous.length() < 32) {
+                throw new IllegalStateException("Previous token secret '" + id + "' is invalid");
+            }
+        });
+        if (cache.maximumSize < 0 || cache.ttl == null || cache.ttl.isNegative()) {
+            throw new IllegalStateException("security.token.cache needs a non-negative maximum-size and ttl");
+        }
+    }
+    
+    @Data
+    public static class CacheProperties {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;       // Per token type
+        private Duration ttl = Duration.ofMinutes(10);  // Also bounds how long a retired key's tokens stay cached
     }
 }
 
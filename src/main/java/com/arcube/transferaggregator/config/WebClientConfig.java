@@ -1,25 +1,95 @@
 package com.arcube.transferaggregator.config;
 
+import com.arcube.transferaggregator.config.SupplierProperties.ConnectionPoolConfig;
 import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Scope;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 
-/** WebClient configuration for making HTTP calls to suppliers */
+/**
+ * WebClient configuration for making HTTP calls to suppliers.
+ *
+ * Each supplier called over the network gets its own named connection pool
+ * ("supplier-{name}"), so one slow supplier can't hold the connections another needs, and its
+ * warm connections are reused instead of paying a TCP and TLS handshake per call. Supplier
+ * builders are prototypes over a shared connector, so callers can set a base URL and headers
+ * without changing each other's builder.
+ */
+@Slf4j
 @Configuration
 public class WebClientConfig {
-    
+
     @Bean
+    @Primary
     public WebClient.Builder webClientBuilder() {
         HttpClient httpClient = HttpClient.create()
             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
             .responseTimeout(Duration.ofSeconds(10));
-        
+
         return WebClient.builder()
             .clientConnector(new ReactorClientHttpConnector(httpClient));
     }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider mozioConnectionProvider(SupplierProperties suppliers) {
+        return connectionProvider("mozio", suppliers.getMozio().getPool());
+    }
+
+    @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+    public WebClient.Builder mozioWebClientBuilder(SupplierProperties suppliers,
+                                                   @Qualifier("mozioConnectionProvider") ConnectionProvider provider) {
+        SupplierProperties.MozioSupplierConfig mozio = suppliers.getMozio();
+        return WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(
+                httpClient("mozio", mozio.getBaseUrl(), provider, mozio.getPool())));
+    }
+
+    static ConnectionProvider connectionProvider(String supplier, ConnectionPoolConfig pool) {
+        return ConnectionProvider.builder("supplier-" + supplier)
+            .maxConnections(pool.getMaxConnections())
+            .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+            .maxIdleTime(pool.getMaxIdleTime())
+            .maxLifeTime(pool.getMaxLifeTime())
+            .evictInBackground(pool.getEvictInBackground())
+            // Most recently used first: the busy few stay warm, the rest age out on max-idle-time
+            .lifo()
+            .metrics(pool.isMetrics())
+            .build();
+    }
+
+    static HttpClient httpClient(String supplier, String baseUrl, ConnectionProvider provider,
+                                 ConnectionPoolConfig pool) {
+        HttpClient httpClient = HttpClient.create(provider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, pool.isKeepAlive())
+            .keepAlive(pool.isKeepAlive())
+            .responseTimeout(pool.getResponseTimeout());
+
+        if (pool.isHttp2()) {
+            if (baseUrl != null && baseUrl.startsWith("https://")) {
+                // ALPN picks h2 when the supplier offers it, HTTP/1.1 otherwise
+                httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+            } else {
+                log.warn("HTTP/2 for supplier {} needs an https base URL, using HTTP/1.1: {}", supplier, baseUrl);
+            }
+        }
+        if (pool.isMetrics()) {
+            // Paths carry search and booking ids, so every uri is tagged with the supplier instead
+            httpClient = httpClient.metrics(true, uri -> supplier);
+        }
+        return httpClient;
+    }
 }
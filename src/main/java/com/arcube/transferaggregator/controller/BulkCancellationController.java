@@ -0,0 +1,59 @@
+package com.arcube.transferaggregator.controller;
+
+import com.arcube.transferaggregator.dto.BulkCancelJobResponse;
+import com.arcube.transferaggregator.dto.BulkCancelRequest;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import com.arcube.transferaggregator.service.BulkCancellationService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/transfers/bulk-cancellations")
+@RequiredArgsConstructor
+public class BulkCancellationController {
+
+    private final BulkCancellationService bulkCancellationService;
+
+    /**
+     * Start cancelling a batch of bookings, e.g. all bookings on a cancelled flight.
+     * Returns the job straight away; outcomes arrive as each supplier responds.
+     */
+    @PostMapping
+    public ResponseEntity<BulkCancelJobResponse> start(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @Valid @RequestBody BulkCancelRequest request) {
+        log.info("Bulk cancel: {} bookings, reason={}", request.getBookingIds().size(), request.getReason());
+        return ResponseEntity.accepted()
+            .body(bulkCancellationService.start(request.getBookingIds(), request.getReason()));
+    }
+
+    /** Job progress and the outcomes so far */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BulkCancelJobResponse> getJob(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String jobId) {
+        return bulkCancellationService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /** Per-booking outcomes as server-sent events; the stream ends when the job completes */
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<CancelResponse>>> streamOutcomes(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String jobId) {
+        return bulkCancellationService.streamOutcomes(jobId)
+            .map(outcomes -> ResponseEntity.ok(outcomes.map(outcome -> ServerSentEvent.builder(outcome)
+                .id(outcome.getBookingId())
+                .event("outcome")
+                .build())))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
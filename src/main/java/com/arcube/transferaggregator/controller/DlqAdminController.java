@@ -0,0 +1,77 @@
+package com.arcube.transferaggregator.controller;
+
+import com.arcube.transferaggregator.dto.DlqReplayRequest;
+import com.arcube.transferaggregator.dto.DlqReplayResponse;
+import com.arcube.transferaggregator.resilience.CancellationTask;
+import com.arcube.transferaggregator.resilience.DeadLetterFilter;
+import com.arcube.transferaggregator.service.DlqReplayService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Admin endpoints to inspect and replay the cancellation dead letter queue.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/admin/dlq")
+@RequiredArgsConstructor
+public class DlqAdminController {
+
+    private final DlqReplayService replayService;
+
+    /**
+     * List dead letters, oldest first. Takes the same filters as a replay, to preview one.
+     * GET /api/v1/admin/dlq?supplierCode=MOZIO&maxAge=PT6H&errorContains=timeout
+     */
+    @GetMapping
+    public ResponseEntity<List<CancellationTask>> list(
+            @RequestParam(required = false) String supplierCode,
+            @RequestParam(required = false) Duration minAge,
+            @RequestParam(required = false) Duration maxAge,
+            @RequestParam(required = false) String errorContains,
+            @RequestParam(defaultValue = "100") int limit) {
+        DeadLetterFilter filter = new DeadLetterFilter(supplierCode, minAge, maxAge, errorContains);
+        return ResponseEntity.ok(replayService.find(filter, Math.max(1, limit)));
+    }
+
+    /**
+     * Start replaying matching dead letters onto the cancellation queue, rate-limited.
+     * POST /api/v1/admin/dlq/replays
+     */
+    @PostMapping("/replays")
+    public ResponseEntity<DlqReplayResponse> replay(@Valid @RequestBody DlqReplayRequest request) {
+        DeadLetterFilter filter = new DeadLetterFilter(
+            request.getSupplierCode(), request.getMinAge(), request.getMaxAge(), request.getErrorContains());
+        log.info("DLQ replay requested: filter={}, rate={}, limit={}", filter, request.getRatePerSecond(), request.getLimit());
+        return ResponseEntity.accepted()
+            .body(replayService.start(filter, request.getRatePerSecond(), request.getLimit()));
+    }
+
+    /**
+     * Replay progress.
+     * GET /api/v1/admin/dlq/replays/{replayId}
+     */
+    @GetMapping("/replays/{replayId}")
+    public ResponseEntity<DlqReplayResponse> getReplay(@PathVariable String replayId) {
+        return replayService.getReplay(replayId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stop a running replay; dead letters not reached yet stay in the DLQ.
+     * DELETE /api/v1/admin/dlq/replays/{replayId}
+     */
+    @DeleteMapping("/replays/{replayId}")
+    public ResponseEntity<DlqReplayResponse> stopReplay(@PathVariable String replayId) {
+        return replayService.stop(replayId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
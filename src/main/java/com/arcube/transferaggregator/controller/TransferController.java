@@ -1,14 +1,21 @@
 package com.arcube.transferaggregator.controller;
 
 import com.arcube.transferaggregator.dto.*;
+import com.arcube.transferaggregator.resilience.BookingLedger;
 import com.arcube.transferaggregator.service.*;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 
 @Slf4j
@@ -21,6 +28,8 @@ public class TransferController {
     private final TransferBookingService bookingService;
     private final TransferCancellationService cancellationService;
     private final SearchPollingService pollingService;
+    private final BookingStatusTracker statusTracker;
+    private final BookingLedger bookingLedger;
     
     @PostMapping("/search")
     public ResponseEntity<SearchResponse> search(
@@ -41,6 +50,7 @@ public class TransferController {
             // Pagination
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             // Sorting
             @RequestParam(defaultValue = "PRICE") String sortBy,
             @RequestParam(defaultValue = "ASC") String sortDir,
@@ -61,7 +71,9 @@ public class TransferController {
             @RequestParam(required = false) BigDecimal minRating,
             @RequestParam(required = false) List<String> providers,
             // Duration filter
-            @RequestParam(required = false) Integer maxDuration) {
+            @RequestParam(required = false) Integer maxDuration,
+            // Best-offer mode: collapse near-identical offers across suppliers
+            @RequestParam(required = false) Boolean collapse) {
         
         log.info("Poll: searchId={}, page={}, size={}, sortBy={}", searchId, page, size, sortBy);
         
@@ -78,6 +90,7 @@ public class TransferController {
             .minProviderRating(minRating)
             .providerNames(providers)
             .maxDurationMinutes(maxDuration)
+            .collapseDuplicates(collapse)
             .build();
         
         SearchSort sort = SearchSort.builder()
@@ -85,11 +98,26 @@ public class TransferController {
             .direction(parseDirection(sortDir))
             .build();
         
-        PageRequest pageRequest = PageRequest.of(page, size);
+        // Keyset cursor (from a previous nextCursor) wins over offset paging
+        PageRequest pageRequest = cursor != null && !cursor.isBlank()
+            ? PageRequest.after(cursor, size)
+            : PageRequest.of(page, size);
         
         return ResponseEntity.ok(pollingService.poll(searchId, filter, sort, pageRequest));
     }
     
+    /**
+     * Offers hidden behind a collapsed offer in best-offer mode.
+     */
+    @GetMapping("/search/{searchId}/offers/{offerId}/alternates")
+    public ResponseEntity<List<SearchResponse.OfferDto>> getAlternates(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String searchId,
+            @PathVariable String offerId) {
+        log.info("Alternates: searchId={}", searchId);
+        return ResponseEntity.ok(pollingService.getAlternates(searchId, offerId));
+    }
+    
     @PostMapping("/book")
     public ResponseEntity<BookResponse> book(
             @RequestHeader(value = "X-Request-Id", required = false) String requestId,
@@ -99,6 +127,58 @@ public class TransferController {
         return ResponseEntity.ok(bookingService.book(request, idempotencyKey));
     }
     
+    /**
+     * Latest status of a booking that was returned as PENDING, kept current by background
+     * polling of the supplier. 404 for bookings that were never pending.
+     */
+    @GetMapping("/bookings/{bookingId}/status")
+    public ResponseEntity<BookResponse> getBookingStatus(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String bookingId) {
+        return statusTracker.getStatus(bookingId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Server-sent "status" events: the current status, then each change until the booking is
+     * confirmed or failed. Streamed asynchronously, outside admission control.
+     */
+    @GetMapping(value = "/bookings/{bookingId}/status/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<BookResponse>>> streamBookingStatus(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String bookingId) {
+        if (statusTracker.getStatus(bookingId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("Stream booking status: bookingId={}", bookingId);
+        return ResponseEntity.ok(statusTracker.statusUpdates(bookingId).map(status -> ServerSentEvent.builder(status)
+            .id(bookingId)
+            .event("status")
+            .build()));
+    }
+    
+    /**
+     * A booking as recorded in the booking ledger, without calling the supplier. Scoped to the
+     * X-Tenant-Id tenant; a booking becomes readable within a ledger flush of being made.
+     */
+    @GetMapping("/bookings/{bookingId}")
+    public ResponseEntity<BookingRecord> getBooking(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String bookingId) {
+        return bookingLedger.getForCurrentTenant(bookingId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /** The X-Tenant-Id tenant's bookings from the booking ledger, newest first */
+    @GetMapping("/bookings")
+    public ResponseEntity<List<BookingRecord>> listBookings(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(bookingLedger.listForCurrentTenant(limit));
+    }
+    
     @DeleteMapping("/bookings/{bookingId}")
     public ResponseEntity<CancelResponse> cancel(
             @RequestHeader(value = "X-Request-Id", required = false) String requestId,
@@ -115,6 +195,21 @@ public class TransferController {
         return ResponseEntity.ok(cancellationService.getStatus(bookingId));
     }
     
+    /**
+     * Long-poll variant: answers once the status changes from what it is now, or with the
+     * current status after waitSeconds (capped server-side). Handled asynchronously, so the
+     * wait holds no request thread or admission slot.
+     */
+    @GetMapping(value = "/bookings/{bookingId}/cancel-status", params = "waitSeconds")
+    public Mono<ResponseEntity<CancelResponse>> awaitCancelStatus(
+            @RequestHeader(value = "X-Request-Id", required = false) String requestId,
+            @PathVariable String bookingId,
+            @RequestParam int waitSeconds) {
+        log.info("Await cancel status: bookingId={}, waitSeconds={}", bookingId, waitSeconds);
+        return cancellationService.awaitStatusChange(bookingId, Duration.ofSeconds(Math.max(0, waitSeconds)))
+            .map(ResponseEntity::ok);
+    }
+    
     private SearchSort.SortField parseField(String sortBy) {
         try {
             return SearchSort.SortField.valueOf(sortBy.toUpperCase());
@@ -8,7 +8,8 @@ import java.util.Map;
 // Transfer offer from a supplier
 @Builder
 public record Offer(
-    String offerId,
+    String offerId,                // Signed token; null until materialised for a response
+    OfferRef ref,                  // Raw (supplier, searchId, resultId, expiry) tuple
     String supplierCode,
     Vehicle vehicle,
     Provider provider,
@@ -0,0 +1,24 @@
+package com.arcube.transferaggregator.domain;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// Unsigned identity of a supplier offer; signed into an offerId only when shown to a client
+public record OfferRef(
+    String supplierCode,
+    String searchId,       // Supplier's search id
+    String resultId,
+    Instant expiresAt,
+    Instant issuedAt       // Set once at ingest, so every signing of the offer yields the same offerId
+) {
+    /** Ref for an offer received from a supplier now */
+    public static OfferRef ingested(String supplierCode, String searchId, String resultId, Instant expiresAt) {
+        // Tokens carry whole seconds
+        return new OfferRef(supplierCode, searchId, resultId, expiresAt, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    // Stable key for ordering and lookups while the offer is unsigned
+    public String key() {
+        return supplierCode + "|" + searchId + "|" + resultId;
+    }
+}
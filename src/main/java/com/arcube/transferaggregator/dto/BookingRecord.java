@@ -0,0 +1,41 @@
+package com.arcube.transferaggregator.dto;
+
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.domain.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/** A booking as recorded in the booking ledger; history is oldest first */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingRecord {
+    private String bookingId;
+    private String tenantId;
+    private String supplierCode;
+    private BookingStatus status;
+    private String confirmationNumber;
+    private Money totalPrice;
+    private String pickupInstructions;
+    private String replacesBookingId;     // Set on a booking made by a reservation change
+    private String replacedByBookingId;   // Set once a reservation change replaced this booking
+    private Instant createdAt;
+    private Instant updatedAt;
+    private List<Event> history;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Event {
+        private String type;              // BOOKED, STATUS_CHANGED, CANCELLED, CHANGED
+        private BookingStatus status;
+        private Instant at;
+    }
+}
@@ -0,0 +1,27 @@
+package com.arcube.transferaggregator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Progress of a bulk cancellation; outcomes are in completion order */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCancelJobResponse {
+    private String jobId;
+    private String status;          // RUNNING or COMPLETED
+    private int total;
+    private int completed;
+    private int cancelled;
+    private int pending;            // Queued for retry by the cancellation worker
+    private int failed;
+    private Instant createdAt;
+    private Instant completedAt;
+    private List<CancelResponse> outcomes;
+}
@@ -0,0 +1,25 @@
+package com.arcube.transferaggregator.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCancelRequest {
+
+    @NotEmpty(message = "At least one booking ID is required")
+    @Size(max = 1000, message = "At most 1000 bookings per bulk cancellation")
+    private List<@NotBlank(message = "Booking ID must not be blank") String> bookingIds;
+
+    // Free text for the audit trail, e.g. the cancelled flight
+    private String reason;
+}
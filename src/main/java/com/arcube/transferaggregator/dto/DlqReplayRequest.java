@@ -0,0 +1,27 @@
+package com.arcube.transferaggregator.dto;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+
+/** Which dead letters to replay and how fast; every field is optional */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DlqReplayRequest {
+    private String supplierCode;
+    private Duration minAge;            // ISO-8601, e.g. PT1H; age since the cancellation was requested
+    private Duration maxAge;
+    private String errorContains;
+
+    @Positive(message = "ratePerSecond must be positive")
+    private Integer ratePerSecond;      // Default replay-rate-per-second, capped at max-replay-rate-per-second
+
+    @Positive(message = "limit must be positive")
+    private Integer limit;              // Replay at most this many, oldest first
+}
@@ -0,0 +1,25 @@
+package com.arcube.transferaggregator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/** Progress of a DLQ replay */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DlqReplayResponse {
+    private String replayId;
+    private String status;          // RUNNING, COMPLETED, STOPPED or FAILED
+    private int matched;
+    private int replayed;           // Put back on the cancellation queue
+    private int skipped;            // Left the DLQ before their turn, e.g. resolved by hand
+    private int ratePerSecond;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
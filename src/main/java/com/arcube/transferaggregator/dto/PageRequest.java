@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 
 /**
  * Pagination parameters for large result sets.
+ * Supports offset paging (page/size) and keyset paging via an opaque cursor
+ * returned as nextCursor on the previous page.
  */
 @Data
 @Builder
@@ -24,10 +26,17 @@ public class PageRequest {
     @Builder.Default
     private int size = DEFAULT_SIZE;
 
+    // Opaque keyset cursor; when present it takes precedence over page
+    private String cursor;
+
     public int getOffset() {
         return page * size;
     }
 
+    public boolean hasCursor() {
+        return cursor != null && !cursor.isBlank();
+    }
+
     public int getValidatedSize() {
         if (size <= 0) return DEFAULT_SIZE;
         return Math.min(size, MAX_SIZE);
@@ -40,6 +49,14 @@ public class PageRequest {
             .build();
     }
 
+    public static PageRequest after(String cursor, int size) {
+        return PageRequest.builder()
+            .page(0)
+            .size(Math.min(Math.max(1, size), MAX_SIZE))
+            .cursor(cursor)
+            .build();
+    }
+
     public static PageRequest first() {
         return PageRequest.of(0, DEFAULT_SIZE);
     }
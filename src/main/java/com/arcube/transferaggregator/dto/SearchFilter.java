@@ -46,6 +46,9 @@ public class SearchFilter {
     // Supplier filter (internal use)
     private List<String> supplierCodes;
 
+    // Best-offer mode: keep only the cheapest of near-identical offers (null = service default)
+    private Boolean collapseDuplicates;
+
     public boolean hasFilters() {
         return minPrice != null || maxPrice != null ||
                (vehicleTypes != null && !vehicleTypes.isEmpty()) ||
@@ -41,6 +41,9 @@ public class SearchRequest {
     
     private TransferModeDto mode = TransferModeDto.ONE_WAY;
     
+    /** Best-offer mode: collapse near-identical offers from different suppliers. Null = service default. */
+    private Boolean collapseDuplicates;
+    
     public enum TransferModeDto { ONE_WAY, ROUND_TRIP, HOURLY }
     
     @Data
@@ -1,6 +1,7 @@
 package com.arcube.transferaggregator.dto;
 
 import com.arcube.transferaggregator.domain.*;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -25,13 +26,17 @@ public class SearchResponse {
     private Integer totalPages;
     private Boolean hasNext;
     private Boolean hasPrevious;
+    private String nextCursor;             // Opaque keyset cursor for the next page
     
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class OfferDto {
         private String offerId;
+        // Unsigned identity kept in search state; replaced by offerId when the offer is served
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private OfferRef ref;
         private String supplierCode;
         private Vehicle vehicle;
         private Provider provider;
@@ -43,6 +48,7 @@ public class SearchResponse {
         private boolean extraPassengerInfoRequired;
         private Instant expiresAt;
         private List<String> includedAmenities;
+        private Integer alternatesCount;       // Offers collapsed into this one (best-offer mode)
 
         // Extensibility field for vendor-specific or future attributes.
         //Examples: pickup_instructions, driver_contact, etc
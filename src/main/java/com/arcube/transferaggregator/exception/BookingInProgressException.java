@@ -0,0 +1,11 @@
+package com.arcube.transferaggregator.exception;
+
+/**
+ * Thrown when a booking with the same idempotency key is still in flight after the wait.
+ * Returns HTTP 409 Conflict.
+ */
+public class BookingInProgressException extends RuntimeException {
+    public BookingInProgressException() {
+        super("A booking with this idempotency key is still in progress");
+    }
+}
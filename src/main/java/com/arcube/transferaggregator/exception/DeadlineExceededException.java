@@ -0,0 +1,12 @@
+package com.arcube.transferaggregator.exception;
+
+/**
+ * Thrown when the request's deadline passes before the work could be done.
+ * Returns HTTP 504 Gateway Timeout.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -105,6 +105,20 @@ public class GlobalExceptionHandler {
             "CANCELLATION_NOT_ALLOWED", ex.getMessage(), "CONTACT_SUPPORT", MDC.get("requestId")));
     }
     
+    @ExceptionHandler(ReplayInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleReplayInProgress(ReplayInProgressException ex) {
+        log.warn("Replay rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ErrorResponse.of(
+            "REPLAY_IN_PROGRESS", ex.getMessage(), "WAIT", MDC.get("requestId")));
+    }
+    
+    @ExceptionHandler(BookingInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleBookingInProgress(BookingInProgressException ex) {
+        log.warn("Duplicate booking rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ErrorResponse.of(
+            "BOOKING_IN_PROGRESS", ex.getMessage(), "RETRY", MDC.get("requestId")));
+    }
+    
     @ExceptionHandler(ServiceBusyException.class)
     public ResponseEntity<ErrorResponse> handleServiceBusy(ServiceBusyException ex) {
         log.warn("Service busy: {}", ex.getMessage());
@@ -117,7 +131,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleRateLimitExceeded(RateLimitExceededException ex) {
         log.warn("Rate limit exceeded: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-            .header("Retry-After", "60")
+            .header("Retry-After", String.valueOf(ex.getRetryAfterSeconds()))
             .body(ErrorResponse.of("RATE_LIMIT_EXCEEDED", ex.getMessage(), "WAIT", MDC.get("requestId")));
     }
     
@@ -128,6 +142,13 @@ public class GlobalExceptionHandler {
             "SUPPLIER_TIMEOUT", ex.getMessage(), "RETRY", MDC.get("requestId")));
     }
     
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponse> handleDeadlineExceeded(DeadlineExceededException ex) {
+        log.warn("Deadline exceeded: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ErrorResponse.of(
+            "DEADLINE_EXCEEDED", ex.getMessage(), "RETRY", MDC.get("requestId")));
+    }
+    
     @ExceptionHandler(NoResourceFoundException.class)
     public ResponseEntity<ErrorResponse> handleNotFound(NoResourceFoundException ex) {
         log.debug("Resource not found: {}", ex.getResourcePath());
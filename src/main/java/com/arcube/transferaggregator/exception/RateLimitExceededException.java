@@ -5,7 +5,22 @@ package com.arcube.transferaggregator.exception;
  * Returns HTTP 429 Too Many Requests.
  */
 public class RateLimitExceededException extends RuntimeException {
+    
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 60;
+    
+    private final long retryAfterSeconds;
+    
     public RateLimitExceededException(String message) {
+        this(message, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+    
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
         super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    /** Seconds until a retry can succeed, sent as Retry-After */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
     }
 }
@@ -0,0 +1,11 @@
+package com.arcube.transferaggregator.exception;
+
+/**
+ * Thrown when a DLQ replay is started while another is still running.
+ * Returns HTTP 409 Conflict.
+ */
+public class ReplayInProgressException extends RuntimeException {
+    public ReplayInProgressException(String replayId) {
+        super("DLQ replay " + replayId + " is still running");
+    }
+}
@@ -1,8 +1,8 @@
 package com.arcube.transferaggregator.observability;
 
 import com.arcube.transferaggregator.adapters.supplier.mozio.MozioConfig;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -17,22 +17,25 @@ import java.time.Duration;
  */
 @Slf4j
 @Component("mozioHealth")
-@RequiredArgsConstructor
 @ConditionalOnProperty(name = "transfer.aggregator.mode", havingValue = "real")
 public class MozioHealthIndicator implements HealthIndicator {
     
     private final MozioConfig config;
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient client;
+    
+    // Built once, on the Mozio connection pool, so health checks reuse warm connections
+    public MozioHealthIndicator(MozioConfig config,
+                                @Qualifier("mozioWebClientBuilder") WebClient.Builder webClientBuilder) {
+        this.config = config;
+        this.client = webClientBuilder
+            .baseUrl(config.getBaseUrl())
+            .defaultHeader("API-KEY", config.getApiKey())
+            .build();
+    }
     
     @Override
     public Health health() {
         try {
-            // Simple connectivity check - just hit the API root or a known endpoint
-            WebClient client = webClientBuilder
-                .baseUrl(config.getBaseUrl())
-                .defaultHeader("API-KEY", config.getApiKey())
-                .build();
-            
             // Try to hit Mozio health API
             var response = client.get()
                 .uri("/v2/health")  // Root or health endpoint
@@ -0,0 +1,70 @@
+package com.arcube.transferaggregator.observability;
+
+import com.arcube.transferaggregator.resilience.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Filter to take the request deadline from the X-Request-Deadline header and set it as the
+ * current {@link Deadline}. The header is the instant the caller stops waiting, as epoch
+ * milliseconds or ISO-8601 (e.g. 2026-01-01T10:00:05Z). Without it, services apply their own timeouts.
+ * A deadline further off than the global timeout is clamped to it, as no service waits longer.
+ */
+@Slf4j
+@Component
+@Order(2)  // After tenant resolution and request logging
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    private final Duration maxWait;
+
+    // A plain property rather than AggregatorProperties, which MVC slice tests don't load
+    public RequestDeadlineFilter(@Value("${transfer.aggregator.global-timeout-seconds:10}") int globalTimeoutSeconds) {
+        this.maxWait = Duration.ofSeconds(globalTimeoutSeconds);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            Instant deadline = parse(request.getHeader(DEADLINE_HEADER));
+            if (deadline != null) {
+                Deadline.set(Deadline.at(deadline, maxWait));
+                log.debug("Request deadline set: {}", deadline);
+            }
+
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+        }
+    }
+
+    static Instant parse(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        String value = header.trim();
+        try {
+            return value.chars().allMatch(Character::isDigit)
+                ? Instant.ofEpochMilli(Long.parseLong(value))
+                : Instant.parse(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            log.warn("Ignoring invalid {} header: {}", DEADLINE_HEADER, value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.arcube.transferaggregator.observability;
+
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.SupplierHealth;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator view of the supplier health scoreboard.
+ * GET /actuator/supplier-health lists every supplier, /actuator/supplier-health/{code} one.
+ */
+@Component
+@Endpoint(id = "supplier-health")
+@RequiredArgsConstructor
+public class SupplierHealthEndpoint {
+
+    private final SupplierHealthScoreboard scoreboard;
+
+    @ReadOperation
+    public Map<String, SupplierHealth> suppliers() {
+        return scoreboard.snapshot();
+    }
+
+    /** Null (404) for a supplier that hasn't been searched yet */
+    @ReadOperation
+    public SupplierHealth supplier(@Selector String supplierCode) {
+        return scoreboard.snapshot().get(supplierCode);
+    }
+}
@@ -155,4 +155,23 @@ public class SupplierMetrics {
             .register(registry)
             .increment();
     }
+    
+    public void recordCancelTimeout(String supplierCode) {
+        Counter.builder("transfer.cancel.timeouts")
+            .description("Supplier cancel calls that didn't answer in time and were queued for retry")
+            .tag("supplier", supplierCode)
+            .register(registry)
+            .increment();
+    }
+    
+    /** Outcome is success, failure, timeout or error */
+    public void recordCancelLatency(String supplierCode, String outcome, Duration duration) {
+        Timer.builder("transfer.cancel.latency")
+            .description("Supplier cancel call latency")
+            .tag("supplier", supplierCode)
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(registry)
+            .record(duration);
+    }
 }
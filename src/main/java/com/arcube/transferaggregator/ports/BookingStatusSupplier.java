@@ -0,0 +1,17 @@
+package com.arcube.transferaggregator.ports;
+
+import java.time.Duration;
+
+/**
+ * Extended interface for suppliers whose bookings can come back PENDING and be checked later.
+ * Suppliers that always confirm or fail straight away don't implement it.
+ */
+public interface BookingStatusSupplier {
+
+    /**
+     * Current state of a booking that came back pending: PENDING while the supplier is still
+     * working on it, then CONFIRMED or FAILED.
+     * Mozio: GET /v2/reservations/{search_id}/poll/
+     */
+    SupplierBookingResult getBookingStatus(String searchId, String reservationId, Duration timeout);
+}
@@ -0,0 +1,222 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.AdmissionProperties;
+import com.arcube.transferaggregator.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority admission control for API requests.
+ * All classes share max-concurrent in-flight slots, but each lower class may fill fewer of them
+ * (book 100%, cancel 90%, ... pricing 50% with the default shed-step), so under load the
+ * cheapest-to-lose work is turned away first and bookings always find room. A request that
+ * can't start waits up to max-queue-wait; a waiting higher class goes before any lower one.
+ * Requests still waiting at the deadline are shed with 429, lower classes told to back off longer.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    /** Request classes, highest priority first */
+    public enum RequestClass {
+        BOOK, CANCEL, CHANGE, SEARCH, POLL, PRICING;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    /** An admitted request's slot; close it when the request completes */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Permit NO_OP = () -> { };
+    private static final RequestClass[] CLASSES = RequestClass.values();
+
+    private final boolean enabled;
+    private final long maxQueueWaitNanos;
+    private final int[] limits = new int[CLASSES.length];
+    private final long[] retryAfterSeconds = new long[CLASSES.length];
+
+    // A lock rather than synchronized, so queued virtual threads don't pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] slotFreed = new Condition[CLASSES.length];
+    private int inFlight;  // Guarded by lock
+    private final AtomicIntegerArray inFlightByClass = new AtomicIntegerArray(CLASSES.length);
+    private final AtomicIntegerArray waitingByClass = new AtomicIntegerArray(CLASSES.length);
+
+    private final Counter[] admitted = new Counter[CLASSES.length];
+    private final Counter[] shed = new Counter[CLASSES.length];
+    private final Timer[] queueWait = new Timer[CLASSES.length];
+
+    public AdmissionController(AggregatorProperties properties, MeterRegistry meterRegistry) {
+        AdmissionProperties config = properties.getResilience().getAdmission();
+        this.enabled = config.isEnabled();
+        this.maxQueueWaitNanos = config.getMaxQueueWait().toNanos();
+        long baseRetryAfter = Math.max(1, config.getRetryAfter().toSeconds());
+
+        for (RequestClass requestClass : CLASSES) {
+            int i = requestClass.ordinal();
+            double share = Math.max(0, 1 - config.getShedStep() * i);
+            limits[i] = (int) Math.max(1, Math.round(config.getMaxConcurrent() * share));
+            retryAfterSeconds[i] = baseRetryAfter * (i + 1);
+            slotFreed[i] = lock.newCondition();
+
+            String tag = requestClass.tag();
+            admitted[i] = Counter.builder("transfer.admission.admitted")
+                .description("API requests admitted")
+                .tag("class", tag)
+                .register(meterRegistry);
+            shed[i] = Counter.builder("transfer.admission.shed")
+                .description("API requests rejected with 429 by admission control")
+                .tag("class", tag)
+                .register(meterRegistry);
+            queueWait[i] = Timer.builder("transfer.admission.queue.wait")
+                .description("Time admitted requests waited for a slot")
+                .tag("class", tag)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+            Gauge.builder("transfer.admission.in.flight", inFlightByClass, a -> a.get(i))
+                .description("API requests currently being served")
+                .tag("class", tag)
+                .register(meterRegistry);
+            Gauge.builder("transfer.admission.queued", waitingByClass, a -> a.get(i))
+                .description("API requests waiting for a slot")
+                .tag("class", tag)
+                .register(meterRegistry);
+        }
+
+        if (enabled) {
+            log.info("Admission control enabled: {} slots, per-class limits {}",
+                config.getMaxConcurrent(), Arrays.toString(limits));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes a slot for the request, waiting up to max-queue-wait.
+     *
+     * @throws RateLimitExceededException if no slot for its class frees up in time
+     */
+    public Permit admit(RequestClass requestClass) {
+        if (!enabled) {
+            return NO_OP;
+        }
+        int c = requestClass.ordinal();
+        long start = System.nanoTime();
+
+        lock.lock();
+        try {
+            if (!canStart(c) && !awaitSlot(c, start)) {
+                shed[c].increment();
+                signalNext();  // Lower classes may have been queued behind this request
+                log.warn("Shedding {} request: {} in flight", requestClass, inFlight);
+                throw new RateLimitExceededException(
+                    "Server overloaded - " + requestClass.tag() + " requests are being shed", retryAfterSeconds[c]);
+            }
+            inFlight++;
+            signalNext();  // Chains the wake-up while slots remain
+        } finally {
+            lock.unlock();
+        }
+
+        inFlightByClass.incrementAndGet(c);
+        admitted[c].increment();
+        queueWait[c].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new ClassPermit(c);
+    }
+
+    /** Seconds a shed request of the class is told to wait */
+    public long retryAfterSeconds(RequestClass requestClass) {
+        return retryAfterSeconds[requestClass.ordinal()];
+    }
+
+    // Caller holds the lock; false if no slot freed up in time
+    private boolean awaitSlot(int c, long start) {
+        long remaining = maxQueueWaitNanos - (System.nanoTime() - start);
+        waitingByClass.incrementAndGet(c);
+        try {
+            while (!canStart(c)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = slotFreed[c].awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitingByClass.decrementAndGet(c);
+        }
+    }
+
+    // Caller holds the lock
+    private boolean canStart(int c) {
+        if (inFlight >= limits[c]) {
+            return false;
+        }
+        for (int higher = 0; higher < c; higher++) {
+            if (waitingByClass.get(higher) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Caller holds the lock. Wakes the highest waiting class; if it can't start, no lower one can
+    private void signalNext() {
+        for (int c = 0; c < CLASSES.length; c++) {
+            if (waitingByClass.get(c) > 0) {
+                if (inFlight < limits[c]) {
+                    slotFreed[c].signal();
+                }
+                return;
+            }
+        }
+    }
+
+    private void release(int c) {
+        inFlightByClass.decrementAndGet(c);
+        lock.lock();
+        try {
+            inFlight--;
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class ClassPermit implements Permit {
+        private final int requestClass;
+        private boolean closed;
+
+        ClassPermit(int requestClass) {
+            this.requestClass = requestClass;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(requestClass);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.dto.ErrorResponse;
+import com.arcube.transferaggregator.exception.RateLimitExceededException;
+import com.arcube.transferaggregator.resilience.AdmissionController.Permit;
+import com.arcube.transferaggregator.resilience.AdmissionController.RequestClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Classifies API requests and admits them through the {@link AdmissionController}, answering
+ * 429 with Retry-After when a request is shed. Admin, actuator and docs paths pass straight through.
+ * Registered by AdmissionConfig rather than as a component, so MVC slice tests don't pick it up.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String TRANSFERS = "/api/v1/transfers/";
+    private static final String PRICING = "/api/v1/pricing";
+
+    private final AdmissionController admissionController;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionFilter(AdmissionController admissionController, ObjectMapper objectMapper) {
+        this.admissionController = admissionController;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestClass requestClass = classify(request.getMethod(), request.getRequestURI());
+        if (requestClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Permit permit;
+        try {
+            permit = admissionController.admit(requestClass);
+        } catch (RateLimitExceededException e) {
+            reject(response, e);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /** Request class for an API call, null for paths admission control doesn't manage */
+    static RequestClass classify(String method, String path) {
+        if (path.startsWith(PRICING)) {
+            return RequestClass.PRICING;
+        }
+        if (!path.startsWith(TRANSFERS)) {
+            return null;
+        }
+        String rest = path.substring(TRANSFERS.length());
+        if (rest.endsWith("/events")) {
+            return null;                // Long-lived stream; holding a slot would starve short requests
+        }
+        if (rest.equals("book")) {
+            return RequestClass.BOOK;
+        }
+        if (rest.equals("search")) {
+            return RequestClass.SEARCH;
+        }
+        if (rest.startsWith("search/")) {
+            return RequestClass.POLL;   // Poll and alternates of an existing search
+        }
+        if (rest.equals("bookings")) {
+            return RequestClass.POLL;   // Booking listing, served from the ledger
+        }
+        if (rest.startsWith("bookings/")) {
+            if (rest.endsWith("/search-changes") || rest.endsWith("/commit-change")) {
+                return RequestClass.CHANGE;
+            }
+            if ("DELETE".equals(method)) {
+                return RequestClass.CANCEL;
+            }
+            return RequestClass.POLL;   // Status reads
+        }
+        if (rest.equals("bulk-cancellations") || rest.startsWith("bulk-cancellations/")) {
+            return "POST".equals(method) ? RequestClass.CANCEL : RequestClass.POLL;
+        }
+        return RequestClass.SEARCH;
+    }
+
+    private void reject(HttpServletResponse response, RateLimitExceededException e) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+            ErrorResponse.of("SERVER_OVERLOADED", e.getMessage(), "WAIT", MDC.get("requestId")));
+    }
+}
@@ -0,0 +1,243 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingLedgerProperties;
+import com.arcube.transferaggregator.config.TenantContext;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.dto.BookingChangeResponse;
+import com.arcube.transferaggregator.dto.BookingRecord;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only record of what happened to each booking (booked, confirmed or failed after
+ * pending, cancelled, replaced by a change), so bookings can be read and listed per tenant
+ * without calling the supplier.
+ *
+ * Recording only queues the entry; a scheduled flush writes the queue to the
+ * {@link BookingLedgerStore} in batches of batch-size every flush-interval, so the request never
+ * waits on the store. Reads therefore lag a booking by up to a flush. If the queue is full the
+ * entry is dropped; a batch the store rejects is retried on the next flushes, up to
+ * {@value #MAX_FLUSH_ATTEMPTS} times, so an entry may be written twice (folding doesn't mind).
+ */
+@Slf4j
+@Component
+public class BookingLedger {
+
+    static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final BookingLedgerStore store;
+    private final BookingLedgerProperties properties;
+    private final String defaultTenant;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<BookingLedgerEntry> queue;
+    private final Map<String, Counter> entries = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final List<BookingLedgerEntry> unwritten = new ArrayList<>();  // Guarded by flushLock
+    private int failedAttempts;                                            // Guarded by flushLock
+
+    @Autowired
+    public BookingLedger(BookingLedgerStore store, AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this(store, properties.getBookingLedger(), properties.getDefaultTenant(), meterRegistry);
+    }
+
+    BookingLedger(BookingLedgerStore store, BookingLedgerProperties properties, String defaultTenant,
+                  MeterRegistry meterRegistry) {
+        this.store = store;
+        this.properties = properties;
+        this.defaultTenant = defaultTenant;
+        this.meterRegistry = meterRegistry;
+        this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+
+        Gauge.builder("transfer.booking.ledger.queued", queue, BlockingQueue::size)
+            .description("Ledger entries waiting to be written")
+            .register(meterRegistry);
+    }
+
+    /** A booking just made, for the tenant of the current request; ignored without a bookingId */
+    public void recordBooking(String supplierCode, BookResponse response) {
+        if (response.getBookingId() == null) {
+            return;
+        }
+        append(BookingLedgerEntry.booked(response.getBookingId(), currentTenant(), supplierCode,
+            response.getStatus(), response.getConfirmationNumber(), response.getTotalPrice(),
+            response.getPickupInstructions(), null));
+    }
+
+    /** New status of a booking that was pending */
+    public void recordStatus(BookResponse status) {
+        if (status.getBookingId() == null) {
+            return;
+        }
+        append(BookingLedgerEntry.statusChanged(status.getBookingId(), status.getStatus(),
+            status.getConfirmationNumber(), status.getTotalPrice(), status.getPickupInstructions()));
+    }
+
+    /** A final cancellation outcome; only actual cancellations are recorded */
+    public void recordCancellation(CancelResponse outcome) {
+        if (BookingStatus.CANCELLED.name().equals(outcome.getStatus())) {
+            append(BookingLedgerEntry.cancelled(outcome.getBookingId()));
+        }
+    }
+
+    /** A committed reservation change: the new booking, and the old one marked as replaced */
+    public void recordChange(String oldBookingId, String supplierCode, BookingChangeResponse response) {
+        if (!"SUCCESS".equals(response.getStatus()) || response.getNewBookingId() == null) {
+            return;
+        }
+        append(BookingLedgerEntry.booked(response.getNewBookingId(), currentTenant(), supplierCode,
+            BookingStatus.CONFIRMED, response.getNewConfirmationNumber(), null, null, oldBookingId));
+        append(BookingLedgerEntry.changed(oldBookingId, response.getNewBookingId()));
+    }
+
+    public Optional<BookingRecord> get(String bookingId) {
+        List<BookingLedgerEntry> history = store.history(bookingId);
+        return history.isEmpty() ? Optional.empty() : Optional.of(fold(bookingId, history));
+    }
+
+    /** The booking, if it was made for the current request's tenant; one with no known tenant is nobody's */
+    public Optional<BookingRecord> getForCurrentTenant(String bookingId) {
+        String tenantId = currentTenant();
+        return get(bookingId).filter(booking -> tenantId.equals(booking.getTenantId()));
+    }
+
+    public List<BookingRecord> listForCurrentTenant(int limit) {
+        return listByTenant(currentTenant(), limit);
+    }
+
+    /** The tenant's bookings, newest first; limit is capped at max-page-size */
+    public List<BookingRecord> listByTenant(String tenantId, int limit) {
+        int capped = Math.max(1, Math.min(limit, properties.getMaxPageSize()));
+        return store.bookingIds(tenantId, capped).stream()
+            .map(this::get)
+            .flatMap(Optional::stream)
+            .toList();
+    }
+
+    /** Writes everything queued, batch-size entries at a time; skipped if a flush is running */
+    @Scheduled(fixedDelayString = "${transfer.aggregator.booking-ledger.flush-interval:200ms}")
+    public void flush() {
+        if (flushLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void append(BookingLedgerEntry entry) {
+        if (!queue.offer(entry)) {
+            log.warn("Booking ledger queue full, dropping {} entry for {}", entry.type(), entry.bookingId());
+            count("dropped", 1);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            if (unwritten.isEmpty()) {
+                queue.drainTo(unwritten, properties.getBatchSize());
+            }
+            if (unwritten.isEmpty()) {
+                return;
+            }
+            try {
+                store.append(List.copyOf(unwritten));
+            } catch (RuntimeException e) {
+                if (++failedAttempts < MAX_FLUSH_ATTEMPTS) {
+                    log.warn("Cannot write {} booking ledger entries, retrying next flush: {}",
+                        unwritten.size(), e.getMessage());
+                    return;
+                }
+                log.error("Dropping {} booking ledger entries after {} failed writes: {}",
+                    unwritten.size(), failedAttempts, e.getMessage());
+                count("failed", unwritten.size());
+                unwritten.clear();
+                failedAttempts = 0;
+                continue;
+            }
+            count("written", unwritten.size());
+            unwritten.clear();
+            failedAttempts = 0;
+        }
+    }
+
+    private String currentTenant() {
+        return TenantContext.getTenantIdOrDefault(defaultTenant);
+    }
+
+    // outcome: written, dropped (queue full), failed (store kept rejecting the batch)
+    private void count(String outcome, int amount) {
+        entries.computeIfAbsent(outcome, o -> Counter.builder("transfer.booking.ledger.entries")
+            .description("Booking ledger entries by what became of them")
+            .tag("outcome", o)
+            .register(meterRegistry)).increment(amount);
+    }
+
+    private static BookingRecord fold(String bookingId, List<BookingLedgerEntry> history) {
+        BookingRecord booking = BookingRecord.builder()
+            .bookingId(bookingId)
+            .createdAt(history.get(0).recordedAt())
+            .history(new ArrayList<>())
+            .build();
+        for (BookingLedgerEntry entry : history) {
+            switch (entry.type()) {
+                case BOOKED -> {
+                    booking.setTenantId(entry.tenantId());
+                    booking.setSupplierCode(entry.supplierCode());
+                    booking.setReplacesBookingId(entry.relatedBookingId());
+                    booking.setCreatedAt(entry.recordedAt());
+                }
+                case CHANGED -> booking.setReplacedByBookingId(entry.relatedBookingId());
+                default -> { }
+            }
+            if (entry.status() != null) {
+                booking.setStatus(entry.status());
+            }
+            if (entry.confirmationNumber() != null) {
+                booking.setConfirmationNumber(entry.confirmationNumber());
+            }
+            if (entry.totalPrice() != null) {
+                booking.setTotalPrice(entry.totalPrice());
+            }
+            if (entry.pickupInstructions() != null) {
+                booking.setPickupInstructions(entry.pickupInstructions());
+            }
+            booking.setUpdatedAt(entry.recordedAt());
+            booking.getHistory().add(BookingRecord.Event.builder()
+                .type(entry.type().name())
+                .status(entry.status())
+                .at(entry.recordedAt())
+                .build());
+        }
+        return booking;
+    }
+}
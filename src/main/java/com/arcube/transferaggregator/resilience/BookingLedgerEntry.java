@@ -0,0 +1,53 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.domain.Money;
+
+import java.time.Instant;
+
+/**
+ * One fact about a booking in the {@link BookingLedger}. Entries are only ever appended; a
+ * booking's current state is its entries folded in order.
+ */
+public record BookingLedgerEntry(
+    String bookingId,
+    Type type,
+    BookingStatus status,
+    String tenantId,            // BOOKED only
+    String supplierCode,        // BOOKED only
+    String confirmationNumber,
+    Money totalPrice,
+    String pickupInstructions,
+    String relatedBookingId,    // BOOKED: booking it replaces; CHANGED: booking that replaces it
+    Instant recordedAt
+) {
+    public enum Type {
+        BOOKED,           // Booked, or booked as the replacement of another booking
+        STATUS_CHANGED,   // A pending booking was confirmed or failed
+        CANCELLED,
+        CHANGED           // Replaced by another booking through a reservation change
+    }
+
+    public static BookingLedgerEntry booked(String bookingId, String tenantId, String supplierCode,
+                                            BookingStatus status, String confirmationNumber, Money totalPrice,
+                                            String pickupInstructions, String replacesBookingId) {
+        return new BookingLedgerEntry(bookingId, Type.BOOKED, status, tenantId, supplierCode,
+            confirmationNumber, totalPrice, pickupInstructions, replacesBookingId, Instant.now());
+    }
+
+    public static BookingLedgerEntry statusChanged(String bookingId, BookingStatus status, String confirmationNumber,
+                                                   Money totalPrice, String pickupInstructions) {
+        return new BookingLedgerEntry(bookingId, Type.STATUS_CHANGED, status, null, null,
+            confirmationNumber, totalPrice, pickupInstructions, null, Instant.now());
+    }
+
+    public static BookingLedgerEntry cancelled(String bookingId) {
+        return new BookingLedgerEntry(bookingId, Type.CANCELLED, BookingStatus.CANCELLED, null, null,
+            null, null, null, null, Instant.now());
+    }
+
+    public static BookingLedgerEntry changed(String bookingId, String newBookingId) {
+        return new BookingLedgerEntry(bookingId, Type.CHANGED, null, null, null,
+            null, null, null, newBookingId, Instant.now());
+    }
+}
@@ -0,0 +1,22 @@
+package com.arcube.transferaggregator.resilience;
+
+import java.util.List;
+
+/**
+ * Storage behind {@link BookingLedger}: the entries of each booking in the order they were
+ * appended, and each tenant's bookings newest first. Bookings drop out after the retention
+ * period. Implementations, picked by transfer.aggregator.booking-ledger.store:
+ * - memory (default): {@link InMemoryBookingLedgerStore}, per instance and size-bounded
+ * - redis: {@link RedisBookingLedgerStore}, shared by all instances and kept across restarts
+ */
+public interface BookingLedgerStore {
+
+    /** Append a batch, in order; a failure may leave part of it written */
+    void append(List<BookingLedgerEntry> entries);
+
+    /** Entries of the booking, oldest first; empty if unknown */
+    List<BookingLedgerEntry> history(String bookingId);
+
+    /** The tenant's most recently booked bookingIds, newest first */
+    List<String> bookingIds(String tenantId, int limit);
+}
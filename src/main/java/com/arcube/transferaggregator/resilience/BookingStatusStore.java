@@ -0,0 +1,20 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.dto.BookResponse;
+
+import java.util.Optional;
+
+/**
+ * Latest known status of bookings that came back pending, by bookingId, expiring after the
+ * booking-status TTL. Implementations, picked by transfer.aggregator.booking-status.store:
+ * - memory (default): {@link InMemoryBookingStatusStore}
+ * - redis: {@link RedisBookingStatusStore}, so any instance can answer for a booking another
+ *   instance is polling
+ */
+public interface BookingStatusStore {
+
+    /** Store the booking's status, replacing the previous one */
+    void put(BookResponse status);
+
+    Optional<BookResponse> get(String bookingId);
+}
@@ -4,22 +4,33 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
 
-/** Dead Letter Queue for cancellations that exhausted all retries */
+/**
+ * Dead Letter Queue for cancellations that exhausted all retries.
+ * Entries live in a {@link DeadLetterStore}: in memory by default, or a Redis hash
+ * (cancellation.dlq.store=redis) so they survive restarts and can be replayed later.
+ */
 @Slf4j
 @Component
 public class CancellationDLQ {
     
-    private final Map<String, CancellationTask> deadLetters = new ConcurrentHashMap<>();
+    private final DeadLetterStore store;
     private final Counter dlqCounter;
     
+    /** In-memory store */
     public CancellationDLQ(MeterRegistry meterRegistry) {
+        this(new InMemoryDeadLetterStore(), meterRegistry);
+    }
+    
+    @Autowired
+    public CancellationDLQ(DeadLetterStore store, MeterRegistry meterRegistry) {
+        this.store = store;
+        
         // Counter for total failures sent to DLQ
         this.dlqCounter = Counter.builder("transfer.cancellation.dlq.total")
             .description("Total cancellations sent to dead letter queue")
@@ -27,7 +38,7 @@ public class CancellationDLQ {
             .register(meterRegistry);
         
         // Gauge for current DLQ size (for dashboards)
-        Gauge.builder("transfer.cancellation.dlq.size", deadLetters, Map::size)
+        Gauge.builder("transfer.cancellation.dlq.size", store, DeadLetterStore::size)
             .description("Current number of items in cancellation DLQ")
             .tag("application", "transfer-aggregator")
             .register(meterRegistry);
@@ -35,7 +46,7 @@ public class CancellationDLQ {
     
     /** Add a failed task to DLQ  */
     public void add(CancellationTask task) {
-        deadLetters.put(task.bookingId(), task);
+        store.put(task);
         dlqCounter.increment();
         
         log.error("DLQ: Cancellation failed after {} retries: bookingId={}, supplier={}, error={}", 
@@ -47,25 +58,32 @@ public class CancellationDLQ {
     
     /** Get a dead letter by bookingId */
     public Optional<CancellationTask> get(String bookingId) {
-        return Optional.ofNullable(deadLetters.get(bookingId));
+        return store.get(bookingId);
+    }
+    
+    /** Put back an entry that was taken for replay but could not be re-queued; not counted as a new failure */
+    public void restore(CancellationTask task) {
+        store.put(task);
+        log.warn("DLQ: Restored bookingId={}", task.bookingId());
     }
     
-    /** Remove from DLQ after manual resolution */
-    public void resolve(String bookingId) {
-        CancellationTask removed = deadLetters.remove(bookingId);
-        if (removed != null) {
+    /** Remove from DLQ after manual resolution or replay; false if it was no longer there */
+    public boolean resolve(String bookingId) {
+        boolean removed = store.remove(bookingId);
+        if (removed) {
             log.info("DLQ: Resolved bookingId={}", bookingId);
         }
+        return removed;
     }
     
     /** Get all dead letters for admin review */
     public List<CancellationTask> getAll() {
-        return List.copyOf(deadLetters.values());
+        return store.getAll();
     }
     
     /** Get DLQ size for monitoring/alerting */
     public int size() {
-        return deadLetters.size();
+        return store.size();
     }
 }
 
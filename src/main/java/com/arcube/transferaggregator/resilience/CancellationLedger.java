@@ -0,0 +1,67 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.dto.CancelResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Final cancellation outcomes (cancelled, already cancelled, dead-lettered) by bookingId, so a
+ * status read after the task has left the queue still gets an answer. Entries are bounded and
+ * expire after the configured TTL.
+ *
+ * Each outcome recorded on this instance is also published on {@link #changes()}, which
+ * cancel-status long-polls wait on, and cancellations are added to the {@link BookingLedger}.
+ */
+@Slf4j
+@Component
+public class CancellationLedger {
+
+    private final CancellationOutcomeStore store;
+    private final BookingLedger bookingLedger;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> recorded = new ConcurrentHashMap<>();
+    // Only live subscribers see an emit; a long-poll re-reads the status once subscribed
+    private final Sinks.Many<String> changes = Sinks.many().multicast().directBestEffort();
+
+    @Autowired
+    public CancellationLedger(CancellationOutcomeStore store, BookingLedger bookingLedger, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.bookingLedger = bookingLedger;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Record a final outcome; a later one for the same booking replaces it */
+    public void record(CancelResponse outcome) {
+        try {
+            store.put(outcome);
+        } catch (RuntimeException e) {
+            // The cancellation itself is done; only status reads lose the detail
+            log.warn("Cannot record cancellation outcome for {}: {}", outcome.getBookingId(), e.getMessage());
+        }
+        bookingLedger.recordCancellation(outcome);
+        recorded.computeIfAbsent(outcome.getStatus(), status -> Counter.builder("transfer.cancellation.ledger.recorded")
+            .description("Final cancellation outcomes recorded for status reads")
+            .tag("status", status.toLowerCase())
+            .register(meterRegistry)).increment();
+        changes.emitNext(outcome.getBookingId(), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(10)));
+    }
+
+    public Optional<CancelResponse> get(String bookingId) {
+        return store.get(bookingId);
+    }
+
+    /** BookingIds as outcomes are recorded on this instance */
+    public Flux<String> changes() {
+        return changes.asFlux();
+    }
+}
@@ -0,0 +1,19 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.dto.CancelResponse;
+
+import java.util.Optional;
+
+/**
+ * Storage behind {@link CancellationLedger}: the final outcome per bookingId, bounded and
+ * expiring after the ledger TTL. Follows transfer.aggregator.cancellation.queue:
+ * - memory (default): {@link InMemoryCancellationOutcomeStore}
+ * - redis: {@link RedisCancellationOutcomeStore}, so any instance can report an outcome
+ *   reached on another
+ */
+public interface CancellationOutcomeStore {
+
+    void put(CancelResponse outcome);
+
+    Optional<CancelResponse> get(String bookingId);
+}
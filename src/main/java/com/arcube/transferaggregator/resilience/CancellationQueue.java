@@ -1,66 +1,35 @@
 package com.arcube.transferaggregator.resilience;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.Map;
-import java.util.Queue;
 
 /**
- * In-memory cancellation queue with retry support.
- * 
- * For production: Replace with Redis/SQS/PostgreSQL for persistence.
+ * Retry queue for supplier cancellations that failed or timed out.
+ * A polled task stays owned by the poller until it is completed or re-queued.
+ *
+ * Implementations, picked by transfer.aggregator.cancellation.queue:
+ * - memory (default): {@link InMemoryCancellationQueue}, per instance, lost on restart
+ * - redis: {@link RedisStreamCancellationQueue}, shared by all instances and durable
  */
-@Slf4j
-@Component
-public class CancellationQueue {
-    
-    // Main retry queue
-    private final Queue<CancellationTask> queue = new ConcurrentLinkedQueue<>();
-    
-    // Track pending cancellations by bookingId for status lookup
-    private final Map<String, CancellationTask> pendingCancellations = new ConcurrentHashMap<>();
-    
+public interface CancellationQueue {
+
     /** Add a cancellation task to the queue */
-    public void enqueue(CancellationTask task) {
-        queue.offer(task);
-        pendingCancellations.put(task.bookingId(), task);
-        log.info("Queued cancellation: bookingId={}, retry={}", task.bookingId(), task.retryCount());
-    }
-    
-    /** Get next task for processing */
-    public Optional<CancellationTask> poll() {
-        return Optional.ofNullable(queue.poll());
-    }
-    
-    /** Re-queue a task for retry */
-    public void requeue(CancellationTask task) {
-        CancellationTask updated = task.withRetry(task.lastError());
-        queue.offer(updated);
-        pendingCancellations.put(task.bookingId(), updated);
-        log.info("Re-queued cancellation: bookingId={}, retry={}", task.bookingId(), updated.retryCount());
-    }
-    
+    void enqueue(CancellationTask task);
+
+    /** Get next due task for processing; tasks whose nextAttemptAt is still ahead are not returned */
+    Optional<CancellationTask> poll();
+
+    /** Re-queue a polled task, already counted as a retry, to be handed out again at its nextAttemptAt */
+    void requeue(CancellationTask task);
+
     /** Mark cancellation as completed (success or moved to DLQ) */
-    public void complete(String bookingId) {
-        pendingCancellations.remove(bookingId);
-    }
-    
+    void complete(String bookingId);
+
     /** Check if a booking has a pending cancellation */
-    public Optional<CancellationTask> getPending(String bookingId) {
-        return Optional.ofNullable(pendingCancellations.get(bookingId));
-    }
-    
+    Optional<CancellationTask> getPending(String bookingId);
+
     /** Get queue size for monitoring */
-    public int size() {
-        return queue.size();
-    }
-    
+    int size();
+
     /** Get pending count for monitoring */
-    public int pendingCount() {
-        return pendingCancellations.size();
-    }
+    int pendingCount();
 }
@@ -1,5 +1,7 @@
 package com.arcube.transferaggregator.resilience;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.Instant;
 
 /** Represents a cancellation task in the retry queue */
@@ -10,10 +12,16 @@ public record CancellationTask(
     String confirmationNumber,
     Instant createdAt,
     int retryCount,
-    String lastError
+    String lastError,
+    Instant nextAttemptAt   // Null = due now
 ) {
     private static final int MAX_RETRIES = 3;
     
+    public CancellationTask(String bookingId, String supplierCode, String reservationId,
+                            String confirmationNumber, Instant createdAt, int retryCount, String lastError) {
+        this(bookingId, supplierCode, reservationId, confirmationNumber, createdAt, retryCount, lastError, null);
+    }
+    
     public static CancellationTask create(String bookingId, String supplierCode, 
                                           String reservationId, String confirmationNumber) {
         return new CancellationTask(bookingId, supplierCode, reservationId, 
@@ -22,13 +30,30 @@ public record CancellationTask(
     
     public CancellationTask withRetry(String error) {
         return new CancellationTask(bookingId, supplierCode, reservationId, 
-            confirmationNumber, createdAt, retryCount + 1, error);
+            confirmationNumber, createdAt, retryCount + 1, error, nextAttemptAt);
+    }
+    
+    /** Same task, not to be attempted before the given time */
+    public CancellationTask withNextAttemptAt(Instant at) {
+        return new CancellationTask(bookingId, supplierCode, reservationId,
+            confirmationNumber, createdAt, retryCount, lastError, at);
+    }
+    
+    /** Fresh attempt for a dead letter being replayed: retries and the expiry window start over */
+    public CancellationTask replayed() {
+        return new CancellationTask(bookingId, supplierCode, reservationId,
+            confirmationNumber, Instant.now(), 0, lastError, null);
     }
     
     public boolean hasRetriesRemaining() {
         return retryCount < MAX_RETRIES;
     }
     
+    public boolean isDue(Instant now) {
+        return nextAttemptAt == null || !now.isBefore(nextAttemptAt);
+    }
+    
+    @JsonIgnore
     public boolean isExpired() {
         // Tasks older than 1 hour are considered expired
         return Instant.now().isAfter(createdAt.plusSeconds(3600));
@@ -1,108 +1,330 @@
 package com.arcube.transferaggregator.resilience;
 
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationWorkerProperties;
 import com.arcube.transferaggregator.domain.CancelCommand;
+import com.arcube.transferaggregator.dto.CancelResponse;
 import com.arcube.transferaggregator.ports.SupplierCancelResult;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.TransferSupplier;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Background worker that processes the cancellation retry queue.
- * Runs every 5 seconds to process pending cancellations.
+ * Runs every 5 seconds and drains the queue concurrently on virtual threads.
+ *
+ * Tasks are partitioned by supplier: each supplier runs at most its concurrency cap of
+ * cancels at once, and as many again wait in its partition. A task for a supplier whose
+ * partition is full goes back on the queue for busy-supplier-delay, without counting as a
+ * retry, so a slow supplier holds at most twice its cap of the max-in-flight tasks taken off
+ * the queue and other suppliers' cancellations keep flowing past it.
+ * A run ends once no task is due and every task it took has finished.
+ *
+ * A failed cancel is re-queued with exponential backoff and jitter (retry-base-delay doubling
+ * up to retry-max-delay), and the queue holds it back until then rather than the worker
+ * retrying it straight away.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class CancellationWorker {
-    
+
+    /** How processing a task ended */
+    enum Outcome {
+        SUCCEEDED, RETRYING, DEAD_LETTERED
+    }
+
     private final CancellationQueue queue;
     private final CancellationDLQ dlq;
     private final SupplierRegistry supplierRegistry;
-    
+    private final CancellationLedger ledger;
+    private final CancellationWorkerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition taskFinished = lock.newCondition();
+    private int outstanding;      // Taken off the queue and not finished, guarded by lock
+    private long finishedCount;   // Guarded by lock
+
+    @Autowired
+    public CancellationWorker(CancellationQueue queue, CancellationDLQ dlq, SupplierRegistry supplierRegistry,
+                              CancellationLedger ledger, AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this(queue, dlq, supplierRegistry, ledger, properties.getCancellation().getWorker(), meterRegistry);
+    }
+
+    CancellationWorker(CancellationQueue queue, CancellationDLQ dlq, SupplierRegistry supplierRegistry,
+                       CancellationLedger ledger, CancellationWorkerProperties properties, MeterRegistry meterRegistry) {
+        this.queue = queue;
+        this.dlq = dlq;
+        this.supplierRegistry = supplierRegistry;
+        this.ledger = ledger;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
     /** Process cancellation queue every 5 seconds */
     @Scheduled(fixedDelay = 5000, initialDelay = 10000)
     public void processCancellations() {
         int processed = 0;
-        Optional<CancellationTask> taskOpt;
-        
-        while ((taskOpt = queue.poll()).isPresent()) {
-            CancellationTask task = taskOpt.get();
-            processed++;
-            
+        while (true) {
+            long finished = awaitCapacity();
+            Optional<CancellationTask> taskOpt = queue.poll();
+            if (taskOpt.isPresent()) {
+                if (dispatch(taskOpt.get())) {
+                    processed++;
+                }
+            } else if (!awaitFinishedSince(finished)) {
+                break;  // Queue empty and nothing in flight that could re-queue
+            }
+        }
+
+        if (processed > 0) {
+            log.info("Processed {} cancellation tasks. Queue size={}, DLQ size={}",
+                processed, queue.size(), dlq.size());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // Starts the task if its supplier is under its cap, otherwise parks it in the partition,
+    // or puts it back on the queue when the partition already has a full cap waiting (false)
+    private boolean dispatch(CancellationTask task) {
+        Partition partition = partitions.computeIfAbsent(String.valueOf(task.supplierCode()), this::newPartition);
+        boolean full;
+        lock.lock();
+        try {
+            full = partition.running >= partition.maxConcurrent && partition.waiting.size() >= partition.maxConcurrent;
+            if (!full) {
+                outstanding++;
+                if (partition.running >= partition.maxConcurrent) {
+                    partition.waiting.add(task);
+                    partition.waitingCount = partition.waiting.size();
+                    return true;
+                }
+                partition.running++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full) {
+            defer(partition, task);
+            return false;
+        }
+        try {
+            executor.execute(() -> runPartition(partition, task));
+        } catch (RejectedExecutionException e) {
+            runPartition(partition, task);  // Shutting down; finish it here rather than strand it
+        }
+        return true;
+    }
+
+    // Runs the task, then whatever is waiting in the partition, on the same virtual thread
+    private void runPartition(Partition partition, CancellationTask first) {
+        CancellationTask task = first;
+        while (task != null) {
+            Outcome outcome;
             try {
-                processTask(task);
+                outcome = processTask(task);
             } catch (Exception e) {
                 log.error("Error processing cancellation task: {}", task.bookingId(), e);
-                handleFailure(task, e.getMessage());
+                outcome = handleFailure(task, e.getMessage());
+            }
+            partition.processed.get(outcome).increment();
+
+            lock.lock();
+            try {
+                outstanding--;
+                finishedCount++;
+                task = partition.waiting.poll();
+                partition.waitingCount = partition.waiting.size();
+                if (task == null) {
+                    partition.running--;
+                }
+                taskFinished.signalAll();
+            } finally {
+                lock.unlock();
             }
         }
-        
-        if (processed > 0) {
-            log.info("Processed {} cancellation tasks. Queue size={}, DLQ size={}", 
-                processed, queue.size(), dlq.size());
+    }
+
+    // Back on the queue until busy-supplier-delay from now; the retry count is left alone
+    private void defer(Partition partition, CancellationTask task) {
+        log.debug("Supplier {} is busy, deferring cancellation: bookingId={}", task.supplierCode(), task.bookingId());
+        queue.requeue(task.withNextAttemptAt(Instant.now().plus(properties.getBusySupplierDelay())));
+        partition.deferred.increment();
+    }
+
+    // Waits until fewer than max-in-flight tasks are outstanding; returns the finished count
+    private long awaitCapacity() {
+        int maxInFlight = Math.max(1, properties.getMaxInFlight());
+        lock.lock();
+        try {
+            while (outstanding >= maxInFlight) {
+                taskFinished.awaitUninterruptibly();
+            }
+            return finishedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits for a task to finish after the given count, since it may have re-queued;
+    // false if none did and none is outstanding
+    private boolean awaitFinishedSince(long finished) {
+        lock.lock();
+        try {
+            while (finishedCount == finished) {
+                if (outstanding == 0) {
+                    return false;
+                }
+                taskFinished.awaitUninterruptibly();
+            }
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
-    
-    private void processTask(CancellationTask task) {
+
+    private Outcome processTask(CancellationTask task) {
         // Check if task is expired
         if (task.isExpired()) {
             log.warn("Cancellation task expired: bookingId={}", task.bookingId());
-            dlq.add(task.withRetry("Task expired after 1 hour"));
-            queue.complete(task.bookingId());
-            return;
+            return deadLetter(task.withRetry("Task expired after 1 hour"));
         }
-        
+
         // Find the supplier
         Optional<TransferSupplier> supplierOpt = supplierRegistry.getEnabledSuppliers().stream()
             .filter(s -> s.getSupplierCode().equals(task.supplierCode()))
             .findFirst();
-        
+
         if (supplierOpt.isEmpty()) {
             log.error("Supplier not found for cancellation: {}", task.supplierCode());
-            dlq.add(task.withRetry("Supplier not available: " + task.supplierCode()));
-            queue.complete(task.bookingId());
-            return;
+            return deadLetter(task.withRetry("Supplier not available: " + task.supplierCode()));
         }
-        
+
         TransferSupplier supplier = supplierOpt.get();
-        
+
         try {
             CancelCommand command = CancelCommand.of(
-                task.reservationId(), 
+                task.reservationId(),
                 task.supplierCode()
             );
-            
+
             SupplierCancelResult result = supplier.cancel(command);
-            
+
             if (result.isSuccess()) {
-                log.info("Cancellation succeeded on retry: bookingId={}, refund={}", 
+                log.info("Cancellation succeeded on retry: bookingId={}, refund={}",
                     task.bookingId(), result.refundAmount());
+                ledger.record(result.alreadyCancelled()
+                    ? CancelResponse.alreadyCancelled(task.bookingId())
+                    : CancelResponse.success(task.bookingId(), result.refundAmount()));
                 queue.complete(task.bookingId());
+                return Outcome.SUCCEEDED;
             } else {
-                handleFailure(task, result.errorMessage());
+                return handleFailure(task, result.errorMessage());
             }
-            
+
         } catch (Exception e) {
-            handleFailure(task, e.getMessage());
+            return handleFailure(task, e.getMessage());
         }
     }
-    
-    private void handleFailure(CancellationTask task, String error) {
+
+    private Outcome handleFailure(CancellationTask task, String error) {
         CancellationTask updated = task.withRetry(error);
-        
+
         if (updated.hasRetriesRemaining()) {
-            log.warn("Cancellation retry {}/{} failed: bookingId={}, error={}", 
-                updated.retryCount(), 3, task.bookingId(), error);
-            queue.requeue(updated);
+            Duration delay = retryDelay(updated.retryCount());
+            log.warn("Cancellation retry {}/{} failed: bookingId={}, next attempt in {}s, error={}",
+                updated.retryCount(), 3, task.bookingId(), delay.toSeconds(), error);
+            queue.requeue(updated.withNextAttemptAt(Instant.now().plus(delay)));
+            return Outcome.RETRYING;
         } else {
             log.error("Cancellation exhausted retries: bookingId={}", task.bookingId());
-            dlq.add(updated);
-            queue.complete(task.bookingId());
+            return deadLetter(updated);
+        }
+    }
+
+    private Outcome deadLetter(CancellationTask task) {
+        dlq.add(task);
+        ledger.record(CancelResponse.failed(task.bookingId(),
+            "Cancellation failed after " + task.retryCount() + " retries. Error: " + task.lastError()));
+        queue.complete(task.bookingId());
+        return Outcome.DEAD_LETTERED;
+    }
+
+    // Exponential backoff with equal jitter: half the step fixed, half random
+    Duration retryDelay(int retry) {
+        long base = properties.getRetryBaseDelay().toMillis();
+        long step = Math.min(properties.getRetryMaxDelay().toMillis(), base << Math.min(Math.max(retry - 1, 0), 20));
+        long half = step / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(step - half + 1));
+    }
+
+    private Partition newPartition(String supplierCode) {
+        int maxConcurrent = Math.max(1, properties.getSupplierConcurrency()
+            .getOrDefault(supplierCode, properties.getMaxConcurrentPerSupplier()));
+        Partition partition = new Partition(maxConcurrent);
+
+        Gauge.builder("transfer.cancellation.worker.in.flight", partition, p -> p.running)
+            .description("Cancellations being sent to the supplier")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        Gauge.builder("transfer.cancellation.worker.waiting", partition, p -> p.waitingCount)
+            .description("Cancellations taken off the queue, waiting for a free slot for their supplier")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            partition.processed.put(outcome, Counter.builder("transfer.cancellation.worker.processed")
+                .description("Cancellation tasks processed by the worker")
+                .tag("supplier", supplierCode)
+                .tag("outcome", outcome.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        partition.deferred = Counter.builder("transfer.cancellation.worker.deferred")
+            .description("Cancellations put back on the queue because their supplier's partition was full")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        log.info("Cancellation partition for {}: up to {} concurrent cancels", supplierCode, maxConcurrent);
+        return partition;
+    }
+
+    /** One supplier's share of the worker; running and waiting are guarded by the worker lock */
+    private static final class Partition {
+        private final int maxConcurrent;
+        private final Deque<CancellationTask> waiting = new ArrayDeque<>();
+        private final Map<Outcome, Counter> processed = new EnumMap<>(Outcome.class);
+        private Counter deferred;
+        private volatile int running;       // Read unlocked by gauges
+        private volatile int waitingCount;
+
+        Partition(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
         }
     }
 }
@@ -0,0 +1,281 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.ClusterRateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits shared by every instance, enforced by a GCRA script in Redis.
+ * Instances lease small batches of tokens and hand them out locally, so most requests never
+ * touch Redis; unused leased tokens expire after lease-ttl. When Redis fails, the instance
+ * falls back to a local token bucket allowing limit / expected-instances for redis-backoff,
+ * then tries Redis again.
+ */
+@Slf4j
+@Component
+public class ClusterRateLimiter {
+
+    /** What a limit applies to; also the Redis key prefix */
+    enum Scope {
+        SEARCH("ratelimit:search:"),
+        TENANT("ratelimit:tenant:"),
+        POLL("ratelimit:poll:");
+
+        private final String keyPrefix;
+
+        Scope(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+    }
+
+    /**
+     * GCRA over a limit-per-minute with burst = limit, granting up to ARGV[3] tokens at once.
+     * KEYS[1] holds the theoretical arrival time (TAT) in ms. Redis TIME is the clock, so
+     * instance clock skew doesn't matter. Returns {granted, ms until a token is available}.
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> GCRA_SCRIPT = new DefaultRedisScript<>("""
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+        local interval = tonumber(ARGV[1])
+        local burst = tonumber(ARGV[2])
+        local requested = tonumber(ARGV[3])
+        local tat = tonumber(redis.call('GET', KEYS[1])) or now
+        if tat < now then tat = now end
+        local granted = math.min(requested, math.floor((now + burst * interval - tat) / interval))
+        if granted <= 0 then
+          return {0, math.max(1, math.ceil(tat - (burst - 1) * interval - now))}
+        end
+        tat = tat + granted * interval
+        redis.call('SET', KEYS[1], string.format('%.3f', tat), 'PX', math.max(1, math.ceil(tat - now)))
+        return {granted, 0}
+        """, List.class);
+
+    private static final int MAX_KEYS = 100_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final int leaseSize;
+    private final long leaseTtlNanos;
+    private final int expectedInstances;
+    private final long redisBackoffNanos;
+    private final LongSupplier nanoClock;
+    private final Function<String, Lease> newLease;
+
+    private final Map<Scope, Cache<String, Lease>> leases = new EnumMap<>(Scope.class);
+    private final Map<Scope, Cache<String, TokenBucket>> fallbackBuckets = new EnumMap<>(Scope.class);
+    private final Map<Scope, Counter> refills = new EnumMap<>(Scope.class);
+    private final Map<Scope, Counter> leasedTokens = new EnumMap<>(Scope.class);
+    private final Map<Scope, Counter> clusterDenials = new EnumMap<>(Scope.class);
+    private final Map<Scope, Counter> fallbackDenials = new EnumMap<>(Scope.class);
+    private final Map<Scope, Counter> fallbackPermits = new EnumMap<>(Scope.class);
+
+    private volatile long redisRetryAtNanos;
+    private volatile boolean redisDown;
+
+    @Autowired
+    public ClusterRateLimiter(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                              MeterRegistry meterRegistry) {
+        this(properties, redisTemplate, meterRegistry, System::nanoTime);
+    }
+
+    ClusterRateLimiter(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                       MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        ClusterRateLimitProperties config = properties.getResilience().getClusterRateLimit();
+        this.redisTemplate = redisTemplate;
+        this.enabled = config.isEnabled();
+        this.leaseSize = Math.max(1, config.getLeaseSize());
+        this.leaseTtlNanos = config.getLeaseTtl().toNanos();
+        this.expectedInstances = Math.max(1, config.getExpectedInstances());
+        this.redisBackoffNanos = config.getRedisBackoff().toNanos();
+        this.nanoClock = nanoClock;
+        this.newLease = k -> new Lease(nanoClock.getAsLong());
+
+        for (Scope scope : Scope.values()) {
+            String tag = scope.name().toLowerCase();
+            leases.put(scope, Caffeine.newBuilder()
+                .maximumSize(MAX_KEYS)
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build());
+            fallbackBuckets.put(scope, Caffeine.newBuilder()
+                .maximumSize(MAX_KEYS)
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build());
+
+            refills.put(scope, Counter.builder("transfer.ratelimit.lease.refills")
+                .description("Redis round trips to lease rate limit tokens")
+                .tag("scope", tag)
+                .register(meterRegistry));
+            leasedTokens.put(scope, Counter.builder("transfer.ratelimit.lease.tokens")
+                .description("Rate limit tokens leased from Redis")
+                .tag("scope", tag)
+                .register(meterRegistry));
+            clusterDenials.put(scope, Counter.builder("transfer.ratelimit.denied")
+                .description("Requests denied by the rate limiter")
+                .tags("scope", tag, "source", "cluster")
+                .register(meterRegistry));
+            fallbackDenials.put(scope, Counter.builder("transfer.ratelimit.denied")
+                .description("Requests denied by the rate limiter")
+                .tags("scope", tag, "source", "fallback")
+                .register(meterRegistry));
+            fallbackPermits.put(scope, Counter.builder("transfer.ratelimit.fallback.permits")
+                .description("Permits granted by the local fallback while Redis was unavailable")
+                .tag("scope", tag)
+                .register(meterRegistry));
+        }
+
+        if (enabled) {
+            log.info("Cluster rate limiting enabled: lease={} tokens/{}ms, fallback share=1/{}",
+                leaseSize, config.getLeaseTtl().toMillis(), expectedInstances);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes one permit for the key under a cluster-wide limit.
+     *
+     * @return 0 if granted, otherwise milliseconds until a permit may be available
+     */
+    long tryAcquire(Scope scope, String key, int limitPerMinute) {
+        Lease lease = leases.get(scope).get(key, newLease);
+        long now = nanoClock.getAsLong();
+        if (lease.tryTake(now)) {
+            return 0;
+        }
+        // Redis already said no; don't ask again until a token can exist
+        long deniedFor = lease.deniedUntilNanos - now;
+        if (deniedFor > 0) {
+            clusterDenials.get(scope).increment();
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deniedFor));
+        }
+
+        if (redisDown && now - redisRetryAtNanos < 0) {
+            return fallback(scope, key, limitPerMinute);
+        }
+
+        // One refill per key at a time; concurrent callers wait and then use the fresh lease.
+        lease.refillLock.lock();
+        try {
+            now = nanoClock.getAsLong();
+            if (lease.tryTake(now)) {
+                return 0;
+            }
+            if (lease.deniedUntilNanos - now > 0) {
+                clusterDenials.get(scope).increment();
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(lease.deniedUntilNanos - now));
+            }
+
+            long[] result;
+            try {
+                result = leaseFromRedis(scope, key, limitPerMinute, leaseSizeFor(limitPerMinute));
+            } catch (RuntimeException e) {
+                if (!redisDown) {
+                    log.warn("Cluster rate limiter unavailable, using local fallback for {}ms: {}",
+                        TimeUnit.NANOSECONDS.toMillis(redisBackoffNanos), e.getMessage());
+                }
+                redisDown = true;
+                redisRetryAtNanos = now + redisBackoffNanos;
+                return fallback(scope, key, limitPerMinute);
+            }
+
+            if (redisDown) {
+                log.info("Cluster rate limiter recovered");
+                redisDown = false;
+            }
+            refills.get(scope).increment();
+
+            int granted = (int) result[0];
+            if (granted == 0) {
+                long waitMillis = Math.max(1, result[1]);
+                lease.deniedUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+                clusterDenials.get(scope).increment();
+                return waitMillis;
+            }
+            leasedTokens.get(scope).increment(granted);
+            lease.refill(granted - 1, now + leaseTtlNanos);  // One is used right away
+            return 0;
+        } finally {
+            lease.refillLock.unlock();
+        }
+    }
+
+    // Leases stay small relative to the limit so tokens parked on one instance don't starve the others
+    private int leaseSizeFor(int limitPerMinute) {
+        return Math.max(1, Math.min(leaseSize, limitPerMinute / (10 * expectedInstances)));
+    }
+
+    private long[] leaseFromRedis(Scope scope, String key, int limitPerMinute, int tokens) {
+        double intervalMillis = (double) TimeUnit.MINUTES.toMillis(1) / limitPerMinute;
+        List<?> reply = redisTemplate.execute(GCRA_SCRIPT, List.of(scope.keyPrefix + key),
+            String.valueOf(intervalMillis), String.valueOf(limitPerMinute), String.valueOf(tokens));
+        if (reply == null || reply.size() != 2) {
+            throw new IllegalStateException("Unexpected rate limit script reply: " + reply);
+        }
+        return new long[] {((Number) reply.get(0)).longValue(), ((Number) reply.get(1)).longValue()};
+    }
+
+    private long fallback(Scope scope, String key, int limitPerMinute) {
+        int share = Math.max(1, limitPerMinute / expectedInstances);
+        TokenBucket bucket = fallbackBuckets.get(scope).get(key, k -> new TokenBucket(share, nanoClock));
+        if (bucket.tryAcquire()) {
+            fallbackPermits.get(scope).increment();
+            return 0;
+        }
+        fallbackDenials.get(scope).increment();
+        return Math.max(1, bucket.millisUntilNextToken());
+    }
+
+    /** Tokens already counted in Redis, handed out locally until they run out or expire */
+    private static final class Lease {
+        private final ReentrantLock refillLock = new ReentrantLock();
+        private final AtomicInteger remaining = new AtomicInteger();
+        // Both start at creation time, i.e. already passed; nanoTime may be negative so 0 won't do
+        private volatile long expiresAtNanos;
+        private volatile long deniedUntilNanos;
+
+        Lease(long createdAtNanos) {
+            this.expiresAtNanos = createdAtNanos;
+            this.deniedUntilNanos = createdAtNanos;
+        }
+
+        boolean tryTake(long now) {
+            if (now - expiresAtNanos >= 0) {
+                return false;
+            }
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        void refill(int tokens, long expiresAt) {
+            remaining.set(tokens);
+            expiresAtNanos = expiresAt;
+        }
+    }
+}
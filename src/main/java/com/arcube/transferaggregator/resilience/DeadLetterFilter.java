@@ -0,0 +1,34 @@
+package com.arcube.transferaggregator.resilience;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Selects dead letters for review or replay. Null fields match everything.
+ * Age is measured from when the cancellation was first requested.
+ */
+public record DeadLetterFilter(
+    String supplierCode,
+    Duration minAge,
+    Duration maxAge,
+    String errorContains    // Case-insensitive substring of the last error
+) {
+    public static DeadLetterFilter all() {
+        return new DeadLetterFilter(null, null, null, null);
+    }
+
+    public boolean matches(CancellationTask task, Instant now) {
+        if (supplierCode != null && !supplierCode.equalsIgnoreCase(task.supplierCode())) {
+            return false;
+        }
+        Duration age = Duration.between(task.createdAt(), now);
+        if (minAge != null && age.compareTo(minAge) < 0) {
+            return false;
+        }
+        if (maxAge != null && age.compareTo(maxAge) > 0) {
+            return false;
+        }
+        return errorContains == null || errorContains.isBlank()
+            || (task.lastError() != null && task.lastError().toLowerCase().contains(errorContains.toLowerCase()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.arcube.transferaggregator.resilience;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage behind {@link CancellationDLQ}, keyed by bookingId.
+ *
+ * Implementations, picked by transfer.aggregator.cancellation.dlq.store:
+ * - memory (default): {@link InMemoryDeadLetterStore}, per instance, lost on restart
+ * - redis: {@link RedisDeadLetterStore}, shared by all instances and durable
+ */
+public interface DeadLetterStore {
+
+    /** Store a dead letter, replacing any earlier one for the booking */
+    void put(CancellationTask task);
+
+    Optional<CancellationTask> get(String bookingId);
+
+    /** Remove a dead letter; false if it wasn't there, e.g. another instance took it first */
+    boolean remove(String bookingId);
+
+    List<CancellationTask> getAll();
+
+    int size();
+}
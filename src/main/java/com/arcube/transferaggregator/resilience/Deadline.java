@@ -0,0 +1,127 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.exception.DeadlineExceededException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Point in time after which nobody is waiting for the result any more.
+ * The current request's deadline lives in a thread-local, set by RequestDeadlineFilter from
+ * X-Request-Deadline and narrowed by services to their own timeouts. Bulkhead waits, rate limit
+ * waits, retries and supplier HTTP timeouts are all capped by it. Work handed to another thread
+ * carries it along via {@link #callWithin} or {@link #propagate}.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Deadline at a wall-clock instant, e.g. from a header, but no further off than maxWait.
+     * Clamping both ways keeps a far-off instant from overflowing the nanosecond clock.
+     */
+    public static Deadline at(Instant instant, Duration maxWait) {
+        Duration timeout = Duration.between(Instant.now(), instant);
+        if (timeout.isNegative()) return after(Duration.ZERO);
+        return after(timeout.compareTo(maxWait) <= 0 ? timeout : maxWait);
+    }
+
+    /** Time left, zero once passed */
+    public Duration remaining() {
+        long left = deadlineNanos - System.nanoTime();
+        return left > 0 ? Duration.ofNanos(left) : Duration.ZERO;
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /** The shorter of the timeout and the time left */
+    public Duration cap(Duration timeout) {
+        Duration remaining = remaining();
+        return timeout.compareTo(remaining) <= 0 ? timeout : remaining;
+    }
+
+    /** Whichever of the two passes first */
+    public Deadline earlier(Deadline other) {
+        return other == null || deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    /** @throws DeadlineExceededException if the deadline has passed */
+    public void check(String operation) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Request deadline passed before " + operation);
+        }
+    }
+
+    // Thread-local request deadline
+
+    /** Deadline of the current request, or null if it has none */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static void set(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /** The current request's deadline narrowed to the timeout; not installed, see {@link #callWithin} */
+    public static Deadline within(Duration timeout) {
+        return after(timeout).earlier(current());
+    }
+
+    /** The timeout capped by the current request's deadline, if any */
+    public static Duration capToCurrent(Duration timeout) {
+        Deadline current = current();
+        return current == null ? timeout : current.cap(timeout);
+    }
+
+    /** @throws DeadlineExceededException if the current request's deadline has passed */
+    public static void checkCurrent(String operation) {
+        Deadline current = current();
+        if (current != null) {
+            current.check(operation);
+        }
+    }
+
+    /** Runs the action with the deadline as the current one, restoring the previous one after */
+    public static <T> T callWithin(Deadline deadline, Supplier<T> action) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /** Wraps the action to run under the caller's current deadline on whatever thread runs it */
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        Deadline deadline = current();
+        return deadline == null ? action : () -> callWithin(deadline, action);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remaining=" + remaining().toMillis() + "ms]";
+    }
+}
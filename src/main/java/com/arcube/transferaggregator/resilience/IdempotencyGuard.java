@@ -0,0 +1,213 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.IdempotencyProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.exception.BookingInProgressException;
+import com.arcube.transferaggregator.resilience.IdempotencyStore.Claim;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a booking at most once per idempotency key at a time, across instances.
+ *
+ * - A repeat of a finished booking gets the stored result.
+ * - A repeat on the same instance while the first is in flight joins it and gets its result
+ *   (or its error).
+ * - A repeat on another instance finds the in-flight marker in the {@link IdempotencyStore}
+ *   and re-checks every poll-interval until the result is stored or the marker is gone.
+ * - A duplicate still waiting after max-wait (or the request deadline) gets a 409.
+ *
+ * PENDING results aren't stored here: the marker is dropped, and unless the booking's status is
+ * tracked (see {@link #update}) the next request asks the supplier again. If the store is
+ * unreachable the booking goes ahead, only de-duplicated locally.
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    private final IdempotencyStore store;
+    private final IdempotencyProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<BookResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> requests = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyGuard(IdempotencyStore store, AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this(store, properties.getIdempotency(), meterRegistry);
+    }
+
+    IdempotencyGuard(IdempotencyStore store, IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** The result for the key: stored, joined from a booking in flight, or from running booking */
+    public BookResponse execute(String key, Supplier<BookResponse> booking) {
+        CompletableFuture<BookResponse> mine = new CompletableFuture<>();
+        CompletableFuture<BookResponse> first = inFlight.putIfAbsent(key, mine);
+        if (first != null) {
+            return join(first);
+        }
+        try {
+            BookResponse response = claimAndBook(key, booking);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Replace the result repeats of the key get, e.g. with the latest status of a pending booking
+     * being polled. Best effort: a store failure is logged.
+     */
+    public void update(String key, BookResponse response) {
+        try {
+            store.put(key, response);
+        } catch (RuntimeException e) {
+            log.warn("Cannot update result for idempotency key: {}", e.getMessage());
+        }
+    }
+
+    /** Requests on this instance currently waiting on the booking in flight for the key */
+    int joining(String key) {
+        CompletableFuture<BookResponse> first = inFlight.get(key);
+        return first == null ? 0 : first.getNumberOfDependents();
+    }
+
+    private BookResponse claimAndBook(String key, Supplier<BookResponse> booking) {
+        String owner = UUID.randomUUID().toString();
+        long started = System.nanoTime();
+        long maxWaitNanos = Deadline.capToCurrent(properties.getMaxWait()).toNanos();
+        boolean waited = false;
+
+        while (true) {
+            Claim claim;
+            try {
+                claim = store.claim(key, owner, properties.getInFlightTtl());
+            } catch (RuntimeException e) {
+                log.warn("Idempotency store unavailable, booking without it: {}", e.getMessage());
+                return booking.get();
+            }
+
+            switch (claim.state()) {
+                case DONE -> {
+                    log.info("Returning stored response for idempotency key");
+                    count(waited ? "joined" : "hit", waited, started);
+                    return claim.response();
+                }
+                case CLAIMED -> {
+                    count("miss", waited, started);
+                    return book(key, owner, booking);
+                }
+                case IN_FLIGHT -> {
+                    waited = true;
+                    long remaining = maxWaitNanos - (System.nanoTime() - started);
+                    if (remaining <= 0) {
+                        log.warn("Booking for idempotency key still in flight elsewhere after {}ms, giving up",
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                        count("in_progress", true, started);
+                        throw new BookingInProgressException();
+                    }
+                    sleep(Math.min(properties.getPollInterval().toNanos(), remaining));
+                }
+            }
+        }
+    }
+
+    private BookResponse book(String key, String owner, Supplier<BookResponse> booking) {
+        BookResponse response;
+        try {
+            response = booking.get();
+        } catch (RuntimeException e) {
+            release(key, owner);
+            throw e;
+        }
+        if (response.getStatus() == BookingStatus.PENDING) {
+            release(key, owner);  // Not final; kept only if a tracker stored it through update()
+            return response;
+        }
+        try {
+            store.complete(key, owner, response);
+        } catch (RuntimeException e) {
+            // The booking is made; repeats may book again once the marker expires
+            log.warn("Cannot store booking result for idempotency key: {}", e.getMessage());
+        }
+        return response;
+    }
+
+    private BookResponse join(CompletableFuture<BookResponse> first) {
+        long started = System.nanoTime();
+        try {
+            BookResponse response = first.get(Deadline.capToCurrent(properties.getMaxWait()).toNanos(),
+                TimeUnit.NANOSECONDS);
+            count("joined", true, started);
+            return response;
+        } catch (TimeoutException e) {
+            count("in_progress", true, started);
+            throw new BookingInProgressException();
+        } catch (ExecutionException e) {
+            count("joined", true, started);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingInProgressException();
+        }
+    }
+
+    private void release(String key, String owner) {
+        try {
+            store.release(key, owner);
+        } catch (RuntimeException e) {
+            log.warn("Cannot release idempotency marker, it expires after {}: {}",
+                properties.getInFlightTtl(), e.getMessage());
+        }
+    }
+
+    // outcome: hit (stored result), joined (result of a booking in flight), miss (booked), in_progress (gave up)
+    private void count(String outcome, boolean waited, long started) {
+        requests.computeIfAbsent(outcome, o -> Counter.builder("transfer.idempotency.requests")
+            .description("Bookings by how their idempotency key was resolved")
+            .tag("outcome", o)
+            .register(meterRegistry)).increment();
+        if (waited) {
+            Timer.builder("transfer.idempotency.wait")
+                .description("Time a duplicate booking waited for the first one")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sleep(long nanos) {
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingInProgressException();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.dto.BookResponse;
+
+import java.time.Duration;
+
+/**
+ * Storage behind {@link IdempotencyGuard}: per idempotency key, either the booking's result or
+ * a marker saying a request is booking it now.
+ *
+ * Implementations, picked by transfer.aggregator.idempotency.store:
+ * - memory (default): {@link InMemoryIdempotencyStore}, per instance
+ * - redis: {@link RedisIdempotencyStore}, so a retry landing on another instance finds the
+ *   result, or the marker, of the first attempt
+ */
+public interface IdempotencyStore {
+
+    /**
+     * The stored result if there is one; otherwise marks the key in flight for owner, for at
+     * most inFlightTtl, unless another owner already has it. Check and mark are one atomic step.
+     */
+    Claim claim(String key, String owner, Duration inFlightTtl);
+
+    /** Store the result for repeats of the key, replacing the owner's marker */
+    void complete(String key, String owner, BookResponse response);
+
+    /** Drop the owner's marker without a result, so the next request books again */
+    void release(String key, String owner);
+
+    /** Store or replace the result outside a claim, e.g. the latest status of a pending booking */
+    void put(String key, BookResponse response);
+
+    enum State {
+        CLAIMED,     // Marked for the caller, which should book
+        IN_FLIGHT,   // Another request is booking it
+        DONE         // Result stored
+    }
+
+    record Claim(State state, BookResponse response) {
+
+        public static Claim claimed() {
+            return new Claim(State.CLAIMED, null);
+        }
+
+        public static Claim inFlight() {
+            return new Claim(State.IN_FLIGHT, null);
+        }
+
+        public static Claim done(BookResponse response) {
+            return new Claim(State.DONE, response);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingLedgerProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Histories in a Caffeine cache bounded by max-bookings and expiring retention after the last
+ * entry; per-tenant lists of bookingIds, newest first, trimmed to the same bound.
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.booking-ledger.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryBookingLedgerStore implements BookingLedgerStore {
+
+    private final Cache<String, List<BookingLedgerEntry>> histories;
+    private final int maxBookings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Deque<String>> byTenant = new HashMap<>();  // Guarded by lock
+
+    @Autowired
+    public InMemoryBookingLedgerStore(AggregatorProperties properties) {
+        this(properties.getBookingLedger());
+    }
+
+    InMemoryBookingLedgerStore(BookingLedgerProperties properties) {
+        this.maxBookings = properties.getMaxBookings();
+        this.histories = Caffeine.newBuilder()
+            .maximumSize(maxBookings)
+            .expireAfterWrite(properties.getRetention())
+            .build();
+    }
+
+    @Override
+    public void append(List<BookingLedgerEntry> entries) {
+        lock.lock();
+        try {
+            for (BookingLedgerEntry entry : entries) {
+                // Readers get an immutable copy, so appending never races a fold
+                histories.asMap().merge(entry.bookingId(), List.of(entry), (history, added) -> {
+                    List<BookingLedgerEntry> appended = new ArrayList<>(history);
+                    appended.addAll(added);
+                    return List.copyOf(appended);
+                });
+                if (entry.type() == BookingLedgerEntry.Type.BOOKED && entry.tenantId() != null) {
+                    Deque<String> ids = byTenant.computeIfAbsent(entry.tenantId(), t -> new ArrayDeque<>());
+                    ids.addFirst(entry.bookingId());
+                    while (ids.size() > maxBookings) {
+                        ids.removeLast();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<BookingLedgerEntry> history(String bookingId) {
+        List<BookingLedgerEntry> history = histories.getIfPresent(bookingId);
+        return history != null ? history : List.of();
+    }
+
+    @Override
+    public List<String> bookingIds(String tenantId, int limit) {
+        lock.lock();
+        try {
+            Deque<String> ids = byTenant.getOrDefault(tenantId, new ArrayDeque<>());
+            // Skip bookings evicted or expired from the histories
+            return ids.stream()
+                .filter(id -> histories.getIfPresent(id) != null)
+                .limit(limit)
+                .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
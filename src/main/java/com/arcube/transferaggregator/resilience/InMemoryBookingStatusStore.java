@@ -0,0 +1,42 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingStatusProperties;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/** Statuses in a size-bounded Caffeine cache, expiring ttl after the last change */
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.booking-status.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryBookingStatusStore implements BookingStatusStore {
+
+    private final Cache<String, BookResponse> statuses;
+
+    @Autowired
+    public InMemoryBookingStatusStore(AggregatorProperties properties) {
+        this(properties.getBookingStatus());
+    }
+
+    InMemoryBookingStatusStore(BookingStatusProperties properties) {
+        this.statuses = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxEntries())
+            .expireAfterWrite(properties.getTtl())
+            .build();
+    }
+
+    @Override
+    public void put(BookResponse status) {
+        statuses.put(status.getBookingId(), status);
+    }
+
+    @Override
+    public Optional<BookResponse> get(String bookingId) {
+        return Optional.ofNullable(statuses.getIfPresent(bookingId));
+    }
+}
@@ -0,0 +1,42 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationLedgerProperties;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/** Outcomes in a size-bounded Caffeine cache, expiring ttl after they were recorded */
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.cancellation.queue", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCancellationOutcomeStore implements CancellationOutcomeStore {
+
+    private final Cache<String, CancelResponse> outcomes;
+
+    @Autowired
+    public InMemoryCancellationOutcomeStore(AggregatorProperties properties) {
+        this(properties.getCancellation().getLedger());
+    }
+
+    InMemoryCancellationOutcomeStore(CancellationLedgerProperties properties) {
+        this.outcomes = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxEntries())
+            .expireAfterWrite(properties.getTtl())
+            .build();
+    }
+
+    @Override
+    public void put(CancelResponse outcome) {
+        outcomes.put(outcome.getBookingId(), outcome);
+    }
+
+    @Override
+    public Optional<CancelResponse> get(String bookingId) {
+        return Optional.ofNullable(outcomes.getIfPresent(bookingId));
+    }
+}
@@ -0,0 +1,98 @@
+package com.arcube.transferaggregator.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.Map;
+
+/**
+ * In-memory cancellation queue with retry support.
+ * 
+ * Tasks live only in this instance and are lost on restart; use the Redis stream queue
+ * (cancellation.queue=redis) when running more than one instance.
+ * Backed by a delay queue, so a re-queued task is only handed out once its nextAttemptAt passes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.cancellation.queue", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCancellationQueue implements CancellationQueue {
+    
+    // Main retry queue, ordered by next attempt
+    private final DelayQueue<ScheduledTask> queue = new DelayQueue<>();
+    
+    // Track pending cancellations by bookingId for status lookup
+    private final Map<String, CancellationTask> pendingCancellations = new ConcurrentHashMap<>();
+    
+    /** Add a cancellation task to the queue */
+    @Override
+    public void enqueue(CancellationTask task) {
+        queue.offer(new ScheduledTask(task));
+        pendingCancellations.put(task.bookingId(), task);
+        log.info("Queued cancellation: bookingId={}, retry={}", task.bookingId(), task.retryCount());
+    }
+    
+    /** Get next due task for processing */
+    @Override
+    public Optional<CancellationTask> poll() {
+        ScheduledTask next = queue.poll();
+        return next == null ? Optional.empty() : Optional.of(next.task());
+    }
+    
+    /** Re-queue a task for retry at its nextAttemptAt */
+    @Override
+    public void requeue(CancellationTask task) {
+        queue.offer(new ScheduledTask(task));
+        pendingCancellations.put(task.bookingId(), task);
+        log.info("Re-queued cancellation: bookingId={}, retry={}, nextAttemptAt={}",
+            task.bookingId(), task.retryCount(), task.nextAttemptAt());
+    }
+    
+    /** Mark cancellation as completed (success or moved to DLQ) */
+    @Override
+    public void complete(String bookingId) {
+        pendingCancellations.remove(bookingId);
+    }
+    
+    /** Check if a booking has a pending cancellation */
+    @Override
+    public Optional<CancellationTask> getPending(String bookingId) {
+        return Optional.ofNullable(pendingCancellations.get(bookingId));
+    }
+    
+    /** Get queue size for monitoring, including tasks not due yet */
+    @Override
+    public int size() {
+        return queue.size();
+    }
+    
+    /** Get pending count for monitoring */
+    @Override
+    public int pendingCount() {
+        return pendingCancellations.size();
+    }
+    
+    private record ScheduledTask(CancellationTask task, long dueAtMillis) implements Delayed {
+        
+        ScheduledTask(CancellationTask task) {
+            this(task, task.nextAttemptAt() == null ? 0 : task.nextAttemptAt().toEpochMilli());
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            return other instanceof ScheduledTask scheduled
+                ? Long.compare(dueAtMillis, scheduled.dueAtMillis)
+                : Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.arcube.transferaggregator.resilience;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Dead letters kept in this instance only; lost on restart */
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.cancellation.dlq.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryDeadLetterStore implements DeadLetterStore {
+
+    private final Map<String, CancellationTask> deadLetters = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(CancellationTask task) {
+        deadLetters.put(task.bookingId(), task);
+    }
+
+    @Override
+    public Optional<CancellationTask> get(String bookingId) {
+        return Optional.ofNullable(deadLetters.get(bookingId));
+    }
+
+    @Override
+    public boolean remove(String bookingId) {
+        return deadLetters.remove(bookingId) != null;
+    }
+
+    @Override
+    public List<CancellationTask> getAll() {
+        return List.copyOf(deadLetters.values());
+    }
+
+    @Override
+    public int size() {
+        return deadLetters.size();
+    }
+}
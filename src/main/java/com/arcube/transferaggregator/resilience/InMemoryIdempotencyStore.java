@@ -0,0 +1,66 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Results in the idempotencyCache (bounded, expiring), in-flight markers in a map */
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, BookResponse> results;
+    private final Map<String, Marker> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InMemoryIdempotencyStore(Cache<String, BookResponse> idempotencyCache) {
+        this.results = idempotencyCache;
+    }
+
+    @Override
+    public Claim claim(String key, String owner, Duration inFlightTtl) {
+        BookResponse stored = results.getIfPresent(key);
+        if (stored != null) {
+            return Claim.done(stored);
+        }
+        Instant now = Instant.now();
+        Marker mine = new Marker(owner, now.plus(inFlightTtl));
+        Marker current = inFlight.compute(key, (k, marker) ->
+            marker == null || !marker.expiresAt.isAfter(now) ? mine : marker);
+        if (current != mine) {
+            return Claim.inFlight();
+        }
+        // The previous owner may have completed between the result check and the marker
+        stored = results.getIfPresent(key);
+        if (stored != null) {
+            inFlight.remove(key, mine);
+            return Claim.done(stored);
+        }
+        return Claim.claimed();
+    }
+
+    @Override
+    public void complete(String key, String owner, BookResponse response) {
+        results.put(key, response);
+        release(key, owner);
+    }
+
+    @Override
+    public void put(String key, BookResponse response) {
+        results.put(key, response);
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        inFlight.computeIfPresent(key, (k, marker) -> marker.owner.equals(owner) ? null : marker);
+    }
+
+    private record Marker(String owner, Instant expiresAt) {}
+}
@@ -5,67 +5,130 @@ import com.arcube.transferaggregator.exception.RateLimitExceededException;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 /**
  * Token bucket rate limiter for API calls.
  * 
  * Provides:
- * - Global search rate limit (requests per minute)
- * - Per-searchId poll rate limit (polls per minute per search)
+ * - Per-supplier search rate limit (requests per minute, 0 = deny all)
+ * - Per-tenant search rate limit (searches per minute, 0 = off)
+ * - Per-searchId poll rate limit (polls per minute per search, 0 = deny all)
+ * 
+ * Each key gets a lock-free {@link TokenBucket}. Buckets live in size-bounded caches and are
+ * dropped after a minute idle, by which point they would have refilled anyway.
+ * With cluster rate limiting enabled the same limits apply across all instances instead,
+ * via {@link ClusterRateLimiter}.
  */
 @Slf4j
 @Component
 public class RateLimiter {
     
+    static final int MAX_SEARCH_KEYS = 10_000;
+    static final int MAX_POLL_KEYS = 100_000;
+    // Retry-After for a limit of 0, which no bucket can hold
+    private static final long DENY_ALL_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
     private final int searchRateLimit;
+    private final int tenantSearchRateLimit;
     private final int pollRateLimit;
+    private final ClusterRateLimiter cluster;  // null = limits are per instance
+    
+    private final Cache<String, TokenBucket> supplierBuckets;
+    private final Cache<String, TokenBucket> tenantBuckets;
+    private final Cache<String, TokenBucket> pollBuckets;
     
-    // Sliding window counters
-    private final Cache<String, AtomicInteger> searchCounters;
-    private final Cache<String, AtomicInteger> pollCounters;
+    // Created once so lookups of existing buckets allocate nothing
+    private final Function<String, TokenBucket> newSearchBucket;
+    private final Function<String, TokenBucket> newTenantBucket;
+    private final Function<String, TokenBucket> newPollBucket;
+    
+    @Autowired
+    public RateLimiter(AggregatorProperties properties, ClusterRateLimiter cluster) {
+        this(properties, cluster, System::nanoTime);
+    }
     
+    /** Per-instance limits only */
     public RateLimiter(AggregatorProperties properties) {
+        this(properties, null, System::nanoTime);
+    }
+    
+    RateLimiter(AggregatorProperties properties, LongSupplier nanoClock) {
+        this(properties, null, nanoClock);
+    }
+    
+    private RateLimiter(AggregatorProperties properties, ClusterRateLimiter cluster, LongSupplier nanoClock) {
+        this.cluster = cluster != null && cluster.isEnabled() ? cluster : null;
         this.searchRateLimit = properties.getResilience().getSearchRateLimitPerMinute();
+        this.tenantSearchRateLimit = properties.getResilience().getTenantSearchRateLimitPerMinute();
         this.pollRateLimit = properties.getResilience().getPollRateLimitPerMinute();
         
-        // Counters expire after 1 minute (sliding window approximation)
-        this.searchCounters = Caffeine.newBuilder()
-            .expireAfterWrite(1, TimeUnit.MINUTES)
-            .build();
+        this.supplierBuckets = newBucketCache(MAX_SEARCH_KEYS);
+        this.tenantBuckets = newBucketCache(MAX_SEARCH_KEYS);
+        this.pollBuckets = newBucketCache(MAX_POLL_KEYS);
         
-        this.pollCounters = Caffeine.newBuilder()
-            .expireAfterWrite(1, TimeUnit.MINUTES)
-            .build();
+        this.newSearchBucket = k -> new TokenBucket(searchRateLimit, nanoClock);
+        this.newTenantBucket = k -> new TokenBucket(tenantSearchRateLimit, nanoClock);
+        this.newPollBucket = k -> new TokenBucket(pollRateLimit, nanoClock);
         
-        log.info("RateLimiter initialized: search={}/min, poll={}/min per searchId", 
-            searchRateLimit, pollRateLimit);
+        log.info("RateLimiter initialized: search={}/min per supplier, tenant={}/min, poll={}/min per searchId, scope={}", 
+            searchRateLimit, tenantSearchRateLimit > 0 ? tenantSearchRateLimit : "unlimited", pollRateLimit,
+            this.cluster != null ? "cluster" : "instance");
     }
     
     /**
      * Check and consume a search request permit.
+     * When the request has a deadline and the next token arrives before it, waits for the
+     * token instead of failing; without a deadline a denied permit fails straight away.
      * 
      * @param supplierCode Supplier code for tracking
      * @throws RateLimitExceededException if limit exceeded
      */
     public void acquireSearchPermit(String supplierCode) {
-        String key = "search:" + supplierCode;
-        AtomicInteger counter = Objects.requireNonNull(
-            searchCounters.get(key, k -> new AtomicInteger(0)));
-        
-        int current = counter.incrementAndGet();
-        if (current > searchRateLimit) {
-            counter.decrementAndGet();
-            log.warn("Search rate limit exceeded for {}: {}/{}", supplierCode, current - 1, searchRateLimit);
+        long waitMillis = trySearchPermit(supplierCode);
+        Deadline deadline = Deadline.current();
+        while (waitMillis > 0 && searchRateLimit > 0 && deadline != null && waitMillis < deadline.remaining().toMillis()) {
+            log.debug("Search rate limit reached for {}, waiting {}ms within deadline", supplierCode, waitMillis);
+            if (!sleep(waitMillis)) {
+                break;
+            }
+            waitMillis = trySearchPermit(supplierCode);
+        }
+        if (waitMillis > 0) {
+            log.warn("Search rate limit exceeded for {}: {}/min", supplierCode, searchRateLimit);
             throw new RateLimitExceededException(
-                String.format("Search rate limit exceeded (%d/min). Retry in 60s.", searchRateLimit));
+                String.format("Search rate limit exceeded (%d/min). Retry later.", searchRateLimit),
+                retryAfterSeconds(waitMillis));
         }
         
-        log.debug("Search permit acquired for {}: {}/{}", supplierCode, current, searchRateLimit);
+        log.debug("Search permit acquired for {}", supplierCode);
+    }
+    
+    /**
+     * Check and consume a search permit for a tenant. No-op when no tenant limit is configured.
+     * 
+     * @param tenantId Tenant issuing the search
+     * @throws RateLimitExceededException if limit exceeded
+     */
+    public void acquireTenantSearchPermit(String tenantId) {
+        if (tenantSearchRateLimit <= 0) {
+            return;
+        }
+        
+        long waitMillis = cluster != null
+            ? cluster.tryAcquire(ClusterRateLimiter.Scope.TENANT, tenantId, tenantSearchRateLimit)
+            : tryAcquire(tenantBuckets.get(tenantId, newTenantBucket));
+        if (waitMillis > 0) {
+            log.warn("Search rate limit exceeded for tenant {}: {}/min", tenantId, tenantSearchRateLimit);
+            throw new RateLimitExceededException(
+                String.format("Tenant search rate limit exceeded (%d/min). Retry later.", tenantSearchRateLimit),
+                retryAfterSeconds(waitMillis));
+        }
     }
     
     /**
@@ -75,18 +138,54 @@ public class RateLimiter {
      * @throws RateLimitExceededException if limit exceeded
      */
     public void acquirePollPermit(String searchId) {
-        String key = "poll:" + searchId;
-        AtomicInteger counter = Objects.requireNonNull(
-            pollCounters.get(key, k -> new AtomicInteger(0)));
-        
-        int current = counter.incrementAndGet();
-        if (current > pollRateLimit) {
-            counter.decrementAndGet();
-            log.warn("Poll rate limit exceeded for search {}: {}/{}", searchId, current - 1, pollRateLimit);
+        long waitMillis = pollRateLimit <= 0 ? DENY_ALL_WAIT_MILLIS : cluster != null
+            ? cluster.tryAcquire(ClusterRateLimiter.Scope.POLL, searchId, pollRateLimit)
+            : tryAcquire(pollBuckets.get(searchId, newPollBucket));
+        if (waitMillis > 0) {
+            log.warn("Poll rate limit exceeded for search {}: {}/min", searchId, pollRateLimit);
             throw new RateLimitExceededException(
-                String.format("Poll rate limit exceeded for search (%d/min). Wait for results.", pollRateLimit));
+                String.format("Poll rate limit exceeded for search (%d/min). Wait for results.", pollRateLimit),
+                retryAfterSeconds(waitMillis));
         }
         
-        log.debug("Poll permit acquired for search {}: {}/{}", searchId, current, pollRateLimit);
+        log.debug("Poll permit acquired for search {}", searchId);
+    }
+    
+    // A bucket idle for a minute is full again, so expiring it then loses nothing;
+    // size-based eviction of a busy key only ever resets it to full
+    private static Cache<String, TokenBucket> newBucketCache(int maximumSize) {
+        return Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build();
+    }
+    
+    private long trySearchPermit(String supplierCode) {
+        if (searchRateLimit <= 0) {
+            return DENY_ALL_WAIT_MILLIS;
+        }
+        return cluster != null
+            ? cluster.tryAcquire(ClusterRateLimiter.Scope.SEARCH, supplierCode, searchRateLimit)
+            : tryAcquire(supplierBuckets.get(supplierCode, newSearchBucket));
+    }
+    
+    // False if interrupted
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    // 0 if a permit was taken, otherwise milliseconds until the next one
+    private static long tryAcquire(TokenBucket bucket) {
+        return bucket.tryAcquire() ? 0 : Math.max(1, bucket.millisUntilNextToken());
+    }
+    
+    private static long retryAfterSeconds(long waitMillis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999));
     }
 }
@@ -0,0 +1,114 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingLedgerProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A Redis list per booking holding its entries as JSON (RPUSH), and a sorted set per tenant of
+ * bookingIds scored by booking time. Both expire retention after the last write; a batch is
+ * sent as one pipeline.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.booking-ledger.store", havingValue = "redis")
+public class RedisBookingLedgerStore implements BookingLedgerStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final Duration retention;
+
+    @Autowired
+    public RedisBookingLedgerStore(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                                   ObjectMapper objectMapper) {
+        this(properties.getBookingLedger(), redisTemplate, objectMapper);
+    }
+
+    RedisBookingLedgerStore(BookingLedgerProperties properties, StringRedisTemplate redisTemplate,
+                            ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = properties.getRedisKeyPrefix();
+        this.retention = properties.getRetention();
+    }
+
+    @Override
+    public void append(List<BookingLedgerEntry> entries) {
+        List<String> json = new ArrayList<>(entries.size());
+        for (BookingLedgerEntry entry : entries) {
+            try {
+                json.add(objectMapper.writeValueAsString(entry));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialise ledger entry for " + entry.bookingId(), e);
+            }
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                for (int i = 0; i < entries.size(); i++) {
+                    BookingLedgerEntry entry = entries.get(i);
+                    String historyKey = historyKey(entry.bookingId());
+                    redis.opsForList().rightPush(historyKey, json.get(i));
+                    redis.expire(historyKey, retention);
+                    if (entry.type() == BookingLedgerEntry.Type.BOOKED && entry.tenantId() != null) {
+                        String tenantKey = tenantKey(entry.tenantId());
+                        redis.opsForZSet().add(tenantKey, entry.bookingId(), entry.recordedAt().toEpochMilli());
+                        // Drop ids whose histories have expired
+                        redis.opsForZSet().removeRangeByScore(tenantKey, 0,
+                            Instant.now().minus(retention).toEpochMilli());
+                        redis.expire(tenantKey, retention);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public List<BookingLedgerEntry> history(String bookingId) {
+        List<String> values = redisTemplate.opsForList().range(historyKey(bookingId), 0, -1);
+        if (values == null) {
+            return List.of();
+        }
+        List<BookingLedgerEntry> history = new ArrayList<>(values.size());
+        for (String value : values) {
+            try {
+                history.add(objectMapper.readValue(value, BookingLedgerEntry.class));
+            } catch (JsonProcessingException e) {
+                log.error("Skipping unreadable ledger entry for {}: {}", bookingId, value);
+            }
+        }
+        return history;
+    }
+
+    @Override
+    public List<String> bookingIds(String tenantId, int limit) {
+        Set<String> ids = redisTemplate.opsForZSet().reverseRange(tenantKey(tenantId), 0, limit - 1);
+        return ids != null ? List.copyOf(ids) : List.of();
+    }
+
+    private String historyKey(String bookingId) {
+        return keyPrefix + bookingId;
+    }
+
+    private String tenantKey(String tenantId) {
+        return keyPrefix + "tenant:" + tenantId;
+    }
+}
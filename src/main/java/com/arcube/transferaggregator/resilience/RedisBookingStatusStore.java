@@ -0,0 +1,65 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingStatusProperties;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/** One key per booking with the status TTL, refreshed on every change */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.booking-status.store", havingValue = "redis")
+public class RedisBookingStatusStore implements BookingStatusStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final Duration ttl;
+
+    @Autowired
+    public RedisBookingStatusStore(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                                   ObjectMapper objectMapper) {
+        this(properties.getBookingStatus(), redisTemplate, objectMapper);
+    }
+
+    RedisBookingStatusStore(BookingStatusProperties properties, StringRedisTemplate redisTemplate,
+                            ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = properties.getRedisKeyPrefix();
+        this.ttl = properties.getTtl();
+    }
+
+    @Override
+    public void put(BookResponse status) {
+        try {
+            redisTemplate.opsForValue().set(keyPrefix + status.getBookingId(),
+                objectMapper.writeValueAsString(status), ttl);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise booking status " + status.getBookingId(), e);
+        }
+    }
+
+    @Override
+    public Optional<BookResponse> get(String bookingId) {
+        String json = redisTemplate.opsForValue().get(keyPrefix + bookingId);
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, BookResponse.class));
+        } catch (JsonProcessingException e) {
+            log.error("Ignoring unreadable booking status for {}: {}", bookingId, json);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationLedgerProperties;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/** One key per outcome with the ledger TTL, so Redis expires them without a sweeper */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.cancellation.queue", havingValue = "redis")
+public class RedisCancellationOutcomeStore implements CancellationOutcomeStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final Duration ttl;
+
+    @Autowired
+    public RedisCancellationOutcomeStore(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                                         ObjectMapper objectMapper) {
+        this(properties.getCancellation().getLedger(), redisTemplate, objectMapper);
+    }
+
+    RedisCancellationOutcomeStore(CancellationLedgerProperties properties, StringRedisTemplate redisTemplate,
+                                  ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = properties.getRedisKeyPrefix();
+        this.ttl = properties.getTtl();
+    }
+
+    @Override
+    public void put(CancelResponse outcome) {
+        try {
+            redisTemplate.opsForValue().set(keyPrefix + outcome.getBookingId(),
+                objectMapper.writeValueAsString(outcome), ttl);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise cancellation outcome " + outcome.getBookingId(), e);
+        }
+    }
+
+    @Override
+    public Optional<CancelResponse> get(String bookingId) {
+        String json = redisTemplate.opsForValue().get(keyPrefix + bookingId);
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, CancelResponse.class));
+        } catch (JsonProcessingException e) {
+            log.error("Ignoring unreadable cancellation outcome for {}: {}", bookingId, json);
+            return Optional.empty();
+        }
+    }
+}
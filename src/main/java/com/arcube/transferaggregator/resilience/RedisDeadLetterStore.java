@@ -0,0 +1,100 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dead letters in a Redis hash (bookingId → task JSON), so they survive restarts and deploys
+ * and every instance sees the same DLQ. Removal is a single HDEL, so when two instances
+ * replay the same entry only one of them gets it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.cancellation.dlq.store", havingValue = "redis")
+public class RedisDeadLetterStore implements DeadLetterStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String key;
+
+    @Autowired
+    public RedisDeadLetterStore(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper) {
+        this(properties.getCancellation().getDlq().getRedisKey(), redisTemplate, objectMapper);
+    }
+
+    RedisDeadLetterStore(String key, StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.key = key;
+        log.info("Cancellation DLQ in Redis hash {}", key);
+    }
+
+    @Override
+    public void put(CancellationTask task) {
+        hash().put(key, task.bookingId(), write(task));
+    }
+
+    @Override
+    public Optional<CancellationTask> get(String bookingId) {
+        String json = hash().get(key, bookingId);
+        return json == null ? Optional.empty() : Optional.ofNullable(read(json));
+    }
+
+    @Override
+    public boolean remove(String bookingId) {
+        Long removed = hash().delete(key, bookingId);
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    public List<CancellationTask> getAll() {
+        List<String> values = hash().values(key);
+        List<CancellationTask> tasks = new ArrayList<>(values.size());
+        for (String json : values) {
+            CancellationTask task = read(json);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public int size() {
+        Long size = hash().size(key);
+        return size == null ? 0 : size.intValue();
+    }
+
+    private HashOperations<String, String, String> hash() {
+        return redisTemplate.opsForHash();
+    }
+
+    private String write(CancellationTask task) {
+        try {
+            return objectMapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise dead letter " + task.bookingId(), e);
+        }
+    }
+
+    private CancellationTask read(String json) {
+        try {
+            return objectMapper.readValue(json, CancellationTask.class);
+        } catch (JsonProcessingException e) {
+            log.error("Skipping unreadable dead letter: {}", json);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.IdempotencyProperties;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One Redis key per idempotency key, holding either an in-flight marker or the result JSON.
+ * A claim is SET NX with the in-flight TTL, so only one request across all instances books a
+ * key; completing overwrites the marker with the result and the result TTL.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.idempotency.store", havingValue = "redis")
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    static final String MARKER_PREFIX = "in-flight:";
+
+    /** Deletes KEYS[1] only if it still holds the marker ARGV[1] */
+    static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+        if redis.call('GET', KEYS[1]) == ARGV[1] then
+          return redis.call('DEL', KEYS[1])
+        end
+        return 0
+        """, Long.class);
+
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final Duration ttl;
+
+    @Autowired
+    public RedisIdempotencyStore(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper) {
+        this(properties.getIdempotency(), redisTemplate, objectMapper);
+    }
+
+    RedisIdempotencyStore(IdempotencyProperties properties, StringRedisTemplate redisTemplate,
+                          ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = properties.getRedisKeyPrefix();
+        this.ttl = properties.getTtl();
+    }
+
+    @Override
+    public Claim claim(String key, String owner, Duration inFlightTtl) {
+        String redisKey = keyPrefix + key;
+        // The key can expire or be released between SET NX and GET; then try again
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(redisKey, MARKER_PREFIX + owner, inFlightTtl))) {
+                return Claim.claimed();
+            }
+            String value = redisTemplate.opsForValue().get(redisKey);
+            if (value == null) {
+                continue;
+            }
+            if (value.startsWith(MARKER_PREFIX)) {
+                return Claim.inFlight();
+            }
+            try {
+                return Claim.done(objectMapper.readValue(value, BookResponse.class));
+            } catch (JsonProcessingException e) {
+                log.error("Dropping unreadable idempotency result for {}: {}", key, value);
+                redisTemplate.delete(redisKey);
+            }
+        }
+        return Claim.inFlight();
+    }
+
+    @Override
+    public void complete(String key, String owner, BookResponse response) {
+        put(key, response);
+    }
+
+    @Override
+    public void put(String key, BookResponse response) {
+        try {
+            redisTemplate.opsForValue().set(keyPrefix + key, objectMapper.writeValueAsString(response), ttl);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise booking result for idempotency key " + key, e);
+        }
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(keyPrefix + key), MARKER_PREFIX + owner);
+    }
+}
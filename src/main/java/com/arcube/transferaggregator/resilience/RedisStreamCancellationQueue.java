@@ -0,0 +1,389 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.RedisQueueProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Cancellation queue on a Redis stream, shared by all instances through one consumer group.
+ *
+ * - A polled entry stays in the group's pending list until complete() or requeue()
+ *   acknowledges (and deletes) it, so a crash or deploy mid-cancellation loses nothing.
+ * - Entries left unacknowledged for reclaim-idle, e.g. by an instance that died, are claimed
+ *   by whichever instance polls next. The whole pending list is scanned for them, so live
+ *   instances' older held entries never hide a dead instance's newer ones. An instance re-claims the entries it still holds (read
+ *   but waiting for a worker, or being cancelled) every heartbeat-interval, so entries that
+ *   are merely slow are never idle long enough to be taken over.
+ * - Queued tasks are also kept in a hash by bookingId, so any instance can answer
+ *   "is a cancellation pending" without scanning the stream.
+ * - Retries not yet due wait in a sorted set scored by nextAttemptAt; polling moves the due
+ *   ones onto the stream in one script, so consumers never read a task early.
+ *
+ * Re-queueing adds the retried task before acknowledging the old entry: a crash in between
+ * means at most a duplicate cancel attempt, never a lost one.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.aggregator.cancellation.queue", havingValue = "redis")
+public class RedisStreamCancellationQueue implements CancellationQueue {
+
+    static final String TASK_FIELD = "task";
+    static final int PENDING_PAGE_SIZE = 100;  // XPENDING entries fetched per call while looking for stale ones
+
+    /**
+     * Moves up to ARGV[1] retries due by Redis TIME from the sorted set KEYS[1] onto the
+     * stream KEYS[2], as field ARGV[2]. Returns how many were moved.
+     */
+    static final RedisScript<Long> PROMOTE_SCRIPT = new DefaultRedisScript<>("""
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+        local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, tonumber(ARGV[1]))
+        for _, task in ipairs(due) do
+          redis.call('XADD', KEYS[2], '*', ARGV[2], task)
+          redis.call('ZREM', KEYS[1], task)
+        end
+        return #due
+        """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String streamKey;
+    private final String pendingKey;
+    private final String retryKey;
+    private final String group;
+    private final String consumer;
+    private final int batchSize;
+    private final Duration reclaimIdle;
+    private final long reclaimIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final Counter reclaimed;
+    private final Counter unreadable;
+
+    // Read from the stream but not handed out yet, and handed out but not acknowledged
+    private final Queue<Entry> buffer = new ConcurrentLinkedQueue<>();
+    private final Map<RecordId, String> inFlight = new ConcurrentHashMap<>();  // -> bookingId
+    private final ReentrantLock readLock = new ReentrantLock();
+    private volatile boolean groupReady;
+    private volatile long nextReclaimNanos;
+
+    @Autowired
+    public RedisStreamCancellationQueue(AggregatorProperties properties, StringRedisTemplate redisTemplate,
+                                        ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(properties.getCancellation().getRedis(), redisTemplate, objectMapper, meterRegistry, System::nanoTime);
+    }
+
+    RedisStreamCancellationQueue(RedisQueueProperties config, StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.streamKey = config.getStreamKey();
+        this.pendingKey = config.getPendingKey();
+        this.retryKey = config.getRetryKey();
+        this.group = config.getConsumerGroup();
+        this.consumer = config.getConsumerName() != null && !config.getConsumerName().isBlank()
+            ? config.getConsumerName() : defaultConsumerName();
+        this.batchSize = Math.max(1, config.getReadBatchSize());
+        this.reclaimIdle = config.getReclaimIdle();
+        this.reclaimIntervalNanos = config.getReclaimInterval().toNanos();
+        this.nanoClock = nanoClock;
+        this.nextReclaimNanos = nanoClock.getAsLong();
+        if (config.getHeartbeatInterval().compareTo(reclaimIdle) >= 0) {
+            log.warn("Cancellation queue heartbeat-interval {} is not below reclaim-idle {}; held entries "
+                + "may be reclaimed by other instances", config.getHeartbeatInterval(), reclaimIdle);
+        }
+
+        this.reclaimed = Counter.builder("transfer.cancellation.queue.reclaimed")
+            .description("Unacknowledged cancellation entries taken over from another consumer")
+            .register(meterRegistry);
+        this.unreadable = Counter.builder("transfer.cancellation.queue.unreadable")
+            .description("Cancellation entries dropped because they could not be parsed")
+            .register(meterRegistry);
+
+        log.info("Cancellation queue on Redis stream {} (group={}, consumer={})", streamKey, group, consumer);
+    }
+
+    @Override
+    public void enqueue(CancellationTask task) {
+        add(task);
+        log.info("Queued cancellation: bookingId={}, retry={}", task.bookingId(), task.retryCount());
+    }
+
+    @Override
+    public Optional<CancellationTask> poll() {
+        Entry entry = buffer.poll();
+        if (entry == null) {
+            fill();
+            entry = buffer.poll();
+        }
+        if (entry == null) {
+            return Optional.empty();
+        }
+        inFlight.put(entry.id(), entry.task().bookingId());
+        return Optional.of(entry.task());
+    }
+
+    @Override
+    public void requeue(CancellationTask task) {
+        add(task);
+        acknowledge(task.bookingId());
+        log.info("Re-queued cancellation: bookingId={}, retry={}, nextAttemptAt={}",
+            task.bookingId(), task.retryCount(), task.nextAttemptAt());
+    }
+
+    @Override
+    public void complete(String bookingId) {
+        redisTemplate.opsForHash().delete(pendingKey, bookingId);
+        acknowledge(bookingId);
+    }
+
+    @Override
+    public Optional<CancellationTask> getPending(String bookingId) {
+        Object json = redisTemplate.opsForHash().get(pendingKey, bookingId);
+        return json == null ? Optional.empty() : Optional.ofNullable(read(json.toString()));
+    }
+
+    /** Entries waiting, scheduled for retry or being processed, across all instances */
+    @Override
+    public int size() {
+        Long streamed = streams().size(streamKey);
+        Long scheduled = redisTemplate.opsForZSet().zCard(retryKey);
+        return (streamed == null ? 0 : streamed.intValue()) + (scheduled == null ? 0 : scheduled.intValue());
+    }
+
+    @Override
+    public int pendingCount() {
+        Long size = redisTemplate.opsForHash().size(pendingKey);
+        return size == null ? 0 : size.intValue();
+    }
+
+    private void add(CancellationTask task) {
+        String json = write(task);
+        // Hash first, so a consumer that reads the entry straight away also finds it pending
+        redisTemplate.opsForHash().put(pendingKey, task.bookingId(), json);
+        if (task.isDue(Instant.now())) {
+            streams().add(streamKey, Map.of(TASK_FIELD, json));
+        } else {
+            redisTemplate.opsForZSet().add(retryKey, json, task.nextAttemptAt().toEpochMilli());
+        }
+    }
+
+    /**
+     * Resets the idle time of every entry this instance holds and still owns. Held entries
+     * another consumer has claimed meanwhile (heartbeats failed for reclaim-idle) are dropped
+     * from the buffer so only one instance cancels them.
+     */
+    @Scheduled(fixedDelayString = "${transfer.aggregator.cancellation.redis.heartbeat-interval:20s}")
+    public void heartbeat() {
+        Set<RecordId> held = new HashSet<>(inFlight.keySet());
+        buffer.forEach(entry -> held.add(entry.id()));
+        if (held.isEmpty() || !groupReady) {
+            return;
+        }
+        try {
+            PendingMessages owned = streams().pending(streamKey, Consumer.from(group, consumer),
+                Range.unbounded(), held.size() + batchSize);
+            Set<RecordId> stillOwned = new HashSet<>();
+            for (PendingMessage message : owned) {
+                if (held.contains(message.getId())) {
+                    stillOwned.add(message.getId());
+                }
+            }
+            if (!stillOwned.isEmpty()) {
+                streams().claim(streamKey, group, consumer, Duration.ZERO, stillOwned.toArray(RecordId[]::new));
+            }
+            held.removeAll(stillOwned);
+            if (!held.isEmpty()) {
+                buffer.removeIf(entry -> held.contains(entry.id()));
+                log.warn("{} held cancellation entries were taken over by another consumer", held.size());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cannot refresh held cancellation entries, retrying next heartbeat: {}", e.getMessage());
+        }
+    }
+
+    // Acknowledges one entry handed out for the booking; a duplicate entry keeps its own
+    private void acknowledge(String bookingId) {
+        for (var held : inFlight.entrySet()) {
+            if (held.getValue().equals(bookingId) && inFlight.remove(held.getKey(), bookingId)) {
+                streams().acknowledge(streamKey, group, held.getKey());
+                streams().delete(streamKey, held.getKey());
+                return;
+            }
+        }
+    }
+
+    // Refills the buffer: stale entries of other consumers first, then new and newly due entries
+    private void fill() {
+        readLock.lock();
+        try {
+            if (!buffer.isEmpty()) {
+                return;  // Another poller got there first
+            }
+            ensureGroup();
+            long now = nanoClock.getAsLong();
+            if (now - nextReclaimNanos >= 0) {
+                nextReclaimNanos = now + reclaimIntervalNanos;
+                buffer(reclaim());
+            }
+            if (buffer.isEmpty()) {
+                promoteDueRetries();
+                buffer(streams().read(Consumer.from(group, consumer),
+                    StreamReadOptions.empty().count(batchSize),
+                    StreamOffset.create(streamKey, ReadOffset.lastConsumed())));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cannot read cancellation queue from Redis, retrying next run: {}", e.getMessage());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void promoteDueRetries() {
+        Long promoted = redisTemplate.execute(PROMOTE_SCRIPT, List.of(retryKey, streamKey),
+            String.valueOf(batchSize), TASK_FIELD);
+        if (promoted != null && promoted > 0) {
+            log.debug("Moved {} due cancellation retries onto {}", promoted, streamKey);
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> reclaim() {
+        List<RecordId> stale = new ArrayList<>();
+        Range<String> range = Range.unbounded();
+        while (stale.size() < batchSize) {
+            PendingMessages page = streams().pending(streamKey, group, range, PENDING_PAGE_SIZE);
+            for (PendingMessage message : page) {
+                if (message.getElapsedTimeSinceLastDelivery().compareTo(reclaimIdle) >= 0
+                    && !inFlight.containsKey(message.getId()) && stale.size() < batchSize) {
+                    stale.add(message.getId());
+                }
+            }
+            if (page.size() < PENDING_PAGE_SIZE) {
+                break;
+            }
+            range = Range.rightUnbounded(Range.Bound.inclusive(after(page.get(page.size() - 1).getId())));
+        }
+        if (stale.isEmpty()) {
+            return List.of();
+        }
+        List<MapRecord<String, Object, Object>> claimed =
+            streams().claim(streamKey, group, consumer, reclaimIdle, stale.toArray(RecordId[]::new));
+        if (claimed != null && !claimed.isEmpty()) {
+            reclaimed.increment(claimed.size());
+            log.warn("Reclaimed {} cancellation(s) left unacknowledged for over {}s",
+                claimed.size(), reclaimIdle.toSeconds());
+        }
+        return claimed;
+    }
+
+    // Smallest id above the given one; an inclusive start works on Redis versions without exclusive ranges
+    private static String after(RecordId id) {
+        return RecordId.of(id.getTimestamp(), id.getSequence() + 1).getValue();
+    }
+
+    private void buffer(List<MapRecord<String, Object, Object>> records) {
+        if (records == null) {
+            return;
+        }
+        for (MapRecord<String, Object, Object> record : records) {
+            Object json = record.getValue().get(TASK_FIELD);
+            CancellationTask task = json == null ? null : read(json.toString());
+            if (task == null) {
+                // Nothing can ever process it; drop it rather than reclaim it forever
+                log.error("Dropping unreadable cancellation entry {}: {}", record.getId(), json);
+                unreadable.increment();
+                streams().acknowledge(streamKey, group, record.getId());
+                streams().delete(streamKey, record.getId());
+                continue;
+            }
+            buffer.offer(new Entry(record.getId(), task));
+        }
+    }
+
+    private void ensureGroup() {
+        if (groupReady) {
+            return;
+        }
+        try {
+            streams().createGroup(streamKey, ReadOffset.from("0"), group);
+            log.info("Created consumer group {} on {}", group, streamKey);
+        } catch (DataAccessException e) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (cause == null || !cause.contains("BUSYGROUP")) {
+                throw e;
+            }
+            // Already created, by this or another instance
+        }
+        groupReady = true;
+    }
+
+    private StreamOperations<String, Object, Object> streams() {
+        return redisTemplate.opsForStream();
+    }
+
+    private String write(CancellationTask task) {
+        try {
+            return objectMapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise cancellation task " + task.bookingId(), e);
+        }
+    }
+
+    private CancellationTask read(String json) {
+        try {
+            return objectMapper.readValue(json, CancellationTask.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String defaultConsumerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "instance";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    private record Entry(RecordId id, CancellationTask task) {}
+}
@@ -0,0 +1,46 @@
+package com.arcube.transferaggregator.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries at a share of calls, so retries can't multiply load on a supplier that is
+ * already failing. Every call deposits {@code ratio} of a retry and every retry withdraws one;
+ * the balance is capped at {@code burst} retries, which is also where it starts.
+ */
+final class RetryBudget {
+
+    private static final long UNITS_PER_RETRY = 1_000;
+
+    private final long depositPerCall;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    RetryBudget(double ratio, int burst) {
+        this.depositPerCall = Math.round(Math.max(0, ratio) * UNITS_PER_RETRY);
+        this.capacity = Math.max(1, burst) * UNITS_PER_RETRY;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    void recordCall() {
+        if (depositPerCall > 0) {
+            balance.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(capacity, current + deposit));
+        }
+    }
+
+    boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNITS_PER_RETRY) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNITS_PER_RETRY)) {
+                return true;
+            }
+        }
+    }
+
+    /** Retries currently affordable, fractional */
+    double available() {
+        return (double) balance.get() / UNITS_PER_RETRY;
+    }
+}
@@ -1,94 +1,236 @@
 package com.arcube.transferaggregator.resilience;
 
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.RetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.util.Objects;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 /**
- * Simple retry mechanism for transient failures.
- * Uses exponential backoff between retries.
+ * Retries transient supplier failures.
+ *
+ * - Transient means: 408/429/502/503/504 responses, timeouts and connect failures, found
+ *   anywhere in the cause chain. Everything else fails straight away.
+ * - Delays use full jitter: random(0, min(maxDelay, baseDelay * 2^attempt)).
+ * - Each supplier has a retry budget (retries <= budget-ratio of calls), so retries can't
+ *   amplify an outage.
+ * - No retry is started that would end after the request's {@link Deadline}, and withRetry
+ *   fails with a timeout once the deadline passes.
+ *
+ * {@link #withRetry} is non-blocking: delays are scheduled, nothing sleeps. The
+ * {@code executeWithRetry} variants are for callers that are blocking anyway.
  */
 @Slf4j
 @Component
 public class RetryHandler {
-    
-    private static final int DEFAULT_MAX_RETRIES = 2;
-    private static final long INITIAL_BACKOFF_MS = 100;
-    private static final double BACKOFF_MULTIPLIER = 2.0;
-    
+
+    private static final String UNKNOWN_SUPPLIER = "unknown";
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 429, 502, 503, 504);
+    private static final int MAX_CAUSE_DEPTH = 8;
+
+    private final RetryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, SupplierRetryState> suppliers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RetryHandler(AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this(properties.getResilience().getRetry(), meterRegistry);
+    }
+
+    RetryHandler(RetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Re-subscribes to the call on transient failure. The returned Mono fails with the last
+     * error as is when it isn't retryable, retries are used up or the budget is spent.
+     * The call should be lazy (e.g. a WebClient exchange) so each subscription re-sends it.
+     */
+    public <T> Mono<T> withRetry(String supplierCode, Mono<T> call) {
+        SupplierRetryState state = state(supplierCode);
+        Deadline deadline = Deadline.current();
+        Retry retry = Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            Duration delay = retryDelay(state, supplierCode, failure, (int) signal.totalRetries(),
+                properties.getMaxRetries(), deadline);
+            if (delay == null) {
+                return Mono.error(failure);
+            }
+            log.warn("Transient failure from {} (attempt {}), retrying in {}ms: {}",
+                supplierCode, signal.totalRetries() + 1, delay.toMillis(), failure.toString());
+            return Mono.delay(delay);
+        }));
+
+        // Counted once per subscription to the result; retries re-subscribe to the call only
+        return Mono.defer(() -> {
+            state.budget.recordCall();
+            state.calls.increment();
+            Mono<T> retried = call.retryWhen(retry);
+            return deadline == null ? retried : retried.timeout(deadline.remaining());
+        });
+    }
+
     /**
-     * Execute with retry for transient failures.
-     * 
+     * Execute with retry for transient failures, blocking the caller between attempts.
+     *
+     * @param supplierCode Supplier the action calls, for its retry budget and metrics
      * @param action The action to execute
      * @param maxRetries Maximum number of retries
      * @param <T> Return type
      * @return Result of the action
      */
-    public <T> T executeWithRetry(Supplier<T> action, int maxRetries) {
-        RuntimeException lastException = null;
-        long backoffMs = INITIAL_BACKOFF_MS;
-        
-        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+    public <T> T executeWithRetry(String supplierCode, Supplier<T> action, int maxRetries) {
+        SupplierRetryState state = state(supplierCode);
+        Deadline deadline = Deadline.current();
+        state.budget.recordCall();
+        state.calls.increment();
+
+        for (int attempt = 0; ; attempt++) {
             try {
-                if (attempt > 0) {
-                    log.debug("Retry attempt {} after {}ms", attempt, backoffMs);
-                }
                 return action.get();
             } catch (RuntimeException e) {
-                lastException = e;
-                
-                if (!isRetryable(e)) {
-                    log.debug("Non-retryable exception: {}", e.getClass().getSimpleName());
+                Duration delay = retryDelay(state, supplierCode, e, attempt, maxRetries, deadline);
+                if (delay == null) {
                     throw e;
                 }
-                
-                if (attempt < maxRetries) {
-                    log.warn("Transient failure (attempt {}), retrying in {}ms: {}", 
-                        attempt + 1, backoffMs, e.getMessage());
-                    sleep(backoffMs);
-                    backoffMs = (long) (backoffMs * BACKOFF_MULTIPLIER);
-                }
+                log.warn("Transient failure from {} (attempt {}), retrying in {}ms: {}",
+                    supplierCode, attempt + 1, delay.toMillis(), e.getMessage());
+                sleep(delay);
             }
         }
-        
-        log.error("All {} retries exhausted", maxRetries);
-        throw Objects.requireNonNull(lastException, "No exception captured");
     }
-    
+
+    public <T> T executeWithRetry(String supplierCode, Supplier<T> action) {
+        return executeWithRetry(supplierCode, action, properties.getMaxRetries());
+    }
+
+    public <T> T executeWithRetry(Supplier<T> action, int maxRetries) {
+        return executeWithRetry(UNKNOWN_SUPPLIER, action, maxRetries);
+    }
+
     /**
      * Execute with default retry settings.
      */
     public <T> T executeWithRetry(Supplier<T> action) {
-        return executeWithRetry(action, DEFAULT_MAX_RETRIES);
+        return executeWithRetry(UNKNOWN_SUPPLIER, action, properties.getMaxRetries());
     }
-    
-    /**
-     * Determine if an exception is retryable (transient).
-     */
-    private boolean isRetryable(RuntimeException e) {
-        String name = e.getClass().getSimpleName();
-        String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
-        
-        // Retryable: network issues, timeouts, 5xx responses
-        return name.contains("Timeout") ||
-               name.contains("Connect") ||
-               name.contains("IOException") ||
-               message.contains("timeout") ||
-               message.contains("connection") ||
-               message.contains("temporarily unavailable") ||
-               message.contains("503") ||
-               message.contains("502") ||
-               message.contains("504");
+
+    /** Whether an error is transient, judged by exception type and HTTP status rather than message text */
+    static boolean isRetryable(Throwable error) {
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++, current = current.getCause()) {
+            if (current instanceof WebClientResponseException response) {
+                return RETRYABLE_STATUSES.contains(response.getStatusCode().value());
+            }
+            if (current instanceof TimeoutException
+                || current instanceof SocketTimeoutException
+                || current instanceof ConnectException
+                || current instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Delay before the next attempt, or null if the failure should be returned as is
+    private Duration retryDelay(SupplierRetryState state, String supplierCode, Throwable failure,
+                                int attempt, int maxRetries, Deadline deadline) {
+        if (!isRetryable(failure)) {
+            log.debug("Non-retryable failure from {}: {}", supplierCode, failure.getClass().getSimpleName());
+            state.nonRetryable.increment();
+            return null;
+        }
+        if (attempt >= maxRetries) {
+            log.error("All {} retries exhausted for {}", maxRetries, supplierCode);
+            state.exhausted.increment();
+            return null;
+        }
+        Duration delay = delay(attempt);
+        if (deadline != null && delay.compareTo(deadline.remaining()) >= 0) {
+            log.warn("Not retrying {}: request deadline passes before the next attempt", supplierCode);
+            state.deadline.increment();
+            return null;
+        }
+        if (!state.budget.tryWithdraw()) {
+            log.warn("Retry budget for {} spent, not retrying: {}", supplierCode, failure.getMessage());
+            state.budgetDenied.increment();
+            return null;
+        }
+        state.retries.increment();
+        return delay;
+    }
+
+    private Duration delay(int attempt) {
+        long base = properties.getBaseDelay().toMillis();
+        long cap = Math.min(properties.getMaxDelay().toMillis(), base << Math.min(attempt, 20));
+        return Duration.ofMillis(cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private SupplierRetryState state(String supplierCode) {
+        return suppliers.computeIfAbsent(supplierCode, this::newState);
+    }
+
+    private SupplierRetryState newState(String supplierCode) {
+        RetryBudget budget = new RetryBudget(properties.getBudgetRatio(), properties.getBudgetBurst());
+        Gauge.builder("transfer.retry.budget.available", budget, RetryBudget::available)
+            .description("Retries the supplier's retry budget can currently afford")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+
+        return new SupplierRetryState(
+            budget,
+            counter("transfer.retry.calls", "Calls made through the retry handler", supplierCode, null),
+            counter("transfer.retry.attempts", "Retries scheduled after a transient failure", supplierCode, null),
+            counter("transfer.retry.given.up", "Failures returned without retry", supplierCode, "non_retryable"),
+            counter("transfer.retry.given.up", "Failures returned without retry", supplierCode, "exhausted"),
+            counter("transfer.retry.given.up", "Failures returned without retry", supplierCode, "budget"),
+            counter("transfer.retry.given.up", "Failures returned without retry", supplierCode, "deadline"));
     }
-    
-    private void sleep(long ms) {
+
+    private Counter counter(String name, String description, String supplierCode, String reason) {
+        Counter.Builder builder = Counter.builder(name).description(description).tag("supplier", supplierCode);
+        if (reason != null) {
+            builder.tag("reason", reason);
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private void sleep(Duration delay) {
         try {
-            Thread.sleep(ms);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.sleep(delay);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Retry interrupted", e);
         }
     }
+
+    private record SupplierRetryState(
+        RetryBudget budget,
+        Counter calls,
+        Counter retries,
+        Counter nonRetryable,
+        Counter exhausted,
+        Counter budgetDenied,
+        Counter deadline
+    ) {}
 }
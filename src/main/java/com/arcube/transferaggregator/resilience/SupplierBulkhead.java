@@ -1,10 +1,12 @@
 package com.arcube.transferaggregator.resilience;
 
 import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.exception.DeadlineExceededException;
 import com.arcube.transferaggregator.exception.ServiceBusyException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -17,28 +19,31 @@ import java.util.function.Supplier;
 @Component
 public class SupplierBulkhead {
     
+    private static final Duration MAX_ACQUIRE_WAIT = Duration.ofMillis(500);
+    
     private final Semaphore semaphore;
-    private final long acquireTimeoutMs;
     
     public SupplierBulkhead(AggregatorProperties properties) {
         int maxConcurrent = properties.getResilience().getMaxConcurrentCalls();
         this.semaphore = new Semaphore(maxConcurrent, true);
-        this.acquireTimeoutMs = 500; // Wait 500ms max for permit
         log.info("SupplierBulkhead initialized with {} permits", maxConcurrent);
     }
     
     /**
      * Execute a supplier call within the bulkhead.
+     * Waits up to 500ms for a permit, less if the request's deadline is closer.
      * 
      * @param action The action to execute
      * @param <T> Return type
      * @return Result of the action
      * @throws ServiceBusyException if bulkhead is full
+     * @throws DeadlineExceededException if the request's deadline has passed
      */
     public <T> T execute(Supplier<T> action) {
+        Deadline.checkCurrent("supplier call");
         boolean acquired = false;
         try {
-            acquired = semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            acquired = semaphore.tryAcquire(Deadline.capToCurrent(MAX_ACQUIRE_WAIT).toNanos(), TimeUnit.NANOSECONDS);
             if (!acquired) {
                 log.warn("Bulkhead full - {} permits available", semaphore.availablePermits());
                 throw new ServiceBusyException("Service is temporarily busy, please retry");
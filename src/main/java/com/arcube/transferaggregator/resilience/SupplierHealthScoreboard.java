@@ -0,0 +1,173 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.DegradedSupplierPolicy;
+import com.arcube.transferaggregator.config.AggregatorProperties.SupplierHealthProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Live search health per supplier: EWMA latency, error rate and empty-result rate.
+ * A supplier is degraded once it has min-samples and any of the three crosses its limit,
+ * which lets search back off a supplier before its circuit breaker opens. Until then the
+ * averages warm up as plain means, so the first samples don't swing the score.
+ */
+@Slf4j
+@Component
+public class SupplierHealthScoreboard {
+
+    /** How a search call ended */
+    public enum Outcome {
+        RESULTS,   // Answered; offers or still polling
+        EMPTY,     // Answered, complete, no offers
+        ERROR      // Failed or timed out
+    }
+
+    /** What the fan-out should do with a supplier on this search */
+    public enum Decision {
+        CALL,
+        DEPRIORITISE,
+        SHORTEN_TIMEOUT,
+        SKIP
+    }
+
+    /** Point-in-time view of one supplier */
+    public record SupplierHealth(
+        long samples,
+        double latencyMillis,
+        double errorRate,
+        double emptyRate,
+        boolean degraded
+    ) {}
+
+    private final SupplierHealthProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final DoubleSupplier random;
+    private final Map<String, SupplierStats> suppliers = new ConcurrentHashMap<>();
+    private final Map<Decision, Counter> decisions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SupplierHealthScoreboard(AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this(properties.getResilience().getSupplierHealth(), meterRegistry, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    SupplierHealthScoreboard(SupplierHealthProperties properties, MeterRegistry meterRegistry, DoubleSupplier random) {
+        // At 1 a skipped supplier is never called again, so it could never be seen to recover
+        if (!(properties.getSkipProbability() >= 0 && properties.getSkipProbability() < 1)) {
+            throw new IllegalStateException(
+                "transfer.aggregator.resilience.supplier-health.skip-probability must be at least 0 and below 1");
+        }
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.random = random;
+    }
+
+    /** Records one search call to the supplier */
+    public void record(String supplierCode, Duration latency, Outcome outcome) {
+        SupplierStats stats = suppliers.computeIfAbsent(supplierCode, this::newStats);
+        boolean wasDegraded = stats.degraded;
+        stats.add(latency.toNanos() / 1_000_000.0, outcome);
+        if (stats.degraded != wasDegraded) {
+            log.warn("Supplier {} is now {}: latency={}ms errorRate={} emptyRate={}", supplierCode,
+                stats.degraded ? "DEGRADED" : "healthy", Math.round(stats.latencyMillis),
+                String.format("%.2f", stats.errorRate), String.format("%.2f", stats.emptyRate));
+        }
+    }
+
+    public boolean isDegraded(String supplierCode) {
+        SupplierStats stats = suppliers.get(supplierCode);
+        return stats != null && stats.degraded;
+    }
+
+    /**
+     * Applies a tenant's policy to the supplier's current health. Healthy suppliers, and any
+     * supplier under a null or NONE policy, are always called.
+     */
+    public Decision decide(String supplierCode, DegradedSupplierPolicy policy) {
+        if (policy == null || policy == DegradedSupplierPolicy.NONE || !isDegraded(supplierCode)) {
+            return Decision.CALL;
+        }
+        Decision decision = switch (policy) {
+            case DEPRIORITISE -> Decision.DEPRIORITISE;
+            case SHORTEN_TIMEOUT -> Decision.SHORTEN_TIMEOUT;
+            case SKIP -> random.getAsDouble() < properties.getSkipProbability() ? Decision.SKIP : Decision.CALL;
+            case NONE -> Decision.CALL;
+        };
+        decisions.computeIfAbsent(decision, d -> Counter.builder("transfer.supplier.health.decisions")
+            .description("Fan-out decisions taken for degraded suppliers")
+            .tag("decision", d.name().toLowerCase())
+            .register(meterRegistry)).increment();
+        return decision;
+    }
+
+    /** Timeout for a SHORTEN_TIMEOUT call, given the time left in the search */
+    public Duration shortenedTimeout(Duration remaining) {
+        return Duration.ofMillis(Math.max(1, (long) (remaining.toMillis() * properties.getDegradedTimeoutRatio())));
+    }
+
+    /** Every supplier seen so far, by code */
+    public Map<String, SupplierHealth> snapshot() {
+        Map<String, SupplierHealth> snapshot = new TreeMap<>();
+        suppliers.forEach((code, stats) -> snapshot.put(code, stats.snapshot()));
+        return snapshot;
+    }
+
+    private SupplierStats newStats(String supplierCode) {
+        SupplierStats stats = new SupplierStats();
+        Gauge.builder("transfer.supplier.health.latency", stats, s -> s.latencyMillis)
+            .description("EWMA search latency in milliseconds")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        Gauge.builder("transfer.supplier.health.error.rate", stats, s -> s.errorRate)
+            .description("EWMA share of searches that failed or timed out")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        Gauge.builder("transfer.supplier.health.empty.rate", stats, s -> s.emptyRate)
+            .description("EWMA share of completed searches with no offers")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        Gauge.builder("transfer.supplier.health.degraded", stats, s -> s.degraded ? 1 : 0)
+            .description("1 while the supplier is degraded")
+            .tag("supplier", supplierCode)
+            .register(meterRegistry);
+        return stats;
+    }
+
+    private final class SupplierStats {
+        // Written under the lock, read without it by gauges and decide()
+        private volatile long samples;
+        private volatile double latencyMillis;
+        private volatile double errorRate;
+        private volatile double emptyRate;
+        private volatile boolean degraded;
+
+        synchronized void add(double latency, Outcome outcome) {
+            long n = samples + 1;
+            // Plain mean while warming up, then the configured weight
+            double alpha = Math.max(properties.getEwmaAlpha(), 1.0 / n);
+            latencyMillis += alpha * (latency - latencyMillis);
+            errorRate += alpha * ((outcome == Outcome.ERROR ? 1 : 0) - errorRate);
+            emptyRate += alpha * ((outcome == Outcome.EMPTY ? 1 : 0) - emptyRate);
+            samples = n;
+            degraded = n >= properties.getMinSamples()
+                && (latencyMillis > properties.getMaxLatency().toMillis()
+                    || errorRate > properties.getMaxErrorRate()
+                    || emptyRate > properties.getMaxEmptyRate());
+        }
+
+        synchronized SupplierHealth snapshot() {
+            return new SupplierHealth(samples, latencyMillis, errorRate, emptyRate, degraded);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.arcube.transferaggregator.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket refilled continuously from System.nanoTime().
+ * The whole state is one packed long updated by CAS: the high 32 bits are the last refill time
+ * in milliseconds (wrapping, compared unsigned) and the low 32 bits the tokens left, in units of
+ * 1/60000 token. At that scale a bucket refilling N tokens per minute gains exactly N units per
+ * millisecond, so refill is integer arithmetic with nothing lost to rounding.
+ */
+final class TokenBucket {
+
+    static final long UNITS_PER_TOKEN = TimeUnit.MINUTES.toMillis(1);
+    static final long MAX_CAPACITY = 0xFFFF_FFFFL / UNITS_PER_TOKEN;
+
+    private static final long LOW_MASK = 0xFFFF_FFFFL;
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    // Elapsed times this large can only mean the clock read raced behind another thread's write.
+    // Buckets idle this long (~24 days) would misread too, but RateLimiter evicts idle buckets long before
+    private static final long MAX_ELAPSED_MILLIS = 1L << 31;
+
+    private final long capacityUnits;
+    private final long refillUnitsPerMilli;
+    private final LongSupplier nanoClock;
+    private final AtomicLong state;
+
+    /** Bucket holding up to {@code capacity} tokens, refilling {@code capacity} per minute, starting full */
+    TokenBucket(int capacity, LongSupplier nanoClock) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Token bucket capacity must be 1.." + MAX_CAPACITY + ", was " + capacity);
+        }
+        this.capacityUnits = capacity * UNITS_PER_TOKEN;
+        this.refillUnitsPerMilli = capacity;
+        this.nanoClock = nanoClock;
+        this.state = new AtomicLong(pack(nowMillis(), capacityUnits));
+    }
+
+    /** Takes one token if available */
+    boolean tryAcquire() {
+        while (true) {
+            long current = state.get();
+            long now = nowMillis();  // Read after the state, so it is never older than the stored time
+            long available = available(current, now);
+            if (available < UNITS_PER_TOKEN) {
+                return false;
+            }
+
+            long stamp = isBehind(current, now) ? current >>> 32 : now;
+            if (state.compareAndSet(current, pack(stamp, available - UNITS_PER_TOKEN))) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Whole tokens currently available */
+    long availableTokens() {
+        return available(state.get(), nowMillis()) / UNITS_PER_TOKEN;
+    }
+
+    /** Milliseconds until the next token, 0 if one is available now */
+    long millisUntilNextToken() {
+        long missing = UNITS_PER_TOKEN - available(state.get(), nowMillis());
+        return missing <= 0 ? 0 : (missing + refillUnitsPerMilli - 1) / refillUnitsPerMilli;
+    }
+
+    private long available(long packed, long now) {
+        long units = packed & LOW_MASK;
+        if (isBehind(packed, now)) {
+            return units;
+        }
+        long elapsed = (now - (packed >>> 32)) & LOW_MASK;
+        return Math.min(capacityUnits, units + elapsed * refillUnitsPerMilli);
+    }
+
+    private static boolean isBehind(long packed, long now) {
+        return ((now - (packed >>> 32)) & LOW_MASK) >= MAX_ELAPSED_MILLIS;
+    }
+
+    private long nowMillis() {
+        // floorDiv keeps the clock monotonic where nanoTime crosses zero
+        return Math.floorDiv(nanoClock.getAsLong(), NANOS_PER_MILLI) & LOW_MASK;
+    }
+
+    private static long pack(long millis, long units) {
+        return millis << 32 | units;
+    }
+}
@@ -0,0 +1,262 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingStatusProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.ports.BookingStatusSupplier;
+import com.arcube.transferaggregator.ports.SupplierBookingResult;
+import com.arcube.transferaggregator.ports.SupplierRegistry;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import com.arcube.transferaggregator.resilience.BookingStatusStore;
+import com.arcube.transferaggregator.resilience.IdempotencyGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls bookings a supplier returned as PENDING until they are confirmed or failed, so clients
+ * don't have to re-submit the booking to find out.
+ *
+ * Each pending booking is polled on a virtual thread, first after initial-interval and then at
+ * intervals growing by backoff-multiplier up to max-interval; after max-tracking-time it is left
+ * pending. Every status goes to the {@link BookingStatusStore} (GET /bookings/{id}/status and its
+ * event stream) and, through the {@link IdempotencyGuard}, to the booking's idempotency key, so a
+ * re-submitted booking gets the tracked status instead of reaching the supplier.
+ *
+ * Tracking is per instance: the instance that got the PENDING polls it. If that instance stops,
+ * the stored status expires with the idempotency TTL and a re-submitted booking reaches the
+ * supplier again.
+ */
+@Slf4j
+@Service
+public class BookingStatusTracker {
+
+    private final SupplierRegistry supplierRegistry;
+    private final BookingStatusStore statusStore;
+    private final IdempotencyGuard idempotencyGuard;
+    private final BookingLedger bookingLedger;
+    private final BookingStatusProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TrackedBooking> tracked = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    // Only live subscribers see an emit; a status stream re-reads the store once subscribed
+    private final Sinks.Many<String> changes = Sinks.many().multicast().directBestEffort();
+
+    @Autowired
+    public BookingStatusTracker(SupplierRegistry supplierRegistry, BookingStatusStore statusStore,
+                                IdempotencyGuard idempotencyGuard, BookingLedger bookingLedger,
+                                AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this(supplierRegistry, statusStore, idempotencyGuard, bookingLedger, properties.getBookingStatus(),
+            meterRegistry);
+    }
+
+    BookingStatusTracker(SupplierRegistry supplierRegistry, BookingStatusStore statusStore,
+                         IdempotencyGuard idempotencyGuard, BookingLedger bookingLedger,
+                         BookingStatusProperties properties, MeterRegistry meterRegistry) {
+        this.supplierRegistry = supplierRegistry;
+        this.statusStore = statusStore;
+        this.idempotencyGuard = idempotencyGuard;
+        this.bookingLedger = bookingLedger;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("transfer.booking.status.tracked", tracked, Map::size)
+            .description("Pending bookings being polled by this instance")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Start polling a booking that came back pending. False if it can't be tracked: no bookingId,
+     * a supplier that can't be polled, or max-tracked reached.
+     */
+    public boolean track(String idempotencyKey, String supplierCode, String searchId, String reservationId,
+                         BookResponse pending) {
+        if (pending.getBookingId() == null || reservationId == null
+            || !(supplierRegistry.getSupplier(supplierCode).orElse(null) instanceof BookingStatusSupplier)) {
+            return false;
+        }
+        if (tracked.size() >= properties.getMaxTracked()) {
+            log.warn("Not tracking pending booking {}: {} already tracked", pending.getBookingId(), tracked.size());
+            return false;
+        }
+        TrackedBooking booking = new TrackedBooking(pending.getBookingId(), idempotencyKey, supplierCode,
+            searchId, reservationId, properties.getInitialInterval());
+        if (tracked.putIfAbsent(booking.bookingId, booking) == null) {
+            publish(booking, pending);
+        }
+        return true;
+    }
+
+    public Optional<BookResponse> getStatus(String bookingId) {
+        return statusStore.get(bookingId);
+    }
+
+    /**
+     * The booking's status now and each change after it. Ends once the status is final, or after
+     * max-stream-duration. Wakes on changes made by this instance and re-reads the store every
+     * stream-recheck-interval for changes made by others.
+     */
+    public Flux<BookResponse> statusUpdates(String bookingId) {
+        Mono<BookResponse> read = Mono.fromCallable(() -> statusStore.get(bookingId).orElse(null))
+            .subscribeOn(Schedulers.boundedElastic());
+
+        // The interval fires once straight away, so the stream starts with the current status
+        return Flux.merge(
+                changes.asFlux().filter(bookingId::equals).map(id -> 0L),
+                Flux.interval(Duration.ZERO, properties.getStreamRecheckInterval()))
+            .onBackpressureDrop()
+            .concatMap(signal -> read)
+            .distinctUntilChanged(BookResponse::getStatus)
+            .takeUntil(status -> status.getStatus() != BookingStatus.PENDING)
+            .take(properties.getMaxStreamDuration());
+    }
+
+    /** Starts a poll for each tracked booking that is due and not being polled already */
+    @Scheduled(fixedDelay = 500, initialDelay = 1000)
+    public void pollDue() {
+        Instant now = Instant.now();
+        for (TrackedBooking booking : tracked.values()) {
+            if (!booking.nextPollAt.isAfter(now) && booking.polling.compareAndSet(false, true)) {
+                try {
+                    executor.execute(() -> poll(booking));
+                } catch (RejectedExecutionException e) {
+                    booking.polling.set(false);  // Shutting down
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void poll(TrackedBooking booking) {
+        try {
+            SupplierBookingResult result = supplierRegistry.getSupplier(booking.supplierCode)
+                .filter(BookingStatusSupplier.class::isInstance)
+                .map(supplier -> ((BookingStatusSupplier) supplier)
+                    .getBookingStatus(booking.searchId, booking.reservationId, properties.getPollTimeout()))
+                .orElse(null);
+            if (result == null) {
+                log.warn("Supplier {} gone, no longer tracking booking {}", booking.supplierCode, booking.bookingId);
+                stopTracking(booking, "abandoned");
+                return;
+            }
+            count("transfer.booking.status.polls", "Status polls of pending bookings",
+                booking.supplierCode, result.status().name().toLowerCase());
+
+            if (!result.isPending()) {
+                BookResponse status = toResponse(booking, result);
+                log.info("Pending booking {} is now {}", booking.bookingId, status.getStatus());
+                publish(booking, status);
+                bookingLedger.recordStatus(status);
+                stopTracking(booking, status.getStatus().name().toLowerCase());
+            } else if (Instant.now().isAfter(booking.startedAt.plus(properties.getMaxTrackingTime()))) {
+                log.warn("Booking {} still pending after {}, no longer tracking it",
+                    booking.bookingId, properties.getMaxTrackingTime());
+                stopTracking(booking, "abandoned");
+            } else {
+                store(booking, BookResponse.pending(booking.bookingId));  // Keeps the stored status from expiring
+                backOff(booking);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Status poll of booking {} failed: {}", booking.bookingId, e.getMessage());
+            count("transfer.booking.status.polls", "Status polls of pending bookings", booking.supplierCode, "error");
+            backOff(booking);
+        } finally {
+            booking.polling.set(false);
+        }
+    }
+
+    private void backOff(TrackedBooking booking) {
+        Duration next = Duration.ofMillis((long) (booking.interval.toMillis() * properties.getBackoffMultiplier()));
+        booking.interval = next.compareTo(properties.getMaxInterval()) > 0 ? properties.getMaxInterval() : next;
+        booking.nextPollAt = Instant.now().plus(booking.interval);
+    }
+
+    private void stopTracking(TrackedBooking booking, String outcome) {
+        tracked.remove(booking.bookingId, booking);
+        count("transfer.booking.status.resolved", "Pending bookings no longer tracked, by how they ended",
+            booking.supplierCode, outcome);
+    }
+
+    private void publish(TrackedBooking booking, BookResponse status) {
+        store(booking, status);
+        changes.emitNext(booking.bookingId, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(10)));
+    }
+
+    private void store(TrackedBooking booking, BookResponse status) {
+        try {
+            statusStore.put(status);
+        } catch (RuntimeException e) {
+            log.warn("Cannot store status of booking {}: {}", booking.bookingId, e.getMessage());
+        }
+        idempotencyGuard.update(booking.idempotencyKey, status);
+    }
+
+    private void count(String name, String description, String supplierCode, String outcome) {
+        counters.computeIfAbsent(name + "|" + supplierCode + "|" + outcome, k -> Counter.builder(name)
+            .description(description)
+            .tag("supplier", supplierCode)
+            .tag("outcome", outcome)
+            .register(meterRegistry)).increment();
+    }
+
+    private static BookResponse toResponse(TrackedBooking booking, SupplierBookingResult result) {
+        BookResponse response = switch (result.status()) {
+            case CONFIRMED -> BookResponse.confirmed(booking.bookingId, result.confirmationNumber(),
+                result.totalPrice(), result.pickupInstructions(),
+                BookResponse.ProviderContactDto.builder().name(booking.supplierCode).build());
+            case PRICE_CHANGED -> BookResponse.priceChanged();
+            default -> BookResponse.failed(result.errorCode(), result.errorMessage(), "RETRY");
+        };
+        response.setBookingId(booking.bookingId);  // Same ID the client got with the pending response
+        return response;
+    }
+
+    /** A pending booking; nextPollAt and interval are only written by its single running poll */
+    private static final class TrackedBooking {
+        private final String bookingId;
+        private final String idempotencyKey;
+        private final String supplierCode;
+        private final String searchId;
+        private final String reservationId;
+        private final Instant startedAt = Instant.now();
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private volatile Duration interval;
+        private volatile Instant nextPollAt;
+
+        TrackedBooking(String bookingId, String idempotencyKey, String supplierCode, String searchId,
+                       String reservationId, Duration initialInterval) {
+            this.bookingId = bookingId;
+            this.idempotencyKey = idempotencyKey;
+            this.supplierCode = supplierCode;
+            this.searchId = searchId;
+            this.reservationId = reservationId;
+            this.interval = initialInterval;
+            this.nextPollAt = startedAt.plus(initialInterval);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.adapters.idcodec.BookingIdCodec;
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BulkCancellationProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.dto.BulkCancelJobResponse;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cancels many bookings at once, e.g. everything on a cancelled flight.
+ *
+ * Bookings are grouped by supplier and cancelled on virtual threads through the normal
+ * {@link TransferCancellationService} path, so a supplier failure or timeout still lands the
+ * booking on the cancellation queue (outcome PENDING). Each supplier gets at most
+ * max-concurrent-per-supplier cancels at once, shared by all running jobs.
+ * Jobs are kept for job-retention; outcomes can be read as a snapshot or streamed as they complete.
+ */
+@Slf4j
+@Service
+public class BulkCancellationService {
+
+    private final TransferCancellationService cancellationService;
+    private final BookingIdCodec bookingIdCodec;
+    private final BulkCancellationProperties properties;
+    private final Cache<String, BulkCancelJob> jobs;
+    private final Map<String, Semaphore> supplierPermits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Counter> outcomeCounters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public BulkCancellationService(TransferCancellationService cancellationService,
+                                   BookingIdCodec bookingIdCodec,
+                                   AggregatorProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.cancellationService = cancellationService;
+        this.bookingIdCodec = bookingIdCodec;
+        this.properties = properties.getCancellation().getBulk();
+        this.meterRegistry = meterRegistry;
+        this.jobs = Caffeine.newBuilder()
+            .maximumSize(this.properties.getMaxJobs())
+            .expireAfterWrite(this.properties.getJobRetention())
+            .build();
+    }
+
+    /** Starts cancelling the bookings and returns the job straight away */
+    public BulkCancelJobResponse start(List<String> bookingIds, String reason) {
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(bookingIds));
+        BulkCancelJob job = new BulkCancelJob(UUID.randomUUID().toString(), unique.size());
+        jobs.put(job.id, job);
+        log.info("Bulk cancellation {} started: {} bookings, reason={}", job.id, unique.size(), reason);
+
+        // Group by supplier; bookings whose ID doesn't decode fail straight away
+        Map<String, List<String>> bySupplier = new LinkedHashMap<>();
+        for (String bookingId : unique) {
+            try {
+                String supplierCode = bookingIdCodec.decode(bookingId).supplierCode();
+                bySupplier.computeIfAbsent(supplierCode, k -> new ArrayList<>()).add(bookingId);
+            } catch (RuntimeException e) {
+                record(job, CancelResponse.failed(bookingId, "Invalid booking ID"));
+            }
+        }
+
+        bySupplier.forEach((supplierCode, ids) -> {
+            Semaphore permits = supplierPermits.computeIfAbsent(supplierCode,
+                k -> new Semaphore(Math.max(1, properties.getMaxConcurrentPerSupplier())));
+            log.info("Bulk cancellation {}: {} bookings with {}", job.id, ids.size(), supplierCode);
+            for (String bookingId : ids) {
+                executor.execute(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        record(job, cancelOne(bookingId));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        });
+        return job.snapshot();
+    }
+
+    public Optional<BulkCancelJobResponse> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(BulkCancelJob::snapshot);
+    }
+
+    /** Outcomes so far, then each new one as it completes; ends when the job does */
+    public Optional<Flux<CancelResponse>> streamOutcomes(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(job -> job.outcomeSink.asFlux());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private CancelResponse cancelOne(String bookingId) {
+        try {
+            return cancellationService.cancel(bookingId);
+        } catch (RuntimeException e) {
+            log.warn("Bulk cancel of {} failed: {}", bookingId, e.getMessage());
+            return CancelResponse.failed(bookingId, e.getMessage());
+        }
+    }
+
+    private void record(BulkCancelJob job, CancelResponse outcome) {
+        outcomeCounters.computeIfAbsent(outcome.getStatus(), status -> Counter.builder("transfer.cancellation.bulk.outcomes")
+            .description("Bookings processed by bulk cancellation")
+            .tag("status", status.toLowerCase())
+            .register(meterRegistry)).increment();
+        if (job.record(outcome)) {
+            BulkCancelJobResponse done = job.snapshot();
+            log.info("Bulk cancellation {} completed: cancelled={}, pending={}, failed={}",
+                job.id, done.getCancelled(), done.getPending(), done.getFailed());
+        }
+    }
+
+    private static final class BulkCancelJob {
+        private final String id;
+        private final int total;
+        private final Instant createdAt = Instant.now();
+        private final List<CancelResponse> outcomes = new ArrayList<>();  // Guarded by lock
+        // Replays past outcomes to late subscribers; emits are serialised by the lock
+        private final Sinks.Many<CancelResponse> outcomeSink = Sinks.many().replay().all();
+        private final ReentrantLock lock = new ReentrantLock();
+        private int cancelled;
+        private int pending;
+        private int failed;
+        private Instant completedAt;
+
+        BulkCancelJob(String id, int total) {
+            this.id = id;
+            this.total = total;
+        }
+
+        // True if this outcome completed the job
+        boolean record(CancelResponse outcome) {
+            lock.lock();
+            try {
+                outcomes.add(outcome);
+                String status = outcome.getStatus();
+                if (BookingStatus.CANCELLED.name().equals(status)) {
+                    cancelled++;
+                } else if (BookingStatus.PENDING.name().equals(status)) {
+                    pending++;
+                } else {
+                    failed++;
+                }
+                outcomeSink.tryEmitNext(outcome);
+                if (outcomes.size() == total) {
+                    completedAt = Instant.now();
+                    outcomeSink.tryEmitComplete();
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        BulkCancelJobResponse snapshot() {
+            lock.lock();
+            try {
+                return BulkCancelJobResponse.builder()
+                    .jobId(id)
+                    .status(completedAt != null || total == 0 ? "COMPLETED" : "RUNNING")
+                    .total(total)
+                    .completed(outcomes.size())
+                    .cancelled(cancelled)
+                    .pending(pending)
+                    .failed(failed)
+                    .createdAt(createdAt)
+                    .completedAt(completedAt)
+                    .outcomes(List.copyOf(outcomes))
+                    .build();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
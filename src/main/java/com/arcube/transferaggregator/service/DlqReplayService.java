@@ -0,0 +1,214 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.DlqProperties;
+import com.arcube.transferaggregator.dto.DlqReplayResponse;
+import com.arcube.transferaggregator.exception.ReplayInProgressException;
+import com.arcube.transferaggregator.resilience.CancellationDLQ;
+import com.arcube.transferaggregator.resilience.CancellationQueue;
+import com.arcube.transferaggregator.resilience.CancellationTask;
+import com.arcube.transferaggregator.resilience.DeadLetterFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-drives dead-lettered cancellations after an incident.
+ *
+ * A replay takes the matching dead letters (oldest first) out of the DLQ and puts them back on
+ * the cancellation queue as fresh tasks, at most rate-per-second of them, so the
+ * {@link com.arcube.transferaggregator.resilience.CancellationWorker} cancels them with its usual
+ * per-supplier concurrency cap and retries. An entry is only re-queued by whoever removed it
+ * from the DLQ, so entries resolved by hand or taken by another instance are skipped.
+ *
+ * One replay runs at a time per instance; progress can be read while it runs and for
+ * replay-retention afterwards.
+ */
+@Slf4j
+@Service
+public class DlqReplayService {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final CancellationDLQ dlq;
+    private final CancellationQueue queue;
+    private final DlqProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, ReplayJob> replays;
+    private final AtomicReference<ReplayJob> running = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Counter> replayedCounters = new ConcurrentHashMap<>();
+
+    public DlqReplayService(CancellationDLQ dlq, CancellationQueue queue,
+                            AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this.dlq = dlq;
+        this.queue = queue;
+        this.properties = properties.getCancellation().getDlq();
+        this.meterRegistry = meterRegistry;
+        this.replays = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(this.properties.getReplayRetention())
+            .build();
+    }
+
+    /** Dead letters matching the filter, oldest first */
+    public List<CancellationTask> find(DeadLetterFilter filter, int limit) {
+        Instant now = Instant.now();
+        return dlq.getAll().stream()
+            .filter(task -> filter.matches(task, now))
+            .sorted(Comparator.comparing(CancellationTask::createdAt))
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Starts replaying the matching dead letters in the background.
+     *
+     * @param ratePerSecond Null for the configured default; capped at max-replay-rate-per-second
+     * @param limit Null to replay every match
+     * @throws ReplayInProgressException if a replay is already running on this instance
+     */
+    public DlqReplayResponse start(DeadLetterFilter filter, Integer ratePerSecond, Integer limit) {
+        int rate = Math.max(1, Math.min(
+            ratePerSecond == null ? properties.getReplayRatePerSecond() : ratePerSecond,
+            properties.getMaxReplayRatePerSecond()));
+        List<CancellationTask> matches = find(filter, limit == null ? Integer.MAX_VALUE : limit);
+
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString(), matches.size(), rate);
+        ReplayJob current = running.compareAndExchange(null, job);
+        if (current != null) {
+            throw new ReplayInProgressException(current.id);
+        }
+        replays.put(job.id, job);
+        log.info("DLQ replay {} started: {} dead letters at {}/s, filter={}", job.id, matches.size(), rate, filter);
+        executor.execute(() -> replay(job, matches));
+        return job.snapshot();
+    }
+
+    public Optional<DlqReplayResponse> getReplay(String replayId) {
+        return Optional.ofNullable(replays.getIfPresent(replayId)).map(ReplayJob::snapshot);
+    }
+
+    /** Asks a running replay to stop after the entry in hand; entries not reached stay in the DLQ */
+    public Optional<DlqReplayResponse> stop(String replayId) {
+        ReplayJob job = replays.getIfPresent(replayId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.stopRequested = true;
+        return Optional.of(job.snapshot());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();  // Interrupts the pacing wait; the replay stops where it is
+    }
+
+    private void replay(ReplayJob job, List<CancellationTask> tasks) {
+        long intervalNanos = NANOS_PER_SECOND / job.ratePerSecond;
+        long nextNanos = System.nanoTime();
+        String status = "COMPLETED";
+        String error = null;
+        try {
+            for (CancellationTask task : tasks) {
+                if (job.stopRequested) {
+                    status = "STOPPED";
+                    break;
+                }
+                if (!dlq.resolve(task.bookingId())) {
+                    job.skipped++;
+                    continue;
+                }
+                try {
+                    queue.enqueue(task.replayed());
+                } catch (RuntimeException e) {
+                    dlq.restore(task);  // Taken out but not queued; don't lose it
+                    throw e;
+                }
+                job.replayed++;
+                replayedCounter(task.supplierCode()).increment();
+
+                nextNanos += intervalNanos;
+                long waitNanos = nextNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = "STOPPED";
+        } catch (RuntimeException e) {
+            log.error("DLQ replay {} failed: {}", job.id, e.getMessage(), e);
+            status = "FAILED";
+            error = e.getMessage();
+        } finally {
+            job.finish(status, error);
+            running.compareAndSet(job, null);
+            log.info("DLQ replay {} {}: replayed={}, skipped={} of {}",
+                job.id, status.toLowerCase(), job.replayed, job.skipped, job.matched);
+        }
+    }
+
+    private Counter replayedCounter(String supplierCode) {
+        return replayedCounters.computeIfAbsent(String.valueOf(supplierCode), supplier -> Counter.builder("transfer.cancellation.dlq.replayed")
+            .description("Dead letters put back on the cancellation queue by a replay")
+            .tag("supplier", supplier)
+            .register(meterRegistry));
+    }
+
+    /** Counters are written by the replay thread only and read by status requests */
+    private static final class ReplayJob {
+        private final String id;
+        private final int matched;
+        private final int ratePerSecond;
+        private final Instant startedAt = Instant.now();
+        private volatile int replayed;
+        private volatile int skipped;
+        private volatile boolean stopRequested;
+        private volatile String status = "RUNNING";
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        ReplayJob(String id, int matched, int ratePerSecond) {
+            this.id = id;
+            this.matched = matched;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        void finish(String status, String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+            this.status = status;  // Last, so a reader seeing it finished also sees the rest
+        }
+
+        DlqReplayResponse snapshot() {
+            return DlqReplayResponse.builder()
+                .replayId(id)
+                .status(status)
+                .matched(matched)
+                .replayed(replayed)
+                .skipped(skipped)
+                .ratePerSecond(ratePerSecond)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+        }
+    }
+}
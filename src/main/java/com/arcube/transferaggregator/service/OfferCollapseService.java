@@ -0,0 +1,152 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.domain.CancellationPolicy;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import com.arcube.transferaggregator.dto.SearchSort;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Best-offer collapse for offers that several suppliers resell from the same local provider.
+ * Offers are grouped on (provider, vehicle class, capacity, cancellation policy) and only the
+ * cheapest of each group is returned. The full list stays in search state so the others can
+ * be fetched as alternates on demand.
+ */
+@Slf4j
+@Service
+public class OfferCollapseService {
+
+    private final boolean enabledByDefault;
+    private final Counter offersInCounter;
+    private final Counter offersOutCounter;
+    private final DistributionSummary collapseRatio;
+
+    public OfferCollapseService(AggregatorProperties properties, MeterRegistry meterRegistry) {
+        this.enabledByDefault = properties.getCollapse().isEnabled();
+
+        this.offersInCounter = Counter.builder("transfer.search.collapse.offers")
+            .description("Offers entering best-offer collapse")
+            .tag("stage", "in")
+            .register(meterRegistry);
+
+        this.offersOutCounter = Counter.builder("transfer.search.collapse.offers")
+            .description("Offers left after best-offer collapse")
+            .tag("stage", "out")
+            .register(meterRegistry);
+
+        // 1.0 = nothing collapsed; 0.5 = half the offers were duplicates
+        this.collapseRatio = DistributionSummary.builder("transfer.search.collapse.ratio")
+            .description("Ratio of offers kept to offers received per collapse")
+            .publishPercentiles(0.5, 0.95)
+            .register(meterRegistry);
+    }
+
+    /** Whether to collapse, given an optional per-request override */
+    public boolean isEnabled(Boolean requested) {
+        return requested != null ? requested : enabledByDefault;
+    }
+
+    /** Keep the cheapest offer per group; winners carry the number of alternates they hide */
+    public List<OfferDto> collapse(List<OfferDto> offers) {
+        return collapse(offers, true);
+    }
+
+    /**
+     * As {@link #collapse(List)}; recordMetrics is false for re-collapsing the same search
+     * (every poll), so the metrics count each search once.
+     */
+    public List<OfferDto> collapse(List<OfferDto> offers, boolean recordMetrics) {
+        if (offers == null || offers.isEmpty()) {
+            return offers;
+        }
+
+        Map<GroupKey, OfferDto> best = new LinkedHashMap<>();
+        Map<GroupKey, Integer> groupSizes = new HashMap<>();
+        List<OfferDto> result = new ArrayList<>();
+
+        for (OfferDto offer : offers) {
+            GroupKey key = GroupKey.of(offer);
+            if (key == null) {
+                result.add(offer);  // Not enough data to prove it's a duplicate
+                continue;
+            }
+            best.merge(key, offer, OfferCollapseService::cheaper);
+            groupSizes.merge(key, 1, Integer::sum);
+        }
+
+        for (var entry : best.entrySet()) {
+            int groupSize = groupSizes.get(entry.getKey());
+            result.add(groupSize > 1
+                ? entry.getValue().toBuilder().alternatesCount(groupSize - 1).build()
+                : entry.getValue());
+        }
+
+        if (recordMetrics) {
+            offersInCounter.increment(offers.size());
+            offersOutCounter.increment(result.size());
+            collapseRatio.record((double) result.size() / offers.size());
+        }
+
+        log.debug("Collapsed {} -> {} offers", offers.size(), result.size());
+        return result;
+    }
+
+    /** Other offers in the same group as the given offer (by state key, see OfferSorter.offerIdOf), cheapest first */
+    public List<OfferDto> alternatesOf(List<OfferDto> offers, String offerKey) {
+        if (offers == null || offerKey == null) {
+            return List.of();
+        }
+
+        GroupKey key = offers.stream()
+            .filter(o -> offerKey.equals(OfferSorter.offerIdOf(o)))
+            .findFirst()
+            .map(GroupKey::of)
+            .orElse(null);
+        if (key == null) {
+            return List.of();
+        }
+
+        List<OfferDto> alternates = offers.stream()
+            .filter(o -> !offerKey.equals(OfferSorter.offerIdOf(o)) && key.equals(GroupKey.of(o)))
+            .toList();
+        return OfferSorter.sort(alternates, SearchSort.byPrice());
+    }
+
+    private static OfferDto cheaper(OfferDto a, OfferDto b) {
+        int cmp = Long.compare(OfferSorter.priceKey(a.getTotalPrice()), OfferSorter.priceKey(b.getTotalPrice()));
+        if (cmp == 0) {
+            cmp = OfferSorter.offerIdOf(a).compareTo(OfferSorter.offerIdOf(b));
+        }
+        return cmp <= 0 ? a : b;
+    }
+
+    private record GroupKey(
+        String provider,
+        String vehicleClass,
+        int maxPassengers,
+        int maxBags,
+        CancellationPolicy cancellation
+    ) {
+        static GroupKey of(OfferDto o) {
+            if (o.getProvider() == null || o.getProvider().name() == null || o.getVehicle() == null) {
+                return null;
+            }
+            return new GroupKey(
+                normalise(o.getProvider().name()),
+                normalise(o.getVehicle().vehicleClass()),
+                o.getVehicle().maxPassengers(),
+                o.getVehicle().maxBags(),
+                o.getCancellation());
+        }
+
+        private static String normalise(String value) {
+            return value != null ? value.trim().toLowerCase(Locale.ROOT) : "";
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.dto.SearchSort;
+import com.arcube.transferaggregator.dto.SearchSort.SortDirection;
+import com.arcube.transferaggregator.dto.SearchSort.SortField;
+import com.arcube.transferaggregator.exception.InvalidTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for poll pagination.
+ * Carries the sort a page was produced with plus the sort key and tie-breaker (see
+ * OfferSorter.tieBreakerOf) of the last offer on that page, so the next page is a seek rather
+ * than an offset. Nothing in it identifies a supplier search; an edited cursor can only move
+ * the seek position.
+ */
+public record OfferCursor(
+    SortField field,
+    SortDirection direction,
+    String tieBreaker,
+    String sortKey
+) {
+    private static final String SEPARATOR = "\n";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public String encode() {
+        // sortKey goes last so free-text keys (provider names) survive the split
+        String raw = field.name() + SEPARATOR + direction.name() + SEPARATOR
+            + tieBreaker + SEPARATOR + sortKey;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OfferCursor decode(String cursor) {
+        try {
+            String raw = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4) throw new InvalidTokenException("Invalid cursor format");
+
+            SortField field = SortField.valueOf(parts[0]);
+            SortDirection direction = SortDirection.valueOf(parts[1]);
+            validateKey(field, parts[3]);
+
+            return new OfferCursor(field, direction, parts[2], parts[3]);
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidTokenException("Failed to decode cursor", e);
+        }
+    }
+
+    /** Primitive sort key for numeric fields (see OfferSorter) */
+    public long numericKey() {
+        return Long.parseLong(sortKey);
+    }
+
+    public SearchSort toSort() {
+        return SearchSort.builder().field(field).direction(direction).build();
+    }
+
+    private static void validateKey(SortField field, String key) {
+        switch (field) {
+            case PRICE, RATING, DURATION, DISTANCE, PASSENGERS -> Long.parseLong(key);
+            case PROVIDER_NAME -> { }
+        }
+    }
+}
@@ -7,92 +7,143 @@ import com.arcube.transferaggregator.dto.SearchSort;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
 public class OfferFilterService {
 
+    private final ParallelFilterCalibrator calibrator;
+
+    public OfferFilterService() {
+        this(ParallelFilterCalibrator.adaptive());
+    }
+
+    OfferFilterService(ParallelFilterCalibrator calibrator) {
+        this.calibrator = calibrator;
+    }
+
     public FilterResult filterAndSort(List<OfferDto> offers, SearchFilter filter, 
                                        SearchSort sort, PageRequest page) {
+        return sortAndPage(filter(offers, filter), sort, page);
+    }
+
+    /** Offers matching the filter, in their original order */
+    public List<OfferDto> filter(List<OfferDto> offers, SearchFilter filter) {
         if (offers == null || offers.isEmpty()) {
+            return List.of();
+        }
+        return filter != null && filter.hasFilters() ? applyFilters(offers, filter) : offers;
+    }
+
+    /** Sorts and pages offers that are already filtered; totalCount is the size of the given list */
+    public FilterResult sortAndPage(List<OfferDto> filtered, SearchSort sort, PageRequest page) {
+        if (filtered == null || filtered.isEmpty()) {
             return FilterResult.empty();
         }
+        if (page == null) {
+            page = PageRequest.first();
+        }
 
-        Stream<OfferDto> stream = offers.stream();
-        
-        if (filter != null && filter.hasFilters()) {
-            stream = applyFilters(stream, filter);
+        // A cursor is self-describing: it pins the sort its page was produced with
+        OfferCursor cursor = page.hasCursor() ? OfferCursor.decode(page.getCursor()) : null;
+        if (cursor != null) {
+            sort = cursor.toSort();
+        } else if (sort == null) {
+            sort = SearchSort.byPrice();
         }
 
-        List<OfferDto> filtered = stream.toList();
         int totalCount = filtered.size();
 
         List<OfferDto> sorted = applySorting(filtered, sort);
-        List<OfferDto> paged = applyPagination(sorted, page);
+        int size = page.getValidatedSize();
+        int offset = cursor != null ? seekAfter(sorted, cursor) : page.getOffset();
+        List<OfferDto> paged = cursor != null ? slice(sorted, offset, size) : applyPagination(sorted, page);
 
-        int totalPages = (int) Math.ceil((double) totalCount / page.getValidatedSize());
+        int totalPages = (int) Math.ceil((double) totalCount / size);
+        int pageIndex = cursor != null ? offset / size : page.getPage();
+        boolean hasNext = cursor != null ? offset + paged.size() < totalCount : pageIndex < totalPages - 1;
+        String nextCursor = hasNext && !paged.isEmpty()
+            ? cursorAfter(paged.get(paged.size() - 1), sort).encode() : null;
 
-        log.debug("Filtered {} -> {} offers, page {}/{}", 
-            offers.size(), paged.size(), page.getPage() + 1, totalPages);
+        log.debug("Paged {} -> {} offers, page {}/{}, cursor={}", 
+            totalCount, paged.size(), pageIndex + 1, totalPages, cursor != null);
 
         return FilterResult.builder()
             .offers(paged)
             .totalCount(totalCount)
-            .page(page.getPage())
+            .page(pageIndex)
             .size(paged.size())
             .totalPages(totalPages)
-            .hasNext(page.getPage() < totalPages - 1)
-            .hasPrevious(page.getPage() > 0)
+            .hasNext(hasNext)
+            .hasPrevious(cursor != null ? offset > 0 : pageIndex > 0)
+            .nextCursor(nextCursor)
             .build();
     }
 
-    private Stream<OfferDto> applyFilters(Stream<OfferDto> stream, SearchFilter filter) {
+    /** Large offer sets are filtered in parallel once past the calibrated threshold */
+    private List<OfferDto> applyFilters(List<OfferDto> offers, SearchFilter filter) {
+        Predicate<OfferDto> predicate = toPredicate(filter);
+        boolean parallel = calibrator.shouldParallelize(offers.size());
+
+        long start = System.nanoTime();
+        List<OfferDto> filtered = (parallel ? offers.parallelStream() : offers.stream())
+            .filter(predicate)
+            .toList();
+        calibrator.record(offers.size(), System.nanoTime() - start, parallel);
+
+        if (parallel) {
+            log.debug("Filtered {} offers in parallel (threshold {})", offers.size(), calibrator.threshold());
+        }
+        return filtered;
+    }
+
+    private Predicate<OfferDto> toPredicate(SearchFilter filter) {
+        Predicate<OfferDto> predicate = o -> true;
+
         // Price filters (record accessor: value())
         if (filter.getMinPrice() != null) {
-            stream = stream.filter(o -> o.getTotalPrice() != null && 
+            predicate = predicate.and(o -> o.getTotalPrice() != null && 
                 o.getTotalPrice().value().compareTo(filter.getMinPrice()) >= 0);
         }
         if (filter.getMaxPrice() != null) {
-            stream = stream.filter(o -> o.getTotalPrice() != null && 
+            predicate = predicate.and(o -> o.getTotalPrice() != null && 
                 o.getTotalPrice().value().compareTo(filter.getMaxPrice()) <= 0);
         }
 
         // Vehicle type filter (record accessor: type())
         if (filter.getVehicleTypes() != null && !filter.getVehicleTypes().isEmpty()) {
-            stream = stream.filter(o -> o.getVehicle() != null && 
+            predicate = predicate.and(o -> o.getVehicle() != null && 
                 containsIgnoreCase(filter.getVehicleTypes(), o.getVehicle().type()));
         }
 
         // Vehicle class filter (record accessor: vehicleClass())
         if (filter.getVehicleClasses() != null && !filter.getVehicleClasses().isEmpty()) {
-            stream = stream.filter(o -> o.getVehicle() != null && 
+            predicate = predicate.and(o -> o.getVehicle() != null && 
                 containsIgnoreCase(filter.getVehicleClasses(), o.getVehicle().vehicleClass()));
         }
 
         // Vehicle category filter (record accessor: category())
         if (filter.getVehicleCategories() != null && !filter.getVehicleCategories().isEmpty()) {
-            stream = stream.filter(o -> o.getVehicle() != null && 
+            predicate = predicate.and(o -> o.getVehicle() != null && 
                 containsIgnoreCase(filter.getVehicleCategories(), o.getVehicle().category()));
         }
 
         // Capacity filters (record accessor: maxPassengers(), maxBags())
         if (filter.getMinPassengers() != null) {
-            stream = stream.filter(o -> o.getVehicle() != null && 
+            predicate = predicate.and(o -> o.getVehicle() != null && 
                 o.getVehicle().maxPassengers() >= filter.getMinPassengers());
         }
         if (filter.getMinBags() != null) {
-            stream = stream.filter(o -> o.getVehicle() != null && 
+            predicate = predicate.and(o -> o.getVehicle() != null && 
                 o.getVehicle().maxBags() >= filter.getMinBags());
         }
 
         // Amenity filters
         if (filter.getRequiredAmenities() != null && !filter.getRequiredAmenities().isEmpty()) {
             var requiredAmenities = new java.util.HashSet<>(filter.getRequiredAmenities());
-            stream = stream.filter(o -> {
+            predicate = predicate.and(o -> {
                 List<String> includedAmenities = o.getIncludedAmenities();
                 return includedAmenities != null &&
                     new java.util.HashSet<>(includedAmenities).containsAll(requiredAmenities);
@@ -101,36 +152,36 @@ public class OfferFilterService {
 
         // Free cancellation filter (record accessor: isFullyRefundable())
         if (Boolean.TRUE.equals(filter.getFreeCancellationOnly())) {
-            stream = stream.filter(o -> o.getCancellation() != null && 
+            predicate = predicate.and(o -> o.getCancellation() != null && 
                 o.getCancellation().isFullyRefundable());
         }
 
         // Provider rating filter (record accessor: rating())
         if (filter.getMinProviderRating() != null) {
-            stream = stream.filter(o -> o.getProvider() != null && 
+            predicate = predicate.and(o -> o.getProvider() != null && 
                 o.getProvider().rating() != null &&
                 o.getProvider().rating().compareTo(filter.getMinProviderRating()) >= 0);
         }
 
         // Provider name filter (record accessor: name())
         if (filter.getProviderNames() != null && !filter.getProviderNames().isEmpty()) {
-            stream = stream.filter(o -> o.getProvider() != null && 
+            predicate = predicate.and(o -> o.getProvider() != null && 
                 containsIgnoreCase(filter.getProviderNames(), o.getProvider().name()));
         }
 
         // Duration filter
         if (filter.getMaxDurationMinutes() != null) {
-            stream = stream.filter(o -> 
+            predicate = predicate.and(o -> 
                 o.getEstimatedDurationMinutes() <= filter.getMaxDurationMinutes());
         }
 
         // Supplier filter
         if (filter.getSupplierCodes() != null && !filter.getSupplierCodes().isEmpty()) {
-            stream = stream.filter(o -> 
+            predicate = predicate.and(o -> 
                 containsIgnoreCase(filter.getSupplierCodes(), o.getSupplierCode()));
         }
 
-        return stream;
+        return predicate;
     }
 
     private List<OfferDto> applySorting(List<OfferDto> offers, SearchSort sort) {
@@ -138,32 +189,7 @@ public class OfferFilterService {
             sort = SearchSort.byPrice();
         }
 
-        Comparator<OfferDto> comparator = getComparator(sort);
-        return offers.stream().sorted(comparator).toList();
-    }
-
-    private Comparator<OfferDto> getComparator(SearchSort sort) {
-        Comparator<OfferDto> comparator = switch (sort.getField()) {
-            case PRICE -> Comparator.comparing(
-                o -> o.getTotalPrice() != null ? o.getTotalPrice().value() : BigDecimal.ZERO);
-            case RATING -> Comparator.comparing(
-                o -> o.getProvider() != null && o.getProvider().rating() != null 
-                    ? o.getProvider().rating() : BigDecimal.ZERO);
-            case DURATION -> Comparator.comparingInt(OfferDto::getEstimatedDurationMinutes);
-            case DISTANCE -> Comparator.comparingInt(
-                o -> o.getDistanceMeters() != null ? o.getDistanceMeters() : Integer.MAX_VALUE);
-            case PASSENGERS -> Comparator.comparingInt(
-                o -> o.getVehicle() != null ? o.getVehicle().maxPassengers() : 0);
-            case PROVIDER_NAME -> Comparator.comparing(
-                o -> o.getProvider() != null ? o.getProvider().name() : "", 
-                String.CASE_INSENSITIVE_ORDER);
-        };
-
-        if (sort.getDirection() == SearchSort.SortDirection.DESC) {
-            comparator = comparator.reversed();
-        }
-
-        return comparator;
+        return OfferSorter.sort(offers, sort);
     }
 
     private List<OfferDto> applyPagination(List<OfferDto> offers, PageRequest page) {
@@ -171,9 +197,10 @@ public class OfferFilterService {
             page = PageRequest.first();
         }
 
-        int offset = page.getOffset();
-        int size = page.getValidatedSize();
+        return slice(offers, page.getOffset(), page.getValidatedSize());
+    }
 
+    private List<OfferDto> slice(List<OfferDto> offers, int offset, int size) {
         if (offset >= offers.size()) {
             return List.of();
         }
@@ -181,6 +208,38 @@ public class OfferFilterService {
         return offers.subList(offset, Math.min(offset + size, offers.size()));
     }
 
+    /** Binary search for the first offer strictly after the cursor position */
+    private int seekAfter(List<OfferDto> sorted, OfferCursor cursor) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToCursor(sorted.get(mid), cursor) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareToCursor(OfferDto offer, OfferCursor cursor) {
+        int cmp = cursor.field() == SearchSort.SortField.PROVIDER_NAME
+            ? String.CASE_INSENSITIVE_ORDER.compare(OfferSorter.providerNameOf(offer), cursor.sortKey())
+            : Long.compare(OfferSorter.sortKey(offer, cursor.field()), cursor.numericKey());
+        if (cursor.direction() == SearchSort.SortDirection.DESC) {
+            cmp = -cmp;
+        }
+        return cmp != 0 ? cmp : OfferSorter.tieBreakerOf(offer).compareTo(cursor.tieBreaker());
+    }
+
+    private OfferCursor cursorAfter(OfferDto last, SearchSort sort) {
+        String key = sort.getField() == SearchSort.SortField.PROVIDER_NAME
+            ? OfferSorter.providerNameOf(last)
+            : Long.toString(OfferSorter.sortKey(last, sort.getField()));
+        return new OfferCursor(sort.getField(), sort.getDirection(), OfferSorter.tieBreakerOf(last), key);
+    }
+
     private boolean containsIgnoreCase(List<String> list, String value) {
         if (list == null || value == null) return false;
         return list.stream().anyMatch(s -> s.equalsIgnoreCase(value));
@@ -196,6 +255,7 @@ public class OfferFilterService {
         private int totalPages;
         private boolean hasNext;
         private boolean hasPrevious;
+        private String nextCursor;
 
         public static FilterResult empty() {
             return FilterResult.builder()
@@ -0,0 +1,189 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import com.arcube.transferaggregator.dto.SearchSort;
+import com.arcube.transferaggregator.dto.SearchSort.SortField;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorts offers on precomputed primitive keys.
+ * Keys are extracted once per offer (price in minor units, rating scaled to int)
+ * and the sort itself only compares longs, falling back to the offer's tie-breaker on
+ * ties so the order is total and identical on every instance.
+ */
+final class OfferSorter {
+
+    /** Common scale (10^-4) every currency's minor units are normalised to */
+    static final int PRICE_KEY_SCALE = 4;
+    /** Ratings are compared in hundredths (4.75 -> 475) */
+    static final int RATING_KEY_SCALE = 2;
+
+    private static final int DEFAULT_MINOR_DIGITS = 2;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L};
+    private static final Map<String, Integer> MINOR_DIGITS = new ConcurrentHashMap<>();
+
+    private OfferSorter() {}
+
+    static List<OfferDto> sort(List<OfferDto> offers, SearchSort sort) {
+        if (sort.getField() == SortField.PROVIDER_NAME) {
+            return sortByProviderName(offers, sort.getDirection());
+        }
+
+        int n = offers.size();
+        boolean desc = sort.getDirection() == SearchSort.SortDirection.DESC;
+        long[] keys = new long[n];
+        String[] ids = new String[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            OfferDto offer = offers.get(i);
+            long key = sortKey(offer, sort.getField());
+            keys[i] = desc ? -key : key;
+            ids[i] = tieBreakerOf(offer);
+            order[i] = i;
+        }
+
+        mergeSort(order, new int[n], 0, n, keys, ids);
+
+        OfferDto[] sorted = new OfferDto[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = offers.get(order[i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(sorted));
+    }
+
+    /** Primitive sort key for numeric fields, ascending */
+    static long sortKey(OfferDto o, SortField field) {
+        return switch (field) {
+            case PRICE -> priceKey(o.getTotalPrice());
+            case RATING -> o.getProvider() != null ? ratingKey(o.getProvider().rating()) : 0;
+            case DURATION -> o.getEstimatedDurationMinutes();
+            case DISTANCE -> o.getDistanceMeters() != null ? o.getDistanceMeters() : Integer.MAX_VALUE;
+            case PASSENGERS -> o.getVehicle() != null ? o.getVehicle().maxPassengers() : 0;
+            case PROVIDER_NAME -> throw new IllegalArgumentException("PROVIDER_NAME has no numeric key");
+        };
+    }
+
+    /** Price rounded to the currency's minor unit, then normalised to PRICE_KEY_SCALE */
+    static long priceKey(Money price) {
+        if (price == null || price.value() == null) return 0L;
+        int digits = minorUnitDigits(price.currency());
+        long minor = price.value().movePointRight(digits).setScale(0, RoundingMode.HALF_UP).longValue();
+        return minor * POW10[PRICE_KEY_SCALE - digits];
+    }
+
+    static int ratingKey(BigDecimal rating) {
+        if (rating == null) return 0;
+        return rating.movePointRight(RATING_KEY_SCALE).setScale(0, RoundingMode.HALF_UP).intValue();
+    }
+
+    static String providerNameOf(OfferDto o) {
+        return o.getProvider() != null && o.getProvider().name() != null ? o.getProvider().name() : "";
+    }
+
+    /** Stable identity: the unsigned ref key while the offer sits in search state, else its offerId */
+    static String offerIdOf(OfferDto o) {
+        if (o.getOfferId() != null) return o.getOfferId();
+        return o.getRef() != null ? o.getRef().key() : "";
+    }
+
+    /**
+     * Orders offers with equal sort keys and goes into page cursors: the offerId when the offer
+     * has one, else a hash of its ref key, so cursors never carry supplier search ids.
+     */
+    static String tieBreakerOf(OfferDto o) {
+        if (o.getOfferId() != null) return o.getOfferId();
+        return o.getRef() != null ? HexFormat.of().toHexDigits(hash64(o.getRef().key())) : "";
+    }
+
+    // FNV-1a with a murmur3 finaliser; only needs to be stable and well spread, not secret
+    private static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static List<OfferDto> sortByProviderName(List<OfferDto> offers, SearchSort.SortDirection direction) {
+        Comparator<OfferDto> comparator = Comparator.comparing(
+            OfferSorter::providerNameOf, String.CASE_INSENSITIVE_ORDER);
+        if (direction == SearchSort.SortDirection.DESC) {
+            comparator = comparator.reversed();
+        }
+        return offers.stream().sorted(comparator.thenComparing(OfferSorter::tieBreakerOf)).toList();
+    }
+
+    private static int minorUnitDigits(String currency) {
+        if (currency == null) return DEFAULT_MINOR_DIGITS;
+        return MINOR_DIGITS.computeIfAbsent(currency, OfferSorter::lookupMinorDigits);
+    }
+
+    private static int lookupMinorDigits(String currency) {
+        try {
+            int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+            // Pseudo-currencies (XAU etc.) report -1
+            return digits >= 0 && digits <= PRICE_KEY_SCALE ? digits : DEFAULT_MINOR_DIGITS;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_MINOR_DIGITS;
+        }
+    }
+
+    // Stable merge sort over indices; only touches the key arrays
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, long[] keys, String[] ids) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to, keys, ids);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, keys, ids);
+        mergeSort(a, tmp, mid, to, keys, ids);
+        if (compare(a[mid - 1], a[mid], keys, ids) <= 0) {
+            return; // halves already in order
+        }
+
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            a[k++] = compare(tmp[j], tmp[i], keys, ids) < 0 ? tmp[j++] : tmp[i++];
+        }
+        while (i < mid) a[k++] = tmp[i++];
+        while (j < to) a[k++] = tmp[j++];
+    }
+
+    private static void insertionSort(int[] a, int from, int to, long[] keys, String[] ids) {
+        for (int i = from + 1; i < to; i++) {
+            int current = a[i];
+            int j = i - 1;
+            while (j >= from && compare(a[j], current, keys, ids) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = current;
+        }
+    }
+
+    private static int compare(int x, int y, long[] keys, String[] ids) {
+        int cmp = Long.compare(keys[x], keys[y]);
+        return cmp != 0 ? cmp : ids[x].compareTo(ids[y]);
+    }
+}
@@ -0,0 +1,92 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
+import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
+import com.arcube.transferaggregator.domain.OfferRef;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signs offerIds lazily. Suppliers hand back an unsigned {@link OfferRef}; search state keeps it
+ * as is and only the offers actually placed in a response are signed, so a search with thousands
+ * of offers pays for one page of HMACs rather than all of them.
+ */
+@Slf4j
+@Component
+public class OfferTokenIssuer {
+
+    private final OfferIdCodec offerIdCodec;
+    private final Counter offersIngested;
+    private final Counter tokensSigned;
+    private final Clock clock;
+
+    @Autowired
+    public OfferTokenIssuer(OfferIdCodec offerIdCodec, MeterRegistry meterRegistry) {
+        this(offerIdCodec, meterRegistry, Clock.systemUTC());
+    }
+
+    OfferTokenIssuer(OfferIdCodec offerIdCodec, MeterRegistry meterRegistry, Clock clock) {
+        this.offerIdCodec = offerIdCodec;
+        this.clock = clock;
+
+        this.offersIngested = Counter.builder("transfer.offers.ingested")
+            .description("Offers received from suppliers into search state")
+            .register(meterRegistry);
+
+        this.tokensSigned = Counter.builder("transfer.offers.tokens.signed")
+            .description("Offer tokens signed for responses")
+            .register(meterRegistry);
+    }
+
+    public void recordIngested(int count) {
+        offersIngested.increment(count);
+    }
+
+    /** Copies of the given offers with offerId signed; offers that already carry one are returned as is */
+    public List<OfferDto> materialise(List<OfferDto> offers) {
+        if (offers == null || offers.isEmpty()) {
+            return offers;
+        }
+
+        List<OfferDto> result = new ArrayList<>(offers.size());
+        int signed = 0;
+        for (OfferDto offer : offers) {
+            if (offer.getOfferId() == null && offer.getRef() != null) {
+                result.add(offer.toBuilder().offerId(sign(offer.getRef())).ref(null).build());
+                signed++;
+            } else {
+                result.add(offer);
+            }
+        }
+
+        tokensSigned.increment(signed);
+        log.debug("Materialised {} offer tokens for {} offers", signed, offers.size());
+        return result;
+    }
+
+    /**
+     * Key an offer is stored under in search state, for a signed offerId coming back from a client.
+     * Throws InvalidTokenException / OfferExpiredException like any other offer token decode.
+     */
+    public String stateKeyOf(String offerId) {
+        OfferPayload payload = offerIdCodec.decode(offerId);
+        return new OfferRef(payload.supplierCode(), payload.searchId(), payload.resultId(), payload.expiresAt(),
+            payload.issuedAt()).key();
+    }
+
+    // Signs the ingest time rather than now, so the same offer gets the same offerId on every poll and page
+    private String sign(OfferRef ref) {
+        Instant issuedAt = ref.issuedAt() != null ? ref.issuedAt() : Instant.now(clock);  // State cached before refs had one
+        return offerIdCodec.encode(new OfferPayload(
+            ref.supplierCode(), ref.searchId(), ref.resultId(), ref.expiresAt(), issuedAt));
+    }
+}
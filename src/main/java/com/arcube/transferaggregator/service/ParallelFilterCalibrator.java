@@ -0,0 +1,89 @@
+package com.arcube.transferaggregator.service;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when offer filtering is worth running as a parallel stream.
+ * Sequential cost is modelled as {@code nanosPerOffer * n} and parallel cost as
+ * {@code forkOverhead + nanosPerOffer * n / P}; both terms are learned from live runs
+ * and the threshold follows their crossover, so it settles differently on 8- and 32-core nodes.
+ */
+final class ParallelFilterCalibrator {
+
+    /** Threshold used until enough runs have been observed */
+    static final int DEFAULT_THRESHOLD = 4_096;
+    static final int MIN_THRESHOLD = 256;
+    static final int MAX_THRESHOLD = 1 << 20;
+
+    private static final double SMOOTHING = 0.2;
+    // Every Nth run above the threshold stays sequential so nanosPerOffer keeps tracking reality
+    private static final int PROBE_INTERVAL = 32;
+
+    private final int parallelism;
+    private final boolean adaptive;
+    private final AtomicLong largeRuns = new AtomicLong();
+
+    private volatile int threshold;
+    private double nanosPerOffer = Double.NaN;
+    private double forkOverheadNanos = Double.NaN;
+
+    private ParallelFilterCalibrator(int parallelism, int threshold, boolean adaptive) {
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+        this.adaptive = adaptive;
+    }
+
+    static ParallelFilterCalibrator adaptive() {
+        return new ParallelFilterCalibrator(ForkJoinPool.getCommonPoolParallelism(), DEFAULT_THRESHOLD, true);
+    }
+
+    static ParallelFilterCalibrator adaptive(int parallelism) {
+        return new ParallelFilterCalibrator(parallelism, DEFAULT_THRESHOLD, true);
+    }
+
+    /** Fixed threshold, no learning: 0 always goes parallel, Integer.MAX_VALUE never does */
+    static ParallelFilterCalibrator fixed(int threshold) {
+        return new ParallelFilterCalibrator(ForkJoinPool.getCommonPoolParallelism(), threshold, false);
+    }
+
+    boolean shouldParallelize(int size) {
+        if (parallelism < 2 || size < threshold) {
+            return false;
+        }
+        return !adaptive || largeRuns.incrementAndGet() % PROBE_INTERVAL != 0;
+    }
+
+    void record(int size, long elapsedNanos, boolean parallel) {
+        // Tiny inputs are dominated by stream setup and would skew the per-offer cost
+        if (!adaptive || size < MIN_THRESHOLD) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!parallel) {
+                nanosPerOffer = smooth(nanosPerOffer, (double) elapsedNanos / size);
+            } else if (!Double.isNaN(nanosPerOffer)) {
+                double overhead = elapsedNanos - nanosPerOffer * size / parallelism;
+                forkOverheadNanos = smooth(forkOverheadNanos, Math.max(0, overhead));
+            }
+            recalibrate();
+        }
+    }
+
+    int threshold() {
+        return threshold;
+    }
+
+    private void recalibrate() {
+        if (Double.isNaN(nanosPerOffer) || Double.isNaN(forkOverheadNanos) || nanosPerOffer <= 0) {
+            return;
+        }
+        double crossover = forkOverheadNanos / (nanosPerOffer * (1 - 1.0 / parallelism));
+        threshold = (int) Math.max(MIN_THRESHOLD, Math.min(MAX_THRESHOLD, crossover));
+    }
+
+    private static double smooth(double current, double sample) {
+        return Double.isNaN(current) ? sample : current + SMOOTHING * (sample - current);
+    }
+}
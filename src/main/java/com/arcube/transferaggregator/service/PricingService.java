@@ -5,6 +5,7 @@ import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
 import com.arcube.transferaggregator.domain.Amenity;
 import com.arcube.transferaggregator.domain.Money;
 import com.arcube.transferaggregator.domain.Offer;
+import com.arcube.transferaggregator.domain.OfferRef;
 import com.arcube.transferaggregator.dto.PricingRequest;
 import com.arcube.transferaggregator.dto.PricingResponse;
 import com.arcube.transferaggregator.dto.PricingResponse.SelectedAmenity;
@@ -20,6 +21,7 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -51,7 +53,7 @@ public class PricingService {
             supplierCode, searchId, request.getAmenities());
 
         // Get cached search state to find the offer
-        OfferDto offer = findOfferFromCache(searchId, request.getOfferId());
+        OfferDto offer = findOfferFromCache(searchId, request.getOfferId(), payload);
         if (offer == null) {
             log.warn("Offer not found in cache: searchId={}, offerId={}", searchId, request.getOfferId());
             return PricingResponse.builder()
@@ -140,7 +142,7 @@ public class PricingService {
         );
     }
 
-    private OfferDto findOfferFromCache(String searchId, String offerId) {
+    private OfferDto findOfferFromCache(String searchId, String offerId, OfferPayload payload) {
         String cacheKey = CACHE_PREFIX + searchId;
         String json = redisTemplate.opsForValue().get(cacheKey);
         
@@ -151,7 +153,7 @@ public class PricingService {
         try {
             SearchStateDto state = objectMapper.readValue(json, SearchStateDto.class);
             return state.getOffers().stream()
-                .filter(o -> offerId.equals(o.getOfferId()))
+                .filter(o -> offerId.equals(o.getOfferId()) || isSameOffer(o.getRef(), payload))
                 .findFirst()
                 .orElse(null);
         } catch (JsonProcessingException e) {
@@ -160,6 +162,14 @@ public class PricingService {
         }
     }
 
+    // Offers in search state are unsigned until served; match them on the token's tuple
+    private boolean isSameOffer(OfferRef ref, OfferPayload payload) {
+        return ref != null
+            && Objects.equals(ref.supplierCode(), payload.supplierCode())
+            && Objects.equals(ref.searchId(), payload.searchId())
+            && Objects.equals(ref.resultId(), payload.resultId());
+    }
+
     private AmenityInfo getAmenityInfo(String key) {
         // Mock amenity data - in production, would come from supplier or database
         return switch (key) {
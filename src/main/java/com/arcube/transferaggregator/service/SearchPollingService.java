@@ -3,6 +3,7 @@ package com.arcube.transferaggregator.service;
 import com.arcube.transferaggregator.adapters.supplier.mock.SlowMockSupplierClient;
 import com.arcube.transferaggregator.domain.Amenity;
 import com.arcube.transferaggregator.domain.Offer;
+import com.arcube.transferaggregator.domain.OfferRef;
 import com.arcube.transferaggregator.dto.PageRequest;
 import com.arcube.transferaggregator.dto.SearchFilter;
 import com.arcube.transferaggregator.dto.SearchResponse;
@@ -18,6 +19,7 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 @Slf4j
@@ -31,15 +33,21 @@ public class SearchPollingService {
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
     private final OfferFilterService filterService;
+    private final OfferCollapseService collapseService;
+    private final OfferTokenIssuer tokenIssuer;
     
     public SearchPollingService(Optional<SlowMockSupplierClient> slowMockClient,
                                  StringRedisTemplate redisTemplate,
                                  ObjectMapper objectMapper,
-                                 OfferFilterService filterService) {
+                                 OfferFilterService filterService,
+                                 OfferCollapseService collapseService,
+                                 OfferTokenIssuer tokenIssuer) {
         this.slowMockClient = slowMockClient.orElse(null);
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
         this.filterService = filterService;
+        this.collapseService = collapseService;
+        this.tokenIssuer = tokenIssuer;
     }
     
     public void cacheSearchState(String searchId, SearchResponse response, 
@@ -98,14 +106,25 @@ public class SearchPollingService {
         }
         
         // Poll slow supplier if still incomplete
+        boolean wasIncomplete = state.isIncomplete();
         boolean stillIncomplete = false;
         if (state.isIncomplete() && slowMockClient != null) {
             String slowSearchId = state.getSupplierSearchIds().get("SLOW_STUB");
             if (slowSearchId != null && slowMockClient.hasSearch(slowSearchId)) {
                 SupplierSearchResult result = slowMockClient.poll(slowSearchId);
                 
+                // Offers seen on earlier polls keep their ingest time, and so their offerId
+                Map<String, Instant> ingestedAt = new HashMap<>();
+                for (OfferDto o : state.getOffers()) {
+                    if ("SLOW_STUB".equals(o.getSupplierCode()) && o.getRef() != null && o.getRef().issuedAt() != null) {
+                        ingestedAt.put(o.getRef().key(), o.getRef().issuedAt());
+                    }
+                }
                 state.getOffers().removeIf(o -> "SLOW_STUB".equals(o.getSupplierCode()));
-                state.getOffers().addAll(result.offers().stream().map(this::mapToDto).toList());
+                state.getOffers().addAll(result.offers().stream()
+                    .map(o -> keepIngestTime(mapToDto(o), ingestedAt))
+                    .toList());
+                tokenIssuer.recordIngested(result.offers().size());
                 
                 state.getStatuses().put("SLOW_STUB", SupplierStatusDto.builder()
                     .status(result.complete() ? "SUCCESS" : "POLLING")
@@ -126,17 +145,26 @@ public class SearchPollingService {
             log.error("Failed to update cache: {}", e.getMessage());
         }
         
-        // Apply filtering, sorting, pagination
-        OfferFilterService.FilterResult filterResult = 
-            filterService.filterAndSort(state.getOffers(), filter, sort, page);
+        // Filter before collapsing, so only matching offers become the best offer or its alternates
+        List<OfferDto> candidates = filterService.filter(state.getOffers(), filter);
+        if (collapseService.isEnabled(filter != null ? filter.getCollapseDuplicates() : null)) {
+            // Collapse metrics are taken once per search, on the complete and unfiltered list
+            if (wasIncomplete && !stillIncomplete) {
+                collapseService.collapse(state.getOffers());
+            }
+            candidates = collapseService.collapse(candidates, false);
+        }
+        
+        OfferFilterService.FilterResult filterResult = filterService.sortAndPage(candidates, sort, page);
         
         log.info("Poll {}: {} total offers, {} after filter, page {}/{}", 
             searchId, state.getOffers().size(), filterResult.getOffers().size(), 
-            page.getPage() + 1, filterResult.getTotalPages());
+            filterResult.getPage() + 1, filterResult.getTotalPages());
         
+        // Only the page being returned gets signed offerIds
         return SearchResponse.builder()
             .searchId(searchId)
-            .offers(filterResult.getOffers())
+            .offers(tokenIssuer.materialise(filterResult.getOffers()))
             .incomplete(stillIncomplete)
             .supplierStatuses(new HashMap<>(state.getStatuses()))
             .totalCount(filterResult.getTotalCount())
@@ -144,9 +172,30 @@ public class SearchPollingService {
             .totalPages(filterResult.getTotalPages())
             .hasNext(filterResult.isHasNext())
             .hasPrevious(filterResult.isHasPrevious())
+            .nextCursor(filterResult.getNextCursor())
             .build();
     }
     
+    /**
+     * Offers hidden behind offerId by best-offer collapse, cheapest first.
+     */
+    public List<OfferDto> getAlternates(String searchId, String offerId) {
+        String json = redisTemplate.opsForValue().get(CACHE_PREFIX + searchId);
+        if (json == null) {
+            log.warn("Alternates for unknown searchId: {}", searchId);
+            return List.of();
+        }
+        
+        try {
+            SearchStateDto state = objectMapper.readValue(json, SearchStateDto.class);
+            String stateKey = tokenIssuer.stateKeyOf(offerId);
+            return tokenIssuer.materialise(collapseService.alternatesOf(state.getOffers(), stateKey));
+        } catch (JsonProcessingException e) {
+            log.error("Failed to deserialize search state: {}", e.getMessage());
+            return List.of();
+        }
+    }
+    
     /**
      * Backward compatible poll without filters.
      */
@@ -154,9 +203,20 @@ public class SearchPollingService {
         return poll(searchId, null, SearchSort.byPrice(), PageRequest.first());
     }
     
+    private static OfferDto keepIngestTime(OfferDto offer, Map<String, Instant> ingestedAt) {
+        OfferRef ref = offer.getRef();
+        Instant issuedAt = ref != null ? ingestedAt.get(ref.key()) : null;
+        if (issuedAt == null) {
+            return offer;
+        }
+        return offer.toBuilder()
+            .ref(new OfferRef(ref.supplierCode(), ref.searchId(), ref.resultId(), ref.expiresAt(), issuedAt))
+            .build();
+    }
+    
     private OfferDto mapToDto(Offer o) {
         return OfferDto.builder()
-            .offerId(o.offerId()).supplierCode(o.supplierCode())
+            .offerId(o.offerId()).ref(o.ref()).supplierCode(o.supplierCode())
             .vehicle(o.vehicle()).provider(o.provider()).totalPrice(o.totalPrice())
             .cancellation(o.cancellation()).estimatedDurationMinutes(o.estimatedDurationMinutes())
             .distanceMeters(o.distanceMeters())
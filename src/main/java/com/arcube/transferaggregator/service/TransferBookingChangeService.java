@@ -10,6 +10,8 @@ import com.arcube.transferaggregator.dto.*;
 import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
 import com.arcube.transferaggregator.exception.SupplierNotFoundException;
 import com.arcube.transferaggregator.ports.*;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import com.arcube.transferaggregator.resilience.Deadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -26,6 +28,8 @@ public class TransferBookingChangeService {
     private final BookingIdCodec bookingIdCodec;
     private final OfferIdCodec offerIdCodec;
     private final AggregatorProperties properties;
+    private final OfferTokenIssuer tokenIssuer;
+    private final BookingLedger bookingLedger;
 
     /**
      * Step 1: Search for change options using supplier-native change search.
@@ -71,7 +75,9 @@ public class TransferBookingChangeService {
         // Check if supplier supports native reservation changes
         if (supplier instanceof ReservationChangeSupplier changeSupplier 
                 && changeSupplier.supportsReservationChanges()) {
-            return commitViaSupplierChangeEndpoint(request, oldBookingPayload, changeSupplier);
+            BookingChangeResponse response = commitViaSupplierChangeEndpoint(request, oldBookingPayload, changeSupplier);
+            bookingLedger.recordChange(request.getOldBookingId(), supplierCode, response);
+            return response;
         }
 
         // Fallback: not supported - requires manual cancel + re-book
@@ -95,8 +101,10 @@ public class TransferBookingChangeService {
             .currency("USD")
             .build();
 
-        Duration timeout = Duration.ofSeconds(properties.getGlobalTimeoutSeconds());
-        SupplierReservationChangeSearchResult result = supplier.searchForChange(command, timeout);
+        Deadline.checkCurrent("change search");
+        Deadline deadline = Deadline.within(Duration.ofSeconds(properties.getGlobalTimeoutSeconds()));
+        SupplierReservationChangeSearchResult result =
+            Deadline.callWithin(deadline, () -> supplier.searchForChange(command, deadline.remaining()));
 
         if (result.errorMessage() != null) {
             log.error("Reservation change search failed: {}", result.errorMessage());
@@ -107,9 +115,9 @@ public class TransferBookingChangeService {
                 .build();
         }
 
-        List<OfferDto> offerDtos = result.offers().stream()
+        List<OfferDto> offerDtos = tokenIssuer.materialise(result.offers().stream()
             .map(this::mapToOfferDto)
-            .toList();
+            .toList());
 
         log.info("Found {} change options for reservation {}", 
             offerDtos.size(), bookingPayload.reservationId());
@@ -139,8 +147,10 @@ public class TransferBookingChangeService {
             .useExistingPayment(request.isUseExistingPayment())
             .build();
 
-        Duration timeout = Duration.ofSeconds(properties.getGlobalTimeoutSeconds());
-        SupplierReservationChangeResult result = supplier.changeReservation(command, timeout);
+        Deadline.checkCurrent("change commit");
+        Deadline deadline = Deadline.within(Duration.ofSeconds(properties.getGlobalTimeoutSeconds()));
+        SupplierReservationChangeResult result =
+            Deadline.callWithin(deadline, () -> supplier.changeReservation(command, deadline.remaining()));
 
         if (result.status() == BookingStatus.FAILED) {
             return BookingChangeResponse.failed(result.errorCode(), result.errorMessage());
@@ -179,6 +189,7 @@ public class TransferBookingChangeService {
     private OfferDto mapToOfferDto(Offer o) {
         return OfferDto.builder()
             .offerId(o.offerId())
+            .ref(o.ref())
             .supplierCode(o.supplierCode())
             .vehicle(o.vehicle())
             .provider(o.provider())
@@ -10,7 +10,9 @@ import com.arcube.transferaggregator.exception.SupplierNotFoundException;
 import com.arcube.transferaggregator.ports.SupplierBookingResult;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.TransferSupplier;
-import com.github.benmanes.caffeine.cache.Cache;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import com.arcube.transferaggregator.resilience.Deadline;
+import com.arcube.transferaggregator.resilience.IdempotencyGuard;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -32,19 +34,22 @@ public class TransferBookingService {
     private final OfferIdCodec offerIdCodec;
     private final BookingIdCodec bookingIdCodec;
     private final AggregatorProperties properties;
-    private final Cache<String, BookResponse> idempotencyCache;
+    private final IdempotencyGuard idempotencyGuard;
+    private final BookingStatusTracker statusTracker;
+    private final BookingLedger bookingLedger;
     
+    /**
+     * Repeats with the same key get the first booking's result rather than booking again; for a
+     * pending booking that is being tracked, its latest status
+     */
     public BookResponse book(BookRequest request, String idempotencyKey) {
-        if (idempotencyKey == null || idempotencyKey.isBlank()) {
-            idempotencyKey = generateIdempotencyKey(request);
-        }
-        
-        BookResponse cached = idempotencyCache.getIfPresent(idempotencyKey);
-        if (cached != null) {
-            log.info("Returning cached response for idempotency key");
-            return cached;
-        }
-        
+        String key = idempotencyKey == null || idempotencyKey.isBlank()
+            ? generateIdempotencyKey(request)
+            : idempotencyKey;
+        return idempotencyGuard.execute(key, () -> doBook(request, key));
+    }
+    
+    private BookResponse doBook(BookRequest request, String idempotencyKey) {
         OfferPayload offerPayload = offerIdCodec.decode(request.getOfferId());
         log.info("Booking: supplier={}, searchId={}", offerPayload.supplierCode(), offerPayload.searchId());
         
@@ -52,16 +57,18 @@ public class TransferBookingService {
             .orElseThrow(() -> new SupplierNotFoundException(offerPayload.supplierCode()));
         
         BookCommand command = mapToCommand(request, offerPayload, idempotencyKey);
-        Duration timeout = Duration.ofSeconds(properties.getGlobalTimeoutSeconds());
-        SupplierBookingResult result = supplier.book(command, timeout);
+        Deadline.checkCurrent("booking");
+        Deadline deadline = Deadline.within(Duration.ofSeconds(properties.getGlobalTimeoutSeconds()));
+        SupplierBookingResult result = Deadline.callWithin(deadline, () -> supplier.book(command, deadline.remaining()));
         
         BookResponse response = mapToResponse(result, offerPayload.supplierCode());
         
-        if (result.status() != BookingStatus.PENDING) {
-            idempotencyCache.put(idempotencyKey, response);
-        }
-        
         log.info("Booking result: status={}", result.status());
+        bookingLedger.recordBooking(offerPayload.supplierCode(), response);
+        if (response.getStatus() == BookingStatus.PENDING && statusTracker.track(idempotencyKey,
+                offerPayload.supplierCode(), offerPayload.searchId(), result.reservationId(), response)) {
+            log.info("Tracking pending booking {}", response.getBookingId());
+        }
         return response;
     }
     
@@ -2,37 +2,76 @@ package com.arcube.transferaggregator.service;
 
 import com.arcube.transferaggregator.adapters.idcodec.BookingIdCodec;
 import com.arcube.transferaggregator.adapters.idcodec.BookingPayload;
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationLedgerProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
 import com.arcube.transferaggregator.domain.CancelCommand;
 import com.arcube.transferaggregator.dto.CancelResponse;
 import com.arcube.transferaggregator.exception.CancellationNotAllowedException;
 import com.arcube.transferaggregator.exception.SupplierNotFoundException;
+import com.arcube.transferaggregator.observability.SupplierMetrics;
 import com.arcube.transferaggregator.ports.SupplierCancelResult;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.TransferSupplier;
 import com.arcube.transferaggregator.resilience.CancellationDLQ;
+import com.arcube.transferaggregator.resilience.CancellationLedger;
 import com.arcube.transferaggregator.resilience.CancellationQueue;
 import com.arcube.transferaggregator.resilience.CancellationTask;
-import lombok.RequiredArgsConstructor;
+import com.arcube.transferaggregator.resilience.Deadline;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.*;
 
-/** Orchestrates cancellation operations with resilient retry queue */
+/**
+ * Orchestrates cancellation operations with resilient retry queue.
+ *
+ * Supplier cancels run on a shared virtual-thread executor; the caller waits up to the timeout
+ * and the call is interrupted if it hasn't answered by then, so a burst of cancels costs no
+ * platform threads. Latency and timeouts are recorded per supplier.
+ *
+ * Final outcomes go to the {@link CancellationLedger}, so status reads keep answering after the
+ * task has left the queue, and {@link #awaitStatusChange} lets a client wait for the outcome
+ * in one request instead of polling.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TransferCancellationService {
     
     private final SupplierRegistry supplierRegistry;
     private final BookingIdCodec bookingIdCodec;
     private final CancellationQueue cancellationQueue;
     private final CancellationDLQ cancellationDLQ;
+    private final CancellationLedger ledger;
+    private final SupplierMetrics supplierMetrics;
+    private final CancellationLedgerProperties ledgerProperties;
+    private final ExecutorService cancelExecutor = Executors.newVirtualThreadPerTaskExecutor();
     
-    private static final long TIMEOUT_SECONDS = 5;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    
+    @Autowired
+    public TransferCancellationService(SupplierRegistry supplierRegistry, BookingIdCodec bookingIdCodec,
+                                       CancellationQueue cancellationQueue, CancellationDLQ cancellationDLQ,
+                                       CancellationLedger ledger, SupplierMetrics supplierMetrics,
+                                       AggregatorProperties properties) {
+        this.supplierRegistry = supplierRegistry;
+        this.bookingIdCodec = bookingIdCodec;
+        this.cancellationQueue = cancellationQueue;
+        this.cancellationDLQ = cancellationDLQ;
+        this.ledger = ledger;
+        this.supplierMetrics = supplierMetrics;
+        this.ledgerProperties = properties.getCancellation().getLedger();
+    }
     
     public CancelResponse cancel(String bookingId) {
+        Deadline.checkCurrent("cancellation");
         BookingPayload payload = bookingIdCodec.decode(bookingId);
         log.info("Cancelling: supplier={}, reservationId={}", payload.supplierCode(), payload.reservationId());
         
@@ -57,7 +96,7 @@ public class TransferCancellationService {
         
         // Try cancellation with timeout
         try {
-            SupplierCancelResult result = executeWithTimeout(supplier, command);
+            SupplierCancelResult result = timedCancel(supplier, command);
             return handleResult(bookingId, payload, result);
         } catch (TimeoutException e) {
             // Supplier didn't respond in time - queue for retry
@@ -65,6 +104,9 @@ public class TransferCancellationService {
             queueForRetry(bookingId, payload);
             return CancelResponse.pending(bookingId, "Cancellation in progress, please check status");
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             log.error("Cancellation error: bookingId={}, error={}", bookingId, e.getMessage());
             queueForRetry(bookingId, payload);
             return CancelResponse.pending(bookingId, "Cancellation in progress, please check status");
@@ -87,7 +129,13 @@ public class TransferCancellationService {
                 "Cancellation failed after 3 retries. Error: " + dlq.get().lastError());
         }
         
-        // Not in queue - either completed or never started
+        // Finished recently: cancelled, already cancelled or dead-lettered
+        Optional<CancelResponse> outcome = ledger.get(bookingId);
+        if (outcome.isPresent()) {
+            return outcome.get();
+        }
+        
+        // Not in queue - either completed before the ledger TTL or never started
         return CancelResponse.builder()
             .bookingId(bookingId)
             .status("UNKNOWN")
@@ -95,14 +143,79 @@ public class TransferCancellationService {
             .build();
     }
     
+    /**
+     * Long-poll for a cancellation's status: answers as soon as it differs from what it is now,
+     * or with the current status once the wait (capped at ledger.max-wait) runs out.
+     * A final status (cancelled or failed) is returned straight away.
+     *
+     * Waits on outcomes recorded by this instance, and re-reads every recheck-interval to pick up
+     * changes made by other instances through the shared queue, DLQ and ledger.
+     */
+    public Mono<CancelResponse> awaitStatusChange(String bookingId, Duration wait) {
+        Duration maxWait = ledgerProperties.getMaxWait();
+        Duration timeout = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        Mono<CancelResponse> read = Mono.fromCallable(() -> getStatus(bookingId))
+            .subscribeOn(Schedulers.boundedElastic());
+        
+        return read.flatMap(initial -> {
+            if (isFinal(initial) || timeout.isNegative() || timeout.isZero()) {
+                return Mono.just(initial);
+            }
+            // The interval fires once straight away, so a change made before the subscription isn't missed
+            return Flux.merge(
+                    ledger.changes().filter(bookingId::equals).map(id -> 0L),
+                    Flux.interval(Duration.ZERO, ledgerProperties.getRecheckInterval()))
+                .concatMap(signal -> read)
+                .filter(current -> !current.getStatus().equals(initial.getStatus()))
+                .next()
+                .timeout(timeout, read);
+        });
+    }
+    
+    private static boolean isFinal(CancelResponse status) {
+        return BookingStatus.CANCELLED.name().equals(status.getStatus())
+            || BookingStatus.FAILED.name().equals(status.getStatus());
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        cancelExecutor.shutdownNow();
+    }
+    
     protected SupplierCancelResult executeWithTimeout(TransferSupplier supplier, CancelCommand command) 
             throws TimeoutException, ExecutionException, InterruptedException {
-        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
-            Future<SupplierCancelResult> future = executor.submit(() -> supplier.cancel(command));
-            try {
-                return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            } finally {
-                executor.shutdownNow();
+        // 5s or the caller's deadline if sooner; the supplier call runs under the same deadline
+        Deadline deadline = Deadline.within(TIMEOUT);
+        Future<SupplierCancelResult> future = cancelExecutor.submit(
+            () -> Deadline.callWithin(deadline, () -> supplier.cancel(command)));
+        try {
+            return future.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            future.cancel(true);  // Interrupt the supplier call rather than leave it running
+            throw e;
+        }
+    }
+    
+    // Supplier call with per-supplier latency, outcome and timeout metrics
+    private SupplierCancelResult timedCancel(TransferSupplier supplier, CancelCommand command)
+            throws TimeoutException, ExecutionException, InterruptedException {
+        String supplierCode = command.supplierCode();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            SupplierCancelResult result = executeWithTimeout(supplier, command);
+            outcome = result.isSuccess() ? "success" : "failure";
+            return result;
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            supplierMetrics.recordCancelTimeout(supplierCode);
+            throw e;
+        } finally {
+            supplierMetrics.recordCancelLatency(supplierCode, outcome, Duration.ofNanos(System.nanoTime() - start));
+            if ("success".equals(outcome)) {
+                supplierMetrics.recordCancelSuccess(supplierCode);
+            } else {
+                supplierMetrics.recordCancelFailure(supplierCode, outcome);
             }
         }
     }
@@ -117,10 +230,11 @@ public class TransferCancellationService {
         
         log.info("Cancellation result: alreadyCancelled={}", result.alreadyCancelled());
         
-        if (result.alreadyCancelled()) {
-            return CancelResponse.alreadyCancelled(bookingId);
-        }
-        return CancelResponse.success(bookingId, result.refundAmount());
+        CancelResponse response = result.alreadyCancelled()
+            ? CancelResponse.alreadyCancelled(bookingId)
+            : CancelResponse.success(bookingId, result.refundAmount());
+        ledger.record(response);
+        return response;
     }
     
     private void queueForRetry(String bookingId, BookingPayload payload) {
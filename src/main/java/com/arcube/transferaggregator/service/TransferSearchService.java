@@ -1,6 +1,7 @@
 package com.arcube.transferaggregator.service;
 
 import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.DegradedSupplierPolicy;
 import com.arcube.transferaggregator.config.TenantConfig;
 import com.arcube.transferaggregator.config.TenantContext;
 import com.arcube.transferaggregator.domain.*;
@@ -11,15 +12,18 @@ import com.arcube.transferaggregator.dto.SearchResponse.SupplierStatusDto;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.SupplierSearchResult;
 import com.arcube.transferaggregator.ports.TransferSupplier;
+import com.arcube.transferaggregator.resilience.Deadline;
 import com.arcube.transferaggregator.resilience.RateLimiter;
 import com.arcube.transferaggregator.resilience.SupplierBulkhead;
 import com.arcube.transferaggregator.resilience.SupplierCircuitBreaker;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.Decision;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.Outcome;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -36,14 +40,20 @@ public class TransferSearchService {
     private final SearchPollingService pollingService;
     private final SupplierCircuitBreaker circuitBreaker;
     private final TenantConfig tenantConfig;
+    private final OfferCollapseService collapseService;
+    private final OfferTokenIssuer tokenIssuer;
+    private final SupplierHealthScoreboard healthScoreboard;
     
     public SearchResponse search(SearchRequest request) {
+        Deadline.checkCurrent("search");
         var searchId = UUID.randomUUID().toString();
-        var deadline = Instant.now().plusSeconds(properties.getGlobalTimeoutSeconds());
+        // The caller's deadline, if sooner; every supplier call below runs under it
+        var deadline = Deadline.within(Duration.ofSeconds(properties.getGlobalTimeoutSeconds()));
         var command = mapToCommand(request);
         
         // Get current tenant from context
         String tenantId = TenantContext.getTenantIdOrDefault(tenantConfig.getDefaultTenant());
+        rateLimiter.acquireTenantSearchPermit(tenantId);
         
         // Filter suppliers by tenant configuration
         List<TransferSupplier> suppliers = supplierRegistry.getEnabledSuppliers().stream()
@@ -59,56 +69,111 @@ public class TransferSearchService {
                 .build();
         }
         
+        // Degraded suppliers are handled per the tenant's policy
+        DegradedSupplierPolicy policy = tenantConfig.getDegradedSupplierPolicy(tenantId);
+        
         // Fan out to suppliers in parallel with bulkhead and circuit breaker protection
-        Map<String, CompletableFuture<SupplierSearchResult>> futures = new HashMap<>();
+        Map<String, CompletableFuture<SupplierSearchResult>> futures = new LinkedHashMap<>();
+        Map<String, SupplierStatusDto> statuses = new HashMap<>();
+        List<TransferSupplier> deprioritised = new ArrayList<>();
         for (TransferSupplier supplier : suppliers) {
             String code = supplier.getSupplierCode();
+            Decision decision = healthScoreboard.decide(code, policy);
             
             // Skip if circuit breaker is open
             if (circuitBreaker.isOpen(code)) {
                 log.warn("Skipping supplier {} - circuit breaker OPEN", code);
+                statuses.put(code, SupplierStatusDto.builder()
+                    .status("CIRCUIT_OPEN")
+                    .errorMessage("Circuit breaker open - supplier temporarily unavailable")
+                    .build());
                 continue;
             }
-            
-            Duration timeout = Duration.between(Instant.now(), deadline);
-            if (timeout.isNegative()) timeout = Duration.ofMillis(100);
-            Duration finalTimeout = timeout;
-            
-            futures.put(code, CompletableFuture.supplyAsync(() -> {
-                rateLimiter.acquireSearchPermit(code);
-                
-                // Execute within bulkhead AND circuit breaker
-                return circuitBreaker.execute(
-                    code,
-                    () -> bulkhead.execute(() -> supplier.search(command, finalTimeout)),
-                    () -> createFallbackResult(code)  // Fallback on circuit open
-                );
-            }));
+            if (decision == Decision.SKIP) {
+                skipDegraded(code, decision, statuses);
+                continue;
+            }
+            if (decision == Decision.DEPRIORITISE) {
+                deprioritised.add(supplier);
+                continue;
+            }
+            futures.put(code, dispatch(supplier, command, deadline, decision));
         }
         
         // Gather results
         List<Offer> allOffers = new ArrayList<>();
-        Map<String, SupplierStatusDto> statuses = new HashMap<>();
         Map<String, String> supplierSearchIds = new HashMap<>();
-        boolean incomplete = false;
+        boolean incomplete = !statuses.isEmpty();  // Some suppliers were skipped
+        incomplete |= gather(futures, deadline, allOffers, supplierSearchIds, statuses);
         
-        // Mark skipped suppliers
-        for (TransferSupplier supplier : suppliers) {
-            String code = supplier.getSupplierCode();
-            if (!futures.containsKey(code)) {
-                statuses.put(code, SupplierStatusDto.builder()
-                    .status("CIRCUIT_OPEN")
-                    .errorMessage("Circuit breaker open - supplier temporarily unavailable")
-                    .build());
-                incomplete = true;
+        // Deprioritised suppliers are called once the others have answered, with the time they left,
+        // so they never hold bulkhead capacity a healthy supplier needed
+        if (!deprioritised.isEmpty()) {
+            futures.clear();
+            for (TransferSupplier supplier : deprioritised) {
+                if (deadline.remaining().isZero()) {
+                    skipDegraded(supplier.getSupplierCode(), Decision.DEPRIORITISE, statuses);
+                    incomplete = true;
+                } else {
+                    futures.put(supplier.getSupplierCode(),
+                        dispatch(supplier, command, deadline, Decision.DEPRIORITISE));
+                }
             }
+            incomplete |= gather(futures, deadline, allOffers, supplierSearchIds, statuses);
+        }
+        
+        log.info("Search {} complete: {} offers, incomplete={}", searchId, allOffers.size(), incomplete);
+        List<OfferDto> offerDtos = allOffers.stream().map(this::mapToOfferDto).toList();
+        tokenIssuer.recordIngested(offerDtos.size());
+        SearchResponse response = SearchResponse.builder()
+            .searchId(searchId)
+            .offers(offerDtos)
+            .incomplete(incomplete)
+            .supplierStatuses(statuses)
+            .build();
+        
+        // Collapsed searches are cached too, so alternates can be served on demand
+        boolean collapse = collapseService.isEnabled(request.getCollapseDuplicates());
+        if (incomplete || collapse) {
+            pollingService.cacheSearchState(searchId, response, supplierSearchIds);
         }
+        // State keeps unsigned refs; only what this response carries gets signed offerIds.
+        // An incomplete search has its collapse metrics taken by the poll that completes it
+        response.setOffers(tokenIssuer.materialise(
+            collapse ? collapseService.collapse(offerDtos, !incomplete) : offerDtos));
+        
+        return response;
+    }
+    
+    private CompletableFuture<SupplierSearchResult> dispatch(TransferSupplier supplier, SearchCommand command,
+                                                            Deadline deadline, Decision decision) {
+        String code = supplier.getSupplierCode();
+        Duration timeout = deadline.remaining();
+        if (timeout.isZero()) timeout = Duration.ofMillis(100);
+        if (decision == Decision.SHORTEN_TIMEOUT) timeout = healthScoreboard.shortenedTimeout(timeout);
+        Duration finalTimeout = timeout;
         
+        return CompletableFuture.supplyAsync(() -> Deadline.callWithin(deadline, () -> {
+            rateLimiter.acquireSearchPermit(code);
+            
+            // Execute within bulkhead AND circuit breaker
+            return circuitBreaker.execute(
+                code,
+                () -> bulkhead.execute(() -> searchAndScore(supplier, command, finalTimeout)),
+                () -> createFallbackResult(code)  // Fallback on circuit open
+            );
+        }));
+    }
+    
+    /** Waits for each call until the deadline; true if any supplier left the search incomplete */
+    private boolean gather(Map<String, CompletableFuture<SupplierSearchResult>> futures, Deadline deadline,
+                           List<Offer> allOffers, Map<String, String> supplierSearchIds,
+                           Map<String, SupplierStatusDto> statuses) {
+        boolean incomplete = false;
         for (var entry : futures.entrySet()) {
             String code = entry.getKey();
             try {
-                Duration remaining = Duration.between(Instant.now(), deadline);
-                SupplierSearchResult result = entry.getValue().get(Math.max(100, remaining.toMillis()), TimeUnit.MILLISECONDS);
+                SupplierSearchResult result = entry.getValue().get(Math.max(100, deadline.remaining().toMillis()), TimeUnit.MILLISECONDS);
                 allOffers.addAll(result.offers());
                 supplierSearchIds.put(code, result.searchId());
                 
@@ -126,20 +191,30 @@ public class TransferSearchService {
                 incomplete = true;
             }
         }
-        
-        log.info("Search {} complete: {} offers, incomplete={}", searchId, allOffers.size(), incomplete);
-        SearchResponse response = SearchResponse.builder()
-            .searchId(searchId)
-            .offers(allOffers.stream().map(this::mapToOfferDto).toList())
-            .incomplete(incomplete)
-            .supplierStatuses(statuses)
-            .build();
-        
-        if (incomplete) {
-            pollingService.cacheSearchState(searchId, response, supplierSearchIds);
+        return incomplete;
+    }
+    
+    private void skipDegraded(String code, Decision decision, Map<String, SupplierStatusDto> statuses) {
+        log.warn("Skipping supplier {} - degraded ({})", code, decision);
+        statuses.put(code, SupplierStatusDto.builder()
+            .status("DEGRADED")
+            .errorMessage("Supplier degraded - skipped for this search")
+            .build());
+    }
+    
+    /** Calls the supplier and feeds the outcome to the health scoreboard */
+    private SupplierSearchResult searchAndScore(TransferSupplier supplier, SearchCommand command, Duration timeout) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            SupplierSearchResult result = supplier.search(command, timeout);
+            if (result.errorMessage() == null && !result.timedOut()) {
+                outcome = result.complete() && result.offers().isEmpty() ? Outcome.EMPTY : Outcome.RESULTS;
+            }
+            return result;
+        } finally {
+            healthScoreboard.record(supplier.getSupplierCode(), Duration.ofNanos(System.nanoTime() - start), outcome);
         }
-        
-        return response;
     }
     
     private SupplierSearchResult createFallbackResult(String supplierCode) {
@@ -167,7 +242,7 @@ public class TransferSearchService {
     
     private OfferDto mapToOfferDto(Offer o) {
         return OfferDto.builder()
-            .offerId(o.offerId()).supplierCode(o.supplierCode())
+            .offerId(o.offerId()).ref(o.ref()).supplierCode(o.supplierCode())
             .vehicle(o.vehicle()).provider(o.provider()).totalPrice(o.totalPrice())
             .cancellation(o.cancellation()).estimatedDurationMinutes(o.estimatedDurationMinutes())
             .distanceMeters(o.distanceMeters())
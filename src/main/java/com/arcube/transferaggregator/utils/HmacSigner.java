@@ -5,13 +5,24 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-/** Shared HMAC-SHA256 signing utility for token generation */
+/**
+ * Shared HMAC-SHA256 signing utility for token generation.
+ * Holds a key ring: the active key (security.token.key-id) signs, retired keys only verify.
+ * Each key keeps one initialised Mac as a prototype; calls sign with a clone of it, which
+ * skips provider lookup and key setup and needs no locking or thread-locals.
+ */
 @Component
 @RequiredArgsConstructor
 public class HmacSigner {
@@ -20,22 +31,76 @@ public class HmacSigner {
     public static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
     public static final Base64.Decoder URL_DECODER = Base64.getUrlDecoder();
 
+    /** Length in bytes of a raw signature */
+    public static final int SIGNATURE_LENGTH = 32;
+
     private final TokenProperties tokenProperties;
+    private final ConcurrentMap<String, SigningKey> keys = new ConcurrentHashMap<>();
+
+    /** Key id new tokens should embed */
+    public String activeKeyId() {
+        return tokenProperties.getKeyId();
+    }
 
     /** Signs the given data using HMAC-SHA256 and returns a URL-safe Base64 encoded signature */
     public String sign(String data) {
+        return sign(activeKeyId(), data);
+    }
+
+    /** Signs with a specific key from the ring */
+    public String sign(String keyId, String data) {
         try {
-            Mac mac = createMac();
-            mac.init(new SecretKeySpec(
-                tokenProperties.getSecret().getBytes(StandardCharsets.UTF_8), 
-                HMAC_ALG
-            ));
-            return URL_ENCODER.encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+            return URL_ENCODER.encodeToString(mac(keyId).doFinal(data.getBytes(StandardCharsets.UTF_8)));
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
             throw new RuntimeException("Failed to sign data", e);
         }
     }
 
+    /** Signs data[offset, offset+length) and writes the raw SIGNATURE_LENGTH-byte signature into out at outOffset */
+    public void sign(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        sign(activeKeyId(), data, offset, length, out, outOffset);
+    }
+
+    public void sign(String keyId, byte[] data, int offset, int length, byte[] out, int outOffset) {
+        try {
+            Mac mac = mac(keyId);
+            mac.update(data, offset, length);
+            mac.doFinal(out, outOffset);
+        } catch (NoSuchAlgorithmException | InvalidKeyException | ShortBufferException e) {
+            throw new RuntimeException("Failed to sign data", e);
+        }
+    }
+
+    /**
+     * Checks a URL-safe Base64 signature in constant time. A null keyId (tokens issued before
+     * key ids existed) is tried against every key in the ring; an unknown keyId never verifies.
+     */
+    public boolean verify(String keyId, String data, String signature) {
+        byte[] expected;
+        try {
+            expected = URL_DECODER.decode(signature);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        return verify(keyId, bytes, 0, bytes.length, expected);
+    }
+
+    /** Raw-signature variant of {@link #verify(String, String, String)} */
+    public boolean verify(String keyId, byte[] data, int offset, int length, byte[] signature) {
+        byte[] actual = new byte[SIGNATURE_LENGTH];
+        for (String candidate : keyId != null ? List.of(keyId) : keyIds()) {
+            if (secretFor(candidate) == null) {
+                continue;
+            }
+            sign(candidate, data, offset, length, actual, 0);
+            if (MessageDigest.isEqual(actual, signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected Mac createMac() throws NoSuchAlgorithmException {
         return Mac.getInstance(HMAC_ALG);
     }
@@ -49,4 +114,55 @@ public class HmacSigner {
     public String decode(String encoded) {
         return new String(URL_DECODER.decode(encoded), StandardCharsets.UTF_8);
     }
+
+    private Mac mac(String keyId) throws NoSuchAlgorithmException, InvalidKeyException {
+        SigningKey key = keys.get(keyId);
+        if (key == null) {
+            key = keys.computeIfAbsent(keyId, this::newKey);
+        }
+
+        if (key.prototype() != null) {
+            try {
+                return (Mac) key.prototype().clone();
+            } catch (CloneNotSupportedException e) {
+                // Provider can't clone; initialise per call below
+            }
+        }
+        Mac mac = createMac();
+        mac.init(key.spec());
+        return mac;
+    }
+
+    // Prototype is created lazily so a broken provider surfaces on sign, not at startup
+    private SigningKey newKey(String keyId) {
+        String secret = secretFor(keyId);
+        if (secret == null) {
+            throw new IllegalArgumentException("Unknown token key id: " + keyId);
+        }
+
+        SecretKeySpec spec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALG);
+        try {
+            Mac prototype = createMac();
+            prototype.init(spec);
+            return new SigningKey(spec, prototype);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            return new SigningKey(spec, null);
+        }
+    }
+
+    private String secretFor(String keyId) {
+        if (keyId.equals(tokenProperties.getKeyId())) {
+            return tokenProperties.getSecret();
+        }
+        return tokenProperties.getPreviousSecrets().get(keyId);
+    }
+
+    private List<String> keyIds() {
+        List<String> ids = new ArrayList<>(1 + tokenProperties.getPreviousSecrets().size());
+        ids.add(tokenProperties.getKeyId());
+        ids.addAll(tokenProperties.getPreviousSecrets().keySet());
+        return ids;
+    }
+
+    private record SigningKey(SecretKeySpec spec, Mac prototype) {}
 }
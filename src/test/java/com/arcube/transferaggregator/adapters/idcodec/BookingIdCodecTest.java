@@ -133,4 +133,20 @@ class BookingIdCodecTest {
             .isInstanceOf(InvalidTokenException.class)
             .hasMessageContaining("Failed to decode booking token");
     }
+
+    @Test
+    void bookingTokensSurviveKeyRotation() {
+        BookingPayload payload = BookingPayload.of("STUB", "res-123", "CONF-1");
+        String issued = codec().encode(payload);
+
+        TokenProperties rotated = new TokenProperties();
+        rotated.setSecret("abcdefghijklmnopqrstuvwxyzABCDEF0123456789");
+        rotated.setKeyId("k2");
+        rotated.getPreviousSecrets().put("k1", "01234567890123456789012345678901");
+        rotated.validate();
+        BookingIdCodec codec = new BookingIdCodec(new HmacSigner(rotated), new ObjectMapper());
+
+        assertThat(codec.decode(issued).reservationId()).isEqualTo("res-123");
+        assertThat(codec.decode(codec.encode(payload)).reservationId()).isEqualTo("res-123");
+    }
 }
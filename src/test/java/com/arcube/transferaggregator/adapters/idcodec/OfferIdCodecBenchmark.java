@@ -0,0 +1,77 @@
+package com.arcube.transferaggregator.adapters.idcodec;
+
+import com.arcube.transferaggregator.config.TokenProperties;
+import com.arcube.transferaggregator.utils.HmacSigner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legacy JSON offer tokens vs the compact binary format.
+ * Add {@code -prof gc} on the JMH command line to compare allocation per token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferIdCodecBenchmark {
+
+    private HmacSigner signer;
+    private ObjectMapper objectMapper;
+    private OfferIdCodec codec;
+    private OfferPayload payload;
+    private String legacyToken;
+    private String binaryToken;
+
+    @Setup
+    public void setUp() throws Exception {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        signer = new HmacSigner(props);
+        objectMapper = new ObjectMapper();
+        codec = new OfferIdCodec(signer, objectMapper);
+        payload = OfferPayload.of("MOZIO", "7f3c2a9e-5b1d-4c8e-9a6f-2d4b8e1c3a5f", "res-000123456",
+            Instant.now().plusSeconds(3_600));
+        legacyToken = encodeLegacy(payload);
+        binaryToken = codec.encode(payload);
+    }
+
+    @Benchmark
+    public String encodeLegacy() throws Exception {
+        return encodeLegacy(payload);
+    }
+
+    @Benchmark
+    public String encodeBinary() {
+        return codec.encode(payload);
+    }
+
+    @Benchmark
+    public OfferPayload decodeLegacy() {
+        return codec.decode(legacyToken);
+    }
+
+    @Benchmark
+    public OfferPayload decodeBinary() {
+        return codec.decode(binaryToken);
+    }
+
+    /** The encode path this codec had before the binary format */
+    private String encodeLegacy(OfferPayload payload) throws Exception {
+        var payloadMap = Map.of(
+            "sup", payload.supplierCode(),
+            "sid", payload.searchId(),
+            "rid", payload.resultId(),
+            "exp", payload.expiresAt().getEpochSecond(),
+            "iat", payload.issuedAt().getEpochSecond()
+        );
+        String payloadBase64 = signer.encode(objectMapper.writeValueAsString(payloadMap));
+        return payloadBase64 + "." + signer.sign(payloadBase64);
+    }
+}
@@ -4,7 +4,6 @@ import com.arcube.transferaggregator.config.TokenProperties;
 import com.arcube.transferaggregator.exception.InvalidTokenException;
 import com.arcube.transferaggregator.exception.OfferExpiredException;
 import com.arcube.transferaggregator.utils.HmacSigner;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
@@ -17,6 +16,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class OfferIdCodecTest {
@@ -81,21 +81,141 @@ class OfferIdCodecTest {
     }
 
     @Test
-    void encodeThrowsWhenJsonFails() throws Exception {
+    void encodeWritesCompactBinaryPayloadWithoutJackson() {
         ObjectMapper mapper = mock(ObjectMapper.class);
-        when(mapper.writeValueAsString(any())).thenThrow(new JsonProcessingException("boom") {});
 
         TokenProperties props = new TokenProperties();
         props.setSecret("01234567890123456789012345678901");
         props.validate();
         OfferIdCodec codec = new OfferIdCodec(new HmacSigner(props), mapper);
 
-        OfferPayload payload = OfferPayload.of("S", "sid", "rid",
+        OfferPayload payload = OfferPayload.of("MOZIO", "search-1", "result-2",
             Instant.now().plus(1, ChronoUnit.MINUTES));
+        String token = codec.encode(payload);
+
+        byte[] payloadBytes = HmacSigner.URL_DECODER.decode(token.substring(0, token.indexOf('.')));
+        assertThat(payloadBytes[0]).isEqualTo(OfferTokenFormat.VERSION_2);
+        assertThat(payloadBytes).hasSizeLessThan(40);
+        verifyNoInteractions(mapper);
+    }
+
+    @Test
+    void binaryTokenMatchesJdkBase64AndRoundTripsNonAsciiIds() {
+        OfferIdCodec codec = codec();
+        Instant expiresAt = Instant.ofEpochSecond(Instant.now().getEpochSecond() + 600);
+        OfferPayload payload = new OfferPayload("SKYRIDE", "recherche-é", "résultat-ü",
+            expiresAt, Instant.ofEpochSecond(1_700_000_000L));
+
+        String token = codec.encode(payload);
+        assertThat(token).matches("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]{43}");
+
+        OfferPayload decoded = codec.decode(token);
+        assertThat(decoded).isEqualTo(payload);
+    }
+
+    @Test
+    void decodesLegacyJsonTokens() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        HmacSigner signer = new HmacSigner(props);
+        OfferIdCodec codec = new OfferIdCodec(signer, new ObjectMapper());
+
+        long exp = Instant.now().plus(5, ChronoUnit.MINUTES).getEpochSecond();
+        String payloadJson = "{\"sup\":\"MOZIO\",\"sid\":\"s1\",\"rid\":\"r1\",\"exp\":" + exp + ",\"iat\":1700000000}";
+        String payloadBase64 = signer.encode(payloadJson);
+        String token = payloadBase64 + "." + signer.sign(payloadBase64);
+
+        OfferPayload decoded = codec.decode(token);
+
+        assertThat(decoded.supplierCode()).isEqualTo("MOZIO");
+        assertThat(decoded.searchId()).isEqualTo("s1");
+        assertThat(decoded.resultId()).isEqualTo("r1");
+        assertThat(decoded.expiresAt()).isEqualTo(Instant.ofEpochSecond(exp));
+    }
+
+    @Test
+    void decodeRejectsSignedButMalformedBinaryPayload() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        HmacSigner signer = new HmacSigner(props);
+        OfferIdCodec codec = new OfferIdCodec(signer, new ObjectMapper());
+
+        // Version byte, then a string length running past the end
+        byte[] buf = {OfferTokenFormat.VERSION_1, 0x01, 0x01, 0x7F, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        int payloadLength = buf.length - HmacSigner.SIGNATURE_LENGTH;
+        signer.sign(buf, 0, payloadLength, buf, payloadLength);
+        String token = OfferTokenFormat.toToken(buf, payloadLength);
+
+        assertThatThrownBy(() -> codec.decode(token))
+            .isInstanceOf(InvalidTokenException.class)
+            .hasMessage("Invalid token format");
+    }
+
+    @Test
+    void tokensSignedWithRetiredKeyStillDecodeAfterRotation() {
+        TokenProperties before = new TokenProperties();
+        before.setSecret("01234567890123456789012345678901");
+        before.validate();
+        OfferPayload payload = OfferPayload.of("MOZIO", "search-1", "result-2",
+            Instant.now().plus(10, ChronoUnit.MINUTES));
+        String issuedBeforeRotation = new OfferIdCodec(new HmacSigner(before), new ObjectMapper()).encode(payload);
+
+        TokenProperties after = new TokenProperties();
+        after.setSecret("abcdefghijklmnopqrstuvwxyzABCDEF0123456789");
+        after.setKeyId("k2");
+        after.getPreviousSecrets().put("k1", "01234567890123456789012345678901");
+        after.validate();
+        OfferIdCodec rotated = new OfferIdCodec(new HmacSigner(after), new ObjectMapper());
+
+        assertThat(rotated.decode(issuedBeforeRotation).resultId()).isEqualTo("result-2");
+        assertThat(rotated.decode(rotated.encode(payload)).resultId()).isEqualTo("result-2");
+
+        TokenProperties retired = new TokenProperties();
+        retired.setSecret("abcdefghijklmnopqrstuvwxyzABCDEF0123456789");
+        retired.setKeyId("k2");
+        retired.validate();
+        OfferIdCodec withoutOldKey = new OfferIdCodec(new HmacSigner(retired), new ObjectMapper());
+        assertThatThrownBy(() -> withoutOldKey.decode(issuedBeforeRotation))
+            .isInstanceOf(InvalidTokenException.class)
+            .hasMessage("Token signature verification failed");
+    }
+
+    @Test
+    void decodesVersionOneBinaryTokensWithoutKeyId() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        HmacSigner signer = new HmacSigner(props);
+        OfferIdCodec codec = new OfferIdCodec(signer, new ObjectMapper());
+
+        long exp = Instant.now().plus(5, ChronoUnit.MINUTES).getEpochSecond();
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        out.write(OfferTokenFormat.VERSION_1);
+        writeVarint(out, exp);
+        writeVarint(out, exp - 600);
+        for (String id : new String[] {"STUB", "s1", "r1"}) {
+            writeVarint(out, id.length());
+            out.writeBytes(id.getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        }
+        byte[] payloadBytes = out.toByteArray();
+        byte[] buf = java.util.Arrays.copyOf(payloadBytes, payloadBytes.length + HmacSigner.SIGNATURE_LENGTH);
+        signer.sign(buf, 0, payloadBytes.length, buf, payloadBytes.length);
+
+        OfferPayload decoded = codec.decode(OfferTokenFormat.toToken(buf, payloadBytes.length));
+
+        assertThat(decoded.supplierCode()).isEqualTo("STUB");
+        assertThat(decoded.expiresAt()).isEqualTo(Instant.ofEpochSecond(exp));
+    }
 
-        assertThatThrownBy(() -> codec.encode(payload))
-            .isInstanceOf(RuntimeException.class)
-            .hasMessageContaining("Failed to encode offer payload");
+    private static void writeVarint(java.io.ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
     }
 
     @Test
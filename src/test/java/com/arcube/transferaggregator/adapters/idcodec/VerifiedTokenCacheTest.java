@@ -0,0 +1,154 @@
+package com.arcube.transferaggregator.adapters.idcodec;
+
+import com.arcube.transferaggregator.config.TokenProperties;
+import com.arcube.transferaggregator.exception.InvalidTokenException;
+import com.arcube.transferaggregator.exception.OfferExpiredException;
+import com.arcube.transferaggregator.utils.HmacSigner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VerifiedTokenCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private static TokenProperties props() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        return props;
+    }
+
+    private VerifiedTokenCache<OfferPayload> offerCache(TokenProperties props) {
+        return VerifiedTokenCache.create("offer", props.getCache(), registry, OfferPayload::expiresAt);
+    }
+
+    @Test
+    void repeatedOfferDecodeVerifiesOnce() {
+        TokenProperties props = props();
+        HmacSigner signer = spy(new HmacSigner(props));
+        OfferIdCodec codec = new OfferIdCodec(signer, new ObjectMapper(), offerCache(props));
+        String token = codec.encode(OfferPayload.of("MOZIO", "s1", "r1", Instant.now().plus(10, ChronoUnit.MINUTES)));
+
+        OfferPayload first = codec.decode(token);
+        OfferPayload second = codec.decode(token);
+
+        assertThat(second).isSameAs(first);
+        verify(signer, times(1)).verify(anyString(), any(byte[].class), anyInt(), anyInt(), any(byte[].class));
+    }
+
+    @Test
+    void cachedOfferStillExpires() {
+        TokenProperties props = props();
+        ManualClock clock = new ManualClock(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        VerifiedTokenCache<OfferPayload> cache = VerifiedTokenCache.create(
+            "offer", props.getCache(), registry, OfferPayload::expiresAt, clock, clock);
+        OfferIdCodec codec = new OfferIdCodec(new HmacSigner(props), new ObjectMapper(), cache, clock);
+        String token = codec.encode(new OfferPayload("MOZIO", "s1", "r1", clock.instant().plusSeconds(1), clock.instant()));
+        codec.decode(token);
+
+        clock.advance(Duration.ofSeconds(2));
+
+        assertThat(cache.size()).isZero();
+        assertThatThrownBy(() -> codec.decode(token)).isInstanceOf(OfferExpiredException.class);
+    }
+
+    @Test
+    void failedDecodesAreNotCached() {
+        TokenProperties props = props();
+        VerifiedTokenCache<OfferPayload> cache = offerCache(props);
+        OfferIdCodec codec = new OfferIdCodec(new HmacSigner(props), new ObjectMapper(), cache);
+        String token = codec.encode(OfferPayload.of("MOZIO", "s1", "r1", Instant.now().plus(10, ChronoUnit.MINUTES)));
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThatThrownBy(() -> codec.decode(tampered)).isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> codec.decode(tampered)).isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> codec.decode(null)).isInstanceOf(InvalidTokenException.class);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void bookingDecodesAreCachedWithHitRatio() {
+        TokenProperties props = props();
+        VerifiedTokenCache<BookingPayload> cache =
+            VerifiedTokenCache.create("booking", props.getCache(), registry, payload -> null);
+        BookingIdCodec codec = new BookingIdCodec(new HmacSigner(props), new ObjectMapper(), cache);
+        String token = codec.encode(BookingPayload.of("MOZIO", "res-1", "CONF-1"));
+
+        codec.decode(token);
+        codec.decode(token);
+        codec.decode(token);
+        codec.decode(token);
+
+        assertThat(registry.get("transfer.tokens.cache.hit.ratio").tag("token", "booking").gauge().value())
+            .isEqualTo(0.75);
+        assertThat(registry.get("cache.gets").tag("cache", "verifiedTokens").tag("token", "booking")
+            .tag("result", "hit").functionCounter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void disabledCacheAlwaysVerifies() {
+        TokenProperties props = props();
+        props.getCache().setEnabled(false);
+        VerifiedTokenCache<OfferPayload> cache = offerCache(props);
+
+        int[] calls = {0};
+        cache.get("t", token -> { calls[0]++; return null; });
+        cache.get("t", token -> { calls[0]++; return null; });
+
+        assertThat(calls[0]).isEqualTo(2);
+        assertThat(registry.find("transfer.tokens.cache.hit.ratio").gauge()).isNull();
+    }
+
+    /** Wall clock and cache ticker that only move when told to */
+    private static final class ManualClock extends Clock implements Ticker {
+        private Instant now;
+        private long nanos;
+
+        ManualClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+            nanos += duration.toNanos();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
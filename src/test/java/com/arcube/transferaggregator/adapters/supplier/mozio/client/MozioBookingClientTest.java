@@ -15,7 +15,7 @@ import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 import org.springframework.http.ResponseEntity;
 import reactor.core.publisher.Mono;
 
-import java.util.function.Supplier;
+import java.time.Duration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -60,8 +60,8 @@ class MozioBookingClientTest {
         when(headersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.bodyToMono(MozioBookingResponse.class)).thenReturn(Mono.just(response));
 
-        when(retryHandler.executeWithRetry(any()))
-            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        when(retryHandler.withRetry(eq("MOZIO"), any()))
+            .thenAnswer(invocation -> invocation.getArgument(1));
 
         MozioBookingClient client = new MozioBookingClient(builder, config, retryHandler);
 
@@ -95,11 +95,46 @@ class MozioBookingClientTest {
         when(headersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.toBodilessEntity()).thenReturn(Mono.just(ResponseEntity.ok().build()));
 
-        when(retryHandler.executeWithRetry(any()))
-            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        when(retryHandler.withRetry(eq("MOZIO"), any()))
+            .thenAnswer(invocation -> invocation.getArgument(1));
 
         MozioBookingClient client = new MozioBookingClient(builder, config, retryHandler);
 
         client.cancel("res-1");
     }
+
+    @Test
+    void pollUsesRetryHandlerAndWebClient() {
+        WebClient.Builder builder = mock(WebClient.Builder.class);
+        WebClient webClient = mock(WebClient.class);
+        RetryHandler retryHandler = mock(RetryHandler.class);
+
+        MozioConfig config = new MozioConfig();
+        config.setBaseUrl("https://example.test");
+        config.setApiKey("key");
+
+        when(builder.baseUrl(anyString())).thenReturn(builder);
+        when(builder.defaultHeader(eq("API-KEY"), anyString())).thenReturn(builder);
+        when(builder.build()).thenReturn(webClient);
+
+        @SuppressWarnings("rawtypes")
+        RequestHeadersUriSpec getSpec = mock(RequestHeadersUriSpec.class);
+        @SuppressWarnings("rawtypes")
+        RequestHeadersSpec headersSpec = mock(RequestHeadersSpec.class);
+        ResponseSpec responseSpec = mock(ResponseSpec.class);
+
+        MozioBookingResponse response = new MozioBookingResponse();
+
+        when(webClient.get()).thenReturn(getSpec);
+        when(getSpec.uri("/v2/reservations/{searchId}/poll/", "s1")).thenReturn(headersSpec);
+        when(headersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(MozioBookingResponse.class)).thenReturn(Mono.just(response));
+
+        when(retryHandler.withRetry(eq("MOZIO"), any()))
+            .thenAnswer(invocation -> invocation.getArgument(1));
+
+        MozioBookingClient client = new MozioBookingClient(builder, config, retryHandler);
+
+        assertThat(client.poll("s1", Duration.ofSeconds(5))).isSameAs(response);
+    }
 }
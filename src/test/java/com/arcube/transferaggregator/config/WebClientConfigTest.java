@@ -0,0 +1,66 @@
+package com.arcube.transferaggregator.config;
+
+import com.arcube.transferaggregator.config.SupplierProperties.ConnectionPoolConfig;
+import io.netty.channel.ChannelOption;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebClientConfigTest {
+
+    private ConnectionProvider provider;
+
+    @AfterEach
+    void dispose() {
+        if (provider != null) {
+            provider.dispose();
+        }
+    }
+
+    @Test
+    void connectionProviderIsNamedPerSupplierAndSized() {
+        ConnectionPoolConfig pool = new ConnectionPoolConfig();
+        pool.setMaxConnections(12);
+
+        provider = WebClientConfig.connectionProvider("mozio", pool);
+
+        assertThat(provider.name()).isEqualTo("supplier-mozio");
+        assertThat(provider.maxConnections()).isEqualTo(12);
+    }
+
+    @Test
+    void httpClientUsesThePoolAndItsTimeouts() {
+        ConnectionPoolConfig pool = new ConnectionPoolConfig();
+        pool.setConnectTimeout(Duration.ofSeconds(2));
+        pool.setResponseTimeout(Duration.ofSeconds(7));
+        provider = WebClientConfig.connectionProvider("mozio", pool);
+
+        HttpClient httpClient = WebClientConfig.httpClient("mozio", "https://api.example.test", provider, pool);
+
+        assertThat(httpClient.configuration().connectionProvider()).isSameAs(provider);
+        assertThat(httpClient.configuration().responseTimeout()).isEqualTo(Duration.ofSeconds(7));
+        assertThat(httpClient.configuration().options().get(ChannelOption.CONNECT_TIMEOUT_MILLIS)).isEqualTo(2000);
+        assertThat(httpClient.configuration().options().get(ChannelOption.SO_KEEPALIVE)).isEqualTo(true);
+        assertThat(httpClient.configuration().protocols()).containsExactly(HttpProtocol.HTTP11);
+    }
+
+    @Test
+    void http2IsOfferedOnlyOverTls() {
+        ConnectionPoolConfig pool = new ConnectionPoolConfig();
+        pool.setHttp2(true);
+        provider = WebClientConfig.connectionProvider("mozio", pool);
+
+        HttpClient secure = WebClientConfig.httpClient("mozio", "https://api.example.test", provider, pool);
+        HttpClient plain = WebClientConfig.httpClient("mozio", "http://localhost:8089", provider, pool);
+
+        assertThat(secure.configuration().protocols()).containsExactlyInAnyOrder(HttpProtocol.H2, HttpProtocol.HTTP11);
+        assertThat(secure.configuration().isSecure()).isTrue();
+        assertThat(plain.configuration().protocols()).containsExactly(HttpProtocol.HTTP11);
+    }
+}
@@ -0,0 +1,91 @@
+package com.arcube.transferaggregator.controller;
+
+import com.arcube.transferaggregator.dto.BulkCancelJobResponse;
+import com.arcube.transferaggregator.dto.BulkCancelRequest;
+import com.arcube.transferaggregator.exception.GlobalExceptionHandler;
+import com.arcube.transferaggregator.service.BulkCancellationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(BulkCancellationController.class)
+@Import(GlobalExceptionHandler.class)
+class BulkCancellationControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @MockBean
+    BulkCancellationService bulkCancellationService;
+
+    @Test
+    void startReturnsAcceptedJob() throws Exception {
+        when(bulkCancellationService.start(List.of("b1", "b2"), "flight cancelled"))
+            .thenReturn(BulkCancelJobResponse.builder().jobId("j1").status("RUNNING").total(2).outcomes(List.of()).build());
+
+        BulkCancelRequest request = BulkCancelRequest.builder()
+            .bookingIds(List.of("b1", "b2"))
+            .reason("flight cancelled")
+            .build();
+
+        mockMvc.perform(post("/api/v1/transfers/bulk-cancellations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.jobId").value("j1"))
+            .andExpect(jsonPath("$.total").value(2));
+
+        verify(bulkCancellationService).start(List.of("b1", "b2"), "flight cancelled");
+    }
+
+    @Test
+    void emptyBookingListIsRejected() throws Exception {
+        mockMvc.perform(post("/api/v1/transfers/bulk-cancellations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"bookingIds\":[]}"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(bulkCancellationService);
+    }
+
+    @Test
+    void getJobReturnsProgressOrNotFound() throws Exception {
+        when(bulkCancellationService.getJob("j1"))
+            .thenReturn(Optional.of(BulkCancelJobResponse.builder().jobId("j1").status("COMPLETED").build()));
+        when(bulkCancellationService.getJob("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/transfers/bulk-cancellations/j1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("COMPLETED"));
+        mockMvc.perform(get("/api/v1/transfers/bulk-cancellations/missing"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void eventsForUnknownJobIsNotFound() throws Exception {
+        when(bulkCancellationService.streamOutcomes(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/transfers/bulk-cancellations/missing/events"))
+            .andExpect(status().isNotFound());
+    }
+}
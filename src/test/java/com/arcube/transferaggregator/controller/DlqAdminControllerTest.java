@@ -0,0 +1,103 @@
+package com.arcube.transferaggregator.controller;
+
+import com.arcube.transferaggregator.dto.DlqReplayResponse;
+import com.arcube.transferaggregator.exception.GlobalExceptionHandler;
+import com.arcube.transferaggregator.exception.ReplayInProgressException;
+import com.arcube.transferaggregator.resilience.CancellationTask;
+import com.arcube.transferaggregator.resilience.DeadLetterFilter;
+import com.arcube.transferaggregator.service.DlqReplayService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DlqAdminController.class)
+@Import(GlobalExceptionHandler.class)
+class DlqAdminControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    DlqReplayService replayService;
+
+    @Test
+    void listPassesFilter() throws Exception {
+        when(replayService.find(any(), eq(100)))
+            .thenReturn(List.of(CancellationTask.create("b1", "MOZIO", "r1", "c1")));
+
+        mockMvc.perform(get("/api/v1/admin/dlq")
+                .param("supplierCode", "MOZIO")
+                .param("maxAge", "PT6H")
+                .param("errorContains", "timeout"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].bookingId").value("b1"));
+
+        verify(replayService).find(new DeadLetterFilter("MOZIO", null, Duration.ofHours(6), "timeout"), 100);
+    }
+
+    @Test
+    void replayStartsAndReturnsAccepted() throws Exception {
+        when(replayService.start(any(), eq(50), eq(1000)))
+            .thenReturn(DlqReplayResponse.builder().replayId("rp1").status("RUNNING").matched(10).ratePerSecond(50).build());
+
+        mockMvc.perform(post("/api/v1/admin/dlq/replays")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"supplierCode\":\"MOZIO\",\"minAge\":\"PT1H\",\"ratePerSecond\":50,\"limit\":1000}"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.replayId").value("rp1"))
+            .andExpect(jsonPath("$.matched").value(10));
+
+        verify(replayService).start(new DeadLetterFilter("MOZIO", Duration.ofHours(1), null, null), 50, 1000);
+    }
+
+    @Test
+    void replayWhileRunningIsConflict() throws Exception {
+        when(replayService.start(any(), any(), any())).thenThrow(new ReplayInProgressException("rp1"));
+
+        mockMvc.perform(post("/api/v1/admin/dlq/replays")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.code").value("REPLAY_IN_PROGRESS"));
+    }
+
+    @Test
+    void invalidRateIsRejected() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/dlq/replays")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ratePerSecond\":0}"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(replayService);
+    }
+
+    @Test
+    void progressAndStop() throws Exception {
+        DlqReplayResponse progress = DlqReplayResponse.builder().replayId("rp1").status("RUNNING").replayed(3).build();
+        when(replayService.getReplay("rp1")).thenReturn(Optional.of(progress));
+        when(replayService.stop("rp1")).thenReturn(Optional.of(progress));
+        when(replayService.getReplay("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/admin/dlq/replays/rp1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.replayed").value(3));
+        mockMvc.perform(delete("/api/v1/admin/dlq/replays/rp1"))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/admin/dlq/replays/missing"))
+            .andExpect(status().isNotFound());
+    }
+}
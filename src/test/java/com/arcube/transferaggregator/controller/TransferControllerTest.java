@@ -1,13 +1,19 @@
 package com.arcube.transferaggregator.controller;
 
+import com.arcube.transferaggregator.domain.BookingStatus;
 import com.arcube.transferaggregator.dto.BookRequest;
 import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.dto.BookingRecord;
 import com.arcube.transferaggregator.dto.CancelResponse;
+import com.arcube.transferaggregator.dto.PageRequest;
 import com.arcube.transferaggregator.dto.SearchRequest;
 import com.arcube.transferaggregator.dto.SearchResponse;
 import com.arcube.transferaggregator.dto.SearchSort;
+import com.arcube.transferaggregator.exception.BookingInProgressException;
 import com.arcube.transferaggregator.exception.GlobalExceptionHandler;
 import com.arcube.transferaggregator.exception.RateLimitExceededException;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import com.arcube.transferaggregator.service.BookingStatusTracker;
 import com.arcube.transferaggregator.service.SearchPollingService;
 import com.arcube.transferaggregator.service.TransferBookingService;
 import com.arcube.transferaggregator.service.TransferCancellationService;
@@ -21,9 +27,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -51,6 +62,10 @@ class TransferControllerTest {
     TransferCancellationService cancellationService;
     @MockBean
     SearchPollingService pollingService;
+    @MockBean
+    BookingStatusTracker statusTracker;
+    @MockBean
+    BookingLedger bookingLedger;
 
     @Test
     void searchReturnsOk() throws Exception {
@@ -113,6 +128,27 @@ class TransferControllerTest {
         assertThat(sortCaptor.getValue().getDirection()).isEqualTo(SearchSort.SortDirection.ASC);
     }
 
+    @Test
+    void pollPassesCursorAsKeysetPage() throws Exception {
+        SearchResponse response = SearchResponse.builder()
+            .searchId("s1")
+            .offers(List.of())
+            .incomplete(false)
+            .supplierStatuses(Map.of())
+            .build();
+        when(pollingService.poll(eq("s1"), any(), any(), any())).thenReturn(response);
+
+        mockMvc.perform(get("/api/v1/transfers/search/s1/poll")
+                .param("cursor", "abc")
+                .param("size", "5"))
+            .andExpect(status().isOk());
+
+        ArgumentCaptor<PageRequest> pageCaptor = ArgumentCaptor.forClass(PageRequest.class);
+        verify(pollingService).poll(eq("s1"), any(), any(), pageCaptor.capture());
+        assertThat(pageCaptor.getValue().getCursor()).isEqualTo("abc");
+        assertThat(pageCaptor.getValue().getSize()).isEqualTo(5);
+    }
+
     @Test
     void bookPassesIdempotencyKey() throws Exception {
         BookResponse response = BookResponse.pending("b1");
@@ -137,6 +173,29 @@ class TransferControllerTest {
             .andExpect(jsonPath("$.status").value("PENDING"));
     }
 
+    @Test
+    void duplicateBookingStillInFlightIsConflict() throws Exception {
+        when(bookingService.book(any(), eq("idem-1"))).thenThrow(new BookingInProgressException());
+
+        BookRequest request = BookRequest.builder()
+            .offerId("offer")
+            .passenger(BookRequest.PassengerDto.builder()
+                .firstName("A")
+                .lastName("B")
+                .email("a@b.com")
+                .phoneNumber("1")
+                .countryCode("US")
+                .build())
+            .build();
+
+        mockMvc.perform(post("/api/v1/transfers/book")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", "idem-1")
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.code").value("BOOKING_IN_PROGRESS"));
+    }
+
     @Test
     void cancelAndCancelStatus() throws Exception {
         when(cancellationService.cancel("b1")).thenReturn(CancelResponse.pending("b1", "pending"));
@@ -151,6 +210,72 @@ class TransferControllerTest {
             .andExpect(jsonPath("$.status").value("FAILED"));
     }
 
+    @Test
+    void cancelStatusLongPollIsAsync() throws Exception {
+        when(cancellationService.awaitStatusChange("b1", Duration.ofSeconds(20)))
+            .thenReturn(Mono.just(CancelResponse.success("b1", null)));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/transfers/bookings/b1/cancel-status").param("waitSeconds", "20"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("CANCELLED"));
+    }
+
+    @Test
+    void bookingStatusReturnsTrackedStatusOrNotFound() throws Exception {
+        when(statusTracker.getStatus("b1")).thenReturn(Optional.of(BookResponse.pending("b1")));
+        when(statusTracker.getStatus("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/transfers/bookings/b1/status"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("PENDING"));
+        mockMvc.perform(get("/api/v1/transfers/bookings/missing/status"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bookingStatusEventsStreamUntilFinal() throws Exception {
+        when(statusTracker.getStatus("b1")).thenReturn(Optional.of(BookResponse.pending("b1")));
+        when(statusTracker.statusUpdates("b1")).thenReturn(Flux.just(BookResponse.pending("b1"),
+            BookResponse.confirmed("b1", "CONF-1", null, null, null)));
+        when(statusTracker.getStatus("missing")).thenReturn(Optional.empty());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/transfers/bookings/b1/status/events"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(body).contains("event:status", "\"status\":\"PENDING\"", "\"status\":\"CONFIRMED\"");
+        mockMvc.perform(get("/api/v1/transfers/bookings/missing/status/events"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bookingReadsAreServedFromTheLedger() throws Exception {
+        BookingRecord booking = BookingRecord.builder()
+            .bookingId("b1")
+            .tenantId("tenant-a")
+            .status(BookingStatus.CONFIRMED)
+            .build();
+        when(bookingLedger.getForCurrentTenant("b1")).thenReturn(Optional.of(booking));
+        when(bookingLedger.getForCurrentTenant("missing")).thenReturn(Optional.empty());
+        when(bookingLedger.listForCurrentTenant(5)).thenReturn(List.of(booking));
+
+        mockMvc.perform(get("/api/v1/transfers/bookings/b1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("CONFIRMED"));
+        mockMvc.perform(get("/api/v1/transfers/bookings/missing"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/transfers/bookings").param("limit", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].bookingId").value("b1"));
+    }
+
     @Test
     void rateLimitExceptionMappedTo429() throws Exception {
         when(searchService.search(any())).thenThrow(new RateLimitExceededException("too many"));
@@ -0,0 +1,71 @@
+package com.arcube.transferaggregator.observability;
+
+import com.arcube.transferaggregator.resilience.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestDeadlineFilterTest {
+
+    @Test
+    void setsAndClearsDeadlineFromHeader() throws Exception {
+        RequestDeadlineFilter filter = new RequestDeadlineFilter(10);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(RequestDeadlineFilter.DEADLINE_HEADER, String.valueOf(Instant.now().plusSeconds(3).toEpochMilli()));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                assertThat(Deadline.current()).isNotNull();
+                assertThat(Deadline.current().remaining())
+                    .isGreaterThan(Duration.ofSeconds(1))
+                    .isLessThanOrEqualTo(Duration.ofSeconds(3));
+            }
+        });
+
+        assertThat(Deadline.current()).isNull();
+    }
+
+    @Test
+    void clampsFarFutureDeadlineToGlobalTimeout() throws Exception {
+        RequestDeadlineFilter filter = new RequestDeadlineFilter(10);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(RequestDeadlineFilter.DEADLINE_HEADER, "9999-12-31T00:00:00Z");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                assertThat(Deadline.current().remaining()).isLessThanOrEqualTo(Duration.ofSeconds(10));
+            }
+        });
+    }
+
+    @Test
+    void parsesEpochMillisAndIsoInstants() {
+        assertThat(RequestDeadlineFilter.parse("1767261605000")).isEqualTo(Instant.ofEpochMilli(1767261605000L));
+        assertThat(RequestDeadlineFilter.parse("2026-01-01T10:00:05Z")).isEqualTo(Instant.parse("2026-01-01T10:00:05Z"));
+        assertThat(RequestDeadlineFilter.parse(" ")).isNull();
+        assertThat(RequestDeadlineFilter.parse(null)).isNull();
+        assertThat(RequestDeadlineFilter.parse("soon")).isNull();
+    }
+
+    @Test
+    void noHeaderMeansNoDeadline() throws Exception {
+        RequestDeadlineFilter filter = new RequestDeadlineFilter(10);
+
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                assertThat(Deadline.current()).isNull();
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.arcube.transferaggregator.observability;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.Outcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SupplierHealthEndpointTest {
+
+    @Test
+    void exposesScoreboardPerSupplier() {
+        SupplierHealthScoreboard scoreboard = new SupplierHealthScoreboard(new AggregatorProperties(), new SimpleMeterRegistry());
+        scoreboard.record("MOZIO", Duration.ofMillis(120), Outcome.RESULTS);
+        scoreboard.record("STUB", Duration.ofMillis(10), Outcome.EMPTY);
+        SupplierHealthEndpoint endpoint = new SupplierHealthEndpoint(scoreboard);
+
+        assertThat(endpoint.suppliers()).containsOnlyKeys("MOZIO", "STUB");
+        assertThat(endpoint.supplier("MOZIO").latencyMillis()).isEqualTo(120);
+        assertThat(endpoint.supplier("STUB").emptyRate()).isEqualTo(1.0);
+        assertThat(endpoint.supplier("SKYRIDE")).isNull();
+    }
+}
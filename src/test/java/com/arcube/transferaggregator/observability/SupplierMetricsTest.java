@@ -25,11 +25,16 @@ class SupplierMetricsTest {
         metrics.recordPoll("S1", "search");
         metrics.recordCancelSuccess("S1");
         metrics.recordCancelFailure("S1", "failed");
+        metrics.recordCancelTimeout("S1");
+        metrics.recordCancelLatency("S1", "timeout", Duration.ofSeconds(5));
 
         DistributionSummary summary = registry.find("transfer.search.results")
             .tag("supplier", "S1")
             .summary();
         assertThat(summary).isNotNull();
         assertThat(summary.count()).isEqualTo(1);
+        assertThat(registry.get("transfer.cancel.latency").tags("supplier", "S1", "outcome", "timeout").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get("transfer.cancel.timeouts").tag("supplier", "S1").counter().count()).isEqualTo(1);
     }
 }
@@ -0,0 +1,143 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.exception.RateLimitExceededException;
+import com.arcube.transferaggregator.resilience.AdmissionController.Permit;
+import com.arcube.transferaggregator.resilience.AdmissionController.RequestClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdmissionController controller(int maxConcurrent, Duration maxQueueWait) {
+        AggregatorProperties props = new AggregatorProperties();
+        props.getResilience().getAdmission().setMaxConcurrent(maxConcurrent);
+        props.getResilience().getAdmission().setMaxQueueWait(maxQueueWait);
+        return new AdmissionController(props, registry);
+    }
+
+    private static List<Permit> fill(AdmissionController controller, RequestClass requestClass, int count) {
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(controller.admit(requestClass));
+        }
+        return permits;
+    }
+
+    @Test
+    void shedsLowestPriorityFirst() {
+        AdmissionController controller = controller(10, Duration.ZERO);
+
+        // Pricing may fill 50% of the slots, search 70%
+        fill(controller, RequestClass.PRICING, 5);
+        assertThatThrownBy(() -> controller.admit(RequestClass.PRICING))
+            .isInstanceOf(RateLimitExceededException.class);
+
+        fill(controller, RequestClass.SEARCH, 2);
+        assertThatThrownBy(() -> controller.admit(RequestClass.SEARCH))
+            .isInstanceOf(RateLimitExceededException.class);
+
+        // Bookings still get every remaining slot
+        fill(controller, RequestClass.BOOK, 3);
+        assertThatThrownBy(() -> controller.admit(RequestClass.BOOK))
+            .isInstanceOf(RateLimitExceededException.class);
+
+        assertThat(registry.get("transfer.admission.shed").tag("class", "pricing").counter().count()).isEqualTo(1);
+        assertThat(registry.get("transfer.admission.admitted").tag("class", "book").counter().count()).isEqualTo(3);
+        assertThat(registry.get("transfer.admission.in.flight").tag("class", "search").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void lowerClassesAreToldToWaitLonger() {
+        AdmissionController controller = controller(1, Duration.ZERO);
+        controller.admit(RequestClass.BOOK);
+
+        assertThatThrownBy(() -> controller.admit(RequestClass.BOOK))
+            .isInstanceOfSatisfying(RateLimitExceededException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        assertThatThrownBy(() -> controller.admit(RequestClass.PRICING))
+            .isInstanceOfSatisfying(RateLimitExceededException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(6));
+    }
+
+    @Test
+    void closingPermitFreesSlot() {
+        AdmissionController controller = controller(1, Duration.ZERO);
+
+        Permit permit = controller.admit(RequestClass.SEARCH);
+        permit.close();
+        permit.close();  // Idempotent
+
+        controller.admit(RequestClass.SEARCH);
+        assertThat(registry.get("transfer.admission.in.flight").tag("class", "search").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void queuedRequestStartsWhenSlotFrees() throws Exception {
+        AdmissionController controller = controller(1, Duration.ofSeconds(5));
+        Permit held = controller.admit(RequestClass.BOOK);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Permit> queued = CompletableFuture.supplyAsync(() -> controller.admit(RequestClass.CANCEL), executor);
+            Thread.sleep(100);
+            assertThat(queued).isNotDone();
+            assertThat(registry.get("transfer.admission.queued").tag("class", "cancel").gauge().value()).isEqualTo(1);
+
+            held.close();
+
+            assertThat(queued.get(2, TimeUnit.SECONDS)).isNotNull();
+            assertThat(registry.get("transfer.admission.queue.wait").tag("class", "cancel").timer().count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitingHigherClassGoesFirst() throws Exception {
+        AdmissionController controller = controller(1, Duration.ofSeconds(5));
+        Permit held = controller.admit(RequestClass.BOOK);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Permit> search = CompletableFuture.supplyAsync(() -> controller.admit(RequestClass.SEARCH), executor);
+            Thread.sleep(50);
+            CompletableFuture<Permit> book = CompletableFuture.supplyAsync(() -> controller.admit(RequestClass.BOOK), executor);
+            Thread.sleep(50);
+
+            held.close();
+
+            Permit bookPermit = book.get(2, TimeUnit.SECONDS);
+            Thread.sleep(50);
+            assertThat(search).isNotDone();
+
+            bookPermit.close();
+            assertThat(search.get(2, TimeUnit.SECONDS)).isNotNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void disabledAdmitsEverything() {
+        AggregatorProperties props = new AggregatorProperties();
+        props.getResilience().getAdmission().setEnabled(false);
+        props.getResilience().getAdmission().setMaxConcurrent(1);
+        AdmissionController controller = new AdmissionController(props, registry);
+
+        fill(controller, RequestClass.PRICING, 10);
+
+        assertThat(controller.isEnabled()).isFalse();
+    }
+}
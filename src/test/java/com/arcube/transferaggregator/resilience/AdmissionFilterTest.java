@@ -0,0 +1,79 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.resilience.AdmissionController.RequestClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class AdmissionFilterTest {
+
+    @Test
+    void classifiesApiRequests() {
+        assertThat(AdmissionFilter.classify("POST", "/api/v1/transfers/book")).isEqualTo(RequestClass.BOOK);
+        assertThat(AdmissionFilter.classify("DELETE", "/api/v1/transfers/bookings/b1")).isEqualTo(RequestClass.CANCEL);
+        assertThat(AdmissionFilter.classify("POST", "/api/v1/transfers/bookings/b1/search-changes")).isEqualTo(RequestClass.CHANGE);
+        assertThat(AdmissionFilter.classify("POST", "/api/v1/transfers/bookings/b1/commit-change")).isEqualTo(RequestClass.CHANGE);
+        assertThat(AdmissionFilter.classify("POST", "/api/v1/transfers/search")).isEqualTo(RequestClass.SEARCH);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/search/s1/poll")).isEqualTo(RequestClass.POLL);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bookings/b1/cancel-status")).isEqualTo(RequestClass.POLL);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bookings/b1/status")).isEqualTo(RequestClass.POLL);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bookings/b1")).isEqualTo(RequestClass.POLL);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bookings")).isEqualTo(RequestClass.POLL);
+        assertThat(AdmissionFilter.classify("POST", "/api/v1/transfers/bulk-cancellations")).isEqualTo(RequestClass.CANCEL);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bulk-cancellations/j1")).isEqualTo(RequestClass.POLL);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bulk-cancellations/j1/events")).isNull();
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/transfers/bookings/b1/status/events")).isNull();
+        assertThat(AdmissionFilter.classify("POST", "/api/v1/pricing")).isEqualTo(RequestClass.PRICING);
+        assertThat(AdmissionFilter.classify("GET", "/api/v1/admin/alerts/dlq")).isNull();
+        assertThat(AdmissionFilter.classify("GET", "/actuator/health")).isNull();
+    }
+
+    @Test
+    void shedRequestGets429WithRetryAfter() throws Exception {
+        AggregatorProperties props = new AggregatorProperties();
+        props.getResilience().getAdmission().setMaxConcurrent(1);
+        props.getResilience().getAdmission().setMaxQueueWait(Duration.ZERO);
+        AdmissionController controller = new AdmissionController(props, new SimpleMeterRegistry());
+        AdmissionFilter filter = new AdmissionFilter(controller, new ObjectMapper().registerModule(new JavaTimeModule()));
+        controller.admit(RequestClass.BOOK);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/transfers/search/s1/poll");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(request, response);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("5");
+        assertThat(response.getContentAsString()).contains("SERVER_OVERLOADED");
+    }
+
+    @Test
+    void admittedRequestReleasesSlot() throws Exception {
+        AggregatorProperties props = new AggregatorProperties();
+        props.getResilience().getAdmission().setMaxConcurrent(1);
+        props.getResilience().getAdmission().setMaxQueueWait(Duration.ZERO);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionFilter filter = new AdmissionFilter(new AdmissionController(props, registry), new ObjectMapper());
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/transfers/book"), response, mock(FilterChain.class));
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+        assertThat(registry.get("transfer.admission.in.flight").tag("class", "book").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,166 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingLedgerProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationLedgerProperties;
+import com.arcube.transferaggregator.config.TenantContext;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.dto.BookingChangeResponse;
+import com.arcube.transferaggregator.dto.BookingRecord;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BookingLedgerTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private BookingLedger ledger(BookingLedgerStore store, BookingLedgerProperties properties) {
+        return new BookingLedger(store, properties, "default", meters);
+    }
+
+    private BookingLedger ledger() {
+        BookingLedgerProperties properties = new BookingLedgerProperties();
+        return ledger(new InMemoryBookingLedgerStore(properties), properties);
+    }
+
+    private double entries(String outcome) {
+        return meters.get("transfer.booking.ledger.entries").tag("outcome", outcome).counter().count();
+    }
+
+    @AfterEach
+    void clearTenant() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void bookingIsReadableOnceFlushedWithItsLaterHistory() {
+        BookingLedger ledger = ledger();
+        TenantContext.setTenantId("tenant-a");
+
+        ledger.recordBooking("MOZIO", BookResponse.pending("b1"));
+        assertThat(ledger.get("b1")).isEmpty();  // Queued, not written yet
+        ledger.recordStatus(BookResponse.confirmed("b1", "CONF-1", Money.of(55.0, "USD"), "Meet at exit", null));
+        ledger.recordCancellation(CancelResponse.success("b1", Money.of(55.0, "USD")));
+        ledger.flush();
+
+        BookingRecord booking = ledger.get("b1").orElseThrow();
+        assertThat(booking.getTenantId()).isEqualTo("tenant-a");
+        assertThat(booking.getSupplierCode()).isEqualTo("MOZIO");
+        assertThat(booking.getStatus()).isEqualTo(BookingStatus.CANCELLED);
+        assertThat(booking.getConfirmationNumber()).isEqualTo("CONF-1");
+        assertThat(booking.getHistory()).extracting(BookingRecord.Event::getType)
+            .containsExactly("BOOKED", "STATUS_CHANGED", "CANCELLED");
+        assertThat(entries("written")).isEqualTo(3);
+    }
+
+    @Test
+    void failedCancellationsAndBookingsWithoutIdAreNotRecorded() {
+        BookingLedger ledger = ledger();
+
+        ledger.recordBooking("MOZIO", BookResponse.failed("SOLD_OUT", "gone", "RETRY"));
+        ledger.recordCancellation(CancelResponse.failed("b1", "gave up"));
+        ledger.flush();
+
+        assertThat(ledger.get("b1")).isEmpty();
+        assertThat(meters.find("transfer.booking.ledger.entries").counter()).isNull();
+    }
+
+    @Test
+    void changeRecordsNewBookingAndLinksBothWays() {
+        BookingLedger ledger = ledger();
+        ledger.recordBooking("MOZIO", BookResponse.confirmed("b1", "CONF-1", null, null, null));
+
+        ledger.recordChange("b1", "MOZIO", BookingChangeResponse.success("b2", "CONF-2", "b1"));
+        ledger.recordChange("b2", "MOZIO", BookingChangeResponse.failed("NOT_SUPPORTED", "no"));
+        ledger.flush();
+
+        assertThat(ledger.get("b1")).map(BookingRecord::getReplacedByBookingId).contains("b2");
+        BookingRecord replacement = ledger.get("b2").orElseThrow();
+        assertThat(replacement.getReplacesBookingId()).isEqualTo("b1");
+        assertThat(replacement.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        assertThat(replacement.getReplacedByBookingId()).isNull();
+    }
+
+    @Test
+    void listsAndReadsAreScopedToTheCurrentTenant() {
+        BookingLedger ledger = ledger();
+        TenantContext.setTenantId("tenant-a");
+        ledger.recordBooking("MOZIO", BookResponse.pending("a1"));
+        ledger.recordBooking("MOZIO", BookResponse.pending("a2"));
+        TenantContext.setTenantId("tenant-b");
+        ledger.recordBooking("MOZIO", BookResponse.pending("b1"));
+        ledger.flush();
+
+        assertThat(ledger.listForCurrentTenant(10)).extracting(BookingRecord::getBookingId).containsExactly("b1");
+        assertThat(ledger.getForCurrentTenant("a1")).isEmpty();
+        TenantContext.setTenantId("tenant-a");
+        assertThat(ledger.listForCurrentTenant(10)).extracting(BookingRecord::getBookingId)
+            .containsExactly("a2", "a1");
+        assertThat(ledger.listForCurrentTenant(1)).hasSize(1);
+        assertThat(ledger.getForCurrentTenant("a1")).isPresent();
+    }
+
+    @Test
+    void bookingWithoutTenantIsHiddenFromEveryTenant() {
+        BookingLedger ledger = ledger();
+        TenantContext.setTenantId("tenant-a");
+        // A status update whose booked entry never made it to the ledger
+        ledger.recordStatus(BookResponse.pending("orphan"));
+        ledger.flush();
+
+        assertThat(ledger.get("orphan")).get().extracting(BookingRecord::getTenantId).isNull();
+        assertThat(ledger.getForCurrentTenant("orphan")).isEmpty();
+    }
+
+    @Test
+    void writesInBatchesAndDropsWhenQueueIsFull() {
+        BookingLedgerProperties properties = new BookingLedgerProperties();
+        properties.setQueueCapacity(3);
+        properties.setBatchSize(2);
+        BookingLedgerStore store = mock(BookingLedgerStore.class);
+        BookingLedger ledger = ledger(store, properties);
+
+        for (int i = 0; i < 4; i++) {
+            ledger.recordBooking("MOZIO", BookResponse.pending("b" + i));
+        }
+        ledger.flush();
+
+        verify(store, times(2)).append(anyList());
+        assertThat(entries("written")).isEqualTo(3);
+        assertThat(entries("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedBatchIsRetriedThenDropped() {
+        BookingLedgerStore store = mock(BookingLedgerStore.class);
+        doThrow(new IllegalStateException("redis down")).when(store).append(anyList());
+        BookingLedger ledger = ledger(store, new BookingLedgerProperties());
+
+        ledger.recordBooking("MOZIO", BookResponse.pending("b1"));
+        for (int i = 0; i < BookingLedger.MAX_FLUSH_ATTEMPTS; i++) {
+            ledger.flush();
+        }
+
+        verify(store, times(BookingLedger.MAX_FLUSH_ATTEMPTS)).append(anyList());
+        assertThat(entries("failed")).isEqualTo(1);
+    }
+
+    @Test
+    void cancellationLedgerPassesCancellationsOn() {
+        BookingLedger ledger = ledger();
+        CancellationLedger cancellations = new CancellationLedger(
+            new InMemoryCancellationOutcomeStore(new CancellationLedgerProperties()), ledger, meters);
+
+        cancellations.record(CancelResponse.alreadyCancelled("b1"));
+        ledger.flush();
+
+        assertThat(ledger.get("b1")).map(BookingRecord::getStatus).contains(BookingStatus.CANCELLED);
+    }
+}
@@ -31,4 +31,20 @@ class CancellationDLQTest {
         dlq.resolve("missing");
         assertThat(dlq.size()).isEqualTo(1);
     }
+
+    @Test
+    void resolveReportsWhetherRemovedAndRestoreIsNotCounted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CancellationDLQ dlq = new CancellationDLQ(registry);
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+        dlq.add(task);
+
+        assertThat(dlq.resolve("b1")).isTrue();
+        assertThat(dlq.resolve("b1")).isFalse();
+
+        dlq.restore(task);
+        assertThat(dlq.get("b1")).contains(task);
+        assertThat(registry.get("transfer.cancellation.dlq.total").counter().count()).isEqualTo(1);
+        assertThat(registry.get("transfer.cancellation.dlq.size").gauge().value()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,64 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationLedgerProperties;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CancellationLedgerTest {
+
+    private static CancellationLedger ledger(CancellationOutcomeStore store, SimpleMeterRegistry meters) {
+        return new CancellationLedger(store, mock(BookingLedger.class), meters);
+    }
+
+    @Test
+    void recordedOutcomeIsReadBackAndCounted() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CancellationLedger ledger = ledger(new InMemoryCancellationOutcomeStore(new CancellationLedgerProperties()), meters);
+
+        ledger.record(CancelResponse.success("b1", Money.of(5, "USD")));
+        ledger.record(CancelResponse.failed("b2", "gave up"));
+
+        assertThat(ledger.get("b1")).map(CancelResponse::getStatus).contains("CANCELLED");
+        assertThat(ledger.get("b2")).map(CancelResponse::getMessage).contains("gave up");
+        assertThat(ledger.get("missing")).isEmpty();
+        assertThat(meters.get("transfer.cancellation.ledger.recorded").tag("status", "cancelled").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void changesEmitBookingIdsRecordedAfterSubscribing() {
+        CancellationLedger ledger = ledger(
+            new InMemoryCancellationOutcomeStore(new CancellationLedgerProperties()), new SimpleMeterRegistry());
+
+        StepVerifier.create(ledger.changes().take(2))
+            .then(() -> {
+                ledger.record(CancelResponse.alreadyCancelled("b1"));
+                ledger.record(CancelResponse.failed("b2", "gave up"));
+            })
+            .expectNext("b1", "b2")
+            .verifyComplete();
+    }
+
+    @Test
+    void storeFailureDoesNotFailTheCancellation() {
+        CancellationOutcomeStore store = mock(CancellationOutcomeStore.class);
+        doThrow(new IllegalStateException("redis down")).when(store).put(any());
+        when(store.get("b1")).thenReturn(Optional.empty());
+        CancellationLedger ledger = ledger(store, new SimpleMeterRegistry());
+
+        StepVerifier.create(ledger.changes().take(1))
+            .then(() -> ledger.record(CancelResponse.alreadyCancelled("b1")))
+            .expectNext("b1")
+            .verifyComplete();
+        assertThat(ledger.get("b1")).isEmpty();
+    }
+}
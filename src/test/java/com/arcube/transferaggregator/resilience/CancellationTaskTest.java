@@ -26,4 +26,16 @@ class CancellationTaskTest {
         );
         assertThat(task.isExpired()).isTrue();
     }
+
+    @Test
+    void dueOnceNextAttemptPasses() {
+        Instant now = Instant.now();
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+        assertThat(task.isDue(now)).isTrue();
+
+        CancellationTask scheduled = task.withRetry("oops").withNextAttemptAt(now.plusSeconds(10));
+        assertThat(scheduled.isDue(now)).isFalse();
+        assertThat(scheduled.isDue(now.plusSeconds(10))).isTrue();
+        assertThat(scheduled.retryCount()).isEqualTo(1);
+    }
 }
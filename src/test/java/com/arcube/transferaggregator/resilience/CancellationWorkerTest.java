@@ -1,15 +1,25 @@
 package com.arcube.transferaggregator.resilience;
 
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationWorkerProperties;
 import com.arcube.transferaggregator.domain.CancelCommand;
 import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.dto.CancelResponse;
 import com.arcube.transferaggregator.ports.SupplierCancelResult;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.TransferSupplier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -18,7 +28,7 @@ class CancellationWorkerTest {
 
     @Test
     void movesExpiredTaskToDlq() {
-        CancellationQueue queue = new CancellationQueue();
+        CancellationQueue queue = new InMemoryCancellationQueue();
         CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
 
         CancellationTask expired = new CancellationTask(
@@ -44,7 +54,7 @@ class CancellationWorkerTest {
             }
         };
 
-        CancellationWorker worker = new CancellationWorker(queue, dlq, registry);
+        CancellationWorker worker = worker(queue, dlq, registry);
         worker.processCancellations();
 
         assertThat(dlq.get("b1")).isPresent();
@@ -53,7 +63,7 @@ class CancellationWorkerTest {
 
     @Test
     void retriesAndEventuallySendsToDlq() {
-        CancellationQueue queue = new CancellationQueue();
+        CancellationQueue queue = new InMemoryCancellationQueue();
         CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
 
         CancellationTask task = CancellationTask.create("b2", "STUB", "r2", "c2");
@@ -110,7 +120,7 @@ class CancellationWorkerTest {
             }
         };
 
-        CancellationWorker worker = new CancellationWorker(queue, dlq, registry);
+        CancellationWorker worker = worker(queue, dlq, registry, noBackoff(), new SimpleMeterRegistry());
         worker.processCancellations();
         worker.processCancellations();
         worker.processCancellations();
@@ -122,7 +132,7 @@ class CancellationWorkerTest {
 
     @Test
     void handlesSupplierNotFound() {
-        CancellationQueue queue = new CancellationQueue();
+        CancellationQueue queue = new InMemoryCancellationQueue();
         CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
 
         CancellationTask task = CancellationTask.create("b3", "MISSING", "r3", "c3");
@@ -145,7 +155,7 @@ class CancellationWorkerTest {
             }
         };
 
-        CancellationWorker worker = new CancellationWorker(queue, dlq, registry);
+        CancellationWorker worker = worker(queue, dlq, registry);
         worker.processCancellations();
 
         assertThat(dlq.get("b3")).isPresent();
@@ -154,7 +164,7 @@ class CancellationWorkerTest {
 
     @Test
     void completesWhenCancellationSucceeds() {
-        CancellationQueue queue = new CancellationQueue();
+        CancellationQueue queue = new InMemoryCancellationQueue();
         CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
 
         CancellationTask task = CancellationTask.create("b4", "STUB", "r4", "c4");
@@ -211,7 +221,7 @@ class CancellationWorkerTest {
             }
         };
 
-        CancellationWorker worker = new CancellationWorker(queue, dlq, registry);
+        CancellationWorker worker = worker(queue, dlq, registry);
         worker.processCancellations();
 
         assertThat(queue.getPending("b4")).isEmpty();
@@ -220,7 +230,7 @@ class CancellationWorkerTest {
 
     @Test
     void handlesCancelExceptionAndRetries() {
-        CancellationQueue queue = spy(new CancellationQueue());
+        CancellationQueue queue = spy(new InMemoryCancellationQueue());
         CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
 
         CancellationTask task = CancellationTask.create("b5", "STUB", "r5", "c5");
@@ -277,7 +287,7 @@ class CancellationWorkerTest {
             }
         };
 
-        CancellationWorker worker = new CancellationWorker(queue, dlq, registry);
+        CancellationWorker worker = worker(queue, dlq, registry);
         worker.processCancellations();
 
         assertThat(dlq.get("b5")).isEmpty();
@@ -285,7 +295,7 @@ class CancellationWorkerTest {
 
     @Test
     void handlesProcessTaskFailureInLoop() {
-        CancellationQueue queue = spy(new CancellationQueue());
+        CancellationQueue queue = spy(new InMemoryCancellationQueue());
         CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
 
         CancellationTask badTask = new CancellationTask(
@@ -310,9 +320,212 @@ class CancellationWorkerTest {
             }
         };
 
-        CancellationWorker worker = new CancellationWorker(queue, dlq, registry);
+        CancellationWorker worker = worker(queue, dlq, registry);
         worker.processCancellations();
 
         assertThat(dlq.get("b6")).isEmpty();
     }
+
+    @Test
+    void slowSupplierOnlyHoldsUpItsOwnPartition() throws Exception {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationDLQ dlq = new CancellationDLQ(new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowRunning = new AtomicInteger();
+        AtomicInteger slowMaxRunning = new AtomicInteger();
+        TransferSupplier slow = cancelling("SLOW", command -> {
+            slowMaxRunning.accumulateAndGet(slowRunning.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slowRunning.decrementAndGet();
+            return SupplierCancelResult.success("SLOW", command.reservationId(), Money.of(5, "USD"));
+        });
+        TransferSupplier fast = cancelling("FAST",
+            command -> SupplierCancelResult.success("FAST", command.reservationId(), Money.of(5, "USD")));
+
+        for (int i = 0; i < 4; i++) {
+            queue.enqueue(CancellationTask.create("slow-" + i, "SLOW", "rs" + i, "cs" + i));
+        }
+        queue.enqueue(CancellationTask.create("fast-1", "FAST", "rf1", "cf1"));
+        queue.enqueue(CancellationTask.create("fast-2", "FAST", "rf2", "cf2"));
+
+        CancellationWorkerProperties props = new CancellationWorkerProperties();
+        props.setMaxConcurrentPerSupplier(4);
+        props.getSupplierConcurrency().put("SLOW", 2);
+        CancellationWorker worker = worker(queue, dlq, registryOf(slow, fast), props, meters);
+
+        CompletableFuture<Void> run = CompletableFuture.runAsync(worker::processCancellations);
+
+        await(() -> queue.getPending("fast-1").isEmpty() && queue.getPending("fast-2").isEmpty());
+        assertThat(run).isNotDone();
+        assertThat(meters.get("transfer.cancellation.worker.in.flight").tag("supplier", "SLOW").gauge().value()).isEqualTo(2);
+        assertThat(meters.get("transfer.cancellation.worker.waiting").tag("supplier", "SLOW").gauge().value()).isEqualTo(2);
+
+        release.countDown();
+        run.get(5, TimeUnit.SECONDS);
+
+        assertThat(slowMaxRunning.get()).isEqualTo(2);
+        assertThat(queue.pendingCount()).isZero();
+        assertThat(meters.get("transfer.cancellation.worker.processed")
+            .tags("supplier", "SLOW", "outcome", "succeeded").counter().count()).isEqualTo(4);
+        assertThat(meters.get("transfer.cancellation.worker.processed")
+            .tags("supplier", "FAST", "outcome", "succeeded").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void stalledSupplierCannotFillMaxInFlight() throws Exception {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationDLQ dlq = new CancellationDLQ(new SimpleMeterRegistry());
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+        CountDownLatch release = new CountDownLatch(1);
+        TransferSupplier stalled = cancelling("SLOW", command -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return SupplierCancelResult.success("SLOW", command.reservationId(), Money.of(5, "USD"));
+        });
+        TransferSupplier fast = cancelling("FAST",
+            command -> SupplierCancelResult.success("FAST", command.reservationId(), Money.of(5, "USD")));
+
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue(CancellationTask.create("slow-" + i, "SLOW", "rs" + i, "cs" + i));
+        }
+        queue.enqueue(CancellationTask.create("fast-1", "FAST", "rf1", "cf1"));
+        queue.enqueue(CancellationTask.create("fast-2", "FAST", "rf2", "cf2"));
+
+        CancellationWorkerProperties props = new CancellationWorkerProperties();
+        props.setMaxInFlight(4);
+        props.getSupplierConcurrency().put("SLOW", 1);
+        props.setBusySupplierDelay(Duration.ofMinutes(1));
+        CancellationWorker worker = worker(queue, dlq, registryOf(stalled, fast), props, meters);
+
+        CompletableFuture<Void> run = CompletableFuture.runAsync(worker::processCancellations);
+
+        // SLOW holds one running and one waiting; the other eight go back on the queue
+        await(() -> queue.getPending("fast-1").isEmpty() && queue.getPending("fast-2").isEmpty());
+        assertThat(run).isNotDone();
+        assertThat(meters.get("transfer.cancellation.worker.deferred").tag("supplier", "SLOW").counter().count())
+            .isEqualTo(8);
+
+        release.countDown();
+        run.get(5, TimeUnit.SECONDS);
+
+        assertThat(queue.pendingCount()).isEqualTo(8);
+        for (int i = 0; i < 10; i++) {
+            queue.getPending("slow-" + i).ifPresent(deferred -> {
+                assertThat(deferred.retryCount()).isZero();
+                assertThat(deferred.nextAttemptAt()).isAfter(Instant.now().plusSeconds(30));
+            });
+        }
+    }
+
+    @Test
+    void failedCancelIsRetriedAfterBackoffNotInTheSameRun() {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationDLQ dlq = new CancellationDLQ(new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+        TransferSupplier failing = cancelling("STUB", command -> {
+            attempts.incrementAndGet();
+            return SupplierCancelResult.failed("STUB", command.reservationId(), "FAIL", "fail");
+        });
+        queue.enqueue(CancellationTask.create("b7", "STUB", "r7", "c7"));
+
+        CancellationWorker worker = worker(queue, dlq, registryOf(failing));
+        Instant before = Instant.now();
+        worker.processCancellations();
+        worker.processCancellations();
+
+        assertThat(attempts.get()).isEqualTo(1);
+        CancellationTask pending = queue.getPending("b7").orElseThrow();
+        assertThat(pending.retryCount()).isEqualTo(1);
+        assertThat(pending.nextAttemptAt()).isBetween(before.plusSeconds(5), Instant.now().plusSeconds(10));
+        assertThat(dlq.get("b7")).isEmpty();
+    }
+
+    @Test
+    void retryDelayDoublesWithJitterUpToMax() {
+        CancellationWorkerProperties props = new CancellationWorkerProperties();
+        props.setRetryBaseDelay(Duration.ofSeconds(10));
+        props.setRetryMaxDelay(Duration.ofSeconds(30));
+        CancellationWorker worker = worker(null, null, null, props, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(worker.retryDelay(1)).isBetween(Duration.ofSeconds(5), Duration.ofSeconds(10));
+            assertThat(worker.retryDelay(2)).isBetween(Duration.ofSeconds(10), Duration.ofSeconds(20));
+            assertThat(worker.retryDelay(5)).isBetween(Duration.ofSeconds(15), Duration.ofSeconds(30));
+        }
+    }
+
+    @Test
+    void finalOutcomesAreRecordedInLedger() {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationDLQ dlq = new CancellationDLQ(new SimpleMeterRegistry());
+        CancellationLedger ledger = ledger();
+        TransferSupplier supplier = cancelling("STUB", command -> "r1".equals(command.reservationId())
+            ? SupplierCancelResult.success("STUB", command.reservationId(), Money.of(5, "USD"))
+            : SupplierCancelResult.failed("STUB", command.reservationId(), "FAIL", "supplier said no"));
+        queue.enqueue(CancellationTask.create("b1", "STUB", "r1", "c1"));
+        queue.enqueue(new CancellationTask("b2", "STUB", "r2", "c2", Instant.now(), 2, "earlier"));
+
+        new CancellationWorker(queue, dlq, registryOf(supplier), ledger, noBackoff(), new SimpleMeterRegistry())
+            .processCancellations();
+
+        assertThat(ledger.get("b1")).map(CancelResponse::getStatus).contains("CANCELLED");
+        assertThat(ledger.get("b2")).hasValueSatisfying(outcome -> {
+            assertThat(outcome.getStatus()).isEqualTo("FAILED");
+            assertThat(outcome.getMessage()).contains("supplier said no");
+        });
+        assertThat(dlq.get("b2")).isPresent();
+    }
+
+    private static CancellationWorker worker(CancellationQueue queue, CancellationDLQ dlq, SupplierRegistry registry) {
+        return worker(queue, dlq, registry, new CancellationWorkerProperties(), new SimpleMeterRegistry());
+    }
+
+    private static CancellationWorker worker(CancellationQueue queue, CancellationDLQ dlq, SupplierRegistry registry,
+                                             CancellationWorkerProperties props, SimpleMeterRegistry meters) {
+        return new CancellationWorker(queue, dlq, registry, ledger(), props, meters);
+    }
+
+    private static CancellationLedger ledger() {
+        AggregatorProperties properties = new AggregatorProperties();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        BookingLedger bookingLedger = new BookingLedger(new InMemoryBookingLedgerStore(properties), properties, meters);
+        return new CancellationLedger(new InMemoryCancellationOutcomeStore(properties), bookingLedger, meters);
+    }
+
+    private static CancellationWorkerProperties noBackoff() {
+        CancellationWorkerProperties props = new CancellationWorkerProperties();
+        props.setRetryBaseDelay(Duration.ZERO);
+        return props;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static TransferSupplier cancelling(String code, Function<CancelCommand, SupplierCancelResult> cancel) {
+        TransferSupplier supplier = mock(TransferSupplier.class);
+        when(supplier.getSupplierCode()).thenReturn(code);
+        when(supplier.cancel(any(CancelCommand.class))).thenAnswer(inv -> cancel.apply(inv.getArgument(0)));
+        return supplier;
+    }
+
+    private static SupplierRegistry registryOf(TransferSupplier... suppliers) {
+        SupplierRegistry registry = mock(SupplierRegistry.class);
+        when(registry.getEnabledSuppliers()).thenReturn(List.of(suppliers));
+        return registry;
+    }
 }
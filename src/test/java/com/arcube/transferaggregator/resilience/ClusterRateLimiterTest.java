@@ -0,0 +1,146 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.exception.RateLimitExceededException;
+import com.arcube.transferaggregator.resilience.ClusterRateLimiter.Scope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ClusterRateLimiterTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    private AggregatorProperties props;
+
+    @BeforeEach
+    void setUp() {
+        props = new AggregatorProperties();
+        props.getResilience().getClusterRateLimit().setEnabled(true);
+        props.getResilience().getClusterRateLimit().setLeaseSize(5);
+        props.getResilience().getClusterRateLimit().setExpectedInstances(2);
+    }
+
+    private ClusterRateLimiter limiter() {
+        return new ClusterRateLimiter(props, redis, registry, nanos::get);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void redisReplies(List<Long>... replies) {
+        var stubbing = when(redis.execute(any(RedisScript.class), anyList(), any(), any(), any()));
+        for (List<Long> reply : replies) {
+            stubbing = stubbing.thenReturn(reply);
+        }
+    }
+
+    private double counter(String name, String... tags) {
+        return registry.get(name).tags(tags).counter().count();
+    }
+
+    @Test
+    void servesLeasedTokensLocally() {
+        redisReplies(List.of(5L, 0L), List.of(5L, 0L));
+        ClusterRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(Scope.SEARCH, "MOZIO", 200)).isZero();
+        }
+        verify(redis, times(1)).execute(any(RedisScript.class), eq(List.of("ratelimit:search:MOZIO")), any(), any(), any());
+
+        assertThat(limiter.tryAcquire(Scope.SEARCH, "MOZIO", 200)).isZero();
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(counter("transfer.ratelimit.lease.refills", "scope", "search")).isEqualTo(2);
+        assertThat(counter("transfer.ratelimit.lease.tokens", "scope", "search")).isEqualTo(10);
+    }
+
+    @Test
+    void leasedTokensExpire() {
+        redisReplies(List.of(5L, 0L), List.of(5L, 0L));
+        ClusterRateLimiter limiter = limiter();
+        limiter.tryAcquire(Scope.POLL, "s1", 200);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        limiter.tryAcquire(Scope.POLL, "s1", 200);
+
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void denialIsRememberedUntilATokenCanExist() {
+        redisReplies(List.of(0L, 1_500L));
+        ClusterRateLimiter limiter = limiter();
+
+        assertThat(limiter.tryAcquire(Scope.SEARCH, "MOZIO", 80)).isEqualTo(1_500);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(limiter.tryAcquire(Scope.SEARCH, "MOZIO", 80)).isEqualTo(1_000);
+
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(counter("transfer.ratelimit.denied", "scope", "search", "source", "cluster")).isEqualTo(2);
+    }
+
+    @Test
+    void fallsBackToLocalShareWhileRedisIsDown() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(), any(), any()))
+            .thenThrow(new RedisConnectionFailureException("down"))
+            .thenReturn(List.of(5L, 0L));
+        ClusterRateLimiter limiter = limiter();
+
+        // Limit 4 over 2 expected instances: 2 local permits
+        assertThat(limiter.tryAcquire(Scope.POLL, "s1", 4)).isZero();
+        assertThat(limiter.tryAcquire(Scope.POLL, "s1", 4)).isZero();
+        assertThat(limiter.tryAcquire(Scope.POLL, "s1", 4)).isPositive();
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+        assertThat(counter("transfer.ratelimit.fallback.permits", "scope", "poll")).isEqualTo(2);
+        assertThat(counter("transfer.ratelimit.denied", "scope", "poll", "source", "fallback")).isEqualTo(1);
+
+        // Back to Redis once the backoff has passed
+        nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertThat(limiter.tryAcquire(Scope.POLL, "s1", 4)).isZero();
+        verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void leaseStaysSmallRelativeToLimit() {
+        redisReplies(List.of(1L, 0L));
+        limiter().tryAcquire(Scope.POLL, "s1", 25);
+
+        // 25/min over 2 instances leaves room for 1 token per lease
+        verify(redis).execute(any(RedisScript.class), anyList(), any(), any(), eq("1"));
+    }
+
+    @Test
+    void rateLimiterUsesClusterWhenEnabled() {
+        redisReplies(List.of(0L, 2_000L));
+        RateLimiter rateLimiter = new RateLimiter(props, limiter());
+
+        assertThatThrownBy(() -> rateLimiter.acquirePollPermit("s1"))
+            .isInstanceOfSatisfying(RateLimitExceededException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(2));
+    }
+
+    @Test
+    void rateLimiterStaysLocalWhenDisabled() {
+        props.getResilience().getClusterRateLimit().setEnabled(false);
+        RateLimiter rateLimiter = new RateLimiter(props, limiter());
+
+        rateLimiter.acquirePollPermit("s1");
+
+        verifyNoInteractions(redis);
+    }
+}
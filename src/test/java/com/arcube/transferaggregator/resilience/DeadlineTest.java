@@ -0,0 +1,93 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadlineTest {
+
+    @AfterEach
+    void clear() {
+        Deadline.clear();
+    }
+
+    @Test
+    void capsTimeoutsToTimeLeft() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(2));
+
+        assertThat(deadline.cap(Duration.ofMillis(500))).isEqualTo(Duration.ofMillis(500));
+        assertThat(deadline.cap(Duration.ofSeconds(10))).isLessThanOrEqualTo(Duration.ofSeconds(2));
+        assertThat(deadline.isExpired()).isFalse();
+    }
+
+    @Test
+    void expiredDeadlineHasNothingLeft() {
+        Deadline deadline = Deadline.at(Instant.now().minusSeconds(1), Duration.ofSeconds(10));
+
+        assertThat(deadline.isExpired()).isTrue();
+        assertThat(deadline.remaining()).isEqualTo(Duration.ZERO);
+        assertThat(deadline.cap(Duration.ofSeconds(1))).isEqualTo(Duration.ZERO);
+        assertThatThrownBy(() -> deadline.check("booking"))
+            .isInstanceOf(DeadlineExceededException.class)
+            .hasMessageContaining("booking");
+    }
+
+    @Test
+    void farOffInstantsAreClamped() {
+        Deadline deadline = Deadline.at(Instant.parse("9999-12-31T00:00:00Z"), Duration.ofSeconds(10));
+
+        assertThat(deadline.remaining())
+            .isGreaterThan(Duration.ofSeconds(9))
+            .isLessThanOrEqualTo(Duration.ofSeconds(10));
+        assertThat(deadline.isExpired()).isFalse();
+        assertThat(Deadline.at(Instant.parse("0001-01-01T00:00:00Z"), Duration.ofSeconds(10)).isExpired()).isTrue();
+    }
+
+    @Test
+    void withinKeepsTheEarlierDeadline() {
+        assertThat(Deadline.within(Duration.ofSeconds(10)).remaining()).isGreaterThan(Duration.ofSeconds(9));
+
+        Deadline.set(Deadline.after(Duration.ofSeconds(1)));
+
+        assertThat(Deadline.within(Duration.ofSeconds(10)).remaining()).isLessThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(Deadline.capToCurrent(Duration.ofSeconds(10))).isLessThanOrEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void noCurrentDeadlineLeavesTimeoutsAlone() {
+        assertThat(Deadline.current()).isNull();
+        assertThat(Deadline.capToCurrent(Duration.ofSeconds(10))).isEqualTo(Duration.ofSeconds(10));
+        assertThatCode(() -> Deadline.checkCurrent("search")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void callWithinRestoresPreviousDeadline() {
+        Deadline outer = Deadline.after(Duration.ofSeconds(5));
+        Deadline inner = Deadline.after(Duration.ofSeconds(1));
+        Deadline.set(outer);
+
+        Deadline seen = Deadline.callWithin(inner, Deadline::current);
+
+        assertThat(seen).isSameAs(inner);
+        assertThat(Deadline.current()).isSameAs(outer);
+    }
+
+    @Test
+    void propagatesToOtherThreads() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+        Deadline.set(deadline);
+
+        Supplier<Deadline> task = Deadline.propagate(Deadline::current);
+
+        assertThat(CompletableFuture.supplyAsync(task).get()).isSameAs(deadline);
+    }
+}
@@ -0,0 +1,158 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.IdempotencyProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.exception.BookingInProgressException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyGuardTest {
+
+    private final Cache<String, BookResponse> results = Caffeine.newBuilder().build();
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(results);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private static BookResponse confirmed() {
+        return BookResponse.confirmed("b1", "CONF-1", Money.of(55.0, "USD"), "pickup", null);
+    }
+
+    private IdempotencyGuard guard(Duration maxWait) {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMaxWait(maxWait);
+        properties.setPollInterval(Duration.ofMillis(10));
+        return new IdempotencyGuard(store, properties, meters);
+    }
+
+    private double requests(String outcome) {
+        return meters.get("transfer.idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    private static void awaitJoining(IdempotencyGuard guard, String key) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (guard.joining(key) == 0) {
+            assertThat(System.nanoTime()).as("duplicate did not join in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void repeatGetsStoredResultWithoutBooking() {
+        IdempotencyGuard guard = guard(Duration.ofSeconds(1));
+        AtomicInteger bookings = new AtomicInteger();
+
+        BookResponse first = guard.execute("k1", () -> {
+            bookings.incrementAndGet();
+            return confirmed();
+        });
+        BookResponse repeat = guard.execute("k1", () -> {
+            bookings.incrementAndGet();
+            return confirmed();
+        });
+
+        assertThat(repeat).isSameAs(first);
+        assertThat(bookings.get()).isEqualTo(1);
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentDuplicatesJoinTheFirstBooking() throws Exception {
+        IdempotencyGuard guard = guard(Duration.ofSeconds(5));
+        AtomicInteger bookings = new AtomicInteger();
+        CountDownLatch booking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<BookResponse> first = CompletableFuture.supplyAsync(() -> guard.execute("k1", () -> {
+            bookings.incrementAndGet();
+            booking.countDown();
+            await(release);
+            return confirmed();
+        }));
+        assertThat(booking.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<BookResponse> duplicate = CompletableFuture.supplyAsync(() -> guard.execute("k1", () -> {
+            bookings.incrementAndGet();
+            return confirmed();
+        }));
+        awaitJoining(guard, "k1");
+        release.countDown();
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(bookings.get()).isEqualTo(1);
+        assertThat(requests("joined")).isEqualTo(1);
+        assertThat(meters.get("transfer.idempotency.wait").tag("outcome", "joined").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void waitsForBookingInFlightElsewhere() throws Exception {
+        IdempotencyGuard guard = guard(Duration.ofSeconds(5));
+        // Another instance holds the key
+        assertThat(store.claim("k1", "other", Duration.ofMinutes(1)).state()).isEqualTo(IdempotencyStore.State.CLAIMED);
+
+        CompletableFuture<BookResponse> duplicate = CompletableFuture.supplyAsync(() ->
+            guard.execute("k1", IdempotencyGuardTest::confirmed));
+        Thread.sleep(50);
+        assertThat(duplicate).isNotDone();
+        BookResponse stored = confirmed();
+        store.complete("k1", "other", stored);
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isSameAs(stored);
+        assertThat(requests("joined")).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpWhenBookingElsewhereOutlastsMaxWait() {
+        IdempotencyGuard guard = guard(Duration.ofMillis(50));
+        store.claim("k1", "other", Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> guard.execute("k1", IdempotencyGuardTest::confirmed))
+            .isInstanceOf(BookingInProgressException.class);
+        assertThat(requests("in_progress")).isEqualTo(1);
+    }
+
+    @Test
+    void pendingAndFailedBookingsAreNotStoredAndReleaseTheKey() {
+        IdempotencyGuard guard = guard(Duration.ofSeconds(1));
+
+        BookResponse pending = guard.execute("k1", () -> BookResponse.pending("b1"));
+        assertThat(pending.getStatus()).isEqualTo(BookingStatus.PENDING);
+        assertThat(results.estimatedSize()).isZero();
+
+        assertThatThrownBy(() -> guard.execute("k2", () -> {
+            throw new IllegalStateException("supplier down");
+        })).hasMessage("supplier down");
+
+        // Both keys can be claimed again
+        assertThat(store.claim("k1", "next", Duration.ofMinutes(1)).state()).isEqualTo(IdempotencyStore.State.CLAIMED);
+        assertThat(store.claim("k2", "next", Duration.ofMinutes(1)).state()).isEqualTo(IdempotencyStore.State.CLAIMED);
+    }
+
+    @Test
+    void expiredMarkerCanBeTakenOver() {
+        store.claim("k1", "crashed", Duration.ZERO);
+
+        assertThat(guard(Duration.ofSeconds(1)).execute("k1", IdempotencyGuardTest::confirmed).getStatus())
+            .isEqualTo(BookingStatus.CONFIRMED);
+        assertThat(requests("miss")).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.arcube.transferaggregator.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryCancellationQueueTest {
+
+    @Test
+    void enqueueAndCompleteTracksPending() {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+
+        queue.enqueue(task);
+        assertThat(queue.getPending("b1")).isPresent();
+        assertThat(queue.pendingCount()).isEqualTo(1);
+
+        queue.complete("b1");
+        assertThat(queue.getPending("b1")).isEmpty();
+        assertThat(queue.pendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    void requeueKeepsRetriedTask() {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+
+        queue.enqueue(task);
+        queue.poll();
+        queue.requeue(task.withRetry("boom"));
+
+        CancellationTask pending = queue.getPending("b1").orElseThrow();
+        assertThat(pending.retryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void holdsBackTasksUntilNextAttempt() {
+        CancellationQueue queue = new InMemoryCancellationQueue();
+        CancellationTask later = CancellationTask.create("b1", "SUP", "r1", "c1")
+            .withRetry("boom").withNextAttemptAt(Instant.now().plusSeconds(60));
+        CancellationTask due = CancellationTask.create("b2", "SUP", "r2", "c2")
+            .withRetry("boom").withNextAttemptAt(Instant.now().minusSeconds(1));
+
+        queue.requeue(later);
+        queue.requeue(due);
+
+        assertThat(queue.poll()).map(CancellationTask::bookingId).contains("b2");
+        assertThat(queue.poll()).isEmpty();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.getPending("b1")).isPresent();
+    }
+}
@@ -0,0 +1,91 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Permits per second under contention: the old Caffeine + AtomicInteger counter vs token buckets.
+ * The bucket clock runs 60000 times fast so buckets refill faster than threads can drain them
+ * and every call goes through the CAS; {@code drainedBucket} measures the reject path. Defaults to 8 threads; compare with
+ * {@code -t 1} and {@code -t 32}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 1_024;
+    private static final long CLOCK_SPEEDUP = 60_000;
+
+    private String[] searchIds;
+    private TokenBucket hotBucket;
+    private TokenBucket drainedBucket;
+    private RateLimiter limiter;
+    private Cache<String, AtomicInteger> legacyCounters;
+    private String supplierCode = "MOZIO";  // Not a constant, so the legacy key concat isn't folded
+
+    @Setup
+    public void setUp() {
+        searchIds = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            searchIds[i] = "search-" + i;
+        }
+
+        long start = System.nanoTime();
+        LongSupplier fastClock = () -> (System.nanoTime() - start) * CLOCK_SPEEDUP;
+        hotBucket = new TokenBucket((int) TokenBucket.MAX_CAPACITY, fastClock);
+        drainedBucket = new TokenBucket(1, () -> 0L);
+        drainedBucket.tryAcquire();
+
+        AggregatorProperties props = new AggregatorProperties();
+        props.getResilience().setSearchRateLimitPerMinute((int) TokenBucket.MAX_CAPACITY);
+        props.getResilience().setPollRateLimitPerMinute((int) TokenBucket.MAX_CAPACITY);
+        limiter = new RateLimiter(props, fastClock);
+
+        legacyCounters = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.MINUTES).build();
+    }
+
+    @Benchmark
+    public boolean hotBucket() {
+        return hotBucket.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean drainedBucket() {
+        return drainedBucket.tryAcquire();
+    }
+
+    @Benchmark
+    public void hotSupplierKey() {
+        limiter.acquireSearchPermit(supplierCode);
+    }
+
+    @Benchmark
+    public void spreadPollKeys() {
+        limiter.acquirePollPermit(searchIds[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    /** The previous implementation's hot path, for comparison */
+    @Benchmark
+    public int legacyHotSupplierKey() {
+        String key = "search:" + supplierCode;
+        AtomicInteger counter = Objects.requireNonNull(legacyCounters.get(key, k -> new AtomicInteger(0)));
+        int current = counter.incrementAndGet();
+        if (current > Integer.MAX_VALUE - 1_000_000) {
+            counter.set(0);
+        }
+        return current;
+    }
+}
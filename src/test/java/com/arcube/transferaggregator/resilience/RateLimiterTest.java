@@ -8,6 +8,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
@@ -36,6 +41,32 @@ class RateLimiterTest {
             .isInstanceOf(RateLimitExceededException.class);
     }
     
+    @Test
+    void searchPermitWaitsForTokenWithinDeadline() {
+        when(properties.getResilience()).thenReturn(resilienceProperties);
+        when(resilienceProperties.getSearchRateLimitPerMinute()).thenReturn(60);  // A token every second
+        when(resilienceProperties.getPollRateLimitPerMinute()).thenReturn(10);
+        
+        RateLimiter limiter = new RateLimiter(properties);
+        for (int i = 0; i < 60; i++) {
+            limiter.acquireSearchPermit("TEST");
+        }
+        
+        // No deadline: fails fast as before
+        assertThatThrownBy(() -> limiter.acquireSearchPermit("TEST"))
+            .isInstanceOf(RateLimitExceededException.class);
+        // Deadline far enough away: waits for the next token
+        assertThatCode(() -> Deadline.callWithin(Deadline.after(Duration.ofSeconds(2)), () -> {
+            limiter.acquireSearchPermit("TEST");
+            return null;
+        })).doesNotThrowAnyException();
+        // Deadline too close for the next token: fails fast
+        assertThatThrownBy(() -> Deadline.callWithin(Deadline.after(Duration.ofMillis(5)), () -> {
+            limiter.acquireSearchPermit("TEST");
+            return null;
+        })).isInstanceOf(RateLimitExceededException.class);
+    }
+    
     @Test
     void shouldEnforcePollRateLimit() {
         when(properties.getResilience()).thenReturn(resilienceProperties);
@@ -55,4 +86,61 @@ class RateLimiterTest {
         assertThatCode(() -> limiter.acquirePollPermit("xyz-789"))
             .doesNotThrowAnyException();
     }
+    
+    @Test
+    void shouldRefillOverTimeAndReportRetryAfter() {
+        when(properties.getResilience()).thenReturn(resilienceProperties);
+        when(resilienceProperties.getSearchRateLimitPerMinute()).thenReturn(2);
+        when(resilienceProperties.getPollRateLimitPerMinute()).thenReturn(10);
+        
+        AtomicLong nanos = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(properties, nanos::get);
+        limiter.acquireSearchPermit("TEST");
+        limiter.acquireSearchPermit("TEST");
+        
+        // 2/min refills one token every 30s
+        assertThatThrownBy(() -> limiter.acquireSearchPermit("TEST"))
+            .isInstanceOfSatisfying(RateLimitExceededException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(30));
+        
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThatCode(() -> limiter.acquireSearchPermit("TEST")).doesNotThrowAnyException();
+    }
+    
+    @Test
+    void zeroLimitDeniesEveryCall() {
+        when(properties.getResilience()).thenReturn(resilienceProperties);
+        when(resilienceProperties.getSearchRateLimitPerMinute()).thenReturn(0);
+        when(resilienceProperties.getPollRateLimitPerMinute()).thenReturn(0);
+        
+        RateLimiter limiter = new RateLimiter(properties);
+        
+        assertThatThrownBy(() -> limiter.acquireSearchPermit("TEST"))
+            .isInstanceOfSatisfying(RateLimitExceededException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(60));
+        assertThatThrownBy(() -> limiter.acquirePollPermit("search-1"))
+            .isInstanceOf(RateLimitExceededException.class);
+    }
+    
+    @Test
+    void shouldEnforceTenantLimitOnlyWhenConfigured() {
+        when(properties.getResilience()).thenReturn(resilienceProperties);
+        when(resilienceProperties.getSearchRateLimitPerMinute()).thenReturn(10);
+        when(resilienceProperties.getPollRateLimitPerMinute()).thenReturn(10);
+        when(resilienceProperties.getTenantSearchRateLimitPerMinute()).thenReturn(1);
+        
+        RateLimiter limiter = new RateLimiter(properties);
+        limiter.acquireTenantSearchPermit("acme");
+        
+        assertThatThrownBy(() -> limiter.acquireTenantSearchPermit("acme"))
+            .isInstanceOf(RateLimitExceededException.class);
+        assertThatCode(() -> limiter.acquireTenantSearchPermit("globex"))
+            .doesNotThrowAnyException();
+        
+        AggregatorProperties unlimited = new AggregatorProperties();
+        RateLimiter noTenantLimit = new RateLimiter(unlimited);
+        for (int i = 0; i < 100; i++) {
+            noTenantLimit.acquireTenantSearchPermit("acme");
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingLedgerProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class RedisBookingLedgerStoreTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ListOperations<String, String> lists = mock(ListOperations.class);
+    private final ZSetOperations<String, String> zsets = mock(ZSetOperations.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RedisBookingLedgerStore store;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(lists).when(redis).opsForList();
+        doReturn(zsets).when(redis).opsForZSet();
+        // Run the pipeline against the same mocks
+        when(redis.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(redis);
+            return List.of();
+        });
+        BookingLedgerProperties properties = new BookingLedgerProperties();
+        properties.setRetention(Duration.ofDays(30));
+        store = new RedisBookingLedgerStore(properties, redis, objectMapper);
+    }
+
+    @Test
+    void appendPushesEntriesAndIndexesBookingsByTenant() throws Exception {
+        BookingLedgerEntry booked = BookingLedgerEntry.booked("b1", "tenant-a", "MOZIO", BookingStatus.PENDING,
+            null, null, null, null);
+        BookingLedgerEntry cancelled = BookingLedgerEntry.cancelled("b1");
+
+        store.append(List.of(booked, cancelled));
+
+        verify(lists).rightPush("booking:ledger:b1", objectMapper.writeValueAsString(booked));
+        verify(lists).rightPush("booking:ledger:b1", objectMapper.writeValueAsString(cancelled));
+        verify(redis, times(2)).expire("booking:ledger:b1", Duration.ofDays(30));
+        verify(zsets).add("booking:ledger:tenant:tenant-a", "b1", booked.recordedAt().toEpochMilli());
+        verify(zsets).removeRangeByScore(eq("booking:ledger:tenant:tenant-a"), eq(0.0), anyDouble());
+        verify(redis).expire("booking:ledger:tenant:tenant-a", Duration.ofDays(30));
+    }
+
+    @Test
+    void historySkipsUnreadableEntries() throws Exception {
+        BookingLedgerEntry booked = BookingLedgerEntry.booked("b1", "tenant-a", "MOZIO", BookingStatus.CONFIRMED,
+            "CONF-1", null, null, null);
+        when(lists.range("booking:ledger:b1", 0, -1))
+            .thenReturn(List.of(objectMapper.writeValueAsString(booked), "not json"));
+
+        assertThat(store.history("b1")).containsExactly(booked);
+        assertThat(store.history("missing")).isEmpty();
+    }
+
+    @Test
+    void bookingIdsAreNewestFirst() {
+        when(zsets.reverseRange("booking:ledger:tenant:tenant-a", 0, 9))
+            .thenReturn(new LinkedHashSet<>(List.of("b2", "b1")));
+
+        assertThat(store.bookingIds("tenant-a", 10)).containsExactly("b2", "b1");
+        assertThat(store.bookingIds("tenant-b", 10)).isEmpty();
+    }
+}
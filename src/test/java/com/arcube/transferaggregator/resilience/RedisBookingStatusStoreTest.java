@@ -0,0 +1,52 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingStatusProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class RedisBookingStatusStoreTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RedisBookingStatusStore store;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(values).when(redis).opsForValue();
+        BookingStatusProperties properties = new BookingStatusProperties();
+        properties.setTtl(Duration.ofHours(2));
+        store = new RedisBookingStatusStore(properties, redis, objectMapper);
+    }
+
+    @Test
+    void putWritesJsonWithTtl() throws Exception {
+        BookResponse status = BookResponse.pending("b1");
+
+        store.put(status);
+
+        verify(values).set("booking:status:b1", objectMapper.writeValueAsString(status), Duration.ofHours(2));
+    }
+
+    @Test
+    void getReadsJsonAndSkipsUnreadable() throws Exception {
+        BookResponse status = BookResponse.confirmed("b1", "CONF-1", null, "Meet at exit", null);
+        when(values.get("booking:status:b1")).thenReturn(objectMapper.writeValueAsString(status));
+        when(values.get("booking:status:b2")).thenReturn("not json");
+
+        assertThat(store.get("b1")).map(BookResponse::getStatus).contains(BookingStatus.CONFIRMED);
+        assertThat(store.get("b2")).isEmpty();
+        assertThat(store.get("missing")).isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.CancellationLedgerProperties;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class RedisCancellationOutcomeStoreTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RedisCancellationOutcomeStore store;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(values).when(redis).opsForValue();
+        CancellationLedgerProperties properties = new CancellationLedgerProperties();
+        properties.setTtl(Duration.ofHours(6));
+        store = new RedisCancellationOutcomeStore(properties, redis, objectMapper);
+    }
+
+    @Test
+    void putWritesJsonWithTtl() throws Exception {
+        CancelResponse outcome = CancelResponse.failed("b1", "gave up");
+
+        store.put(outcome);
+
+        verify(values).set("cancellation:outcome:b1", objectMapper.writeValueAsString(outcome), Duration.ofHours(6));
+    }
+
+    @Test
+    void getReadsJsonAndSkipsUnreadable() throws Exception {
+        CancelResponse outcome = CancelResponse.alreadyCancelled("b1");
+        when(values.get("cancellation:outcome:b1")).thenReturn(objectMapper.writeValueAsString(outcome));
+        when(values.get("cancellation:outcome:b2")).thenReturn("not json");
+
+        assertThat(store.get("b1")).map(CancelResponse::getStatus).contains(outcome.getStatus());
+        assertThat(store.get("b2")).isEmpty();
+        assertThat(store.get("missing")).isEmpty();
+    }
+}
@@ -0,0 +1,61 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class RedisDeadLetterStoreTest {
+
+    private static final String KEY = "cancellation:dlq";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final HashOperations<String, Object, Object> hash = mock(HashOperations.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RedisDeadLetterStore store;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(hash).when(redis).opsForHash();
+        store = new RedisDeadLetterStore(KEY, redis, objectMapper);
+    }
+
+    @Test
+    void putStoresJsonByBookingId() throws Exception {
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1").withRetry("boom");
+
+        store.put(task);
+
+        verify(hash).put(KEY, "b1", objectMapper.writeValueAsString(task));
+    }
+
+    @Test
+    void getAndGetAllReadJsonAndSkipUnreadable() throws Exception {
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+        String json = objectMapper.writeValueAsString(task);
+        when(hash.get(KEY, "b1")).thenReturn(json);
+        when(hash.values(KEY)).thenReturn(List.of(json, "not json"));
+
+        assertThat(store.get("b1")).contains(task);
+        assertThat(store.get("missing")).isEmpty();
+        assertThat(store.getAll()).containsExactly(task);
+    }
+
+    @Test
+    void removeReportsWhetherThisCallerTookIt() {
+        when(hash.delete(KEY, "b1")).thenReturn(1L);
+        when(hash.delete(KEY, "b2")).thenReturn(0L);
+        when(hash.size(KEY)).thenReturn(3L);
+
+        assertThat(store.remove("b1")).isTrue();
+        assertThat(store.remove("b2")).isFalse();
+        assertThat(store.size()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,76 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.IdempotencyProperties;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class RedisIdempotencyStoreTest {
+
+    private static final String KEY = "idempotency:booking:k1";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private RedisIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(values).when(redis).opsForValue();
+        store = new RedisIdempotencyStore(new IdempotencyProperties(), redis, objectMapper);
+    }
+
+    @Test
+    void claimSetsMarkerOnlyIfAbsent() {
+        when(values.setIfAbsent(KEY, "in-flight:me", Duration.ofSeconds(60))).thenReturn(true);
+
+        assertThat(store.claim("k1", "me", Duration.ofSeconds(60)).state()).isEqualTo(IdempotencyStore.State.CLAIMED);
+    }
+
+    @Test
+    void claimReportsMarkerOrStoredResult() throws Exception {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get(KEY)).thenReturn("in-flight:other");
+
+        assertThat(store.claim("k1", "me", Duration.ofSeconds(60)).state()).isEqualTo(IdempotencyStore.State.IN_FLIGHT);
+
+        BookResponse stored = BookResponse.pending("b1");
+        when(values.get(KEY)).thenReturn(objectMapper.writeValueAsString(stored));
+
+        IdempotencyStore.Claim claim = store.claim("k1", "me", Duration.ofSeconds(60));
+        assertThat(claim.state()).isEqualTo(IdempotencyStore.State.DONE);
+        assertThat(claim.response()).isEqualTo(stored);
+    }
+
+    @Test
+    void claimRetriesWhenKeyVanishesBetweenSetAndGet() {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false, true);
+        when(values.get(KEY)).thenReturn(null);
+
+        assertThat(store.claim("k1", "me", Duration.ofSeconds(60)).state()).isEqualTo(IdempotencyStore.State.CLAIMED);
+        verify(values, times(2)).setIfAbsent(KEY, "in-flight:me", Duration.ofSeconds(60));
+    }
+
+    @Test
+    void completeOverwritesWithResultAndReleaseOnlyDropsOwnMarker() throws Exception {
+        BookResponse response = BookResponse.pending("b1");
+
+        store.complete("k1", "me", response);
+        store.release("k1", "me");
+
+        verify(values).set(KEY, objectMapper.writeValueAsString(response), Duration.ofMinutes(5));
+        verify(redis).execute(RedisIdempotencyStore.RELEASE_SCRIPT, List.of(KEY), "in-flight:me");
+    }
+}
@@ -0,0 +1,239 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.RedisQueueProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class RedisStreamCancellationQueueTest {
+
+    private static final String STREAM = "cancellation:queue";
+    private static final String PENDING = "cancellation:pending";
+    private static final String GROUP = "cancellation-workers";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final StreamOperations<String, Object, Object> streams = mock(StreamOperations.class);
+    private final HashOperations<String, Object, Object> hash = mock(HashOperations.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RedisStreamCancellationQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(streams).when(redis).opsForStream();
+        doReturn(hash).when(redis).opsForHash();
+        when(streams.pending(anyString(), anyString(), any(Range.class), anyLong()))
+            .thenReturn(new PendingMessages(GROUP, List.of()));
+
+        RedisQueueProperties config = new RedisQueueProperties();
+        config.setConsumerName("instance-1");
+        queue = new RedisStreamCancellationQueue(config, redis, objectMapper, registry, () -> 0L);
+    }
+
+    private MapRecord<String, Object, Object> record(String id, Object json) {
+        return MapRecord.create(STREAM, Map.<Object, Object>of(RedisStreamCancellationQueue.TASK_FIELD, json))
+            .withId(RecordId.of(id));
+    }
+
+    private void streamHas(MapRecord<String, Object, Object>... records) {
+        when(streams.read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class)))
+            .thenReturn(List.of(records))
+            .thenReturn(List.of());
+    }
+
+    @Test
+    void enqueueAddsToStreamAndPendingHash() throws Exception {
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+
+        queue.enqueue(task);
+
+        String json = objectMapper.writeValueAsString(task);
+        verify(hash).put(PENDING, "b1", json);
+        verify(streams).add(STREAM, Map.of(RedisStreamCancellationQueue.TASK_FIELD, json));
+    }
+
+    @Test
+    void pollReadsThroughGroupAndCompleteAcknowledges() throws Exception {
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+        streamHas(record("1-0", objectMapper.writeValueAsString(task)));
+
+        CancellationTask polled = queue.poll().orElseThrow();
+        assertThat(polled.bookingId()).isEqualTo("b1");
+        verify(streams).createGroup(STREAM, ReadOffset.from("0"), GROUP);
+        verify(streams).read(eq(Consumer.from(GROUP, "instance-1")), any(StreamReadOptions.class), any(StreamOffset.class));
+
+        queue.complete("b1");
+
+        verify(hash).delete(PENDING, "b1");
+        verify(streams).acknowledge(STREAM, GROUP, RecordId.of("1-0"));
+        verify(streams).delete(STREAM, RecordId.of("1-0"));
+        assertThat(queue.poll()).isEmpty();
+    }
+
+    @Test
+    void requeueAddsRetryBeforeAcknowledgingOldEntry() throws Exception {
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+        streamHas(record("1-0", objectMapper.writeValueAsString(task)));
+        queue.poll();
+
+        queue.requeue(task.withRetry("boom"));
+
+        var order = inOrder(streams);
+        order.verify(streams).add(eq(STREAM), anyMap());
+        order.verify(streams).acknowledge(STREAM, GROUP, RecordId.of("1-0"));
+        verify(hash).put(eq(PENDING), eq("b1"), argThat(json -> json.toString().contains("\"retryCount\":1")));
+    }
+
+    @Test
+    void retriesNotDueWaitInSortedSetUntilPromoted() throws Exception {
+        ZSetOperations<String, String> zset = mock(ZSetOperations.class);
+        doReturn(zset).when(redis).opsForZSet();
+        Instant next = Instant.now().plusSeconds(30);
+        CancellationTask retry = CancellationTask.create("b1", "SUP", "r1", "c1").withRetry("boom").withNextAttemptAt(next);
+
+        queue.requeue(retry);
+
+        verify(zset).add("cancellation:retry", objectMapper.writeValueAsString(retry), next.toEpochMilli());
+        verify(streams, never()).add(anyString(), anyMap());
+
+        streamHas();
+        queue.poll();
+        verify(redis).execute(eq(RedisStreamCancellationQueue.PROMOTE_SCRIPT),
+            eq(List.of("cancellation:retry", STREAM)), eq("10"), eq(RedisStreamCancellationQueue.TASK_FIELD));
+    }
+
+    @Test
+    void reclaimsEntriesAbandonedByAnotherConsumer() throws Exception {
+        CancellationTask task = CancellationTask.create("b2", "SUP", "r2", "c2");
+        when(streams.pending(anyString(), anyString(), any(Range.class), anyLong()))
+            .thenReturn(new PendingMessages(GROUP, List.of(
+                new PendingMessage(RecordId.of("1-0"), Consumer.from(GROUP, "dead"), Duration.ofMinutes(5), 1),
+                new PendingMessage(RecordId.of("2-0"), Consumer.from(GROUP, "busy"), Duration.ofSeconds(5), 1))));
+        when(streams.claim(eq(STREAM), eq(GROUP), eq("instance-1"), any(Duration.class), any(RecordId.class)))
+            .thenReturn(List.of(record("1-0", objectMapper.writeValueAsString(task))));
+
+        assertThat(queue.poll()).map(CancellationTask::bookingId).contains("b2");
+
+        verify(streams).claim(STREAM, GROUP, "instance-1", Duration.ofMinutes(1), RecordId.of("1-0"));
+        verify(streams, never()).read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class));
+        assertThat(registry.get("transfer.cancellation.queue.reclaimed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void reclaimLooksPastAFullPageOfLiveEntries() throws Exception {
+        int pageSize = RedisStreamCancellationQueue.PENDING_PAGE_SIZE;
+        List<PendingMessage> live = new ArrayList<>();
+        for (int i = 1; i <= pageSize; i++) {
+            // Older than the dead consumer's entry, but kept fresh by their owner's heartbeat
+            live.add(new PendingMessage(RecordId.of(i + "-0"), Consumer.from(GROUP, "busy"), Duration.ofSeconds(5), 1));
+        }
+        CancellationTask task = CancellationTask.create("b9", "SUP", "r9", "c9");
+        when(streams.pending(anyString(), anyString(), any(Range.class), anyLong()))
+            .thenReturn(new PendingMessages(GROUP, live))
+            .thenReturn(new PendingMessages(GROUP, List.of(
+                new PendingMessage(RecordId.of("500-0"), Consumer.from(GROUP, "dead"), Duration.ofMinutes(5), 1))));
+        when(streams.claim(eq(STREAM), eq(GROUP), eq("instance-1"), any(Duration.class), any(RecordId.class)))
+            .thenReturn(List.of(record("500-0", objectMapper.writeValueAsString(task))));
+
+        assertThat(queue.poll()).map(CancellationTask::bookingId).contains("b9");
+
+        verify(streams).pending(STREAM, GROUP, Range.rightUnbounded(Range.Bound.inclusive(pageSize + "-1")), pageSize);
+        verify(streams).claim(STREAM, GROUP, "instance-1", Duration.ofMinutes(1), RecordId.of("500-0"));
+    }
+
+    @Test
+    void heartbeatKeepsHeldEntriesOwnedAndDropsOnesTakenOver() throws Exception {
+        streamHas(
+            record("1-0", objectMapper.writeValueAsString(CancellationTask.create("b1", "SUP", "r1", "c1"))),
+            record("2-0", objectMapper.writeValueAsString(CancellationTask.create("b2", "SUP", "r2", "c2"))));
+        queue.poll();  // 1-0 in flight, 2-0 still buffered
+        // A peer claimed 2-0 while this instance held it
+        when(streams.pending(eq(STREAM), eq(Consumer.from(GROUP, "instance-1")), any(Range.class), anyLong()))
+            .thenReturn(new PendingMessages(GROUP, List.of(
+                new PendingMessage(RecordId.of("1-0"), Consumer.from(GROUP, "instance-1"), Duration.ofSeconds(50), 1))));
+
+        queue.heartbeat();
+
+        verify(streams).claim(STREAM, GROUP, "instance-1", Duration.ZERO, RecordId.of("1-0"));
+        assertThat(queue.poll()).isEmpty();
+    }
+
+    @Test
+    void entriesSharingABookingIdAreEachAcknowledged() throws Exception {
+        CancellationTask task = CancellationTask.create("b1", "SUP", "r1", "c1");
+        String json = objectMapper.writeValueAsString(task);
+        streamHas(record("1-0", json), record("2-0", json));
+
+        queue.poll();
+        queue.poll();
+        queue.complete("b1");
+        queue.complete("b1");
+
+        verify(streams).acknowledge(STREAM, GROUP, RecordId.of("1-0"));
+        verify(streams).acknowledge(STREAM, GROUP, RecordId.of("2-0"));
+    }
+
+    @Test
+    void dropsUnreadableEntries() {
+        streamHas(record("1-0", "not json"));
+
+        assertThat(queue.poll()).isEmpty();
+
+        verify(streams).acknowledge(STREAM, GROUP, RecordId.of("1-0"));
+        verify(streams).delete(STREAM, RecordId.of("1-0"));
+        assertThat(registry.get("transfer.cancellation.queue.unreadable").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void existingGroupIsReused() {
+        when(streams.createGroup(anyString(), any(ReadOffset.class), anyString()))
+            .thenThrow(new RedisSystemException("BUSYGROUP Consumer Group name already exists", null));
+        streamHas();
+
+        assertThat(queue.poll()).isEmpty();
+        assertThat(queue.poll()).isEmpty();
+
+        verify(streams, times(1)).createGroup(anyString(), any(ReadOffset.class), anyString());
+    }
+
+    @Test
+    void pendingLookupUsesHash() throws Exception {
+        CancellationTask task = CancellationTask.create("b3", "SUP", "r3", "c3");
+        when(hash.get(PENDING, "b3")).thenReturn(objectMapper.writeValueAsString(task));
+        when(hash.size(PENDING)).thenReturn(1L);
+
+        assertThat(queue.getPending("b3")).contains(task);
+        assertThat(queue.getPending("missing")).isEmpty();
+        assertThat(queue.pendingCount()).isEqualTo(1);
+    }
+}
@@ -1,21 +1,49 @@
 package com.arcube.transferaggregator.resilience;
 
+import com.arcube.transferaggregator.config.AggregatorProperties.RetryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class RetryHandlerTest {
     
+    private static WebClientResponseException status(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), null, null, null);
+    }
+    
+    private static RuntimeException timeout() {
+        return new IllegalStateException("Timeout on blocking read", new TimeoutException("timeout"));
+    }
+    
+    private static RetryProperties fastRetries() {
+        RetryProperties props = new RetryProperties();
+        props.setBaseDelay(Duration.ofMillis(1));
+        props.setMaxDelay(Duration.ofMillis(5));
+        return props;
+    }
+    
     @Test
     void shouldRetryOnTransientFailure() {
-        RetryHandler handler = new RetryHandler();
+        RetryHandler handler = new RetryHandler(new RetryProperties(), new SimpleMeterRegistry());
         final int[] attempts = {0};
         
         String result = handler.executeWithRetry(() -> {
             attempts[0]++;
             if (attempts[0] < 2) {
-                throw new RuntimeException("SocketTimeoutException"); // Simulated retryable name match
+                throw timeout();
             }
             return "success";
         }, 2);
@@ -26,18 +54,21 @@ class RetryHandlerTest {
     
     @Test
     void shouldFailAfterMaxRetries() {
-        RetryHandler handler = new RetryHandler();
+        RetryHandler handler = new RetryHandler(new RetryProperties(), new SimpleMeterRegistry());
+        final int[] attempts = {0};
         
         assertThatThrownBy(() -> handler.executeWithRetry(() -> {
-            throw new RuntimeException("Connection refused");
+            attempts[0]++;
+            throw new UncheckedIOException(new ConnectException("Connection refused"));
         }, 2))
-            .isInstanceOf(RuntimeException.class)
+            .isInstanceOf(UncheckedIOException.class)
             .hasMessageContaining("Connection refused");
+        assertThat(attempts[0]).isEqualTo(3);
     }
     
     @Test
     void shouldNotRetryNonTransientErrors() {
-        RetryHandler handler = new RetryHandler();
+        RetryHandler handler = new RetryHandler(new RetryProperties(), new SimpleMeterRegistry());
         final int[] attempts = {0};
         
         assertThatThrownBy(() -> handler.executeWithRetry(() -> {
@@ -51,13 +82,13 @@ class RetryHandlerTest {
 
     @Test
     void executeWithRetryUsesDefaultSettings() {
-        RetryHandler handler = new RetryHandler();
+        RetryHandler handler = new RetryHandler(new RetryProperties(), new SimpleMeterRegistry());
         final int[] attempts = {0};
 
         String result = handler.executeWithRetry(() -> {
             attempts[0]++;
             if (attempts[0] < 2) {
-                throw new RuntimeException("timeout");
+                throw status(HttpStatus.SERVICE_UNAVAILABLE);
             }
             return "ok";
         });
@@ -67,97 +98,132 @@ class RetryHandlerTest {
     }
 
     @Test
-    void treatsNullMessageAsNonRetryableByMessage() {
-        RetryHandler handler = new RetryHandler();
-
-        assertThatThrownBy(() -> handler.executeWithRetry(() -> {
-            throw new RuntimeException((String) null);
-        }, 1)).isInstanceOf(RuntimeException.class);
+    void classifiesOnTypeAndStatusNotMessage() {
+        assertThat(RetryHandler.isRetryable(status(HttpStatus.BAD_GATEWAY))).isTrue();
+        assertThat(RetryHandler.isRetryable(status(HttpStatus.SERVICE_UNAVAILABLE))).isTrue();
+        assertThat(RetryHandler.isRetryable(status(HttpStatus.GATEWAY_TIMEOUT))).isTrue();
+        assertThat(RetryHandler.isRetryable(status(HttpStatus.TOO_MANY_REQUESTS))).isTrue();
+        assertThat(RetryHandler.isRetryable(status(HttpStatus.BAD_REQUEST))).isFalse();
+        assertThat(RetryHandler.isRetryable(status(HttpStatus.INTERNAL_SERVER_ERROR))).isFalse();
+
+        assertThat(RetryHandler.isRetryable(timeout())).isTrue();
+        assertThat(RetryHandler.isRetryable(new RuntimeException(new ConnectException("refused")))).isTrue();
+
+        // The old substring heuristics no longer apply
+        assertThat(RetryHandler.isRetryable(new RuntimeException("Service temporarily unavailable (503)"))).isFalse();
+        assertThat(RetryHandler.isRetryable(new RuntimeException("timeout"))).isFalse();
+        assertThat(RetryHandler.isRetryable(new UncheckedIOException(new IOException("io")))).isFalse();
+        assertThat(RetryHandler.isRetryable(new RuntimeException((String) null))).isFalse();
     }
 
     @Test
-    void retriesOnClassNameHints() {
-        RetryHandler handler = new RetryHandler();
-        final int[] attempts = {0};
+    void withRetryResubscribesWithoutBlocking() {
+        RetryHandler handler = new RetryHandler(fastRetries(), new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() < 3
+            ? Mono.error(status(HttpStatus.SERVICE_UNAVAILABLE))
+            : Mono.just("ok"));
+
+        StepVerifier.create(handler.withRetry("MOZIO", call))
+            .expectNext("ok")
+            .verifyComplete();
+        assertThat(attempts).hasValue(3);
+    }
 
-        String result = handler.executeWithRetry(() -> {
-            attempts[0]++;
-            if (attempts[0] == 1) {
-                throw new TimeoutException();
-            }
-            return "ok";
-        }, 1);
+    @Test
+    void withRetryReturnsOriginalErrorWhenExhausted() {
+        RetryHandler handler = new RetryHandler(fastRetries(), new SimpleMeterRegistry());
+        WebClientResponseException unavailable = status(HttpStatus.SERVICE_UNAVAILABLE);
 
-        assertThat(result).isEqualTo("ok");
+        StepVerifier.create(handler.withRetry("MOZIO", Mono.error(unavailable)))
+            .expectErrorMatches(e -> e == unavailable)
+            .verify(Duration.ofSeconds(5));
     }
 
     @Test
-    void retriesOnMessageHints() {
-        RetryHandler handler = new RetryHandler();
-        final int[] attempts = {0};
-
-        String result = handler.executeWithRetry(() -> {
-            attempts[0]++;
-            if (attempts[0] == 1) {
-                throw new RuntimeException("Service temporarily unavailable (503)");
-            }
-            return "ok";
-        }, 1);
+    void retryBudgetStopsRetryStorms() {
+        RetryProperties props = fastRetries();
+        props.setBudgetRatio(0.1);
+        props.setBudgetBurst(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryHandler handler = new RetryHandler(props, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Supplier down: every call fails; only the burst of 2 retries is spent, then calls fail fast
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> handler.executeWithRetry("MOZIO", () -> {
+                attempts.incrementAndGet();
+                throw status(HttpStatus.SERVICE_UNAVAILABLE);
+            })).isInstanceOf(WebClientResponseException.class);
+        }
 
-        assertThat(result).isEqualTo("ok");
+        // The first call spends the burst; the other 9 deposit 0.9 of a retry, not enough for another
+        assertThat(attempts).hasValue(12);
+        assertThat(registry.get("transfer.retry.attempts").tag("supplier", "MOZIO").counter().count()).isEqualTo(2);
+        assertThat(registry.get("transfer.retry.given.up").tags("supplier", "MOZIO", "reason", "budget")
+            .counter().count()).isEqualTo(9);
+        assertThat(registry.get("transfer.retry.calls").tag("supplier", "MOZIO").counter().count()).isEqualTo(10);
     }
 
     @Test
-    void retriesOnMessage502() {
-        RetryHandler handler = new RetryHandler();
-        final int[] attempts = {0};
-
-        String result = handler.executeWithRetry(() -> {
-            attempts[0]++;
-            if (attempts[0] == 1) {
-                throw new RuntimeException("502");
-            }
-            return "ok";
-        }, 1);
+    void budgetsArePerSupplier() {
+        RetryProperties props = fastRetries();
+        props.setBudgetRatio(0);
+        props.setBudgetBurst(1);
+        RetryHandler handler = new RetryHandler(props, new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (String supplier : new String[] {"MOZIO", "SKYRIDE"}) {
+            assertThatThrownBy(() -> handler.executeWithRetry(supplier, () -> {
+                attempts.incrementAndGet();
+                throw timeout();
+            })).isInstanceOf(IllegalStateException.class);
+        }
 
-        assertThat(result).isEqualTo("ok");
+        // Each supplier spent its own single retry
+        assertThat(attempts).hasValue(4);
     }
 
     @Test
-    void retriesOnConnectAndIoExceptionNames() {
-        RetryHandler handler = new RetryHandler();
-        final int[] attempts = {0};
-
-        String result = handler.executeWithRetry(() -> {
-            attempts[0]++;
-            if (attempts[0] == 1) {
-                throw new ConnectFailure();
-            }
-            return "ok";
-        }, 1);
+    void noRetryPastTheDeadline() {
+        RetryProperties props = new RetryProperties();
+        props.setBaseDelay(Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryHandler handler = new RetryHandler(props, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Full jitter can pick a short delay, so make the deadline shorter than any delay
+        assertThatThrownBy(() -> Deadline.callWithin(Deadline.after(Duration.ZERO), () ->
+            handler.executeWithRetry("MOZIO", () -> {
+                attempts.incrementAndGet();
+                throw timeout();
+            }))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(registry.get("transfer.retry.given.up").tags("supplier", "MOZIO", "reason", "deadline")
+            .counter().count()).isEqualTo(1);
+    }
 
-        assertThat(result).isEqualTo("ok");
+    @Test
+    void withRetryTimesOutAtTheDeadline() {
+        RetryHandler handler = new RetryHandler(fastRetries(), new SimpleMeterRegistry());
 
-        final int[] attempts2 = {0};
-        String result2 = handler.executeWithRetry(() -> {
-            attempts2[0]++;
-            if (attempts2[0] == 1) {
-                throw new IOExceptionFailure();
-            }
-            return "ok";
-        }, 1);
+        Mono<String> retried = Deadline.callWithin(Deadline.after(Duration.ofMillis(50)),
+            () -> handler.withRetry("MOZIO", Mono.<String>never()));
 
-        assertThat(result2).isEqualTo("ok");
+        StepVerifier.create(retried)
+            .expectError(TimeoutException.class)
+            .verify(Duration.ofSeconds(2));
     }
 
     @Test
     void sleepInterruptedThrowsRuntime() throws Exception {
-        RetryHandler handler = new RetryHandler();
+        RetryHandler handler = new RetryHandler(new RetryProperties(), new SimpleMeterRegistry());
 
         Thread t = new Thread(() -> {
             Thread.currentThread().interrupt();
             assertThatThrownBy(() -> handler.executeWithRetry(() -> {
-                throw new RuntimeException("timeout");
+                throw timeout();
             }, 1)).isInstanceOf(RuntimeException.class)
                 .hasMessage("Retry interrupted");
         });
@@ -165,22 +231,4 @@ class RetryHandlerTest {
         t.start();
         t.join();
     }
-
-    private static final class TimeoutException extends RuntimeException {
-        private TimeoutException() {
-            super("timeout");
-        }
-    }
-
-    private static final class ConnectFailure extends RuntimeException {
-        private ConnectFailure() {
-            super("connect");
-        }
-    }
-
-    private static final class IOExceptionFailure extends RuntimeException {
-        private IOExceptionFailure() {
-            super("io");
-        }
-    }
 }
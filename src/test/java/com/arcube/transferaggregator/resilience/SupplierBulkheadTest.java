@@ -2,12 +2,14 @@ package com.arcube.transferaggregator.resilience;
 
 import com.arcube.transferaggregator.config.AggregatorProperties;
 import com.arcube.transferaggregator.config.AggregatorProperties.ResilienceProperties;
+import com.arcube.transferaggregator.exception.DeadlineExceededException;
 import com.arcube.transferaggregator.exception.ServiceBusyException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -17,6 +19,7 @@ import java.util.concurrent.TimeUnit;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -99,4 +102,19 @@ class SupplierBulkheadTest {
         t.start();
         t.join();
     }
+
+    @Test
+    void expiredDeadlineFailsWithoutCallingSupplier() {
+        when(properties.getResilience()).thenReturn(resilienceProperties);
+        when(resilienceProperties.getMaxConcurrentCalls()).thenReturn(1);
+
+        SupplierBulkhead bulkhead = new SupplierBulkhead(properties);
+        Runnable action = mock(Runnable.class);
+
+        assertThatThrownBy(() -> Deadline.callWithin(Deadline.after(Duration.ZERO), () -> {
+            bulkhead.execute(action);
+            return null;
+        })).isInstanceOf(DeadlineExceededException.class);
+        verify(action, never()).run();
+    }
 }
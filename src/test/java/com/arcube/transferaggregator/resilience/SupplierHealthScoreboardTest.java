@@ -0,0 +1,129 @@
+package com.arcube.transferaggregator.resilience;
+
+import com.arcube.transferaggregator.config.AggregatorProperties.DegradedSupplierPolicy;
+import com.arcube.transferaggregator.config.AggregatorProperties.SupplierHealthProperties;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.Decision;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.Outcome;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.SupplierHealth;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SupplierHealthScoreboardTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private SupplierHealthScoreboard scoreboard(SupplierHealthProperties props, double random) {
+        return new SupplierHealthScoreboard(props, registry, () -> random);
+    }
+
+    private static void record(SupplierHealthScoreboard scoreboard, String code, int times, long millis, Outcome outcome) {
+        for (int i = 0; i < times; i++) {
+            scoreboard.record(code, Duration.ofMillis(millis), outcome);
+        }
+    }
+
+    @Test
+    void warmsUpAsPlainMean() {
+        SupplierHealthScoreboard scoreboard = scoreboard(new SupplierHealthProperties(), 0);
+
+        scoreboard.record("S1", Duration.ofMillis(100), Outcome.RESULTS);
+        scoreboard.record("S1", Duration.ofMillis(300), Outcome.ERROR);
+
+        SupplierHealth health = scoreboard.snapshot().get("S1");
+        assertThat(health.samples()).isEqualTo(2);
+        assertThat(health.latencyMillis()).isCloseTo(200, within(0.001));
+        assertThat(health.errorRate()).isCloseTo(0.5, within(0.001));
+        assertThat(health.emptyRate()).isZero();
+    }
+
+    @Test
+    void notDegradedBeforeMinSamples() {
+        SupplierHealthScoreboard scoreboard = scoreboard(new SupplierHealthProperties(), 0);
+
+        record(scoreboard, "S1", 9, 50, Outcome.ERROR);
+        assertThat(scoreboard.isDegraded("S1")).isFalse();
+
+        scoreboard.record("S1", Duration.ofMillis(50), Outcome.ERROR);
+        assertThat(scoreboard.isDegraded("S1")).isTrue();
+        assertThat(registry.get("transfer.supplier.health.degraded").tag("supplier", "S1").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void degradesOnLatencyAndEmptyResults() {
+        SupplierHealthScoreboard scoreboard = scoreboard(new SupplierHealthProperties(), 0);
+
+        record(scoreboard, "SLOW", 10, 6_000, Outcome.RESULTS);
+        record(scoreboard, "EMPTY", 10, 50, Outcome.EMPTY);
+        record(scoreboard, "OK", 10, 50, Outcome.RESULTS);
+
+        assertThat(scoreboard.isDegraded("SLOW")).isTrue();
+        assertThat(scoreboard.isDegraded("EMPTY")).isTrue();
+        assertThat(scoreboard.isDegraded("OK")).isFalse();
+        assertThat(scoreboard.isDegraded("UNSEEN")).isFalse();
+    }
+
+    @Test
+    void recoversAsHealthySamplesArrive() {
+        SupplierHealthScoreboard scoreboard = scoreboard(new SupplierHealthProperties(), 0);
+        record(scoreboard, "S1", 10, 50, Outcome.ERROR);
+
+        record(scoreboard, "S1", 4, 50, Outcome.RESULTS);
+
+        // 0.8^4 = 0.41 of the error rate left
+        assertThat(scoreboard.isDegraded("S1")).isFalse();
+    }
+
+    @Test
+    void decisionsFollowPolicyOnlyWhenDegraded() {
+        SupplierHealthScoreboard scoreboard = scoreboard(new SupplierHealthProperties(), 0.3);
+        record(scoreboard, "BAD", 10, 50, Outcome.ERROR);
+        record(scoreboard, "OK", 10, 50, Outcome.RESULTS);
+
+        assertThat(scoreboard.decide("OK", DegradedSupplierPolicy.SKIP)).isEqualTo(Decision.CALL);
+        assertThat(scoreboard.decide("BAD", null)).isEqualTo(Decision.CALL);
+        assertThat(scoreboard.decide("BAD", DegradedSupplierPolicy.NONE)).isEqualTo(Decision.CALL);
+        assertThat(scoreboard.decide("BAD", DegradedSupplierPolicy.DEPRIORITISE)).isEqualTo(Decision.DEPRIORITISE);
+        assertThat(scoreboard.decide("BAD", DegradedSupplierPolicy.SHORTEN_TIMEOUT)).isEqualTo(Decision.SHORTEN_TIMEOUT);
+        assertThat(scoreboard.decide("BAD", DegradedSupplierPolicy.SKIP)).isEqualTo(Decision.SKIP);
+        assertThat(registry.get("transfer.supplier.health.decisions").tag("decision", "skip").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void skipIsProbabilistic() {
+        SupplierHealthProperties props = new SupplierHealthProperties();
+        props.setSkipProbability(0.25);
+        SupplierHealthScoreboard scoreboard = scoreboard(props, 0.3);
+        record(scoreboard, "BAD", 10, 50, Outcome.ERROR);
+
+        // Random draw above the skip probability: the call goes ahead as a recovery probe
+        assertThat(scoreboard.decide("BAD", DegradedSupplierPolicy.SKIP)).isEqualTo(Decision.CALL);
+    }
+
+    @Test
+    void rejectsSkipProbabilityThatWouldNeverProbe() {
+        SupplierHealthProperties props = new SupplierHealthProperties();
+        props.setSkipProbability(1.0);
+
+        // A degraded supplier that is always skipped never gets the calls it needs to recover
+        assertThatThrownBy(() -> scoreboard(props, 0))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("skip-probability");
+    }
+
+    @Test
+    void shortenedTimeoutUsesConfiguredRatio() {
+        SupplierHealthProperties props = new SupplierHealthProperties();
+        props.setDegradedTimeoutRatio(0.25);
+        SupplierHealthScoreboard scoreboard = scoreboard(props, 0);
+
+        assertThat(scoreboard.shortenedTimeout(Duration.ofSeconds(8))).isEqualTo(Duration.ofSeconds(2));
+        assertThat(scoreboard.shortenedTimeout(Duration.ZERO)).isEqualTo(Duration.ofMillis(1));
+    }
+}
@@ -0,0 +1,103 @@
+package com.arcube.transferaggregator.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void startsFullAndRejectsWhenEmpty() {
+        TokenBucket bucket = new TokenBucket(3, nanos::get);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void refillsContinuouslyWithoutRoundingLoss() {
+        TokenBucket bucket = new TokenBucket(60, nanos::get);  // One token per second
+        for (int i = 0; i < 60; i++) bucket.tryAcquire();
+
+        // Many calls in sub-token steps must still add up to whole tokens
+        for (int i = 0; i < 999; i++) {
+            advanceMillis(1);
+            assertThat(bucket.tryAcquire()).isFalse();
+        }
+        advanceMillis(1);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.millisUntilNextToken()).isEqualTo(1_000);
+    }
+
+    @Test
+    void neverExceedsCapacity() {
+        TokenBucket bucket = new TokenBucket(5, nanos::get);
+        advanceMillis(TimeUnit.HOURS.toMillis(1));
+
+        assertThat(bucket.availableTokens()).isEqualTo(5);
+    }
+
+    @Test
+    void survivesClockWrapAndNegativeNanoTime() {
+        nanos.set(-TimeUnit.MILLISECONDS.toNanos(10));
+        TokenBucket bucket = new TokenBucket(60, nanos::get);
+        for (int i = 0; i < 60; i++) bucket.tryAcquire();
+
+        advanceMillis(2_000);  // Crosses zero
+
+        assertThat(bucket.availableTokens()).isEqualTo(2);
+
+        nanos.set(TimeUnit.MILLISECONDS.toNanos(0xFFFF_FFFFL - 500));
+        TokenBucket wrapping = new TokenBucket(60, nanos::get);
+        for (int i = 0; i < 60; i++) wrapping.tryAcquire();
+        advanceMillis(1_000);  // Packed millis wrap past 2^32
+
+        assertThat(wrapping.availableTokens()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentAcquiresNeverOverGrant() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1_000, nanos::get);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    if (bucket.tryAcquire()) granted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(granted).hasValue(1_000);
+    }
+
+    @Test
+    void rejectsCapacityThatDoesNotFitTheState() {
+        assertThatThrownBy(() -> new TokenBucket(0, nanos::get)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket((int) TokenBucket.MAX_CAPACITY + 1, nanos::get))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,156 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.BookingStatusProperties;
+import com.arcube.transferaggregator.domain.BookingStatus;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.dto.BookResponse;
+import com.arcube.transferaggregator.ports.BookingStatusSupplier;
+import com.arcube.transferaggregator.ports.SupplierBookingResult;
+import com.arcube.transferaggregator.ports.SupplierRegistry;
+import com.arcube.transferaggregator.ports.TransferSupplier;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import com.arcube.transferaggregator.resilience.IdempotencyGuard;
+import com.arcube.transferaggregator.resilience.InMemoryBookingStatusStore;
+import com.arcube.transferaggregator.resilience.InMemoryIdempotencyStore;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookingStatusTrackerTest {
+
+    private final TransferSupplier supplier = mock(TransferSupplier.class,
+        withSettings().extraInterfaces(BookingStatusSupplier.class));
+    private final SupplierRegistry registry = mock(SupplierRegistry.class);
+    private final IdempotencyGuard guard = new IdempotencyGuard(
+        new InMemoryIdempotencyStore(Caffeine.newBuilder().<String, BookResponse>build()), new AggregatorProperties(),
+        new SimpleMeterRegistry());
+    private final BookingLedger ledger = mock(BookingLedger.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private BookingStatusTracker tracker;
+
+    private BookingStatusTracker tracker(BookingStatusProperties properties) {
+        when(registry.getSupplier("MOZIO")).thenReturn(Optional.of(supplier));
+        AggregatorProperties aggregator = new AggregatorProperties();
+        aggregator.setBookingStatus(properties);
+        tracker = new BookingStatusTracker(registry, new InMemoryBookingStatusStore(aggregator), guard,
+            ledger, properties, meters);
+        return tracker;
+    }
+
+    private static BookingStatusProperties immediatePolls() {
+        BookingStatusProperties properties = new BookingStatusProperties();
+        properties.setInitialInterval(Duration.ZERO);
+        properties.setMaxInterval(Duration.ZERO);
+        return properties;
+    }
+
+    private void supplierReturns(SupplierBookingResult... results) {
+        SupplierBookingResult first = results[0];
+        SupplierBookingResult[] rest = Arrays.copyOfRange(results, 1, results.length);
+        when(((BookingStatusSupplier) supplier).getBookingStatus(eq("search-1"), eq("res-1"), any(Duration.class)))
+            .thenReturn(first, rest);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (tracker != null) {
+            tracker.shutdown();
+        }
+    }
+
+    @Test
+    void pendingBookingIsPolledUntilConfirmed() throws Exception {
+        BookingStatusTracker tracker = tracker(immediatePolls());
+        supplierReturns(SupplierBookingResult.pending("MOZIO", "res-1"),
+            SupplierBookingResult.confirmed("MOZIO", "res-1", "CONF-1", Money.of(55.0, "USD"), "Meet at exit"));
+
+        assertThat(tracker.track("k1", "MOZIO", "search-1", "res-1", BookResponse.pending("b1"))).isTrue();
+        // While tracked, a repeat of the booking gets the status instead of reaching the supplier
+        assertThat(guard.execute("k1", () -> fail("booked again")).getStatus()).isEqualTo(BookingStatus.PENDING);
+
+        await(() -> {
+            tracker.pollDue();
+            return meters.find("transfer.booking.status.resolved").tag("outcome", "confirmed").counter() != null;
+        });
+
+        BookResponse confirmed = tracker.getStatus("b1").orElseThrow();
+        assertThat(confirmed.getBookingId()).isEqualTo("b1");
+        assertThat(confirmed.getConfirmationNumber()).isEqualTo("CONF-1");
+        assertThat(guard.execute("k1", () -> fail("booked again")).getConfirmationNumber()).isEqualTo("CONF-1");
+        verify(ledger).recordStatus(confirmed);
+        assertThat(meters.get("transfer.booking.status.resolved").tag("outcome", "confirmed").counter().count())
+            .isEqualTo(1);
+        assertThat(meters.get("transfer.booking.status.tracked").gauge().value()).isZero();
+    }
+
+    @Test
+    void bookingsThatCannotBePolledAreNotTracked() {
+        BookingStatusTracker tracker = tracker(immediatePolls());
+        when(registry.getSupplier("STUB")).thenReturn(Optional.of(mock(TransferSupplier.class)));
+
+        assertThat(tracker.track("k1", "STUB", "search-1", "res-1", BookResponse.pending("b1"))).isFalse();
+        assertThat(tracker.track("k2", "MOZIO", "search-1", "res-1", BookResponse.pending(null))).isFalse();
+        assertThat(tracker.track("k3", "MOZIO", "search-1", null, BookResponse.pending("b3"))).isFalse();
+        assertThat(tracker.getStatus("b1")).isEmpty();
+    }
+
+    @Test
+    void statusStreamStartsWithCurrentStatusAndEndsWhenFinal() {
+        BookingStatusProperties properties = immediatePolls();
+        properties.setStreamRecheckInterval(Duration.ofMillis(50));
+        BookingStatusTracker tracker = tracker(properties);
+        supplierReturns(SupplierBookingResult.failed("MOZIO", "SOLD_OUT", "Vehicle no longer available"));
+        tracker.track("k1", "MOZIO", "search-1", "res-1", BookResponse.pending("b1"));
+
+        StepVerifier.create(tracker.statusUpdates("b1"))
+            .assertNext(status -> assertThat(status.getStatus()).isEqualTo(BookingStatus.PENDING))
+            .then(tracker::pollDue)
+            .assertNext(status -> {
+                assertThat(status.getStatus()).isEqualTo(BookingStatus.FAILED);
+                assertThat(status.getBookingId()).isEqualTo("b1");
+                assertThat(status.getErrorCode()).isEqualTo("SOLD_OUT");
+            })
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void stopsTrackingAfterMaxTrackingTime() throws Exception {
+        BookingStatusProperties properties = immediatePolls();
+        properties.setMaxTrackingTime(Duration.ZERO);
+        BookingStatusTracker tracker = tracker(properties);
+        supplierReturns(SupplierBookingResult.pending("MOZIO", "res-1"));
+        tracker.track("k1", "MOZIO", "search-1", "res-1", BookResponse.pending("b1"));
+
+        await(() -> {
+            tracker.pollDue();
+            return meters.find("transfer.booking.status.resolved").tag("outcome", "abandoned").counter() != null;
+        });
+
+        assertThat(meters.get("transfer.booking.status.tracked").gauge().value()).isZero();
+        assertThat(tracker.getStatus("b1")).map(BookResponse::getStatus).contains(BookingStatus.PENDING);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
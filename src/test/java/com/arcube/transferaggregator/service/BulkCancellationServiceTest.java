@@ -0,0 +1,138 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.adapters.idcodec.BookingIdCodec;
+import com.arcube.transferaggregator.adapters.idcodec.BookingPayload;
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.dto.BulkCancelJobResponse;
+import com.arcube.transferaggregator.dto.CancelResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BulkCancellationServiceTest {
+
+    private final TransferCancellationService cancellationService = mock(TransferCancellationService.class);
+    private final BookingIdCodec codec = mock(BookingIdCodec.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AggregatorProperties properties = new AggregatorProperties();
+    private BulkCancellationService service;
+
+    @BeforeEach
+    void setUp() {
+        properties.getCancellation().getBulk().setMaxConcurrentPerSupplier(2);
+        service = new BulkCancellationService(cancellationService, codec, properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void booking(String bookingId, String supplierCode) {
+        when(codec.decode(bookingId)).thenReturn(BookingPayload.of(supplierCode, "res-" + bookingId, "c1"));
+    }
+
+    private BulkCancelJobResponse awaitCompleted(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            BulkCancelJobResponse job = service.getJob(jobId).orElseThrow();
+            if ("COMPLETED".equals(job.getStatus())) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Bulk job did not complete");
+    }
+
+    @Test
+    void cancelsEachBookingAndCountsOutcomes() throws Exception {
+        booking("b1", "A");
+        booking("b2", "A");
+        booking("b3", "B");
+        when(cancellationService.cancel("b1")).thenReturn(CancelResponse.success("b1", null));
+        when(cancellationService.cancel("b2")).thenReturn(CancelResponse.pending("b2", "Queued for retry"));
+        when(cancellationService.cancel("b3")).thenThrow(new IllegalStateException("not cancellable"));
+        when(codec.decode("bad")).thenThrow(new IllegalArgumentException("bad id"));
+
+        BulkCancelJobResponse started = service.start(List.of("b1", "b2", "b3", "bad", "b1"), "flight cancelled");
+        assertThat(started.getTotal()).isEqualTo(4);
+
+        BulkCancelJobResponse done = awaitCompleted(started.getJobId());
+        assertThat(done.getCompleted()).isEqualTo(4);
+        assertThat(done.getCancelled()).isEqualTo(1);
+        assertThat(done.getPending()).isEqualTo(1);
+        assertThat(done.getFailed()).isEqualTo(2);
+        assertThat(done.getCompletedAt()).isNotNull();
+        verify(cancellationService, times(1)).cancel("b1");
+        verify(cancellationService, never()).cancel("bad");
+        assertThat(registry.get("transfer.cancellation.bulk.outcomes").tag("status", "failed").counter().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    void limitsConcurrentCancelsPerSupplier() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 6; i++) {
+            booking("a" + i, "A");
+        }
+        booking("other", "B");
+        when(cancellationService.cancel(anyString())).thenAnswer(invocation -> {
+            String bookingId = invocation.getArgument(0);
+            if (bookingId.equals("other")) {
+                return CancelResponse.success(bookingId, null);  // Not held up by supplier A
+            }
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return CancelResponse.success(bookingId, null);
+        });
+
+        BulkCancelJobResponse started = service.start(List.of("a0", "a1", "a2", "a3", "a4", "a5", "other"), null);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getJob(started.getJobId()).orElseThrow().getCompleted() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.getJob(started.getJobId()).orElseThrow().getOutcomes())
+            .extracting(CancelResponse::getBookingId).containsExactly("other");
+        release.countDown();
+
+        assertThat(awaitCompleted(started.getJobId()).getCancelled()).isEqualTo(7);
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test
+    void streamReplaysOutcomesAndCompletesWithJob() throws Exception {
+        booking("b1", "A");
+        booking("b2", "B");
+        when(cancellationService.cancel(anyString()))
+            .thenAnswer(invocation -> CancelResponse.success(invocation.getArgument(0), null));
+
+        BulkCancelJobResponse started = service.start(List.of("b1", "b2"), null);
+        awaitCompleted(started.getJobId());
+
+        List<CancelResponse> outcomes = service.streamOutcomes(started.getJobId()).orElseThrow()
+            .collectList()
+            .block(Duration.ofSeconds(5));
+        assertThat(outcomes).extracting(CancelResponse::getBookingId).containsExactlyInAnyOrder("b1", "b2");
+    }
+
+    @Test
+    void unknownJobIsEmpty() {
+        assertThat(service.getJob("missing")).isEmpty();
+        assertThat(service.streamOutcomes("missing")).isEmpty();
+    }
+}
@@ -0,0 +1,175 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.dto.DlqReplayResponse;
+import com.arcube.transferaggregator.exception.ReplayInProgressException;
+import com.arcube.transferaggregator.resilience.CancellationDLQ;
+import com.arcube.transferaggregator.resilience.CancellationQueue;
+import com.arcube.transferaggregator.resilience.CancellationTask;
+import com.arcube.transferaggregator.resilience.DeadLetterFilter;
+import com.arcube.transferaggregator.resilience.InMemoryCancellationQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class DlqReplayServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CancellationDLQ dlq = new CancellationDLQ(registry);
+    private final AggregatorProperties properties = new AggregatorProperties();
+    private DlqReplayService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private DlqReplayService service(CancellationQueue queue) {
+        service = new DlqReplayService(dlq, queue, properties, registry);
+        return service;
+    }
+
+    private static CancellationTask deadLetter(String bookingId, String supplier, Duration age, String error) {
+        return new CancellationTask(bookingId, supplier, "r-" + bookingId, "c1", Instant.now().minus(age), 3, error);
+    }
+
+    private DlqReplayResponse awaitFinished(String replayId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            DlqReplayResponse replay = service.getReplay(replayId).orElseThrow();
+            if (!"RUNNING".equals(replay.getStatus())) {
+                return replay;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Replay did not finish");
+    }
+
+    @Test
+    void findFiltersBySupplierAgeAndError() {
+        dlq.add(deadLetter("b1", "MOZIO", Duration.ofHours(2), "Connect timeout"));
+        dlq.add(deadLetter("b2", "MOZIO", Duration.ofHours(30), "Connect timeout"));
+        dlq.add(deadLetter("b3", "MOZIO", Duration.ofHours(3), "Booking not found"));
+        dlq.add(deadLetter("b4", "SKYRIDE", Duration.ofHours(1), "Connect timeout"));
+
+        DeadLetterFilter filter = new DeadLetterFilter("mozio", null, Duration.ofDays(1), "TIMEOUT");
+
+        assertThat(service(new InMemoryCancellationQueue()).find(filter, 100))
+            .extracting(CancellationTask::bookingId).containsExactly("b1");
+        assertThat(service.find(DeadLetterFilter.all(), 100))
+            .extracting(CancellationTask::bookingId).containsExactly("b2", "b3", "b1", "b4");
+        assertThat(service.find(new DeadLetterFilter(null, Duration.ofHours(2).plusMinutes(30), null, null), 1))
+            .extracting(CancellationTask::bookingId).containsExactly("b2");
+    }
+
+    @Test
+    void replayMovesMatchesBackOntoQueueAsFreshTasks() throws Exception {
+        InMemoryCancellationQueue queue = new InMemoryCancellationQueue();
+        dlq.add(deadLetter("b1", "MOZIO", Duration.ofHours(2), "timeout"));
+        dlq.add(deadLetter("b2", "SKYRIDE", Duration.ofHours(2), "timeout"));
+
+        DlqReplayResponse started = service(queue).start(new DeadLetterFilter("MOZIO", null, null, null), 100, null);
+        DlqReplayResponse done = awaitFinished(started.getReplayId());
+
+        assertThat(done.getStatus()).isEqualTo("COMPLETED");
+        assertThat(done.getMatched()).isEqualTo(1);
+        assertThat(done.getReplayed()).isEqualTo(1);
+        assertThat(dlq.get("b1")).isEmpty();
+        assertThat(dlq.get("b2")).isPresent();
+
+        CancellationTask requeued = queue.poll().orElseThrow();
+        assertThat(requeued.bookingId()).isEqualTo("b1");
+        assertThat(requeued.retryCount()).isZero();
+        assertThat(requeued.isExpired()).isFalse();
+        assertThat(registry.get("transfer.cancellation.dlq.replayed").tag("supplier", "MOZIO").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void replayIsPacedToTheRequestedRate() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            dlq.add(deadLetter("b" + i, "MOZIO", Duration.ofHours(1), "timeout"));
+        }
+
+        long start = System.nanoTime();
+        DlqReplayResponse started = service(new InMemoryCancellationQueue()).start(DeadLetterFilter.all(), 20, null);
+        assertThat(awaitFinished(started.getReplayId()).getReplayed()).isEqualTo(6);
+
+        // 6 entries at 20/s: at least 5 gaps of 50ms
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+    }
+
+    @Test
+    void rateIsCappedAtConfiguredMaximum() {
+        properties.getCancellation().getDlq().setMaxReplayRatePerSecond(50);
+
+        assertThat(service(new InMemoryCancellationQueue()).start(DeadLetterFilter.all(), 10_000, null).getRatePerSecond())
+            .isEqualTo(50);
+    }
+
+    @Test
+    void onlyOneReplayRunsAtATimeAndItCanBeStopped() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            dlq.add(deadLetter("b" + i, "MOZIO", Duration.ofHours(1), "timeout"));
+        }
+        DlqReplayResponse started = service(new InMemoryCancellationQueue()).start(DeadLetterFilter.all(), 1, null);
+
+        assertThatThrownBy(() -> service.start(DeadLetterFilter.all(), 1, null))
+            .isInstanceOf(ReplayInProgressException.class);
+
+        service.stop(started.getReplayId());
+        DlqReplayResponse stopped = awaitFinished(started.getReplayId());
+        assertThat(stopped.getStatus()).isEqualTo("STOPPED");
+        assertThat(dlq.size()).isEqualTo(5 - stopped.getReplayed());
+
+        assertThat(service.start(DeadLetterFilter.all(), 1, null).getStatus()).isEqualTo("RUNNING");
+    }
+
+    @Test
+    void entriesResolvedMeanwhileAreSkippedAndFailedEnqueueIsRestored() throws Exception {
+        CancellationQueue queue = mock(CancellationQueue.class);
+        doThrow(new IllegalStateException("Redis down")).when(queue).enqueue(any());
+        dlq.add(deadLetter("b1", "MOZIO", Duration.ofHours(2), "timeout"));
+        dlq.add(deadLetter("b2", "MOZIO", Duration.ofHours(1), "timeout"));
+
+        // Pretend b1 was resolved by hand after the replay matched it
+        CancellationDLQ racing = new CancellationDLQ(registry) {
+            @Override
+            public boolean resolve(String bookingId) {
+                return !bookingId.equals("b1") && dlq.resolve(bookingId);
+            }
+
+            @Override
+            public List<CancellationTask> getAll() {
+                return dlq.getAll();
+            }
+
+            @Override
+            public void restore(CancellationTask task) {
+                dlq.restore(task);
+            }
+        };
+        service = new DlqReplayService(racing, queue, properties, registry);
+
+        DlqReplayResponse done = awaitFinished(service.start(DeadLetterFilter.all(), 100, null).getReplayId());
+
+        assertThat(done.getStatus()).isEqualTo("FAILED");
+        assertThat(done.getSkipped()).isEqualTo(1);
+        assertThat(done.getReplayed()).isZero();
+        assertThat(done.getError()).isEqualTo("Redis down");
+        assertThat(dlq.get("b2")).isPresent();
+    }
+}
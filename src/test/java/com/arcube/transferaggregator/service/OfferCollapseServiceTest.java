@@ -0,0 +1,120 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.domain.CancellationPolicy;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.domain.Provider;
+import com.arcube.transferaggregator.domain.Vehicle;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OfferCollapseServiceTest {
+
+    private static final CancellationPolicy FLEXIBLE = CancellationPolicy.builder()
+        .cancellableOnline(true)
+        .tiers(List.of(new CancellationPolicy.CancellationTier(24, 100)))
+        .build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OfferCollapseService service = new OfferCollapseService(new AggregatorProperties(), registry);
+
+    private static OfferDto offer(String id, String supplier, String provider, String vehicleClass, double price) {
+        return OfferDto.builder()
+            .offerId(id)
+            .supplierCode(supplier)
+            .provider(Provider.builder().name(provider).build())
+            .vehicle(Vehicle.builder().vehicleClass(vehicleClass).maxPassengers(3).maxBags(2).build())
+            .cancellation(FLEXIBLE)
+            .totalPrice(Money.of(price, "USD"))
+            .build();
+    }
+
+    @Test
+    void keepsCheapestOfferPerGroupAndCountsAlternates() {
+        List<OfferDto> offers = List.of(
+            offer("a", "MOZIO", "City Cars", "Sedan", 50),
+            offer("b", "SKYDRIVE", "city cars ", "sedan", 45),
+            offer("c", "MOCK", "City Cars", "Sedan", 48),
+            offer("d", "MOZIO", "City Cars", "Van", 70));
+
+        List<OfferDto> collapsed = service.collapse(offers);
+
+        assertThat(collapsed).extracting(OfferDto::getOfferId).containsExactlyInAnyOrder("b", "d");
+        assertThat(collapsed).filteredOn(o -> o.getOfferId().equals("b"))
+            .extracting(OfferDto::getAlternatesCount).containsExactly(2);
+        assertThat(collapsed).filteredOn(o -> o.getOfferId().equals("d"))
+            .extracting(OfferDto::getAlternatesCount).containsOnlyNulls();
+    }
+
+    @Test
+    void differentCancellationPolicyIsNotADuplicate() {
+        OfferDto strict = offer("b", "SKYDRIVE", "City Cars", "Sedan", 45).toBuilder()
+            .cancellation(CancellationPolicy.builder().tiers(List.of()).build())
+            .build();
+
+        List<OfferDto> collapsed = service.collapse(List.of(offer("a", "MOZIO", "City Cars", "Sedan", 50), strict));
+
+        assertThat(collapsed).hasSize(2);
+    }
+
+    @Test
+    void offersWithoutProviderPassThrough() {
+        OfferDto anonymous = OfferDto.builder().offerId("x").totalPrice(Money.of(10, "USD")).build();
+
+        List<OfferDto> collapsed = service.collapse(List.of(anonymous, offer("a", "MOZIO", "City Cars", "Sedan", 50)));
+
+        assertThat(collapsed).extracting(OfferDto::getOfferId).containsExactlyInAnyOrder("x", "a");
+    }
+
+    @Test
+    void alternatesAreTheRestOfTheGroupCheapestFirst() {
+        List<OfferDto> offers = List.of(
+            offer("a", "MOZIO", "City Cars", "Sedan", 50),
+            offer("b", "SKYDRIVE", "City Cars", "Sedan", 45),
+            offer("c", "MOCK", "City Cars", "Sedan", 48),
+            offer("d", "MOZIO", "City Cars", "Van", 70));
+
+        assertThat(service.alternatesOf(offers, "b")).extracting(OfferDto::getOfferId).containsExactly("c", "a");
+        assertThat(service.alternatesOf(offers, "d")).isEmpty();
+        assertThat(service.alternatesOf(offers, "missing")).isEmpty();
+    }
+
+    @Test
+    void recordsCollapseMetrics() {
+        service.collapse(List.of(
+            offer("a", "MOZIO", "City Cars", "Sedan", 50),
+            offer("b", "SKYDRIVE", "City Cars", "Sedan", 45)));
+
+        assertThat(registry.get("transfer.search.collapse.offers").tag("stage", "in").counter().count()).isEqualTo(2);
+        assertThat(registry.get("transfer.search.collapse.offers").tag("stage", "out").counter().count()).isEqualTo(1);
+        assertThat(registry.get("transfer.search.collapse.ratio").summary().mean()).isEqualTo(0.5);
+    }
+
+    @Test
+    void collapseWithoutMetricsLeavesThemUntouched() {
+        List<OfferDto> collapsed = service.collapse(List.of(
+            offer("a", "MOZIO", "City Cars", "Sedan", 50),
+            offer("b", "SKYDRIVE", "City Cars", "Sedan", 45)), false);
+
+        assertThat(collapsed).extracting(OfferDto::getOfferId).containsExactly("b");
+        assertThat(registry.get("transfer.search.collapse.offers").tag("stage", "in").counter().count()).isZero();
+        assertThat(registry.get("transfer.search.collapse.ratio").summary().count()).isZero();
+    }
+
+    @Test
+    void requestOverridesConfiguredDefault() {
+        assertThat(service.isEnabled(null)).isFalse();
+        assertThat(service.isEnabled(true)).isTrue();
+
+        AggregatorProperties props = new AggregatorProperties();
+        props.getCollapse().setEnabled(true);
+        OfferCollapseService enabled = new OfferCollapseService(props, new SimpleMeterRegistry());
+        assertThat(enabled.isEnabled(null)).isTrue();
+        assertThat(enabled.isEnabled(false)).isFalse();
+    }
+}
@@ -0,0 +1,109 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.domain.CancellationPolicy;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.domain.Provider;
+import com.arcube.transferaggregator.domain.Vehicle;
+import com.arcube.transferaggregator.dto.PageRequest;
+import com.arcube.transferaggregator.dto.SearchFilter;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import com.arcube.transferaggregator.dto.SearchSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential vs parallel offer filtering across offer-set sizes.
+ * Each run executes inside a ForkJoinPool of the given parallelism (parallel streams fork into
+ * the calling pool), so the 8- and 32-core crossovers can be read off a single large box.
+ * The filter keeps a few percent of offers so the sort behind it stays out of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferFilterBenchmark {
+
+    @Param({"250", "1000", "4000", "16000", "64000"})
+    public int size;
+
+    @Param({"8", "32"})
+    public int parallelism;
+
+    @Param({"SEQUENTIAL", "PARALLEL", "ADAPTIVE"})
+    public String mode;
+
+    private List<OfferDto> offers;
+    private SearchFilter filter;
+    private ForkJoinPool pool;
+    private OfferFilterService service;
+
+    @Setup
+    public void setUp() {
+        offers = randomOffers(size, 42);
+        filter = SearchFilter.builder()
+            .maxPrice(new BigDecimal("120"))
+            .minPassengers(4)
+            .vehicleTypes(List.of("SUV", "Van"))
+            .requiredAmenities(List.of("wifi"))
+            .minProviderRating(new BigDecimal("4.0"))
+            .build();
+        pool = new ForkJoinPool(parallelism);
+        service = new OfferFilterService(switch (mode) {
+            case "SEQUENTIAL" -> ParallelFilterCalibrator.fixed(Integer.MAX_VALUE);
+            case "PARALLEL" -> ParallelFilterCalibrator.fixed(0);
+            default -> ParallelFilterCalibrator.adaptive(parallelism);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public OfferFilterService.FilterResult filter() {
+        return pool.submit(() -> service.filterAndSort(offers, filter, SearchSort.byPrice(), PageRequest.first()))
+            .join();
+    }
+
+    static List<OfferDto> randomOffers(int n, long seed) {
+        Random random = new Random(seed);
+        String[] types = {"Sedan", "SUV", "Van", "Minibus"};
+        List<String> wifi = List.of("wifi", "water");
+        List<String> basic = List.of("water");
+        CancellationPolicy flexible = CancellationPolicy.builder()
+            .tiers(List.of(new CancellationPolicy.CancellationTier(24, 100)))
+            .build();
+
+        List<OfferDto> offers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            offers.add(OfferDto.builder()
+                .offerId("offer-" + i)
+                .supplierCode(i % 3 == 0 ? "MOZIO" : "SKYRIDE")
+                .totalPrice(Money.of(random.nextInt(30_000) / 100.0, "USD"))
+                .vehicle(Vehicle.builder()
+                    .type(types[random.nextInt(types.length)])
+                    .vehicleClass("Standard")
+                    .maxPassengers(1 + random.nextInt(8))
+                    .maxBags(random.nextInt(6))
+                    .build())
+                .provider(Provider.builder()
+                    .name("Provider " + random.nextInt(200))
+                    .rating(BigDecimal.valueOf(300 + random.nextInt(200), 2))
+                    .build())
+                .cancellation(flexible)
+                .estimatedDurationMinutes(20 + random.nextInt(90))
+                .includedAmenities(random.nextBoolean() ? wifi : basic)
+                .build());
+        }
+        return offers;
+    }
+}
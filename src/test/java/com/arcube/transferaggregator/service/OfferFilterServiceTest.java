@@ -1,6 +1,7 @@
 package com.arcube.transferaggregator.service;
 
 import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.domain.OfferRef;
 import com.arcube.transferaggregator.domain.Provider;
 import com.arcube.transferaggregator.domain.Vehicle;
 import com.arcube.transferaggregator.domain.CancellationPolicy;
@@ -11,6 +12,7 @@ import com.arcube.transferaggregator.dto.SearchSort;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.lang.reflect.Method;
 
@@ -992,6 +994,123 @@ class OfferFilterServiceTest {
         assertThat(result.getOffers().get(0).getOfferId()).isEqualTo("r0");
     }
 
+    @Test
+    void cursorPagingWalksAllOffersWithoutDuplicates() {
+        List<OfferDto> offers = List.of(
+            offer("c", "STUB", 50.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of()),
+            offer("a", "STUB", 50.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of()),
+            offer("b", "SKYRIDE", 120.00, "SUV", 6, 6, 4.9, "SkyRide", 30, 18000, List.of()),
+            offer("d", "MOZIO", 80.00, "Executive Sedan", 3, 2, 4.7, "Carzen", 35, 14000, List.of())
+        );
+
+        OfferFilterService.FilterResult first = service.filterAndSort(
+            offers, null, SearchSort.byPrice(), PageRequest.of(0, 2));
+        assertThat(first.getOffers()).extracting(OfferDto::getOfferId).containsExactly("a", "c");
+        assertThat(first.getNextCursor()).isNotNull();
+
+        OfferFilterService.FilterResult second = service.filterAndSort(
+            offers, null, null, PageRequest.after(first.getNextCursor(), 2));
+        assertThat(second.getOffers()).extracting(OfferDto::getOfferId).containsExactly("d", "b");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.isHasPrevious()).isTrue();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorPageStaysStableWhenOffersArriveBetweenPolls() {
+        List<OfferDto> initial = List.of(
+            offer("1", "STUB", 10.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of()),
+            offer("2", "STUB", 20.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of()),
+            offer("3", "STUB", 30.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of())
+        );
+        String cursor = service.filterAndSort(initial, null, SearchSort.byPrice(), PageRequest.of(0, 2))
+            .getNextCursor();
+
+        // A cheaper offer streams in ahead of the cursor; offset paging would repeat offer 2
+        List<OfferDto> grown = new java.util.ArrayList<>(initial);
+        grown.add(offer("0", "SLOW_STUB", 5.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of()));
+
+        OfferFilterService.FilterResult next = service.filterAndSort(
+            grown, null, null, PageRequest.after(cursor, 2));
+        assertThat(next.getOffers()).extracting(OfferDto::getOfferId).containsExactly("3");
+    }
+
+    @Test
+    void cursorPinsItsOwnSortDirection() {
+        List<OfferDto> offers = List.of(
+            offer("1", "STUB", 50.00, "Sedan", 3, 3, 4.1, "Alpha", 40, 15000, List.of()),
+            offer("2", "STUB", 60.00, "Sedan", 3, 3, 4.9, "Beta", 40, 15000, List.of()),
+            offer("3", "STUB", 70.00, "Sedan", 3, 3, 4.5, "Gamma", 40, 15000, List.of())
+        );
+
+        String cursor = service.filterAndSort(offers, null, SearchSort.byRating(), PageRequest.of(0, 1))
+            .getNextCursor();
+
+        OfferFilterService.FilterResult next = service.filterAndSort(
+            offers, null, SearchSort.byPrice(), PageRequest.after(cursor, 5));
+        assertThat(next.getOffers()).extracting(OfferDto::getOfferId).containsExactly("3", "1");
+    }
+
+    @Test
+    void cursorOverUnsignedOffersDoesNotCarryTheirRefs() {
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        List<OfferDto> offers = List.of(
+            OfferDto.builder().ref(OfferRef.ingested("MOZIO", "mozio-search-1", "r1", expiresAt))
+                .totalPrice(Money.of(50, "USD")).build(),
+            OfferDto.builder().ref(OfferRef.ingested("MOZIO", "mozio-search-1", "r2", expiresAt))
+                .totalPrice(Money.of(50, "USD")).build(),
+            OfferDto.builder().ref(OfferRef.ingested("MOZIO", "mozio-search-1", "r3", expiresAt))
+                .totalPrice(Money.of(50, "USD")).build());
+
+        OfferFilterService.FilterResult first = service.filterAndSort(
+            offers, null, SearchSort.byPrice(), PageRequest.of(0, 2));
+        String decoded = new String(java.util.Base64.getUrlDecoder().decode(first.getNextCursor()),
+            java.nio.charset.StandardCharsets.UTF_8);
+        assertThat(decoded).doesNotContain("mozio-search-1");
+
+        OfferFilterService.FilterResult next = service.filterAndSort(
+            offers, null, null, PageRequest.after(first.getNextCursor(), 2));
+        assertThat(next.getOffers()).hasSize(1).doesNotContainAnyElementsOf(first.getOffers());
+    }
+
+    @Test
+    void rejectsTamperedCursor() {
+        List<OfferDto> offers = List.of(
+            offer("1", "STUB", 50.00, "Sedan", 3, 3, 4.5, "Alpha", 40, 15000, List.of())
+        );
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> service.filterAndSort(
+                offers, null, null, PageRequest.after("not-a-cursor", 5)))
+            .isInstanceOf(com.arcube.transferaggregator.exception.InvalidTokenException.class);
+    }
+
+    @Test
+    void parallelFilteringMatchesSequential() {
+        List<OfferDto> offers = new java.util.ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            offers.add(offer("o" + i, i % 2 == 0 ? "STUB" : "MOZIO", 20 + (i % 300), i % 3 == 0 ? "SUV" : "Sedan",
+                3 + (i % 4), 2, 3.5 + (i % 15) / 10.0, "P" + (i % 7), 30 + (i % 40), 10000, List.of("wifi")));
+        }
+        SearchFilter filter = SearchFilter.builder()
+            .maxPrice(new BigDecimal("200"))
+            .minPassengers(4)
+            .vehicleTypes(List.of("suv", "sedan"))
+            .requiredAmenities(List.of("wifi"))
+            .build();
+
+        OfferFilterService sequential = new OfferFilterService(ParallelFilterCalibrator.fixed(Integer.MAX_VALUE));
+        OfferFilterService parallel = new OfferFilterService(ParallelFilterCalibrator.fixed(0));
+
+        OfferFilterService.FilterResult expected = sequential.filterAndSort(
+            offers, filter, SearchSort.byRating(), PageRequest.of(3, 50));
+        OfferFilterService.FilterResult actual = parallel.filterAndSort(
+            offers, filter, SearchSort.byRating(), PageRequest.of(3, 50));
+
+        assertThat(actual.getTotalCount()).isEqualTo(expected.getTotalCount()).isPositive();
+        assertThat(actual.getOffers()).containsExactlyElementsOf(expected.getOffers());
+        assertThat(actual.getNextCursor()).isEqualTo(expected.getNextCursor());
+    }
+
     @Test
     void filterResultEmptyHasZeroes() {
         OfferFilterService.FilterResult result = OfferFilterService.FilterResult.empty();
@@ -0,0 +1,59 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import com.arcube.transferaggregator.dto.SearchSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primitive-key sort (OfferSorter) vs the BigDecimal comparator chain it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferSortBenchmark {
+
+    private static final Comparator<OfferDto> BY_PRICE = Comparator
+        .comparing((OfferDto o) -> o.getTotalPrice().value())
+        .thenComparing(OfferDto::getOfferId);
+
+    private static final Comparator<OfferDto> BY_RATING_DESC = Comparator
+        .comparing((OfferDto o) -> o.getProvider().rating()).reversed()
+        .thenComparing(OfferDto::getOfferId);
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private List<OfferDto> offers;
+
+    @Setup
+    public void setUp() {
+        offers = OfferFilterBenchmark.randomOffers(size, 7);
+    }
+
+    @Benchmark
+    public List<OfferDto> priceWithPrimitiveKeys() {
+        return OfferSorter.sort(offers, SearchSort.byPrice());
+    }
+
+    @Benchmark
+    public List<OfferDto> priceWithBigDecimalComparator() {
+        return offers.stream().sorted(BY_PRICE).toList();
+    }
+
+    @Benchmark
+    public List<OfferDto> ratingWithPrimitiveKeys() {
+        return OfferSorter.sort(offers, SearchSort.byRating());
+    }
+
+    @Benchmark
+    public List<OfferDto> ratingWithBigDecimalComparator() {
+        return offers.stream().sorted(BY_RATING_DESC).toList();
+    }
+}
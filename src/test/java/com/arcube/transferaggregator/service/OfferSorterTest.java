@@ -0,0 +1,78 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.domain.Provider;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import com.arcube.transferaggregator.dto.SearchSort;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OfferSorterTest {
+
+    private static OfferDto offer(String id, double price, double rating) {
+        return OfferDto.builder()
+            .offerId(id)
+            .totalPrice(Money.of(price, "USD"))
+            .provider(Provider.builder().name("P" + id).rating(BigDecimal.valueOf(rating)).build())
+            .build();
+    }
+
+    @Test
+    void priceKeyNormalisesMinorUnitsPerCurrency() {
+        assertThat(OfferSorter.priceKey(Money.of(45.99, "USD"))).isEqualTo(459_900L);
+        assertThat(OfferSorter.priceKey(Money.of(5000, "JPY"))).isEqualTo(50_000_000L);
+        assertThat(OfferSorter.priceKey(Money.of(new BigDecimal("1.25"), "KWD"))).isEqualTo(12_500L);
+        assertThat(OfferSorter.priceKey(Money.of(10, "NOT_A_CURRENCY"))).isEqualTo(100_000L);
+        assertThat(OfferSorter.priceKey(null)).isZero();
+    }
+
+    @Test
+    void ratingKeyScalesToHundredths() {
+        assertThat(OfferSorter.ratingKey(new BigDecimal("4.75"))).isEqualTo(475);
+        assertThat(OfferSorter.ratingKey(new BigDecimal("4.8"))).isEqualTo(480);
+        assertThat(OfferSorter.ratingKey(null)).isZero();
+    }
+
+    @Test
+    void tiesBreakOnOfferIdRegardlessOfInputOrder() {
+        List<OfferDto> offers = new ArrayList<>(List.of(
+            offer("c", 10, 4.5), offer("a", 10, 4.5), offer("b", 10, 4.5)));
+
+        List<OfferDto> first = OfferSorter.sort(offers, SearchSort.byPrice());
+        Collections.reverse(offers);
+        List<OfferDto> second = OfferSorter.sort(offers, SearchSort.byPrice());
+
+        assertThat(first).extracting(OfferDto::getOfferId).containsExactly("a", "b", "c");
+        assertThat(second).extracting(OfferDto::getOfferId).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void matchesBigDecimalComparatorOrderOnLargeInput() {
+        Random random = new Random(42);
+        List<OfferDto> offers = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            offers.add(offer("o" + i, random.nextInt(20_000) / 100.0, random.nextInt(500) / 100.0));
+        }
+
+        Comparator<OfferDto> byPriceDesc = Comparator.comparing(
+                (OfferDto o) -> o.getTotalPrice().value()).reversed()
+            .thenComparing(OfferDto::getOfferId);
+        Comparator<OfferDto> byRatingAsc = Comparator.comparing(
+                (OfferDto o) -> o.getProvider().rating())
+            .thenComparing(OfferDto::getOfferId);
+
+        assertThat(OfferSorter.sort(offers, SearchSort.byPriceDesc()))
+            .containsExactlyElementsOf(offers.stream().sorted(byPriceDesc).toList());
+        assertThat(OfferSorter.sort(offers, SearchSort.builder()
+                .field(SearchSort.SortField.RATING).direction(SearchSort.SortDirection.ASC).build()))
+            .containsExactlyElementsOf(offers.stream().sorted(byRatingAsc).toList());
+    }
+}
@@ -0,0 +1,112 @@
+package com.arcube.transferaggregator.service;
+
+import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
+import com.arcube.transferaggregator.adapters.idcodec.OfferPayload;
+import com.arcube.transferaggregator.config.TokenProperties;
+import com.arcube.transferaggregator.domain.Money;
+import com.arcube.transferaggregator.domain.OfferRef;
+import com.arcube.transferaggregator.dto.SearchResponse.OfferDto;
+import com.arcube.transferaggregator.utils.HmacSigner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OfferTokenIssuerTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OfferIdCodec codec = codec();
+    private final Clock clock = mock(Clock.class);
+    private final OfferTokenIssuer issuer = new OfferTokenIssuer(codec, registry, clock);
+
+    @BeforeEach
+    void setUp() {
+        when(clock.instant()).thenReturn(NOW);
+    }
+
+    private static OfferIdCodec codec() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        return new OfferIdCodec(new HmacSigner(props), new ObjectMapper());
+    }
+
+    private static OfferRef ref(String resultId) {
+        return OfferRef.ingested("MOZIO", "search-1", resultId, Instant.now().plus(10, ChronoUnit.MINUTES));
+    }
+
+    private static OfferDto unsigned(String resultId) {
+        return OfferDto.builder().ref(ref(resultId)).totalPrice(Money.of(10, "USD")).build();
+    }
+
+    @Test
+    void signsUnsignedOffersAndDropsRef() {
+        List<OfferDto> result = issuer.materialise(List.of(unsigned("r1")));
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getRef()).isNull();
+        OfferPayload payload = codec.decode(result.get(0).getOfferId());
+        assertThat(payload.supplierCode()).isEqualTo("MOZIO");
+        assertThat(payload.searchId()).isEqualTo("search-1");
+        assertThat(payload.resultId()).isEqualTo("r1");
+    }
+
+    @Test
+    void sameOfferSignsToSameOfferIdEveryTime() {
+        OfferDto offer = OfferDto.builder().ref(ref("r1")).build();
+
+        String first = issuer.materialise(List.of(offer)).get(0).getOfferId();
+        when(clock.instant()).thenReturn(NOW.plusSeconds(5));  // Past the token's one-second resolution
+        String second = issuer.materialise(List.of(offer)).get(0).getOfferId();
+
+        assertThat(second).isEqualTo(first);
+        assertThat(codec.decode(first).issuedAt()).isEqualTo(offer.getRef().issuedAt());
+    }
+
+    @Test
+    void refWithoutIssueTimeIsSignedAtClockTime() {
+        OfferRef ref = new OfferRef("MOZIO", "search-1", "r1", NOW.plus(10, ChronoUnit.MINUTES), null);
+
+        String offerId = issuer.materialise(List.of(OfferDto.builder().ref(ref).build())).get(0).getOfferId();
+
+        assertThat(codec.decode(offerId).issuedAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    void leavesAlreadySignedOffersAlone() {
+        OfferDto signed = OfferDto.builder().offerId("existing").build();
+
+        List<OfferDto> result = issuer.materialise(List.of(signed, unsigned("r2")));
+
+        assertThat(result.get(0)).isSameAs(signed);
+        assertThat(registry.get("transfer.offers.tokens.signed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsIngestedSeparatelyFromSigned() {
+        issuer.recordIngested(500);
+        issuer.materialise(List.of(unsigned("r1"), unsigned("r2")));
+
+        assertThat(registry.get("transfer.offers.ingested").counter().count()).isEqualTo(500);
+        assertThat(registry.get("transfer.offers.tokens.signed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void stateKeyOfSignedTokenMatchesRefKey() {
+        OfferRef ref = ref("r3");
+        String token = issuer.materialise(List.of(OfferDto.builder().ref(ref).build())).get(0).getOfferId();
+
+        assertThat(issuer.stateKeyOf(token)).isEqualTo(ref.key());
+    }
+}
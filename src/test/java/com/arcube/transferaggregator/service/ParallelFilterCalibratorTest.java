@@ -0,0 +1,74 @@
+package com.arcube.transferaggregator.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelFilterCalibratorTest {
+
+    @Test
+    void staysSequentialBelowDefaultThresholdUntilCalibrated() {
+        ParallelFilterCalibrator calibrator = ParallelFilterCalibrator.adaptive(8);
+
+        assertThat(calibrator.threshold()).isEqualTo(ParallelFilterCalibrator.DEFAULT_THRESHOLD);
+        assertThat(calibrator.shouldParallelize(100)).isFalse();
+        assertThat(calibrator.shouldParallelize(ParallelFilterCalibrator.DEFAULT_THRESHOLD)).isTrue();
+    }
+
+    @Test
+    void thresholdMovesToModelledCrossover() {
+        ParallelFilterCalibrator calibrator = ParallelFilterCalibrator.adaptive(8);
+
+        // 100ns per offer sequentially, 70us fork/join overhead:
+        // crossover = 70_000 / (100 * (1 - 1/8)) = 800 offers
+        for (int i = 0; i < 50; i++) {
+            calibrator.record(1_000, 100_000, false);
+            calibrator.record(8_000, 70_000 + 100_000, true);
+        }
+
+        assertThat(calibrator.threshold()).isBetween(780, 820);
+        assertThat(calibrator.shouldParallelize(500)).isFalse();
+        assertThat(calibrator.shouldParallelize(2_000)).isTrue();
+    }
+
+    @Test
+    void cheaperForkOverheadLowersThresholdWithinBounds() {
+        ParallelFilterCalibrator calibrator = ParallelFilterCalibrator.adaptive(32);
+
+        for (int i = 0; i < 50; i++) {
+            calibrator.record(1_000, 1_000_000, false);
+            calibrator.record(32_000, 1_000_000, true);
+        }
+
+        assertThat(calibrator.threshold()).isEqualTo(ParallelFilterCalibrator.MIN_THRESHOLD);
+    }
+
+    @Test
+    void ignoresTinySamples() {
+        ParallelFilterCalibrator calibrator = ParallelFilterCalibrator.adaptive(8);
+
+        calibrator.record(10, 1_000_000, false);
+        calibrator.record(10, 1, true);
+
+        assertThat(calibrator.threshold()).isEqualTo(ParallelFilterCalibrator.DEFAULT_THRESHOLD);
+    }
+
+    @Test
+    void singleCoreNeverGoesParallel() {
+        ParallelFilterCalibrator calibrator = ParallelFilterCalibrator.adaptive(1);
+
+        assertThat(calibrator.shouldParallelize(1_000_000)).isFalse();
+    }
+
+    @Test
+    void adaptiveModeProbesSequentiallyNowAndThen() {
+        ParallelFilterCalibrator calibrator = ParallelFilterCalibrator.adaptive(8);
+
+        int sequentialRuns = 0;
+        for (int i = 0; i < 64; i++) {
+            if (!calibrator.shouldParallelize(100_000)) sequentialRuns++;
+        }
+
+        assertThat(sequentialRuns).isEqualTo(2);
+    }
+}
@@ -1,8 +1,13 @@
 package com.arcube.transferaggregator.service;
 
+import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
+import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.TokenProperties;
 import com.arcube.transferaggregator.domain.Money;
 import com.arcube.transferaggregator.domain.Offer;
 import com.arcube.transferaggregator.domain.Amenity;
+import com.arcube.transferaggregator.domain.Provider;
+import com.arcube.transferaggregator.domain.Vehicle;
 import com.arcube.transferaggregator.dto.PageRequest;
 import com.arcube.transferaggregator.dto.SearchFilter;
 import com.arcube.transferaggregator.dto.SearchResponse;
@@ -11,15 +16,18 @@ import com.arcube.transferaggregator.dto.SearchResponse.SupplierStatusDto;
 import com.arcube.transferaggregator.dto.SearchSort;
 import com.arcube.transferaggregator.dto.SearchStateDto;
 import com.arcube.transferaggregator.ports.SupplierSearchResult;
+import com.arcube.transferaggregator.utils.HmacSigner;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -39,7 +47,7 @@ class SearchPollingServiceTest {
         when(ops.get("search:missing")).thenReturn(null);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.empty(), redis, new ObjectMapper(), new OfferFilterService());
+            Optional.empty(), redis, new ObjectMapper(), new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("missing", null, SearchSort.byPrice(), PageRequest.first());
 
@@ -92,10 +100,11 @@ class SearchPollingServiceTest {
             .size(1)
             .totalPages(1)
             .build();
-        when(filterService.filterAndSort(any(), any(), any(), any())).thenReturn(filterResult);
+        when(filterService.filter(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(filterService.sortAndPage(any(), any(), any())).thenReturn(filterResult);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.of(slowSupplier), redis, mapper, filterService);
+            Optional.of(slowSupplier), redis, mapper, filterService, collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s1", SearchFilter.builder().build(), SearchSort.byPrice(), PageRequest.first());
 
@@ -117,7 +126,7 @@ class SearchPollingServiceTest {
         when(redis.opsForValue()).thenReturn(ops);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.empty(), redis, mapper, new OfferFilterService());
+            Optional.empty(), redis, mapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = SearchResponse.builder()
             .searchId("s-cache")
@@ -133,7 +142,7 @@ class SearchPollingServiceTest {
         when(failingMapper.writeValueAsString(any()))
             .thenThrow(new JsonProcessingException("boom") {});
         SearchPollingService failingService = new SearchPollingService(
-            Optional.empty(), redis, failingMapper, new OfferFilterService());
+            Optional.empty(), redis, failingMapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         failingService.cacheSearchState("s-cache", response, Map.of());
         verify(ops, times(1)).set(eq("search:s-cache"), anyString(), any());
@@ -148,7 +157,7 @@ class SearchPollingServiceTest {
         when(ops.get("search:bad")).thenReturn("{not-json}");
 
         SearchPollingService service = new SearchPollingService(
-            Optional.empty(), redis, new ObjectMapper(), new OfferFilterService());
+            Optional.empty(), redis, new ObjectMapper(), new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("bad", null, SearchSort.byPrice(), PageRequest.first());
 
@@ -175,7 +184,7 @@ class SearchPollingServiceTest {
 
         var slowSupplier = mock(com.arcube.transferaggregator.adapters.supplier.mock.SlowMockSupplierClient.class);
         SearchPollingService service = new SearchPollingService(
-            Optional.of(slowSupplier), redis, mapper, new OfferFilterService());
+            Optional.of(slowSupplier), redis, mapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s2", null, SearchSort.byPrice(), PageRequest.first());
         assertThat(response.isIncomplete()).isFalse();
@@ -201,7 +210,7 @@ class SearchPollingServiceTest {
 
         var slowSupplier = mock(com.arcube.transferaggregator.adapters.supplier.mock.SlowMockSupplierClient.class);
         SearchPollingService service = new SearchPollingService(
-            Optional.of(slowSupplier), redis, mapper, new OfferFilterService());
+            Optional.of(slowSupplier), redis, mapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s3", null, SearchSort.byPrice(), PageRequest.first());
         assertThat(response.isIncomplete()).isFalse();
@@ -241,7 +250,7 @@ class SearchPollingServiceTest {
         when(slowSupplier.poll("slow-2")).thenReturn(pollResult);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.of(slowSupplier), redis, mapper, new OfferFilterService());
+            Optional.of(slowSupplier), redis, mapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s4", null, SearchSort.byPrice(), PageRequest.first());
         assertThat(response.isIncomplete()).isTrue();
@@ -271,7 +280,7 @@ class SearchPollingServiceTest {
         when(slowSupplier.hasSearch("slow-missing")).thenReturn(false);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.of(slowSupplier), redis, mapper, new OfferFilterService());
+            Optional.of(slowSupplier), redis, mapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s6", null, SearchSort.byPrice(), PageRequest.first());
         assertThat(response.getOffers()).isEmpty();
@@ -311,7 +320,7 @@ class SearchPollingServiceTest {
         when(slowSupplier.poll("slow-3")).thenReturn(pollResult);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.of(slowSupplier), redis, mapper, new OfferFilterService());
+            Optional.of(slowSupplier), redis, mapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s7", null, SearchSort.byPrice(), PageRequest.first());
         assertThat(response.getOffers()).hasSize(1);
@@ -342,12 +351,51 @@ class SearchPollingServiceTest {
             .thenThrow(new JsonProcessingException("bad") {});
 
         SearchPollingService service = new SearchPollingService(
-            Optional.empty(), redis, failingMapper, new OfferFilterService());
+            Optional.empty(), redis, failingMapper, new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("s5", null, SearchSort.byPrice(), PageRequest.first());
         assertThat(response.getSearchId()).isEqualTo("s5");
     }
 
+    @Test
+    void filtersBeforeCollapsingSoAMatchingAlternateIsKept() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+
+        // Same provider and vehicle: one collapse group whose cheapest member fails minPrice
+        Provider provider = Provider.builder().name("City Cars").build();
+        Vehicle sedan = Vehicle.builder().vehicleClass("Sedan").maxPassengers(3).maxBags(2).build();
+        SearchStateDto state = SearchStateDto.builder()
+            .searchId("s8")
+            .offers(List.of(
+                OfferDto.builder().offerId("cheap").supplierCode("STUB").provider(provider).vehicle(sedan)
+                    .totalPrice(Money.of(45, "USD")).build(),
+                OfferDto.builder().offerId("dear").supplierCode("SKYRIDE").provider(provider).vehicle(sedan)
+                    .totalPrice(Money.of(50, "USD")).build()))
+            .statuses(Map.of())
+            .supplierSearchIds(Map.of())
+            .incomplete(false)
+            .build();
+        when(ops.get("search:s8")).thenReturn(mapper.writeValueAsString(state));
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        SearchPollingService service = new SearchPollingService(Optional.empty(), redis, mapper,
+            new OfferFilterService(), new OfferCollapseService(new AggregatorProperties(), meters), tokenIssuer());
+
+        SearchFilter filter = SearchFilter.builder().minPrice(new BigDecimal("48")).collapseDuplicates(true).build();
+        SearchResponse response = service.poll("s8", filter, SearchSort.byPrice(), PageRequest.first());
+
+        assertThat(response.getTotalCount()).isEqualTo(1);
+        assertThat(response.getOffers()).hasSize(1);
+        assertThat(response.getOffers().get(0).getOfferId()).isEqualTo("dear");
+        assertThat(response.getOffers().get(0).getAlternatesCount()).isNull();
+        // A complete search was measured when it was made, not again on poll
+        assertThat(meters.find("transfer.search.collapse.ratio").summary().count()).isZero();
+    }
+
     @Test
     void pollNoArgsDelegatesDefaults() {
         StringRedisTemplate redis = mock(StringRedisTemplate.class);
@@ -357,10 +405,22 @@ class SearchPollingServiceTest {
         when(ops.get("search:missing")).thenReturn(null);
 
         SearchPollingService service = new SearchPollingService(
-            Optional.empty(), redis, new ObjectMapper(), new OfferFilterService());
+            Optional.empty(), redis, new ObjectMapper(), new OfferFilterService(), collapseService(), tokenIssuer());
 
         SearchResponse response = service.poll("missing");
         assertThat(response.getSearchId()).isEqualTo("missing");
         assertThat(response.getOffers()).isEmpty();
     }
+
+    private static OfferCollapseService collapseService() {
+        return new OfferCollapseService(new AggregatorProperties(), new SimpleMeterRegistry());
+    }
+
+    private static OfferTokenIssuer tokenIssuer() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.validate();
+        return new OfferTokenIssuer(
+            new OfferIdCodec(new HmacSigner(props), new ObjectMapper()), new SimpleMeterRegistry());
+    }
 }
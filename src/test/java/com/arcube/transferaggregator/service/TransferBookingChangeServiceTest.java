@@ -12,6 +12,8 @@ import com.arcube.transferaggregator.dto.BookingChangeResponse;
 import com.arcube.transferaggregator.dto.BookingChangeSearchRequest;
 import com.arcube.transferaggregator.dto.SearchResponse;
 import com.arcube.transferaggregator.ports.*;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
@@ -49,7 +51,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -73,7 +76,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.empty());
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -97,7 +101,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -124,7 +129,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -155,7 +161,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -199,7 +206,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -234,7 +242,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeSearchRequest request = BookingChangeSearchRequest.builder()
             .bookingId("booking-1")
@@ -265,9 +274,10 @@ class TransferBookingChangeServiceTest {
 
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
         when(bookingIdCodec.encode(any(BookingPayload.class))).thenReturn("booking-2");
+        BookingLedger ledger = mock(BookingLedger.class);
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec), ledger);
 
         BookingChangeCommitRequest request = BookingChangeCommitRequest.builder()
             .oldBookingId("booking-1")
@@ -282,6 +292,7 @@ class TransferBookingChangeServiceTest {
 
         assertThat(response.getStatus()).isEqualTo("SUCCESS");
         assertThat(response.getNewBookingId()).isEqualTo("booking-2");
+        verify(ledger).recordChange("booking-1", "STUB", response);
     }
 
     @Test
@@ -296,7 +307,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.empty());
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeCommitRequest request = BookingChangeCommitRequest.builder()
             .oldBookingId("booking-1")
@@ -322,7 +334,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeCommitRequest request = BookingChangeCommitRequest.builder()
             .oldBookingId("booking-1")
@@ -350,7 +363,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeCommitRequest request = BookingChangeCommitRequest.builder()
             .oldBookingId("booking-1")
@@ -384,7 +398,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeCommitRequest request = BookingChangeCommitRequest.builder()
             .oldBookingId("booking-1")
@@ -418,7 +433,8 @@ class TransferBookingChangeServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
         TransferBookingChangeService service = new TransferBookingChangeService(
-            registry, bookingIdCodec, offerIdCodec, props);
+            registry, bookingIdCodec, offerIdCodec, props, tokenIssuer(offerIdCodec),
+            mock(BookingLedger.class));
 
         BookingChangeCommitRequest request = BookingChangeCommitRequest.builder()
             .oldBookingId("booking-1")
@@ -531,4 +547,8 @@ class TransferBookingChangeServiceTest {
             return changeResult;
         }
     }
+
+    private static OfferTokenIssuer tokenIssuer(OfferIdCodec offerIdCodec) {
+        return new OfferTokenIssuer(offerIdCodec, new SimpleMeterRegistry());
+    }
 }
@@ -12,8 +12,12 @@ import com.arcube.transferaggregator.dto.BookResponse;
 import com.arcube.transferaggregator.ports.SupplierBookingResult;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.TransferSupplier;
+import com.arcube.transferaggregator.resilience.BookingLedger;
+import com.arcube.transferaggregator.resilience.IdempotencyGuard;
+import com.arcube.transferaggregator.resilience.InMemoryIdempotencyStore;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
@@ -40,7 +44,8 @@ class TransferBookingServiceTest {
         cache.put("key-1", cached);
 
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache);
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache),
+            mock(BookingStatusTracker.class), mock(BookingLedger.class));
 
         BookRequest request = BookRequest.builder()
             .offerId("offer")
@@ -80,7 +85,8 @@ class TransferBookingServiceTest {
         when(supplier.book(any(), any(Duration.class))).thenReturn(supplierResult);
 
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache);
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache),
+            mock(BookingStatusTracker.class), mock(BookingLedger.class));
 
         BookRequest request = BookRequest.builder()
             .offerId("offer")
@@ -124,7 +130,8 @@ class TransferBookingServiceTest {
             .thenReturn(SupplierBookingResult.failed("STUB", "ERR", "Bad"));
 
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache);
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache),
+            mock(BookingStatusTracker.class), mock(BookingLedger.class));
 
         BookRequest request = BookRequest.builder()
             .offerId("offer")
@@ -161,9 +168,11 @@ class TransferBookingServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
         when(supplier.book(any(), any(Duration.class)))
             .thenReturn(SupplierBookingResult.pending("STUB", "res-1"));
+        BookingStatusTracker tracker = mock(BookingStatusTracker.class);
 
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache);
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache), tracker,
+            mock(BookingLedger.class));
 
         BookRequest request = BookRequest.builder()
             .offerId("offer")
@@ -179,6 +188,8 @@ class TransferBookingServiceTest {
         BookResponse response = service.book(request, " ");
         assertThat(response.getStatus()).isEqualTo(BookingStatus.PENDING);
         assertThat(cache.estimatedSize()).isZero();
+        // Handed to the tracker under the generated key, with what it needs to poll the supplier
+        verify(tracker).track(anyString(), eq("STUB"), eq("search-1"), eq("res-1"), same(response));
     }
 
     @Test
@@ -201,8 +212,10 @@ class TransferBookingServiceTest {
             "STUB", "res-1", "CONF-1", Money.of(55.0, "USD"), "pickup");
         when(supplier.book(any(), any(Duration.class))).thenReturn(supplierResult);
 
+        BookingLedger ledger = mock(BookingLedger.class);
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache);
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache),
+            mock(BookingStatusTracker.class), ledger);
 
         BookRequest request = BookRequest.builder()
             .offerId("offer")
@@ -223,6 +236,7 @@ class TransferBookingServiceTest {
 
         assertThat(response.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
         assertThat(cache.estimatedSize()).isEqualTo(1);
+        verify(ledger).recordBooking("STUB", response);
 
         ArgumentCaptor<com.arcube.transferaggregator.domain.BookCommand> captor =
             ArgumentCaptor.forClass(com.arcube.transferaggregator.domain.BookCommand.class);
@@ -251,7 +265,8 @@ class TransferBookingServiceTest {
         when(supplier.book(any(), any(Duration.class))).thenReturn(supplierResult);
 
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache);
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache),
+            mock(BookingStatusTracker.class), mock(BookingLedger.class));
 
         BookRequest request = BookRequest.builder()
             .offerId("offer")
@@ -288,7 +303,8 @@ class TransferBookingServiceTest {
             .thenReturn(SupplierBookingResult.pending("STUB", "res-1"));
 
         TransferBookingService service = new TransferBookingService(
-            registry, offerIdCodec, bookingIdCodec, props, cache) {
+            registry, offerIdCodec, bookingIdCodec, props, idempotencyGuard(cache),
+            mock(BookingStatusTracker.class), mock(BookingLedger.class)) {
             @Override
             protected MessageDigest createMessageDigest() throws Exception {
                 throw new Exception("boom");
@@ -310,4 +326,8 @@ class TransferBookingServiceTest {
 
         assertThat(response.getStatus()).isEqualTo(BookingStatus.PENDING);
     }
+
+    private static IdempotencyGuard idempotencyGuard(Cache<String, BookResponse> cache) {
+        return new IdempotencyGuard(new InMemoryIdempotencyStore(cache), new AggregatorProperties(), new SimpleMeterRegistry());
+    }
 }
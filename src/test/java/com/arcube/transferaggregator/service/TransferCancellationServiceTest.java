@@ -2,20 +2,33 @@ package com.arcube.transferaggregator.service;
 
 import com.arcube.transferaggregator.adapters.idcodec.BookingIdCodec;
 import com.arcube.transferaggregator.adapters.idcodec.BookingPayload;
+import com.arcube.transferaggregator.config.AggregatorProperties;
 import com.arcube.transferaggregator.domain.CancelCommand;
 import com.arcube.transferaggregator.domain.Money;
 import com.arcube.transferaggregator.dto.CancelResponse;
+import com.arcube.transferaggregator.observability.SupplierMetrics;
 import com.arcube.transferaggregator.ports.SupplierCancelResult;
 import com.arcube.transferaggregator.ports.SupplierRegistry;
 import com.arcube.transferaggregator.ports.TransferSupplier;
+import com.arcube.transferaggregator.resilience.BookingLedger;
 import com.arcube.transferaggregator.resilience.CancellationDLQ;
+import com.arcube.transferaggregator.resilience.CancellationLedger;
 import com.arcube.transferaggregator.resilience.CancellationQueue;
 import com.arcube.transferaggregator.resilience.CancellationTask;
+import com.arcube.transferaggregator.resilience.Deadline;
+import com.arcube.transferaggregator.resilience.InMemoryBookingLedgerStore;
+import com.arcube.transferaggregator.resilience.InMemoryCancellationOutcomeStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.test.StepVerifier;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -34,7 +47,7 @@ class TransferCancellationServiceTest {
         when(queue.getPending("b1")).thenReturn(Optional.of(
             CancellationTask.create("b1", "STUB", "r1", "c1")));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
         CancelResponse response = service.cancel("b1");
 
         assertThat(response.getStatus()).isEqualTo("PENDING");
@@ -53,7 +66,7 @@ class TransferCancellationServiceTest {
         when(dlq.get("b1")).thenReturn(Optional.of(
             CancellationTask.create("b1", "STUB", "r1", "c1")));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
         CancelResponse response = service.cancel("b1");
 
         assertThat(response.getStatus()).isEqualTo("FAILED");
@@ -74,7 +87,7 @@ class TransferCancellationServiceTest {
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
         when(supplier.cancel(any())).thenThrow(new RuntimeException("boom"));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
         CancelResponse response = service.cancel("b1");
 
         assertThat(response.getStatus()).isEqualTo("PENDING");
@@ -97,7 +110,7 @@ class TransferCancellationServiceTest {
         when(supplier.cancel(any())).thenReturn(
             SupplierCancelResult.failed("STUB", "res-1", "TOO_LATE_TO_CANCEL", "too late"));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
 
         CancelResponse response = service.cancel("b1");
         assertThat(response.getStatus()).isEqualTo("PENDING");
@@ -120,7 +133,7 @@ class TransferCancellationServiceTest {
         when(supplier.cancel(any()))
             .thenReturn(SupplierCancelResult.failed("STUB", "res-1", "OTHER", "nope"));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
 
         CancelResponse response = service.cancel("b1");
         assertThat(response.getStatus()).isEqualTo("PENDING");
@@ -141,7 +154,8 @@ class TransferCancellationServiceTest {
         TransferSupplier supplier = mock(TransferSupplier.class);
         when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq) {
+        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq, ledger(),
+            new SupplierMetrics(new SimpleMeterRegistry()), new AggregatorProperties()) {
             @Override
             protected SupplierCancelResult executeWithTimeout(TransferSupplier supplier, CancelCommand command)
                 throws TimeoutException {
@@ -171,7 +185,7 @@ class TransferCancellationServiceTest {
             .thenReturn(SupplierCancelResult.success("STUB", "res-1", Money.of(10, "USD")))
             .thenReturn(SupplierCancelResult.alreadyCancelled("STUB", "res-1"));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
 
         CancelResponse success = service.cancel("b1");
         assertThat(success.getStatus()).isEqualTo("CANCELLED");
@@ -192,10 +206,133 @@ class TransferCancellationServiceTest {
         when(dlq.get("b2")).thenReturn(Optional.of(
             CancellationTask.create("b2", "STUB", "r2", "c2").withRetry("err")));
 
-        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq);
+        TransferCancellationService service = service(registry, codec, queue, dlq);
 
         assertThat(service.getStatus("b1").getStatus()).isEqualTo("PENDING");
         assertThat(service.getStatus("b2").getStatus()).isEqualTo("FAILED");
         assertThat(service.getStatus("b3").getStatus()).isEqualTo("UNKNOWN");
     }
+
+    @Test
+    void statusComesFromLedgerAfterTaskLeavesQueue() {
+        SupplierRegistry registry = mock(SupplierRegistry.class);
+        BookingIdCodec codec = mock(BookingIdCodec.class);
+        CancellationQueue queue = mock(CancellationQueue.class);
+        CancellationDLQ dlq = mock(CancellationDLQ.class);
+
+        when(queue.getPending(any())).thenReturn(Optional.empty());
+        when(dlq.get(any())).thenReturn(Optional.empty());
+        when(codec.decode("b1")).thenReturn(BookingPayload.of("STUB", "res-1", "c1"));
+
+        TransferSupplier supplier = mock(TransferSupplier.class);
+        when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
+        when(supplier.cancel(any())).thenReturn(SupplierCancelResult.success("STUB", "res-1", Money.of(10, "USD")));
+
+        TransferCancellationService service = service(registry, codec, queue, dlq);
+        service.cancel("b1");
+
+        CancelResponse status = service.getStatus("b1");
+        assertThat(status.getStatus()).isEqualTo("CANCELLED");
+        assertThat(status.getRefundAmount()).isEqualTo(Money.of(10, "USD"));
+    }
+
+    @Test
+    void longPollAnswersWhenOutcomeIsRecorded() {
+        CancellationQueue queue = mock(CancellationQueue.class);
+        CancellationDLQ dlq = mock(CancellationDLQ.class);
+        CancellationLedger ledger = ledger();
+        AtomicBoolean queued = new AtomicBoolean(true);
+        when(queue.getPending("b1")).thenAnswer(invocation -> queued.get()
+            ? Optional.of(CancellationTask.create("b1", "STUB", "r1", "c1"))
+            : Optional.empty());
+        when(dlq.get("b1")).thenReturn(Optional.empty());
+
+        AggregatorProperties properties = new AggregatorProperties();
+        properties.getCancellation().getLedger().setRecheckInterval(Duration.ofMinutes(1));  // Only the notification can wake it
+        TransferCancellationService service = new TransferCancellationService(mock(SupplierRegistry.class),
+            mock(BookingIdCodec.class), queue, dlq, ledger, new SupplierMetrics(new SimpleMeterRegistry()), properties);
+
+        StepVerifier.create(service.awaitStatusChange("b1", Duration.ofSeconds(10)))
+            .then(() -> {
+                queued.set(false);
+                ledger.record(CancelResponse.success("b1", null));
+            })
+            .assertNext(status -> assertThat(status.getStatus()).isEqualTo("CANCELLED"))
+            .verifyComplete();
+    }
+
+    @Test
+    void longPollReturnsFinalStatusAtOnceAndCurrentStatusOnTimeout() {
+        CancellationQueue queue = mock(CancellationQueue.class);
+        CancellationDLQ dlq = mock(CancellationDLQ.class);
+        when(queue.getPending("b1")).thenReturn(Optional.of(CancellationTask.create("b1", "STUB", "r1", "c1")));
+        when(queue.getPending("b2")).thenReturn(Optional.empty());
+        when(dlq.get("b2")).thenReturn(Optional.of(CancellationTask.create("b2", "STUB", "r2", "c2")));
+
+        TransferCancellationService service = service(
+            mock(SupplierRegistry.class), mock(BookingIdCodec.class), queue, dlq);
+
+        assertThat(service.awaitStatusChange("b2", Duration.ofSeconds(10)).block(Duration.ofSeconds(1)).getStatus())
+            .isEqualTo("FAILED");
+        assertThat(service.awaitStatusChange("b1", Duration.ofMillis(200)).block(Duration.ofSeconds(2)).getStatus())
+            .isEqualTo("PENDING");
+    }
+
+    @Test
+    void slowSupplierCancelIsInterruptedAtDeadlineAndTimed() throws Exception {
+        SupplierRegistry registry = mock(SupplierRegistry.class);
+        BookingIdCodec codec = mock(BookingIdCodec.class);
+        CancellationQueue queue = mock(CancellationQueue.class);
+        CancellationDLQ dlq = mock(CancellationDLQ.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        when(queue.getPending(any())).thenReturn(Optional.empty());
+        when(dlq.get(any())).thenReturn(Optional.empty());
+        when(codec.decode("b1")).thenReturn(BookingPayload.of("STUB", "res-1", "c1"));
+        when(codec.decode("b2")).thenReturn(BookingPayload.of("STUB", "res-2", "c2"));
+
+        CountDownLatch interrupted = new CountDownLatch(1);
+        TransferSupplier supplier = mock(TransferSupplier.class);
+        when(registry.getSupplier("STUB")).thenReturn(Optional.of(supplier));
+        when(supplier.cancel(CancelCommand.of("res-1", "STUB"))).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return SupplierCancelResult.success("STUB", "res-1", Money.of(10, "USD"));
+        });
+        when(supplier.cancel(CancelCommand.of("res-2", "STUB")))
+            .thenReturn(SupplierCancelResult.success("STUB", "res-2", Money.of(10, "USD")));
+
+        TransferCancellationService service = new TransferCancellationService(registry, codec, queue, dlq,
+            ledger(), new SupplierMetrics(meterRegistry), new AggregatorProperties());
+
+        CancelResponse slow = Deadline.callWithin(Deadline.after(Duration.ofMillis(100)), () -> service.cancel("b1"));
+        assertThat(slow.getStatus()).isEqualTo("PENDING");
+        verify(queue).enqueue(any(CancellationTask.class));
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(service.cancel("b2").getStatus()).isEqualTo("CANCELLED");
+
+        assertThat(meterRegistry.get("transfer.cancel.timeouts").tag("supplier", "STUB").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("transfer.cancel.latency").tags("supplier", "STUB", "outcome", "timeout").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("transfer.cancel.latency").tags("supplier", "STUB", "outcome", "success").timer().count())
+            .isEqualTo(1);
+        service.shutdown();
+    }
+
+    private static TransferCancellationService service(SupplierRegistry registry, BookingIdCodec codec,
+                                                       CancellationQueue queue, CancellationDLQ dlq) {
+        return new TransferCancellationService(registry, codec, queue, dlq, ledger(),
+            new SupplierMetrics(new SimpleMeterRegistry()), new AggregatorProperties());
+    }
+
+    private static CancellationLedger ledger() {
+        AggregatorProperties properties = new AggregatorProperties();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        BookingLedger bookingLedger = new BookingLedger(new InMemoryBookingLedgerStore(properties), properties, meters);
+        return new CancellationLedger(new InMemoryCancellationOutcomeStore(properties), bookingLedger, meters);
+    }
 }
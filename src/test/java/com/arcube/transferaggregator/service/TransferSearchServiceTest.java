@@ -1,6 +1,8 @@
 package com.arcube.transferaggregator.service;
 
+import com.arcube.transferaggregator.adapters.idcodec.OfferIdCodec;
 import com.arcube.transferaggregator.config.AggregatorProperties;
+import com.arcube.transferaggregator.config.AggregatorProperties.DegradedSupplierPolicy;
 import com.arcube.transferaggregator.config.TenantConfig;
 import com.arcube.transferaggregator.config.TenantContext;
 import com.arcube.transferaggregator.domain.Amenity;
@@ -14,10 +16,14 @@ import com.arcube.transferaggregator.ports.TransferSupplier;
 import com.arcube.transferaggregator.resilience.RateLimiter;
 import com.arcube.transferaggregator.resilience.SupplierBulkhead;
 import com.arcube.transferaggregator.resilience.SupplierCircuitBreaker;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard;
+import com.arcube.transferaggregator.resilience.SupplierHealthScoreboard.Decision;
 import com.arcube.transferaggregator.testutil.ArcubeTestData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 import java.time.Duration;
@@ -78,7 +84,7 @@ class TransferSearchServiceTest {
             SupplierSearchResult.success("S2", "sid-2", List.of(offer2), false, 1));
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         TenantContext.setTenantId("tenant-a");
         SearchRequest request = ArcubeTestData.validAddressSearch();
@@ -124,7 +130,7 @@ class TransferSearchServiceTest {
             SupplierSearchResult.success("S2", "sid-2", List.of(), true, 1));
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
 
@@ -147,7 +153,7 @@ class TransferSearchServiceTest {
         when(registry.getEnabledSuppliers()).thenReturn(List.of());
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
 
@@ -184,7 +190,7 @@ class TransferSearchServiceTest {
         when(supplier.search(any(), any(Duration.class))).thenReturn(timedOut);
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
 
@@ -219,7 +225,7 @@ class TransferSearchServiceTest {
         when(supplier.search(any(), any(Duration.class))).thenThrow(new RuntimeException("boom"));
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
 
@@ -252,7 +258,7 @@ class TransferSearchServiceTest {
             .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(2)).get());
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
 
@@ -287,7 +293,7 @@ class TransferSearchServiceTest {
             SupplierSearchResult.success("S1", "sid-1", List.of(), true, 1));
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchRequest request = SearchRequest.builder()
             .pickupLocation(null)
@@ -337,7 +343,7 @@ class TransferSearchServiceTest {
             SupplierSearchResult.success("S1", "sid-1", List.of(offer), true, 1));
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         SearchRequest request = SearchRequest.builder()
             .mode(null)
@@ -380,7 +386,7 @@ class TransferSearchServiceTest {
             SupplierSearchResult.success("S1", "sid-1", List.of(), true, 1));
 
         TransferSearchService service = new TransferSearchService(
-            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig);
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), healthScoreboard());
 
         service.search(ArcubeTestData.validAddressSearch());
 
@@ -388,4 +394,150 @@ class TransferSearchServiceTest {
         verify(supplier).search(any(), timeoutCaptor.capture());
         assertThat(timeoutCaptor.getValue().toMillis()).isEqualTo(100);
     }
+
+    @Test
+    void appliesTenantPolicyToDegradedSuppliers() {
+        SupplierRegistry registry = mock(SupplierRegistry.class);
+        AggregatorProperties props = mock(AggregatorProperties.class);
+        SupplierBulkhead bulkhead = mock(SupplierBulkhead.class);
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        SearchPollingService pollingService = mock(SearchPollingService.class);
+        SupplierCircuitBreaker circuitBreaker = mock(SupplierCircuitBreaker.class);
+        TenantConfig tenantConfig = mock(TenantConfig.class);
+
+        when(props.getGlobalTimeoutSeconds()).thenReturn(5);
+        when(tenantConfig.getDefaultTenant()).thenReturn("default");
+        when(tenantConfig.isSupplierEnabled(anyString(), anyString())).thenReturn(true);
+        when(tenantConfig.getDegradedSupplierPolicy(anyString())).thenReturn(DegradedSupplierPolicy.SKIP);
+
+        TransferSupplier healthy = mock(TransferSupplier.class);
+        when(healthy.getSupplierCode()).thenReturn("S1");
+        TransferSupplier failing = mock(TransferSupplier.class);
+        when(failing.getSupplierCode()).thenReturn("S2");
+        when(registry.getEnabledSuppliers()).thenReturn(List.of(healthy, failing));
+        when(bulkhead.execute(Mockito.<java.util.function.Supplier<Object>>any()))
+            .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(0)).get());
+        when(circuitBreaker.execute(anyString(), any(), any()))
+            .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(1)).get());
+        when(healthy.search(any(), any(Duration.class))).thenReturn(
+            SupplierSearchResult.success("S1", "sid-1", List.of(), true, 1));
+
+        // Skipping is a coin toss below probability 1, so the toss is pinned for S2
+        SupplierHealthScoreboard scoreboard = spy(healthScoreboard());
+        doReturn(Decision.SKIP).when(scoreboard).decide("S2", DegradedSupplierPolicy.SKIP);
+
+        TransferSearchService service = new TransferSearchService(
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), scoreboard);
+
+        SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
+
+        assertThat(response.isIncomplete()).isTrue();
+        assertThat(response.getSupplierStatuses().get("S1").getStatus()).isEqualTo("SUCCESS");
+        assertThat(response.getSupplierStatuses().get("S2").getStatus()).isEqualTo("DEGRADED");
+        verify(failing, never()).search(any(), any(Duration.class));
+        // The healthy supplier's call was scored
+        assertThat(scoreboard.snapshot().get("S1").samples()).isEqualTo(1);
+        assertThat(scoreboard.snapshot().get("S1").emptyRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shortensTimeoutForDegradedSuppliers() {
+        SupplierRegistry registry = mock(SupplierRegistry.class);
+        AggregatorProperties props = mock(AggregatorProperties.class);
+        SupplierBulkhead bulkhead = mock(SupplierBulkhead.class);
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        SearchPollingService pollingService = mock(SearchPollingService.class);
+        SupplierCircuitBreaker circuitBreaker = mock(SupplierCircuitBreaker.class);
+        TenantConfig tenantConfig = mock(TenantConfig.class);
+
+        when(props.getGlobalTimeoutSeconds()).thenReturn(10);
+        when(tenantConfig.getDefaultTenant()).thenReturn("default");
+        when(tenantConfig.isSupplierEnabled(anyString(), anyString())).thenReturn(true);
+        when(tenantConfig.getDegradedSupplierPolicy(anyString())).thenReturn(DegradedSupplierPolicy.SHORTEN_TIMEOUT);
+
+        TransferSupplier supplier = mock(TransferSupplier.class);
+        when(supplier.getSupplierCode()).thenReturn("S1");
+        when(registry.getEnabledSuppliers()).thenReturn(List.of(supplier));
+        when(bulkhead.execute(Mockito.<java.util.function.Supplier<Object>>any()))
+            .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(0)).get());
+        when(circuitBreaker.execute(anyString(), any(), any()))
+            .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(1)).get());
+        when(supplier.search(any(), any(Duration.class))).thenReturn(
+            SupplierSearchResult.success("S1", "sid-1", List.of(), true, 1));
+
+        SupplierHealthScoreboard scoreboard = healthScoreboard();
+        for (int i = 0; i < 10; i++) {
+            scoreboard.record("S1", Duration.ofSeconds(8), SupplierHealthScoreboard.Outcome.RESULTS);
+        }
+
+        TransferSearchService service = new TransferSearchService(
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), scoreboard);
+
+        service.search(ArcubeTestData.validAddressSearch());
+
+        ArgumentCaptor<Duration> timeoutCaptor = ArgumentCaptor.forClass(Duration.class);
+        verify(supplier).search(any(), timeoutCaptor.capture());
+        assertThat(timeoutCaptor.getValue()).isLessThanOrEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void callsDeprioritisedSuppliersAfterTheHealthyOnesAnswer() {
+        SupplierRegistry registry = mock(SupplierRegistry.class);
+        AggregatorProperties props = mock(AggregatorProperties.class);
+        SupplierBulkhead bulkhead = mock(SupplierBulkhead.class);
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        SearchPollingService pollingService = mock(SearchPollingService.class);
+        SupplierCircuitBreaker circuitBreaker = mock(SupplierCircuitBreaker.class);
+        TenantConfig tenantConfig = mock(TenantConfig.class);
+
+        when(props.getGlobalTimeoutSeconds()).thenReturn(5);
+        when(tenantConfig.getDefaultTenant()).thenReturn("default");
+        when(tenantConfig.isSupplierEnabled(anyString(), anyString())).thenReturn(true);
+        when(tenantConfig.getDegradedSupplierPolicy(anyString())).thenReturn(DegradedSupplierPolicy.DEPRIORITISE);
+
+        TransferSupplier degraded = mock(TransferSupplier.class);
+        when(degraded.getSupplierCode()).thenReturn("S1");
+        TransferSupplier healthy = mock(TransferSupplier.class);
+        when(healthy.getSupplierCode()).thenReturn("S2");
+        // The degraded supplier is listed first, so only the policy can put it last
+        when(registry.getEnabledSuppliers()).thenReturn(List.of(degraded, healthy));
+        when(bulkhead.execute(Mockito.<java.util.function.Supplier<Object>>any()))
+            .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(0)).get());
+        when(circuitBreaker.execute(anyString(), any(), any()))
+            .thenAnswer(inv -> ((java.util.function.Supplier<?>) inv.getArgument(1)).get());
+        when(healthy.search(any(), any(Duration.class))).thenAnswer(inv -> {
+            Thread.sleep(50);
+            return SupplierSearchResult.success("S2", "sid-2", List.of(), true, 50);
+        });
+        when(degraded.search(any(), any(Duration.class))).thenReturn(
+            SupplierSearchResult.success("S1", "sid-1", List.of(), true, 1));
+
+        SupplierHealthScoreboard scoreboard = healthScoreboard();
+        for (int i = 0; i < 10; i++) {
+            scoreboard.record("S1", Duration.ofMillis(50), SupplierHealthScoreboard.Outcome.ERROR);
+        }
+
+        TransferSearchService service = new TransferSearchService(
+            registry, props, bulkhead, rateLimiter, pollingService, circuitBreaker, tenantConfig, collapseService(), tokenIssuer(), scoreboard);
+
+        SearchResponse response = service.search(ArcubeTestData.validAddressSearch());
+
+        assertThat(response.getSupplierStatuses().get("S1").getStatus()).isEqualTo("SUCCESS");
+        assertThat(response.getSupplierStatuses().get("S2").getStatus()).isEqualTo("SUCCESS");
+        InOrder order = inOrder(healthy, degraded);
+        order.verify(healthy).search(any(), any(Duration.class));
+        order.verify(degraded).search(any(), any(Duration.class));
+    }
+
+    private static SupplierHealthScoreboard healthScoreboard() {
+        return new SupplierHealthScoreboard(new AggregatorProperties(), new SimpleMeterRegistry());
+    }
+
+    private static OfferCollapseService collapseService() {
+        return new OfferCollapseService(new AggregatorProperties(), new SimpleMeterRegistry());
+    }
+
+    private static OfferTokenIssuer tokenIssuer() {
+        return new OfferTokenIssuer(mock(OfferIdCodec.class), new SimpleMeterRegistry());
+    }
 }
@@ -0,0 +1,55 @@
+package com.arcube.transferaggregator.utils;
+
+import com.arcube.transferaggregator.config.TokenProperties;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signatures per second: Mac.getInstance + init on every call (the old path) vs cloning a
+ * pre-initialised per-key Mac. Run with {@code -t 8} or more to see behaviour under contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HmacSignerBenchmark {
+
+    private static final String SECRET = "01234567890123456789012345678901";
+
+    private HmacSigner signer;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret(SECRET);
+        props.validate();
+        signer = new HmacSigner(props);
+        data = "AgJrMQGk6NiqBoDl2KoGBU1PWklPJDdmM2MyYTllLTViMWQtNGM4ZQ".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public byte[] initPerCall() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return mac.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] clonedPrototype() {
+        byte[] signature = new byte[HmacSigner.SIGNATURE_LENGTH];
+        signer.sign(data, 0, data.length, signature, 0);
+        return signature;
+    }
+
+    @Benchmark
+    public String clonedPrototypeBase64() {
+        return signer.sign("AgJrMQGk6NiqBoDl2KoGBU1PWklPJDdmM2MyYTllLTViMWQtNGM4ZQ");
+    }
+}
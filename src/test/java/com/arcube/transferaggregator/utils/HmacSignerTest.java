@@ -53,4 +53,60 @@ class HmacSignerTest {
             .isInstanceOf(RuntimeException.class)
             .hasMessage("Failed to sign data");
     }
+
+    @Test
+    void verifiesAgainstRetiredKeysAfterRotation() {
+        HmacSigner before = new HmacSigner(tokenProps("01234567890123456789012345678901"));
+        String oldSignature = before.sign("payload");
+
+        TokenProperties rotated = new TokenProperties();
+        rotated.setSecret("abcdefghijklmnopqrstuvwxyzABCDEF0123456789");
+        rotated.setKeyId("k2");
+        rotated.getPreviousSecrets().put("k1", "01234567890123456789012345678901");
+        rotated.validate();
+        HmacSigner after = new HmacSigner(rotated);
+
+        assertThat(after.activeKeyId()).isEqualTo("k2");
+        assertThat(after.verify("k1", "payload", oldSignature)).isTrue();
+        assertThat(after.verify(null, "payload", oldSignature)).isTrue();
+        assertThat(after.verify("k2", "payload", oldSignature)).isFalse();
+        assertThat(after.verify("unknown", "payload", oldSignature)).isFalse();
+        assertThat(after.verify("k1", "payload", "not base64!")).isFalse();
+    }
+
+    @Test
+    void byteAndStringSigningAgree() {
+        HmacSigner signer = new HmacSigner(tokenProps("01234567890123456789012345678901"));
+        byte[] data = "xxpayloadxx".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        byte[] out = new byte[HmacSigner.SIGNATURE_LENGTH + 1];
+
+        signer.sign(data, 2, 7, out, 1);
+
+        assertThat(HmacSigner.URL_ENCODER.encodeToString(java.util.Arrays.copyOfRange(out, 1, out.length)))
+            .isEqualTo(signer.sign("payload"));
+    }
+
+    @Test
+    void concurrentSigningFromVirtualThreadsIsConsistent() throws Exception {
+        HmacSigner signer = new HmacSigner(tokenProps("01234567890123456789012345678901"));
+        String expected = signer.sign("payload");
+
+        try (var executor = java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = java.util.stream.IntStream.range(0, 500)
+                .mapToObj(i -> executor.submit(() -> signer.sign("payload")))
+                .toList();
+            for (var future : futures) {
+                assertThat(future.get()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void rejectsKeyIdThatIsAlsoRetired() {
+        TokenProperties props = new TokenProperties();
+        props.setSecret("01234567890123456789012345678901");
+        props.getPreviousSecrets().put("k1", "abcdefghijklmnopqrstuvwxyzABCDEF0123456789");
+
+        assertThatThrownBy(props::validate).isInstanceOf(IllegalStateException.class);
+    }
 }